@@ -0,0 +1,64 @@
+package com.ck.quiz.thpool;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * 阻塞型作业执行基准：1000 个并发作业，每个阻塞 blockMs（模拟等待进程管道、SSH 通道、HTTP 响应），
+ * 对比 平台线程池（job-exec 默认上限 32）、平台线程每任务一线程、虚拟线程 完成整批作业的耗时
+ * 运行：./gradlew :backend:jmh -PjavaVersion=21 -Pjmh.includes=VirtualThreadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VirtualThreadBenchmark {
+
+    @Param({"platform-pool", "platform-per-task", "virtual"})
+    private String mode;
+
+    @Param({"1000"})
+    private int jobs;
+
+    @Param({"50"})
+    private int blockMs;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        switch (mode) {
+            case "platform-pool" -> executor = new ThreadPoolExecutor(32, 32, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            case "platform-per-task" -> executor = Executors.newCachedThreadPool();
+            default -> {
+                if (!VirtualThreadExecutor.isSupported()) {
+                    throw new IllegalStateException("虚拟线程基准需 Java 21+，请使用 -PjavaVersion=21 运行");
+                }
+                executor = new VirtualThreadExecutor("bench", jobs, jobs, "ABORT", null);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void runJobs() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(jobs);
+        for (int i = 0; i < jobs; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(blockMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,80 @@
+package com.ck.quiz.utils;
+
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Excel 模板渲染基准：每次解析模板 + handleSheet（cold） 对比 预编译模板 + SXSSF（compiled）
+ * 运行：./gradlew :backend:jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExcelTemplateBenchmark {
+
+    private static final String TEMPLATE = "templates/table_dict_template.xlsx";
+
+    private static final String SHEET = "门户";
+
+    @Param({"100", "2000"})
+    private int rows;
+
+    private List<Map<String, Object>> loopData;
+
+    @Setup
+    public void setup() throws IOException {
+        loopData = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("tableName", "table_" + (i / 20));
+            map.put("tableRemark", "表备注" + (i / 20));
+            map.put("columnName", "column_" + i);
+            map.put("dataType", "VARCHAR");
+            map.put("columnSize", "64");
+            map.put("decimalDigits", "0");
+            map.put("nullable", "true");
+            map.put("defaultValue", "");
+            map.put("primaryKey", String.valueOf(i % 20 == 0));
+            map.put("remarks", "字段备注" + i);
+            loopData.add(map);
+        }
+        // 预热编译缓存，compiled 场景只测渲染
+        ExcelTemplateHelper.getTemplatePlan(TEMPLATE);
+    }
+
+    @Benchmark
+    public void cold(Blackhole blackhole) throws IOException {
+        try (InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(TEMPLATE);
+             XSSFWorkbook workbook = new XSSFWorkbook(is)) {
+            XSSFSheet sheet = workbook.getSheet(SHEET);
+            ExcelTemplateHelper.handleSheet(sheet, new HashMap<>(), dynamicList(), ExcelTemplateHelper.getBorderStyle(workbook));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            workbook.write(out);
+            blackhole.consume(out.size());
+        }
+    }
+
+    @Benchmark
+    public void compiled(Blackhole blackhole) throws IOException {
+        Map<String, ExcelTemplatePlan.SheetData> sheetDataMap = new HashMap<>();
+        sheetDataMap.put(SHEET, new ExcelTemplatePlan.SheetData(new HashMap<>(), dynamicList()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExcelTemplateHelper.renderTemplate(TEMPLATE, sheetDataMap, out);
+        blackhole.consume(out.size());
+    }
+
+    private List<Map<String, Object>> dynamicList() {
+        Map<String, Object> dynamic = new HashMap<>();
+        dynamic.put("loopId", "loop");
+        dynamic.put("dataList", loopData);
+        return Collections.singletonList(dynamic);
+    }
+}
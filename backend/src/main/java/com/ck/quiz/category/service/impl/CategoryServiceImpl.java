@@ -13,7 +13,7 @@ import com.ck.quiz.question.dto.QuestionCreateDto;
 import com.ck.quiz.question.service.QuestionService;
 import com.ck.quiz.subject.dto.SubjectDto;
 import com.ck.quiz.subject.service.SubjectService;
-import com.ck.quiz.thpool.CommonPool;
+import com.ck.quiz.thpool.ExecutorRegistry;
 import com.ck.quiz.utils.IdHelper;
 import com.ck.quiz.utils.JdbcQueryHelper;
 import lombok.extern.slf4j.Slf4j;
@@ -42,6 +42,9 @@ public class CategoryServiceImpl implements CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
     @Autowired
     private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
@@ -368,7 +371,7 @@ public class CategoryServiceImpl implements CategoryService {
 
     public void initCategoryQuestionsAsync(String categoryId, int questionNum) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        CommonPool.cachedPool.execute(()->{
+        executorRegistry.get(ExecutorRegistry.LLM).execute(()->{
             initCategoryQuestions(authentication.getName(), categoryId, questionNum);
         });
     }
@@ -5,6 +5,7 @@ import com.ck.quiz.cron.service.JobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -38,6 +39,25 @@ public class CronJobController {
         return ResponseEntity.ok(jobService.searchJobs(offset, limit, state, taskClass, queueName, triggerType, startTimeLt, startTimeGt, taskId, keyWord));
     }
 
+    /**
+     * 游标分页搜索作业
+     */
+    @GetMapping("/search/cursor")
+    @Operation(summary = "游标分页搜索作业")
+    public ResponseEntity<Object> searchJobsByCursor(@Parameter(description = "上一页返回的游标，首页为空") @RequestParam(required = false, defaultValue = "") String cursor,
+                                                     @Parameter(description = "每页数量") @RequestParam(required = false, defaultValue = "20") int limit,
+                                                     @Parameter(description = "总数统计方式：EXACT/APPROXIMATE/NONE") @RequestParam(required = false, defaultValue = "APPROXIMATE") String countMode,
+                                                     @Parameter(description = "状态") @RequestParam(required = false, defaultValue = "") String state,
+                                                     @Parameter(description = "任务类名") @RequestParam(required = false, defaultValue = "") String taskClass,
+                                                     @Parameter(description = "队列名称") @RequestParam(required = false, defaultValue = "") String queueName,
+                                                     @Parameter(description = "触发类型") @RequestParam(required = false, defaultValue = "") String triggerType,
+                                                     @Parameter(description = "开始时间小于") @RequestParam(required = false, defaultValue = "") String startTimeLt,
+                                                     @Parameter(description = "开始时间大于") @RequestParam(required = false, defaultValue = "") String startTimeGt,
+                                                     @Parameter(description = "任务ID") @RequestParam(required = false, defaultValue = "") String taskId,
+                                                     @Parameter(description = "关键词") @RequestParam(required = false, defaultValue = "") String keyWord) {
+        return ResponseEntity.ok(jobService.searchJobsByCursor(cursor, limit, countMode, state, taskClass, queueName, triggerType, startTimeLt, startTimeGt, taskId, keyWord));
+    }
+
     /**
      * 获取作业统计信息
      */
@@ -101,9 +121,10 @@ public class CronJobController {
     @Operation(summary = "获取作业日志")
     public ResponseEntity<Object> getLogs(@Parameter(description = "作业ID") @PathVariable String jobId,
                                           @Parameter(description = "每页数量") @RequestParam(required = false, defaultValue = "20") int limit,
-                                          @Parameter(description = "偏移量") @RequestParam(required = false, defaultValue = "0") int offset
+                                          @Parameter(description = "偏移量") @RequestParam(required = false, defaultValue = "0") int offset,
+                                          @Parameter(description = "是否从末尾倒数分页（offset 为距末尾的行数）") @RequestParam(required = false, defaultValue = "false") boolean tail
     ) {
-        return ResponseEntity.ok(jobService.getLogs(jobId, limit, offset));
+        return ResponseEntity.ok(jobService.getLogs(jobId, limit, offset, tail));
     }
 
     @PostMapping("/download/logs/{jobId}")
@@ -116,8 +137,11 @@ public class CronJobController {
 
     @GetMapping(path = "/logs/stream/{jobId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     @Operation(summary = "实时获取作业日志（SSE）")
-    public SseEmitter streamLogs(@PathVariable String jobId) {
-        return jobService.streamLogs(jobId);
+    public SseEmitter streamLogs(@PathVariable String jobId,
+                                 @Parameter(description = "已收到的日志偏移，断线重连时传上次最后一个事件的 id") @RequestParam(required = false) Long offset,
+                                 @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        long from = offset != null ? offset : NumberUtils.toLong(lastEventId, 0);
+        return jobService.streamLogs(jobId, from);
     }
 
 }
@@ -18,7 +18,9 @@ import java.time.LocalDateTime;
         indexes = {
                 @Index(name = "idx_job_state", columnList = "state"),
                 @Index(name = "idx_job_queue", columnList = "queue_name"),
-                @Index(name = "idx_job_state_queue", columnList = "state, queue_name")
+                @Index(name = "idx_job_state_queue", columnList = "state, queue_name"),
+                @Index(name = "idx_job_create_time", columnList = "create_time"),
+                @Index(name = "idx_job_state_lease", columnList = "state, lease_expire")
         }
 )
 public class Job {
@@ -78,4 +80,12 @@ public class Job {
     @Comment("记录创建时间")
     private LocalDateTime createTime;
 
+    @Column(name = "node_id", length = 128)
+    @Comment("执行节点")
+    private String nodeId;
+
+    @Column(name = "lease_expire")
+    @Comment("执行租约到期时间，节点心跳续期")
+    private LocalDateTime leaseExpire;
+
 }
@@ -62,4 +62,12 @@ public class PendingJob {
     @Column(name = "pop_batch_no")
     private String popBatchNo;
 
+    @Comment("认领节点")
+    @Column(name = "claim_owner", length = 128)
+    private String claimOwner;
+
+    @Comment("认领租约到期时间，过期后其他节点可重新认领")
+    @Column(name = "claim_expire")
+    private LocalDateTime claimExpire;
+
 }
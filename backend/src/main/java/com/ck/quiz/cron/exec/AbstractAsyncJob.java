@@ -1,13 +1,11 @@
 package com.ck.quiz.cron.exec;
 
+import com.ck.quiz.cron.service.JobLogTailer;
+import com.ck.quiz.cron.service.JobTypeRegistry;
 import com.ck.quiz.utils.HumpHelper;
 import com.ck.quiz.utils.SpringContextUtil;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.MapUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.MDC;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -26,6 +24,13 @@ public abstract class AbstractAsyncJob {
 
     public abstract String getJobLabel();
 
+    /**
+     * 是否为长时间阻塞在进程管道、SSH 通道等 IO 上的作业，是则由 job-io 线程池（可配置为虚拟线程）执行
+     */
+    public boolean isBlockingIo() {
+        return false;
+    }
+
     public void fire(String jobId) {
         NamedParameterJdbcTemplate jt = SpringContextUtil.getBean(NamedParameterJdbcTemplate.class);
 
@@ -42,27 +47,16 @@ public abstract class AbstractAsyncJob {
         Map<String, Object> job = list.get(0);
         LocalDateTime startTime = (LocalDateTime) job.get("startTime");
 
-        String taskParamsStr = MapUtils.getString(job, "taskParams");
-        Map<String, Object> taskParams = new HashMap<>();
-
-        if (StringUtils.isNotBlank(taskParamsStr)) {
-            ObjectMapper mapper = new ObjectMapper();
-            try {
-                taskParams = mapper.readValue(taskParamsStr, new TypeReference<>() {
-                });
-            } catch (JsonProcessingException e) {
-                throw new RuntimeException(e);
-            }
-        }
+        Map<String, Object> taskParams = JobTypeRegistry.readParams(MapUtils.getString(job, "taskParams"));
 
         Map<String, Object> updateParams = new HashMap<>();
         updateParams.put("jobId", jobId);
+        String logName = getJobPreffix() + "-" + jobId;
 
         try {
             // -----------------------------
             // 设置日志输出独立文件
             // -----------------------------
-            String logName = getJobPreffix() + "-" + jobId;
             String logPath = Paths.get("logs", logName).toAbsolutePath() + ".log";
             updateParams.put("logPath", logPath);
             jt.update(
@@ -111,6 +105,9 @@ public abstract class AbstractAsyncJob {
             );
 
         } finally {
+            // 最后写入结束标记，经异步 appender 排在本作业日志之后，日志跟踪读到后结束推送
+            MDC.put("bizLogFile", logName);
+            log.info(JobLogTailer.END_MARKER);
             // 必须清理 MDC，否则线程复用时会串日志
             MDC.remove("bizLogFile");
             MDC.remove("jobId");
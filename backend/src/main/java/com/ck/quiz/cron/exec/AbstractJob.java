@@ -1,13 +1,11 @@
 package com.ck.quiz.cron.exec;
 
+import com.ck.quiz.cron.service.JobLogTailer;
+import com.ck.quiz.cron.service.JobTypeRegistry;
 import com.ck.quiz.utils.HumpHelper;
 import com.ck.quiz.utils.SpringContextUtil;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.MapUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.MDC;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -36,20 +34,11 @@ public abstract class AbstractJob {
         }
         Map<String, Object> job = list.get(0);
         Date startTime = (Date) job.get("startTime");
-        String taskParamsStr = MapUtils.getString(job, "taskParams");
-        Map<String, Object> taskParams = new HashMap<>();
-        if (StringUtils.isNotBlank(taskParamsStr)) {
-            ObjectMapper mapper = new ObjectMapper();
-            try {
-                taskParams = mapper.readValue(taskParamsStr, new TypeReference<>() {});
-            } catch (JsonProcessingException e) {
-                throw new RuntimeException(e);
-            }
-        }
+        Map<String, Object> taskParams = JobTypeRegistry.readParams(MapUtils.getString(job, "taskParams"));
         Map<String, Object> updateParams = new HashMap<>();
         updateParams.put("jobId", jobId);
+        String logName = getJobPreffix() + "-" + jobId;
         try {
-            String logName = getJobPreffix() + "-" + jobId;
             String logPath = Paths.get("logs", logName).toAbsolutePath()+".log";
             taskParams.put("jobId", jobId);
             updateParams.put("logPath", logPath);
@@ -72,6 +61,9 @@ public abstract class AbstractJob {
             updateParams.put("errorMessage", ExceptionUtils.getStackTrace(e));
             jt.update("update job set state=:state, end_time=:endTime, duration_ms=:durationMs, error_message=:errorMessage where id=:jobId", updateParams);
         } finally {
+            // 最后写入结束标记，经异步 appender 排在本作业日志之后，日志跟踪读到后结束推送
+            MDC.put("bizLogFile", logName);
+            log.info(JobLogTailer.END_MARKER);
             MDC.remove("bizLogFile");
         }
     }
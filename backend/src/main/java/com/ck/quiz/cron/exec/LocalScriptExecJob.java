@@ -27,6 +27,11 @@ public class LocalScriptExecJob extends AbstractAsyncJob {
         return "本地脚本执行";
     }
 
+    @Override
+    public boolean isBlockingIo() {
+        return true;
+    }
+
     @Override
     public void run(Map<String, Object> params) {
         // 1. 获取基础命令
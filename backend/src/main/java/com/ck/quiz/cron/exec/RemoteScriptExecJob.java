@@ -1,12 +1,10 @@
 package com.ck.quiz.cron.exec;
 
-import com.ck.quiz.utils.LogPushService;
 import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.Session;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.MapUtils;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
@@ -25,9 +23,6 @@ import java.util.Properties;
 @Component
 public class RemoteScriptExecJob extends AbstractAsyncJob {
 
-    @Autowired
-    private LogPushService logPushService;
-
     @Override
     public String getJobPreffix() {
         return "RemoteScriptExec";
@@ -38,9 +33,13 @@ public class RemoteScriptExecJob extends AbstractAsyncJob {
         return "远程脚本执行";
     }
 
+    @Override
+    public boolean isBlockingIo() {
+        return true;
+    }
+
     @Override
     public void run(Map<String, Object> params) {
-        String jobId = MapUtils.getString(params, "jobId");
         String host = MapUtils.getString(params, "host");
         int port = MapUtils.getIntValue(params, "port", 22);
         String username = MapUtils.getString(params, "username");
@@ -124,7 +123,7 @@ public class RemoteScriptExecJob extends AbstractAsyncJob {
             log.error("远程脚本执行异常: {}", e.getMessage(), e);
             throw new RuntimeException("远程脚本执行异常", e);
         } finally {
-            logPushService.complete(jobId);
+            // 日志推送由 JobLogTailer 在作业结束后读完日志文件再结束
             if (channel != null && channel.isConnected()) {
                 channel.disconnect();
             }
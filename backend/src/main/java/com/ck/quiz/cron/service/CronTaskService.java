@@ -11,6 +11,7 @@ import com.ck.quiz.cron.exec.LocalScriptExecJob;
 import com.ck.quiz.cron.exec.RemoteScriptExecJob;
 import com.ck.quiz.cron.repository.CronTaskRepository;
 import com.ck.quiz.cron.repository.JobQueueRepository;
+import com.ck.quiz.thpool.ExecutorRegistry;
 import com.ck.quiz.utils.HumpHelper;
 import com.ck.quiz.utils.IdHelper;
 import com.ck.quiz.utils.JdbcQueryHelper;
@@ -34,6 +35,9 @@ public class CronTaskService {
     @Autowired
     private DynamicCronTaskScheduler taskScheduler;
 
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
     @Autowired
     private CronTaskRepository cronJobRepo;
 
@@ -152,7 +156,7 @@ public class CronTaskService {
         if (list.isEmpty()) {
             throw new RuntimeException("未查询到任务ID【" + id + "】对应的任务信息!");
         }
-        DynamicCronTaskScheduler.executor.execute(scheduler.createTaskRunner(list.get(0)));
+        executorRegistry.get(ExecutorRegistry.JOB_EXEC).execute(scheduler.createTaskRunner(list.get(0)));
         return id;
     }
 
@@ -5,9 +5,6 @@ import com.ck.quiz.cron.dto.CronTaskDto;
 import com.ck.quiz.utils.HumpHelper;
 import com.ck.quiz.utils.IdHelper;
 import com.ck.quiz.utils.SpringContextUtil;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -22,14 +19,11 @@ import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.scheduling.support.CronTrigger;
 import org.springframework.stereotype.Component;
 
-import java.lang.reflect.Method;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
 
 
@@ -38,14 +32,15 @@ public class DynamicCronTaskScheduler {
 
     private static final Logger log = LoggerFactory.getLogger(DynamicCronTaskScheduler.class);
 
-    public static ExecutorService executor = Executors.newCachedThreadPool();
-
     @Autowired
     private ScheduledTaskRegistrar taskRegistrar;
 
     @Autowired
     private NamedParameterJdbcTemplate jt;
 
+    @Autowired
+    private JobTypeRegistry jobTypeRegistry;
+
     // 存储已注册的任务，用于取消
     private final Map<String, ScheduledFuture<?>> registeredTasks = new ConcurrentHashMap<>();
 
@@ -70,6 +65,8 @@ public class DynamicCronTaskScheduler {
         if (StringUtils.isBlank(cronExpression)) {
             return;
         }
+        // 任务重新注册时实现类可能已变更，清除已解析的调用器
+        jobTypeRegistry.invalidate(MapUtils.getString(task, "taskClass"));
         Runnable taskRunner = createTaskRunner(task);
         Trigger trigger = new CronTrigger(cronExpression);
         log.info("注册定时任务: id={}, name={}, label={}, cronExpression={}", id, name, label, cronExpression);
@@ -90,6 +87,7 @@ public class DynamicCronTaskScheduler {
         if (StringUtils.isBlank(cronExpression)) {
             return;
         }
+        jobTypeRegistry.invalidate(task.getTaskClass());
         Runnable taskRunner = createTaskRunner(task);
         Trigger trigger = new CronTrigger(cronExpression);
         log.info("注册定时任务: id={}, name={}, label={}, cronExpression={}", id, name, label, cronExpression);
@@ -124,27 +122,11 @@ public class DynamicCronTaskScheduler {
         return () -> {
             try {
                 String jobId = addJob(task);
-                String id = MapUtils.getString(task, "id");
-                String taskClass = MapUtils.getString(task, "taskClass");
-                String fireParams = MapUtils.getString(task, "fireParams");
-                Map<String, Object> params = new HashMap<>();
-                if (StringUtils.isNotBlank(fireParams)) {
-                    ObjectMapper mapper = new ObjectMapper();
-                    try {
-                        Map<String, Object> tempParams = mapper.readValue(fireParams, new TypeReference<>() {});
-                        if (tempParams != null) {
-                            params.putAll(tempParams);
-                        }
-                    } catch (JsonProcessingException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
+                Map<String, Object> params = JobTypeRegistry.readParams(MapUtils.getString(task, "fireParams"));
                 params.put("jobId", jobId);
-                Class<?> clazz = Class.forName(taskClass);
-                Object bean = SpringContextUtil.getBean(clazz);
-                Method method = clazz.getMethod("fire", String.class, Map.class);
-                method.invoke(bean, id, params);
-            } catch (Exception e) {
+                jobTypeRegistry.resolve(MapUtils.getString(task, "taskClass"))
+                        .fire(MapUtils.getString(task, "id"), jobId, params);
+            } catch (Throwable e) {
                 log.error("定时任务反射异常:{}", ExceptionUtils.getStackTrace(e));
             }
         };
@@ -171,25 +153,10 @@ public class DynamicCronTaskScheduler {
         return () -> {
             try {
                 String jobId = addJob(task);
-                String fireParams = task.getFireParams();
-                Map<String, Object> params = new HashMap<>();
-                if (StringUtils.isNotBlank(fireParams)) {
-                    ObjectMapper mapper = new ObjectMapper();
-                    try {
-                        Map<String, Object> tempParams = mapper.readValue(fireParams, new TypeReference<>() {});
-                        if (tempParams != null) {
-                            params.putAll(tempParams);
-                        }
-                    } catch (JsonProcessingException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
+                Map<String, Object> params = JobTypeRegistry.readParams(task.getFireParams());
                 params.put("jobId", jobId);
-                Class<?> clazz = Class.forName(task.getTaskClass());
-                Object bean = SpringContextUtil.getBean(clazz);
-                Method method = clazz.getMethod("fire", String.class, Map.class);
-                method.invoke(bean, task.getId(), params);
-            } catch (Exception e) {
+                jobTypeRegistry.resolve(task.getTaskClass()).fire(task.getId(), jobId, params);
+            } catch (Throwable e) {
                 log.error("定时任务反射异常:{}", ExceptionUtils.getStackTrace(e));
             }
         };
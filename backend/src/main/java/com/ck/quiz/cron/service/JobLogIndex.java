@@ -0,0 +1,285 @@
+package com.ck.quiz.cron.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * 作业日志稀疏行索引
+ * <p>
+ * 每 interval 行记录一次该行起始字节偏移，索引持久化在日志旁的 .idx 文件中。
+ * 每次读取前只扫描上次索引位置之后新写入的字节（运行中作业的日志随读取增量建立索引），
+ * 分页时直接定位到最近的检查点，最多再跳过 interval - 1 行，不再从文件头逐行跳过。
+ * 日志被截断或按天滚动为新文件（文件标识变化）时自动重建。
+ */
+@Slf4j
+@Component
+public class JobLogIndex {
+
+    private static final int MAGIC = 0x514C4958;
+
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private static final int MAX_CACHED = 64;
+
+    /**
+     * 每隔多少行记录一个检查点
+     */
+    @Value("${quiz.job.log.index-interval:1000}")
+    private int interval;
+
+    private final Map<Path, LineIndex> cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, LineIndex> eldest) {
+            return size() > MAX_CACHED;
+        }
+    });
+
+    /**
+     * 按行分页读取
+     *
+     * @param offset 起始行（从 0 开始）
+     * @param limit  行数
+     */
+    public List<String> readLines(Path logFile, long offset, int limit) throws IOException {
+        LineIndex index = refresh(logFile);
+        return read(logFile, index, offset, limit);
+    }
+
+    /**
+     * 从文件末尾倒数分页读取，返回的行仍按文件顺序排列
+     *
+     * @param offsetFromEnd 从末尾跳过的行数，0 表示最后一页
+     * @param limit         行数
+     */
+    public List<String> readTail(Path logFile, long offsetFromEnd, int limit) throws IOException {
+        LineIndex index = refresh(logFile);
+        long total = index.totalLines();
+        long end = total - offsetFromEnd;
+        if (end <= 0) {
+            return Collections.emptyList();
+        }
+        long start = Math.max(0, end - limit);
+        return read(logFile, index, start, (int) (end - start));
+    }
+
+    private List<String> read(Path logFile, LineIndex index, long offset, int limit) throws IOException {
+        // 与原实现一致：行数不为正时返回空列表，负偏移按 0 处理
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        offset = Math.max(0, offset);
+        long start;
+        long skip;
+        synchronized (index) {
+            if (offset >= index.totalLines()) {
+                return Collections.emptyList();
+            }
+            int checkpoint = (int) Math.min(offset / index.interval, index.checkpoints.size() - 1);
+            start = index.checkpoints.get(checkpoint);
+            skip = offset - (long) checkpoint * index.interval;
+        }
+        List<String> lines = new ArrayList<>(Math.min(limit, 1000));
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            channel.position(start);
+            Reader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            for (long i = 0; i < skip; i++) {
+                if (readLine(reader) == null) {
+                    return lines;
+                }
+            }
+            String line;
+            while (lines.size() < limit && (line = readLine(reader)) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * 只按 \n 分行（与索引一致），去掉行尾的 \r；脚本输出中单独的 \r（进度条）不视为换行
+     */
+    private static String readLine(Reader reader) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '\n') {
+                break;
+            }
+            line.append((char) c);
+        }
+        if (c == -1 && line.length() == 0) {
+            return null;
+        }
+        int len = line.length();
+        if (len > 0 && line.charAt(len - 1) == '\r') {
+            line.setLength(len - 1);
+        }
+        return line.toString();
+    }
+
+    /**
+     * 加载索引并补充扫描新增内容
+     */
+    private LineIndex refresh(Path logFile) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(logFile, BasicFileAttributes.class);
+        String fileKey = attrs.fileKey() == null ? "" : attrs.fileKey().toString();
+        LineIndex index = cache.computeIfAbsent(logFile, path -> load(path, fileKey));
+        synchronized (index) {
+            if (!index.fileKey.equals(fileKey) || attrs.size() < index.scanned) {
+                // 文件被截断或滚动为新文件
+                index.reset(fileKey, interval);
+            }
+            if (attrs.size() > index.scanned && scan(logFile, index)) {
+                save(logFile, index);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 从 index.scanned 开始扫描换行符，换行符 0x0A 不会出现在 UTF-8 多字节字符内部，可直接按字节统计
+     *
+     * @return 是否扫描了新内容
+     */
+    private boolean scan(Path logFile, LineIndex index) throws IOException {
+        long before = index.scanned;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            long position = index.scanned;
+            int n;
+            while ((n = channel.read(buffer, position)) > 0) {
+                buffer.flip();
+                for (int i = 0; i < n; i++) {
+                    if (buffer.get(i) == '\n') {
+                        index.lines++;
+                        index.lastLineEnd = position + i + 1;
+                        if (index.lines % index.interval == 0) {
+                            index.checkpoints.add(index.lastLineEnd);
+                        }
+                    }
+                }
+                position += n;
+                buffer.clear();
+            }
+            index.scanned = position;
+        }
+        return index.scanned > before;
+    }
+
+    private Path indexPath(Path logFile) {
+        return logFile.resolveSibling(logFile.getFileName() + INDEX_SUFFIX);
+    }
+
+    private LineIndex load(Path logFile, String fileKey) {
+        LineIndex index = new LineIndex();
+        index.reset(fileKey, interval);
+        Path indexFile = indexPath(logFile);
+        if (!Files.isRegularFile(indexFile)) {
+            return index;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != index.interval || !in.readUTF().equals(fileKey)) {
+                return index;
+            }
+            index.scanned = in.readLong();
+            index.lines = in.readLong();
+            index.lastLineEnd = in.readLong();
+            int count = in.readInt();
+            index.checkpoints.clear();
+            for (int i = 0; i < count; i++) {
+                index.checkpoints.add(in.readLong());
+            }
+        } catch (IOException e) {
+            log.warn("日志索引损坏，重新建立 {}：{}", indexFile, e.getMessage());
+            index.reset(fileKey, interval);
+        }
+        return index;
+    }
+
+    private void save(Path logFile, LineIndex index) {
+        Path indexFile = indexPath(logFile);
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(index.interval);
+                out.writeUTF(index.fileKey);
+                out.writeLong(index.scanned);
+                out.writeLong(index.lines);
+                out.writeLong(index.lastLineEnd);
+                out.writeInt(index.checkpoints.size());
+                for (long checkpoint : index.checkpoints) {
+                    out.writeLong(checkpoint);
+                }
+            }
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // 索引仅用于加速，写入失败不影响读取
+            log.warn("保存日志索引失败 {}：{}", indexFile, e.getMessage());
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static class LineIndex {
+
+        private int interval;
+
+        /**
+         * 日志文件标识（inode 等），文件滚动后变化
+         */
+        private String fileKey;
+
+        /**
+         * 已扫描的字节数
+         */
+        private long scanned;
+
+        /**
+         * 已扫描的完整行数
+         */
+        private long lines;
+
+        /**
+         * 最后一个换行符之后的偏移
+         */
+        private long lastLineEnd;
+
+        /**
+         * 第 k 个元素为第 k * interval 行的起始偏移
+         */
+        private final List<Long> checkpoints = new ArrayList<>();
+
+        private void reset(String fileKey, int interval) {
+            this.interval = Math.max(1, interval);
+            this.fileKey = fileKey;
+            this.scanned = 0;
+            this.lines = 0;
+            this.lastLineEnd = 0;
+            this.checkpoints.clear();
+            this.checkpoints.add(0L);
+        }
+
+        /**
+         * 总行数，末尾没有换行符的半行也计入
+         */
+        private long totalLines() {
+            return scanned > lastLineEnd ? lines + 1 : lines;
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package com.ck.quiz.cron.service;
+
+import com.ck.quiz.utils.HumpHelper;
+import com.ck.quiz.utils.LogPushService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 作业日志跟踪（tail -f）
+ * <p>
+ * 所有查看中的作业日志由同一个跟踪线程处理：
+ * - FileChannel + 直接缓冲区按块读取新增内容，UTF-8 解码器跨块保留不完整的字符及行，不再逐字节 readLine
+ * - 由 WatchService 监听日志目录的修改事件唤醒，无事件时按 50ms ~ 1s 自适应轮询兜底
+ * - 每秒批量查询一次作业状态，作业结束（SUCCESS / FAILED / STOPPED）后读完剩余内容并结束推送；
+ *   日志经异步 appender 落盘，作业在最后写入结束标记 {@link #END_MARKER}，读到标记后才关闭，不遗漏尾部日志；
+ *   标记缺失（升级前的作业、作业进程异常退出）时，作业结束 END_MARKER_TIMEOUT_MS 后不再等待
+ * - 最慢的查看端积压时暂停读取，所有查看端断开后停止跟踪
+ * - 每行日志附带其结束位置的字节偏移（SSE 事件 id），重新连接时从客户端已收到的偏移继续，不重复推送
+ * - 无新内容时比较文件标识，日志被滚动（重命名后新建）时读完旧文件再切换到新文件
+ */
+@Slf4j
+@Component
+public class JobLogTailer {
+
+    private static final Set<String> TERMINAL_STATES = Set.of("SUCCESS", "FAILED", "STOPPED");
+
+    private static final long MIN_POLL_MS = 50;
+
+    private static final long MAX_POLL_MS = 1000;
+
+    private static final long STATE_CHECK_MS = 1000;
+
+    /**
+     * 作业日志结束标记，由 AbstractJob / AbstractAsyncJob 在作业结束时写入日志文件的最后一行
+     */
+    public static final String END_MARKER = "======== 作业执行结束 ========";
+
+    /**
+     * 作业结束后未读到结束标记时的最长等待时长
+     */
+    private static final long END_MARKER_TIMEOUT_MS = 30_000;
+
+    /**
+     * 推送缓冲区剩余容量低于该值时暂停读取
+     */
+    private static final int MIN_PUSH_CAPACITY = 100;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jt;
+
+    @Autowired
+    private LogPushService logPushService;
+
+    /**
+     * 每轮每个作业最多读取的字节数
+     */
+    @Value("${quiz.job.log.tail-chunk-bytes:65536}")
+    private int chunkBytes;
+
+    private final Map<String, Tail> tails = new ConcurrentHashMap<>();
+
+    private final Set<Path> watchedDirs = ConcurrentHashMap.newKeySet();
+
+    private WatchService watchService;
+
+    private volatile boolean running = true;
+
+    private Thread tailThread;
+
+    /**
+     * 新增跟踪时唤醒空闲的跟踪线程（不使用 interrupt，避免中断正在读取的 FileChannel）
+     */
+    private final Semaphore wakeup = new Semaphore(0);
+
+    private volatile long lastStateCheck;
+
+    @PostConstruct
+    public void start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("日志目录监听不可用，改为轮询: {}", e.getMessage());
+        }
+        tailThread = new Thread(this::loop, "job-log-tailer");
+        tailThread.setDaemon(true);
+        tailThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        tailThread.interrupt();
+        tails.values().forEach(Tail::close);
+        tails.clear();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 开始跟踪作业日志，推送到作业结束；作业已在跟踪中时不重复读取，新查看端从推送缓冲区回放
+     *
+     * @param jobId   作业ID
+     * @param logPath 日志文件路径，作业尚未开始执行时可为空，跟踪线程会在状态检查时补充
+     * @param offset  起始字节偏移（客户端已收到的最后一个事件 id），从头读取时为 0
+     */
+    public void follow(String jobId, String logPath, long offset) {
+        Tail tail = new Tail(jobId);
+        tail.setPath(logPath);
+        tail.position = Math.max(0, offset);
+        if (tails.putIfAbsent(jobId, tail) != null) {
+            return;
+        }
+        // 立即检查一次状态并读取
+        lastStateCheck = 0;
+        wakeup.release();
+    }
+
+    private void loop() {
+        long pollMs = MIN_POLL_MS;
+        while (running) {
+            try {
+                if (tails.isEmpty()) {
+                    wakeup.tryAcquire(MAX_POLL_MS, TimeUnit.MILLISECONDS);
+                    wakeup.drainPermits();
+                    pollMs = MIN_POLL_MS;
+                    continue;
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastStateCheck >= STATE_CHECK_MS) {
+                    lastStateCheck = now;
+                    refreshStates();
+                }
+                boolean progressed = false;
+                for (Tail tail : new ArrayList<>(tails.values())) {
+                    progressed |= process(tail);
+                }
+                // 有新内容时保持高频，否则逐步退避
+                pollMs = progressed ? MIN_POLL_MS : Math.min(MAX_POLL_MS, pollMs * 2);
+                if (!progressed) {
+                    waitForEvent(pollMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("日志跟踪异常:{}", ExceptionUtils.getStackTrace(e));
+            }
+        }
+    }
+
+    private void waitForEvent(long timeoutMs) throws InterruptedException {
+        if (wakeup.drainPermits() > 0) {
+            return;
+        }
+        if (watchService == null) {
+            wakeup.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+            return;
+        }
+        try {
+            WatchKey key = watchService.poll(timeoutMs, TimeUnit.MILLISECONDS);
+            while (key != null) {
+                key.pollEvents();
+                key.reset();
+                key = watchService.poll();
+            }
+        } catch (ClosedWatchServiceException e) {
+            Thread.sleep(timeoutMs);
+        }
+    }
+
+    /**
+     * 批量查询跟踪中作业的状态及日志路径
+     */
+    private void refreshStates() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", new ArrayList<>(tails.keySet()));
+        List<Map<String, Object>> jobs = HumpHelper.lineToHump(
+                jt.queryForList("select id, state, log_path, end_time from job where id in (:ids)", params));
+        Set<String> found = new HashSet<>();
+        for (Map<String, Object> job : jobs) {
+            String jobId = MapUtils.getString(job, "id");
+            found.add(jobId);
+            Tail tail = tails.get(jobId);
+            if (tail == null) {
+                continue;
+            }
+            if (tail.path == null) {
+                tail.setPath(MapUtils.getString(job, "logPath"));
+            }
+            tail.markFinished(TERMINAL_STATES.contains(MapUtils.getString(job, "state")), toMillis(job.get("endTime")));
+        }
+        // 作业已被删除，不再等待结束标记
+        tails.values().stream().filter(tail -> !found.contains(tail.jobId)).forEach(tail -> tail.markFinished(true, 0));
+    }
+
+    private static long toMillis(Object time) {
+        if (time instanceof Timestamp timestamp) {
+            return timestamp.getTime();
+        }
+        if (time instanceof LocalDateTime localDateTime) {
+            return localDateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        if (time instanceof Date date) {
+            return date.getTime();
+        }
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * 读取一次新增内容
+     *
+     * @return 是否读到了新内容
+     */
+    private boolean process(Tail tail) {
+        if (tail.started && !logPushService.hasSubscribers(tail.jobId)) {
+            // 查看端已断开
+            remove(tail, false);
+            return false;
+        }
+        tail.started = true;
+        try {
+            boolean progressed = tail.path != null && read(tail);
+            if (!progressed && tail.channel != null && rolled(tail)) {
+                // 旧文件已读完，切换到滚动后新建的文件，下一轮从头读取
+                tail.flushPartial();
+                tail.close();
+                tail.position = 0;
+                tail.decoder.reset();
+                return true;
+            }
+            // 作业已结束、已读到结束标记（或等待超时）且没有可读的新内容（推送积压时等待下一轮）
+            if (tail.finished && !progressed && !tail.blocked
+                    && (tail.endSeen || System.currentTimeMillis() - tail.finishedAt >= END_MARKER_TIMEOUT_MS)) {
+                tail.flushPartial();
+                remove(tail, true);
+            }
+            return progressed;
+        } catch (NoSuchFileException e) {
+            if (tail.finished) {
+                remove(tail, true);
+            }
+            return false;
+        } catch (IOException e) {
+            log.warn("读取作业日志失败 jobId={}：{}", tail.jobId, e.getMessage());
+            remove(tail, true);
+            return false;
+        }
+    }
+
+    private boolean read(Tail tail) throws IOException {
+        if (tail.channel == null) {
+            tail.fileId = fileId(tail.path);
+            tail.channel = FileChannel.open(tail.path, StandardOpenOption.READ);
+            watch(tail.path.getParent());
+        }
+        long size = tail.channel.size();
+        if (size < tail.position) {
+            // 文件被截断（或客户端偏移属于滚动前的文件），从头读取
+            tail.position = 0;
+            tail.decoder.reset();
+            tail.line.setLength(0);
+            tail.newlines.clear();
+        }
+        long start = tail.position;
+        tail.blocked = false;
+        while (tail.position < size && tail.position - start < chunkBytes) {
+            if (logPushService.remainingCapacity(tail.jobId) <= MIN_PUSH_CAPACITY) {
+                tail.blocked = true;
+                break;
+            }
+            long before = tail.position;
+            tail.buffer.clear();
+            int n = tail.channel.read(tail.buffer, tail.position);
+            if (n <= 0) {
+                break;
+            }
+            tail.position += n;
+            tail.buffer.flip();
+            tail.decode();
+            if (tail.position == before) {
+                // 只剩不完整的多字节字符，等待后续写入
+                break;
+            }
+        }
+        return tail.position > start;
+    }
+
+    /**
+     * 日志路径当前指向的文件是否已不是打开的文件（被重命名滚动后新建）
+     */
+    private boolean rolled(Tail tail) {
+        try {
+            Object current = fileId(tail.path);
+            return current != null && tail.fileId != null && !current.equals(tail.fileId);
+        } catch (IOException e) {
+            // 滚动过程中文件暂不存在，下一轮再检查
+            return false;
+        }
+    }
+
+    /**
+     * 文件标识：优先使用 inode 等 fileKey，不支持时使用创建时间
+     */
+    private static Object fileId(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+    }
+
+    private void watch(Path dir) {
+        if (watchService == null || dir == null || !watchedDirs.add(dir)) {
+            return;
+        }
+        try {
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        } catch (IOException e) {
+            log.warn("监听日志目录失败 {}：{}", dir, e.getMessage());
+        }
+    }
+
+    private void remove(Tail tail, boolean complete) {
+        tail.close();
+        if (tails.remove(tail.jobId, tail) && complete) {
+            logPushService.complete(tail.jobId);
+        }
+    }
+
+    /**
+     * 单个作业的跟踪状态，仅由跟踪线程访问
+     */
+    private class Tail {
+
+        private final String jobId;
+
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+
+        private final CharBuffer chars = CharBuffer.allocate(8192);
+
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private final StringBuilder line = new StringBuilder();
+
+        /**
+         * 已读入缓冲区、尚未输出的换行符之后的文件偏移，按顺序与解码出的换行对应
+         */
+        private final ArrayDeque<Long> newlines = new ArrayDeque<>();
+
+        private Object fileId;
+
+        private volatile Path path;
+
+        private FileChannel channel;
+
+        private long position;
+
+        private volatile boolean finished;
+
+        private volatile long finishedAt;
+
+        /**
+         * 是否已读到结束标记
+         */
+        private boolean endSeen;
+
+        private boolean started;
+
+        private boolean blocked;
+
+        private Tail(String jobId) {
+            this.jobId = jobId;
+        }
+
+        /**
+         * @param endMillis 作业结束时间
+         */
+        private void markFinished(boolean value, long endMillis) {
+            if (value && !finished) {
+                finishedAt = endMillis;
+            }
+            finished = value;
+        }
+
+        private void setPath(String logPath) {
+            if (StringUtils.isNotBlank(logPath)) {
+                path = Paths.get(logPath);
+            }
+        }
+
+        /**
+         * 解码缓冲区中的字节，按行推送；不完整的多字节字符留在缓冲区等待下一块
+         */
+        private void decode() {
+            // UTF-8 中 0x0A 只会是换行符，先按字节记录每行结束的文件偏移
+            long base = position - buffer.limit();
+            for (int i = buffer.position(); i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    newlines.add(base + i + 1);
+                }
+            }
+            CoderResult result;
+            do {
+                result = decoder.decode(buffer, chars, false);
+                chars.flip();
+                while (chars.hasRemaining()) {
+                    char c = chars.get();
+                    if (c == '\n') {
+                        int len = line.length();
+                        if (len > 0 && line.charAt(len - 1) == '\r') {
+                            line.setLength(len - 1);
+                        }
+                        Long end = newlines.poll();
+                        if (END_MARKER.contentEquals(line)) {
+                            endSeen = true;
+                        }
+                        logPushService.appendLog(jobId, line.toString(), end != null ? end : position);
+                        line.setLength(0);
+                    } else {
+                        line.append(c);
+                    }
+                }
+                chars.clear();
+            } while (result.isOverflow());
+            // 尾部不完整的多字节字符未被解码，回退文件位置，下次与后续字节一起读取
+            position -= buffer.remaining();
+        }
+
+        private void flushPartial() {
+            if (line.length() > 0) {
+                logPushService.appendLog(jobId, line.toString(), position);
+                line.setLength(0);
+            }
+        }
+
+        private void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+                channel = null;
+            }
+        }
+    }
+}
@@ -28,6 +28,9 @@ public class JobQueueService {
     @Autowired
     private NamedParameterJdbcTemplate jt;
 
+    @Autowired
+    private QueueDispatcher queueDispatcher;
+
     /**
      * 分页查询队列
      */
@@ -74,6 +77,7 @@ public class JobQueueService {
             throw new RuntimeException("队列中仍存在未处理的Job");
         }
         jobQueueRepo.deleteById(id);
+        queueDispatcher.refreshQueues();
         return id;
     }
 
@@ -94,6 +98,7 @@ public class JobQueueService {
         jobQueue.setId(IdHelper.genUuid());
         jobQueue.setCreateTime(LocalDateTime.now());
         jobQueueRepo.save(jobQueue);
+        queueDispatcher.refreshQueues();
         return jobQueue;
     }
 
@@ -127,6 +132,7 @@ public class JobQueueService {
         JobQueue queue = optional.get();
         queue.setState("DISABLED");
         jobQueueRepo.save(queue);
+        queueDispatcher.refreshQueues();
         return id;
     }
 
@@ -141,6 +147,7 @@ public class JobQueueService {
         JobQueue queue = optional.get();
         queue.setState("ENABLED");
         jobQueueRepo.save(queue);
+        queueDispatcher.refreshQueues();
         return id;
     }
 
@@ -155,6 +162,7 @@ public class JobQueueService {
         JobQueue queue = optional.get();
         queue.setQueueSize(size);
         jobQueueRepo.save(queue);
+        queueDispatcher.refreshQueues();
         return id;
     }
 
@@ -10,7 +10,6 @@ import com.ck.quiz.cron.exec.RemoteScriptExecJob;
 import com.ck.quiz.cron.repository.JobRepository;
 import com.ck.quiz.cron.repository.PendingJobRepository;
 import com.ck.quiz.seq.service.SeqService;
-import com.ck.quiz.thpool.CommonPool;
 import com.ck.quiz.utils.*;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +18,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -61,7 +61,13 @@ public class JobService {
     private SseEmitterManager sseEmitterManager;
 
     @Autowired
-    private LogPushService logPushService;
+    private JobLogTailer jobLogTailer;
+
+    @Autowired
+    private JobLogIndex jobLogIndex;
+
+    @Autowired
+    private QueueDispatcher queueDispatcher;
 
     /**
      * 分页查询作业
@@ -72,6 +78,46 @@ public class JobService {
         StringBuilder listSql = new StringBuilder("select j.*,q.queue_label from job j left join job_queue q on j.queue_name = q.queue_name where 1=1 ");
         StringBuilder countSql = new StringBuilder("select count(*) from job j where 1=1 ");
 
+        appendJobFilters(params, listSql, countSql, state, taskClass, queueName, triggerType, startTimeLt, startTimeGt, taskId, keyWord);
+
+        // 排序
+        listSql.append(" order by j.create_time desc ");
+
+        // 分页
+        int pageSize = limit;
+        int pageNum = offset / pageSize;
+        String limitSql = JdbcQueryHelper.getLimitSql(jt, listSql.toString(), pageNum, pageSize);
+
+        // 查询数据
+        List<Map<String, Object>> rows = HumpHelper.lineToHump(jt.queryForList(limitSql, params));
+        fillJobLabel(rows);
+
+        return JdbcQueryHelper.toPage(jt, countSql.toString(), params, rows, pageNum, pageSize);
+    }
+
+    /**
+     * 游标分页查询作业，按 create_time、id 倒序，深分页不再随页码变慢
+     *
+     * @param cursor    上一页返回的 nextCursor，首页传空
+     * @param countMode 总数统计方式：EXACT / APPROXIMATE / NONE
+     */
+    public KeysetPage<Map<String, Object>> searchJobsByCursor(String cursor, int limit, String countMode, String state, String taskClass, String queueName, String triggerType, String startTimeLt, String startTimeGt, String taskId, String keyWord) {
+        Map<String, Object> params = new HashMap<>();
+
+        StringBuilder listSql = new StringBuilder("select j.*,q.queue_label from job j left join job_queue q on j.queue_name = q.queue_name where 1=1 ");
+        StringBuilder countSql = new StringBuilder("select count(*) from job j where 1=1 ");
+
+        appendJobFilters(params, listSql, countSql, state, taskClass, queueName, triggerType, startTimeLt, startTimeGt, taskId, keyWord);
+
+        KeysetPage<Map<String, Object>> page = JdbcQueryHelper.keysetPage(jt, listSql.toString(), countSql.toString(), params,
+                "j.create_time", "create_time", "j.id", "id", true,
+                cursor, limit, KeysetPage.CountMode.of(countMode), new ColumnMapRowMapper());
+        page.setContent(HumpHelper.lineToHump(page.getContent()));
+        fillJobLabel(page.getContent());
+        return page;
+    }
+
+    private void appendJobFilters(Map<String, Object> params, StringBuilder listSql, StringBuilder countSql, String state, String taskClass, String queueName, String triggerType, String startTimeLt, String startTimeGt, String taskId, String keyWord) {
         // 状态过滤
         JdbcQueryHelper.equals("state", state, "and j.state = :state ", params, listSql, countSql);
 
@@ -95,17 +141,9 @@ public class JobService {
 
         // 关键字搜索
         JdbcQueryHelper.lowerLike("keyWord", keyWord, "and lower(j.id) like :keyWord ", params, jt, listSql, countSql);
+    }
 
-        // 排序
-        listSql.append(" order by j.create_time desc ");
-
-        // 分页
-        int pageSize = limit;
-        int pageNum = offset / pageSize;
-        String limitSql = JdbcQueryHelper.getLimitSql(jt, listSql.toString(), pageNum, pageSize);
-
-        // 查询数据
-        List<Map<String, Object>> rows = HumpHelper.lineToHump(jt.queryForList(limitSql, params));
+    private void fillJobLabel(List<Map<String, Object>> rows) {
         if (!rows.isEmpty()) {
             Map<String, String> jobLabelMap = getJobLabelMap();
             rows.forEach(row -> {
@@ -113,8 +151,6 @@ public class JobService {
                 row.put("jobLabel", jobLabel);
             });
         }
-
-        return JdbcQueryHelper.toPage(jt, countSql.toString(), params, rows, pageNum, pageSize);
     }
 
     /**
@@ -241,6 +277,9 @@ public class JobService {
         }
         jobRepository.save(job);
 
+        // 释放队列容量
+        queueDispatcher.jobFinished(job.getQueueName(), jobId);
+
         return jobId;
     }
 
@@ -300,6 +339,9 @@ public class JobService {
         pendingJob.setPushTime(LocalDateTime.now());
         pendingJobRepository.save(pendingJob);
 
+        // 唤醒队列分发器立即出队
+        queueDispatcher.signal(jobDto.getQueueName());
+
         return jobId;
     }
 
@@ -351,14 +393,15 @@ public class JobService {
 
 
     /**
-     * 获取作业日志
+     * 获取作业日志，通过稀疏行索引直接定位到目标页
      *
      * @param jobId  作业ID
      * @param limit  每页条数
      * @param offset 偏移量（从0开始）
+     * @param tail   为 true 时 offset 从文件末尾倒数（0 为最后一页），返回的行仍按文件顺序排列
      * @return 日志列表
      */
-    public List<String> getLogs(String jobId, int limit, int offset) {
+    public List<String> getLogs(String jobId, int limit, int offset, boolean tail) {
         if (StringUtils.isBlank(jobId)) {
             throw new IllegalArgumentException("jobId 不能为空");
         }
@@ -385,26 +428,13 @@ public class JobService {
             return Collections.emptyList();
         }
 
-        List<String> result = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(logFile))) {
-            // 跳过 offset 行
-            for (int i = 0; i < offset; i++) {
-                if (reader.readLine() == null) {
-                    // 文件行数不足 offset，直接返回空列表
-                    return Collections.emptyList();
-                }
-            }
-            // 读取 limit 行
-            for (int i = 0; i < limit; i++) {
-                String line = reader.readLine();
-                if (line == null) break;
-                result.add(line);
-            }
+        try {
+            return tail ? jobLogIndex.readTail(logFile.toPath(), offset, limit)
+                    : jobLogIndex.readLines(logFile.toPath(), offset, limit);
         } catch (IOException e) {
             log.error("读取作业日志失败 jobId={}, path={}: {}", jobId, logPath, ExceptionUtils.getStackTrace(e));
+            return Collections.emptyList();
         }
-
-        return result;
     }
 
 
@@ -530,7 +560,10 @@ public class JobService {
         return jobId;
     }
 
-    public SseEmitter streamLogs(@PathVariable String jobId) {
+    /**
+     * @param offset 客户端已收到的日志偏移（上次连接最后一个事件的 id），从头推送时为 0
+     */
+    public SseEmitter streamLogs(@PathVariable String jobId, long offset) {
         Optional<Job> optional = jobRepository.findById(jobId);
         if (!optional.isPresent()) {
             throw new RuntimeException("作业不存在");
@@ -538,54 +571,12 @@ public class JobService {
         Job job = optional.get();
 
         // 1. 创建 SSE 连接
-        SseEmitter emitter = sseEmitterManager.create(jobId);
+        SseEmitter emitter = sseEmitterManager.create(jobId, offset);
 
-        String logPath = job.getLogPath();
-        if (StringUtils.isNotBlank(logPath)) {
-            File logFile = new File(logPath);
-            if (logFile.exists() && logFile.isFile()) {
-                // 异步线程读取日志并推送
-                CommonPool.cachedPool.execute(() -> {
-                    try (RandomAccessFile raf = new RandomAccessFile(logFile, "r")) {
-                        long pointer = 0;
-                        long fileLength = raf.length();
-                        if (fileLength < pointer) {
-                            // 文件被截断或重新生成，重置指针
-                            pointer = 0;
-                        }
-                        if (fileLength > pointer) {
-                            raf.seek(pointer);
-                            String line;
-                            while ((line = raf.readLine()) != null) {
-                                // 处理编码
-                                line = new String(line.getBytes("ISO-8859-1"), "UTF-8");
-                                logPushService.appendLog(jobId, line);
-                            }
-                        }
-                    } catch (Exception e) {
-                        log.error("实时推送日志异常 jobId={}：{}", jobId, ExceptionUtils.getStackTrace(e));
-                    }finally {
-                        if(Arrays.asList("SUCCESS", "FAILED", "STOPPED").contains(job.getState())) {
-                            try {
-                                Thread.sleep(1000);
-                            } catch (InterruptedException e) {
-                                throw new RuntimeException(e);
-                            }finally {
-                                logPushService.complete(jobId);
-                            }
-                        }
-                    }
-
-                });
-            } else {
-                logPushService.complete(jobId);
-                log.warn("日志文件不存在 jobId={}, path={}", jobId, logPath);
-            }
-        }else{
-            logPushService.complete(jobId);
-        }
+        // 2. 由日志跟踪线程从客户端已收到的位置推送，作业结束后读完剩余内容再关闭连接
+        jobLogTailer.follow(jobId, job.getLogPath(), offset);
 
-        // 2. 返回给前端
+        // 3. 返回给前端
         return emitter;
     }
 
@@ -0,0 +1,151 @@
+package com.ck.quiz.cron.service;
+
+import com.ck.quiz.cron.exec.AbstractAsyncJob;
+import com.ck.quiz.cron.exec.AbstractJob;
+import com.ck.quiz.utils.SpringContextUtil;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 作业类型注册表
+ * <p>
+ * 每个 taskClass 只在首次触发时解析一次（Class.forName、获取 Spring Bean、查找 fire 方法），
+ * 结果缓存为已绑定 Bean 的 MethodHandle，之后每次触发直接调用，不再反射查找；
+ * 任务参数统一使用共享的 ObjectReader 解析。任务重新注册时调用 {@link #invalidate(String)} 使缓存失效。
+ */
+@Slf4j
+@Component
+public class JobTypeRegistry {
+
+    private static final ObjectReader PARAMS_READER = new ObjectMapper()
+            .readerFor(new TypeReference<Map<String, Object>>() {
+            });
+
+    private static final MethodType JOB_FIRE = MethodType.methodType(void.class, String.class);
+
+    private static final MethodType TASK_FIRE = MethodType.methodType(void.class, String.class, Map.class);
+
+    private final Map<String, JobInvoker> invokers = new ConcurrentHashMap<>();
+
+    /**
+     * 获取作业调用器，首次调用时解析并缓存
+     *
+     * @param taskClass 任务实现类全名
+     */
+    public JobInvoker resolve(String taskClass) {
+        return invokers.computeIfAbsent(taskClass, JobTypeRegistry::load);
+    }
+
+    /**
+     * 使作业类型缓存失效，下次触发时重新解析
+     */
+    public void invalidate(String taskClass) {
+        if (taskClass != null && invokers.remove(taskClass) != null) {
+            log.info("作业类型缓存已失效: {}", taskClass);
+        }
+    }
+
+    /**
+     * 解析 JSON 格式的任务参数，为空时返回空 Map
+     */
+    public static Map<String, Object> readParams(String json) {
+        Map<String, Object> params = new HashMap<>();
+        if (StringUtils.isNotBlank(json)) {
+            try {
+                Map<String, Object> parsed = PARAMS_READER.readValue(json);
+                if (parsed != null) {
+                    params.putAll(parsed);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return params;
+    }
+
+    private static JobInvoker load(String taskClass) {
+        try {
+            Class<?> clazz = Class.forName(taskClass);
+            Object bean = SpringContextUtil.getBean(clazz);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            if (bean instanceof AbstractAsyncJob || bean instanceof AbstractJob) {
+                // 作业：fire(String jobId)，参数由作业自行从 job 表读取
+                MethodHandle fire = lookup.findVirtual(clazz, "fire", JOB_FIRE).bindTo(bean);
+                boolean blockingIo = bean instanceof AbstractAsyncJob asyncJob && asyncJob.isBlockingIo();
+                return new JobInvoker(taskClass, fire, false, blockingIo);
+            }
+            // 定时任务：fire(String taskId, Map<String, Object> params)
+            MethodHandle fire = lookup.findVirtual(clazz, "fire", TASK_FIRE).bindTo(bean);
+            return new JobInvoker(taskClass, fire, true, false);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("无法识别Job实现：" + taskClass, e);
+        }
+    }
+
+    /**
+     * 已解析的作业调用器
+     */
+    public static final class JobInvoker {
+
+        private final String taskClass;
+
+        private final MethodHandle fire;
+
+        private final boolean cronTask;
+
+        private final boolean blockingIo;
+
+        private JobInvoker(String taskClass, MethodHandle fire, boolean cronTask, boolean blockingIo) {
+            this.taskClass = taskClass;
+            this.fire = fire;
+            this.cronTask = cronTask;
+            this.blockingIo = blockingIo;
+        }
+
+        public String getTaskClass() {
+            return taskClass;
+        }
+
+        /**
+         * 是否为定时任务（fire(taskId, params)），否则为作业（fire(jobId)）
+         */
+        public boolean isCronTask() {
+            return cronTask;
+        }
+
+        /**
+         * 是否为阻塞型作业，由 job-io 线程池执行
+         */
+        public boolean isBlockingIo() {
+            return blockingIo;
+        }
+
+        /**
+         * 触发执行
+         *
+         * @param taskId Cron任务ID
+         * @param jobId  job表ID
+         * @param params 定时任务参数，作业类型忽略
+         */
+        public void fire(String taskId, String jobId, Map<String, Object> params) throws Throwable {
+            if (cronTask) {
+                fire.invokeExact(taskId, params);
+            } else {
+                fire.invokeExact(jobId);
+            }
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.ck.quiz.cron.service;
+
+import com.ck.quiz.thpool.ExecutorRegistry;
+import com.ck.quiz.utils.HumpHelper;
+import com.ck.quiz.utils.IdHelper;
+import com.ck.quiz.utils.JdbcQueryHelper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 队列作业分发器
+ * <p>
+ * 取代原先每 10 秒轮询所有队列的出队方式：
+ * 1. 内存中维护各队列容量及运行中的作业，本地已知队列已满时不访问数据库。
+ * 2. 作业入队（JobService.addJob、cron 入队）或作业结束时发出信号，分发线程立即唤醒并只处理相关队列。
+ * 3. 定期从数据库对账（队列配置、运行中作业），用于进程崩溃、手工改库等内存状态失真后的恢复。
+ * <p>
+ * 多节点：
+ * 1. 出队时锁定 job_queue 行并按数据库中的运行数判断容量，再以 for update skip locked 认领 pending_job，
+ * 认领记录带节点与租约到期时间，节点在出队途中宕机时租约过期后可被其他节点重新认领。
+ * 2. 运行中的作业记录执行节点及租约，节点定时心跳续期；对账时将租约过期（节点失联）的作业重新入队。
+ */
+@Slf4j
+@Component
+public class QueueDispatcher {
+
+    /**
+     * 信号：处理全部队列
+     */
+    private static final String ALL_QUEUES = "*";
+
+    /**
+     * 信号：从数据库对账后处理全部队列
+     */
+    private static final String RECONCILE = "#reconcile";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jt;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    @Autowired
+    private JobTypeRegistry jobTypeRegistry;
+
+    /**
+     * 节点标识，默认 主机名-进程号
+     */
+    @Value("${quiz.queue.node-id:}")
+    private String nodeId;
+
+    /**
+     * 认领及执行租约时长
+     */
+    @Value("${quiz.queue.lease-ttl-ms:60000}")
+    private long leaseTtlMs;
+
+    /**
+     * 已启用队列 -> 队列容量
+     */
+    private final Map<String, Integer> queueSizes = new ConcurrentHashMap<>();
+
+    /**
+     * 队列 -> 运行中的作业ID
+     */
+    private final Map<String, Set<String>> runningJobs = new ConcurrentHashMap<>();
+
+    private final LinkedBlockingQueue<String> signals = new LinkedBlockingQueue<>();
+
+    private volatile boolean running = true;
+
+    private Thread dispatchThread;
+
+    @PostConstruct
+    public void start() {
+        if (StringUtils.isBlank(nodeId)) {
+            String host;
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                host = "unknown";
+            }
+            nodeId = host + "-" + ProcessHandle.current().pid();
+        }
+        log.info("队列分发节点: {}", nodeId);
+        dispatchThread = new Thread(this::loop, "queue-dispatcher");
+        dispatchThread.setDaemon(true);
+        dispatchThread.start();
+        signals.offer(RECONCILE);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        dispatchThread.interrupt();
+    }
+
+    /**
+     * 通知队列有新的待出队作业或空出了容量；处于事务中时在提交后再唤醒，避免读不到未提交的数据
+     */
+    public void signal(String queueName) {
+        if (StringUtils.isBlank(queueName)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    signals.offer(queueName);
+                }
+            });
+        } else {
+            signals.offer(queueName);
+        }
+    }
+
+    /**
+     * 队列配置变更（新增、启停、调整容量）后重新加载
+     */
+    public void refreshQueues() {
+        signals.offer(RECONCILE);
+    }
+
+    /**
+     * 作业结束（成功、失败或被停止），释放队列容量
+     */
+    public void jobFinished(String queueName, String jobId) {
+        if (StringUtils.isBlank(queueName)) {
+            return;
+        }
+        Set<String> jobIds = runningJobs.get(queueName);
+        if (jobIds != null && jobIds.remove(jobId)) {
+            signal(queueName);
+        }
+    }
+
+    /**
+     * 兜底对账，正常情况下出队完全由信号驱动
+     */
+    @Scheduled(fixedDelayString = "${quiz.queue.reconcile-interval-ms:60000}",
+            initialDelayString = "${quiz.queue.reconcile-interval-ms:60000}")
+    public void scheduleReconcile() {
+        signals.offer(RECONCILE);
+    }
+
+    /**
+     * 为本节点运行中的作业续租
+     */
+    @Scheduled(fixedDelayString = "${quiz.queue.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        try {
+            Map<String, Object> params = new HashMap<>();
+            params.put("nodeId", nodeId);
+            params.put("leaseExpire", leaseExpire());
+            jt.update("update job set lease_expire = :leaseExpire where node_id = :nodeId and state = 'RUNNING'", params);
+        } catch (Exception e) {
+            log.error("作业租约续期失败:{}", ExceptionUtils.getStackTrace(e));
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                Set<String> batch = new HashSet<>();
+                batch.add(signals.take());
+                signals.drainTo(batch);
+                if (batch.remove(RECONCILE)) {
+                    reconcile();
+                    batch.add(ALL_QUEUES);
+                }
+                if (batch.contains(ALL_QUEUES)) {
+                    batch = new HashSet<>(queueSizes.keySet());
+                }
+                for (String queueName : batch) {
+                    dispatch(queueName);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("队列分发异常:{}", ExceptionUtils.getStackTrace(e));
+            }
+        }
+    }
+
+    /**
+     * 从数据库重新加载已启用队列及运行中作业
+     */
+    private void reconcile() {
+        reclaimExpiredJobs();
+
+        Map<String, Integer> sizes = new HashMap<>();
+        HumpHelper.lineToHump(jt.queryForList("select queue_name, queue_size from job_queue where state='ENABLED'", new HashMap<>()))
+                .forEach(queue -> sizes.put(MapUtils.getString(queue, "queueName"), MapUtils.getInteger(queue, "queueSize", 0)));
+        queueSizes.keySet().retainAll(sizes.keySet());
+        queueSizes.putAll(sizes);
+
+        Map<String, Set<String>> running = new HashMap<>();
+        HumpHelper.lineToHump(jt.queryForList("select id, queue_name from job where state='RUNNING' and queue_name is not null", new HashMap<>()))
+                .forEach(job -> running.computeIfAbsent(MapUtils.getString(job, "queueName"), key -> ConcurrentHashMap.newKeySet())
+                        .add(MapUtils.getString(job, "id")));
+        runningJobs.keySet().retainAll(running.keySet());
+        runningJobs.putAll(running);
+        log.debug("队列对账完成，已启用队列 {}，运行中 {}", queueSizes, running.keySet());
+    }
+
+    /**
+     * 回收租约过期（执行节点失联）的作业：清除失效的出队记录，重新放回 pending_job
+     */
+    private void reclaimExpiredJobs() {
+        List<String> reclaimed = transactionTemplate.execute(status -> {
+            Map<String, Object> params = new HashMap<>();
+            params.put("now", new Date());
+            List<Map<String, Object>> jobs = HumpHelper.lineToHump(jt.queryForList(
+                    "select id, task_id, task_class, task_params, trigger_type, queue_name from job " +
+                            "where state = 'RUNNING' and queue_name is not null and lease_expire < :now" +
+                            JdbcQueryHelper.getDialect(jt).forUpdateSkipLocked(), params));
+            List<String> ids = new ArrayList<>();
+            for (Map<String, Object> job : jobs) {
+                requeueJob(job);
+                ids.add(MapUtils.getString(job, "id"));
+            }
+            return ids;
+        });
+        if (reclaimed != null && !reclaimed.isEmpty()) {
+            log.warn("回收执行节点失联的作业并重新入队: {}", reclaimed);
+        }
+    }
+
+    /**
+     * 将已出队的作业放回 pending_job，需在事务中调用
+     *
+     * @param job 包含 id、taskId、taskClass、taskParams、triggerType、queueName
+     */
+    private void requeueJob(Map<String, Object> job) {
+        Map<String, Object> jobParams = new HashMap<>(job);
+        jobParams.put("pushTime", new Date());
+        List<Integer> priority = jt.queryForList("select priority from pending_job_log where id = :id", jobParams, Integer.class);
+        jobParams.put("priority", priority.isEmpty() || priority.get(0) == null ? 0 : priority.get(0));
+        // 出队日志以作业ID为主键，重新出队前清除本次失效的记录
+        jt.update("delete from pending_job_log where id = :id", jobParams);
+        jt.update("insert into pending_job " +
+                        "(id, task_id, task_class, task_params, trigger_type, priority, queue_name, push_time) " +
+                        "values (:id, :taskId, :taskClass, :taskParams, :triggerType, :priority, :queueName, :pushTime)",
+                jobParams);
+        jt.update("update job set state = 'PENDING', start_time = null, node_id = null, lease_expire = null where id = :id", jobParams);
+    }
+
+    private void dispatch(String queueName) {
+        Integer queueSize = queueSizes.get(queueName);
+        if (queueSize == null) {
+            // 队列不存在或未启用
+            return;
+        }
+        Set<String> jobIds = runningJobs.computeIfAbsent(queueName, key -> ConcurrentHashMap.newKeySet());
+        int canPull = queueSize - jobIds.size();
+        if (canPull <= 0) {
+            log.debug("队列 [{}] 已满，运行中 {}，容量 {}", queueName, jobIds.size(), queueSize);
+            return;
+        }
+        popJobs(queueName, canPull, jobIds);
+    }
+
+    /**
+     * 出队并执行
+     * <p>
+     * 1. 认领待出队任务（见 claimJobs）。
+     * 2. 整批转为运行状态（见 moveToRunning）。
+     * 3. 异步执行任务，结束后释放队列容量并唤醒分发线程。
+     */
+    private void popJobs(String queueName, int canPull, Set<String> jobIds) {
+        List<Map<String, Object>> pendingJobs = claimJobs(queueName, canPull);
+        if (pendingJobs.isEmpty()) {
+            return;
+        }
+
+        try {
+            moveToRunning(pendingJobs);
+        } catch (Exception e) {
+            // 整批回滚，认领租约过期后重新出队
+            log.error("队列 [{}] 出队失败:{}", queueName, ExceptionUtils.getStackTrace(e));
+            return;
+        }
+
+        for (Map<String, Object> job : pendingJobs) {
+            String jobId = MapUtils.getString(job, "id");
+            try {
+                log.info("任务 [{}] 出队 -> 已写入运行表，队列 [{}]", jobId, queueName);
+
+                // 异步执行任务，结束后释放容量
+                jobIds.add(jobId);
+                Runnable runner = createTaskRunner(MapUtils.getString(job, "taskId"), jobId,
+                        MapUtils.getString(job, "taskClass"), MapUtils.getString(job, "taskParams"));
+                executorRegistry.get(executorFor(MapUtils.getString(job, "taskClass"))).execute(() -> {
+                    try {
+                        runner.run();
+                    } finally {
+                        jobFinished(queueName, jobId);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // 执行线程池已满，退回队列等待下次出队
+                jobIds.remove(jobId);
+                log.warn("作业执行线程池已满，任务 [{}] 重新入队", jobId);
+                transactionTemplate.executeWithoutResult(status -> requeueJob(job));
+            } catch (Exception e) {
+                jobIds.remove(jobId);
+                log.error("任务【{}】出队失败:{}", jobId, ExceptionUtils.getStackTrace(e));
+            }
+        }
+    }
+
+    /**
+     * 将一批已认领的任务原子地转为运行状态（单个事务，3 条语句）：
+     * 写出队日志（insert ... select）、更新job表为RUNNING并记录执行节点与租约、删除pending_job记录。
+     * 认领租约已被其他节点接管时整批回滚。
+     */
+    private void moveToRunning(List<Map<String, Object>> pendingJobs) {
+        List<String> ids = new ArrayList<>();
+        pendingJobs.forEach(job -> ids.add(MapUtils.getString(job, "id")));
+
+        Date now = new Date();
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", ids);
+        params.put("popBatchNo", MapUtils.getString(pendingJobs.get(0), "popBatchNo"));
+        params.put("nodeId", nodeId);
+        params.put("popTime", now);
+        params.put("startTime", now);
+        params.put("leaseExpire", leaseExpire());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            int logNum = jt.update("insert into pending_job_log " +
+                    "(id, task_id, task_class, task_params, trigger_type, priority, queue_name, pop_time) " +
+                    "select id, task_id, task_class, task_params, trigger_type, priority, queue_name, :popTime " +
+                    "from pending_job where pop_batch_no = :popBatchNo and claim_owner = :nodeId", params);
+            if (logNum != ids.size()) {
+                throw new IllegalStateException("出队批次 " + params.get("popBatchNo") + " 认领已失效，预期 " + ids.size() + " 条，实际 " + logNum + " 条");
+            }
+            jt.update("update job set state = 'RUNNING', start_time = :startTime, node_id = :nodeId, lease_expire = :leaseExpire " +
+                    "where id in (:ids)", params);
+            jt.update("delete from pending_job where pop_batch_no = :popBatchNo and claim_owner = :nodeId", params);
+        });
+    }
+
+    /**
+     * 认领待出队任务（单个事务）
+     * <p>
+     * 1. 锁定 job_queue 行，串行化各节点对同一队列的容量判断。
+     * 2. 以数据库中运行中及已被认领（租约未过期）的任务数计算可出队数量。
+     * 3. 按优先级和入队时间 for update skip locked 选取未认领或认领已过期的任务，标记批次号、认领节点和租约。
+     */
+    private List<Map<String, Object>> claimJobs(String queueName, int canPull) {
+        List<Map<String, Object>> claimed = transactionTemplate.execute(status -> {
+            Date now = new Date();
+            Map<String, Object> params = new HashMap<>();
+            params.put("queueName", queueName);
+            params.put("now", now);
+
+            List<Integer> sizes = jt.queryForList(
+                    "select queue_size from job_queue where queue_name = :queueName and state = 'ENABLED' for update",
+                    params, Integer.class);
+            if (sizes.isEmpty()) {
+                return Collections.<Map<String, Object>>emptyList();
+            }
+            Integer runningCnt = jt.queryForObject(
+                    "select count(1) from job where state = 'RUNNING' and queue_name = :queueName", params, Integer.class);
+            Integer claimedCnt = jt.queryForObject(
+                    "select count(1) from pending_job where queue_name = :queueName and claim_owner is not null and claim_expire > :now",
+                    params, Integer.class);
+            int limit = Math.min(canPull, (sizes.get(0) == null ? 0 : sizes.get(0)) - runningCnt - claimedCnt);
+            if (limit <= 0) {
+                log.debug("队列 [{}] 已满，运行中 {}，已认领 {}", queueName, runningCnt, claimedCnt);
+                return Collections.<Map<String, Object>>emptyList();
+            }
+
+            params.put("limit", limit);
+            List<Map<String, Object>> pendingJobs = HumpHelper.lineToHump(jt.queryForList(
+                    "select * from pending_job where queue_name = :queueName " +
+                            "and (claim_owner is null or claim_expire < :now) " +
+                            "order by priority desc, push_time asc limit :limit" +
+                            JdbcQueryHelper.getDialect(jt).forUpdateSkipLocked(),
+                    params));
+            if (pendingJobs.isEmpty()) {
+                return pendingJobs;
+            }
+
+            List<String> pendingIds = new ArrayList<>();
+            pendingJobs.forEach(pj -> pendingIds.add(MapUtils.getString(pj, "id")));
+            params.put("pendingIds", pendingIds);
+            String popBatchNo = IdHelper.genUuid();
+            params.put("popBatchNo", popBatchNo);
+            params.put("claimOwner", nodeId);
+            params.put("claimExpire", leaseExpire());
+            jt.update("update pending_job set pop_batch_no = :popBatchNo, claim_owner = :claimOwner, claim_expire = :claimExpire " +
+                    "where id in (:pendingIds)", params);
+            pendingJobs.forEach(pj -> pj.put("popBatchNo", popBatchNo));
+            return pendingJobs;
+        });
+        return claimed == null ? Collections.emptyList() : claimed;
+    }
+
+    private Date leaseExpire() {
+        return new Date(System.currentTimeMillis() + leaseTtlMs);
+    }
+
+    /**
+     * 阻塞型作业（脚本执行、SSH）使用 job-io 线程池，其余使用 job-exec
+     */
+    private String executorFor(String taskClass) {
+        try {
+            return jobTypeRegistry.resolve(taskClass).isBlockingIo() ? ExecutorRegistry.JOB_IO : ExecutorRegistry.JOB_EXEC;
+        } catch (IllegalStateException e) {
+            // 类无法识别时由 createTaskRunner 记录失败
+            return ExecutorRegistry.JOB_EXEC;
+        }
+    }
+
+    /**
+     * 创建任务执行Runner
+     * <p>
+     * 通过作业类型注册表缓存的调用器执行任务的fire方法：
+     * 1. AbstractAsyncJob / AbstractJob -> fire(String jobId)
+     * 2. AbstractCronTask -> fire(String taskId, Map<String, Object> params)
+     *
+     * @param taskId        Cron任务ID
+     * @param jobId         job表ID
+     * @param taskClass     任务实现类全名
+     * @param taskParamsStr JSON格式的任务参数
+     * @return Runnable 可提交到线程池执行
+     */
+    public Runnable createTaskRunner(String taskId, String jobId, String taskClass, String taskParamsStr) {
+        return () -> {
+            try {
+                JobTypeRegistry.JobInvoker invoker = jobTypeRegistry.resolve(taskClass);
+                Map<String, Object> taskParams = null;
+                if (invoker.isCronTask()) {
+                    taskParams = JobTypeRegistry.readParams(taskParamsStr);
+                    taskParams.put("jobId", jobId);
+                }
+                invoker.fire(taskId, jobId, taskParams);
+            } catch (Throwable e) {
+                log.error("定时任务反射异常:{}", ExceptionUtils.getStackTrace(e));
+            }
+        };
+    }
+}
@@ -8,16 +8,16 @@ import com.ck.quiz.datasource.repository.ColumnSchemaRepository;
 import com.ck.quiz.datasource.repository.DatasourceRepository;
 import com.ck.quiz.datasource.repository.TableSchemaRepository;
 import com.ck.quiz.datasource.service.DatasourceService;
-import com.ck.quiz.thpool.CommonPool;
+import com.ck.quiz.llmmodel.service.LLMResponseCache;
+import com.ck.quiz.llmmodel.service.LLMTaskScheduler;
+import com.ck.quiz.thpool.ExecutorRegistry;
 import com.ck.quiz.utils.ExcelTemplateHelper;
+import com.ck.quiz.utils.ExcelTemplatePlan;
 import com.ck.quiz.utils.IdHelper;
 import com.ck.quiz.utils.JdbcQueryHelper;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletResponse;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -27,7 +27,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.sql.Connection;
@@ -43,6 +42,9 @@ public class DatasourceServiceImpl implements DatasourceService {
     @Autowired
     private DatasourceRepository datasourceRepository;
 
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
     @Autowired
     private NamedParameterJdbcTemplate jdbcTemplate;
 
@@ -53,7 +55,7 @@ public class DatasourceServiceImpl implements DatasourceService {
     private ColumnSchemaRepository columnSchemaRepository;
 
     @Autowired
-    private ChatClient.Builder chatBuilder;
+    private LLMTaskScheduler llmTaskScheduler;
 
     @Override
     @Transactional
@@ -411,8 +413,6 @@ public class DatasourceServiceImpl implements DatasourceService {
         Datasource ds = datasourceRepository.findById(datasourceId)
                 .orElseThrow(() -> new RuntimeException("数据源不存在，ID: " + datasourceId));
 
-        ChatClient chat = chatBuilder.build();
-
         // 查询表结构（已保存的表）
         List<TableSchema> tables = StringUtils.hasText(schema) ?
                 tableSchemaRepository.findByTableSchem(schema) :
@@ -420,11 +420,11 @@ public class DatasourceServiceImpl implements DatasourceService {
 
         if (tables.isEmpty()) return 0;
 
-        // 使用线程池并发处理
-        List<java.util.concurrent.Future<Boolean>> futures = new ArrayList<>();
+        // 使用线程池并发处理，分批提交，在途任务数受线程池容量限制
+        List<java.util.concurrent.Callable<Boolean>> tasks = new ArrayList<>();
 
         for (TableSchema table : tables) {
-            futures.add(CommonPool.cachedPool.submit(() -> {
+            tasks.add(() -> {
                 try {
                     String tableName = table.getTableName();
 
@@ -442,9 +442,10 @@ public class DatasourceServiceImpl implements DatasourceService {
                     }
                     String prompt = buildRemarkPrompt(tableName, columns);
 
-                    // 调用大模型生成备注
-                    String content = chat.prompt(prompt).call().content();
-                    Map<String, Object> remarkMap = new ObjectMapper().readValue(content, new TypeReference<>() {});
+                    // 调用大模型生成备注（表结构未变化时命中缓存）
+                    Map<String, Object> remarkMap = llmTaskScheduler.callCached("tableRemarkGenerate",
+                            LLMResponseCache.BUILTIN_TEMPLATE_VERSION, prompt,
+                            content -> new ObjectMapper().readValue(content, new TypeReference<Map<String, Object>>() {}));
 
                     // 更新表备注
                     String tableRemark = (String) remarkMap.get("tableRemark");
@@ -471,8 +472,9 @@ public class DatasourceServiceImpl implements DatasourceService {
                     System.err.println("表 " + table.getTableName() + " 自动生成备注失败: " + e.getMessage());
                     return false;
                 }
-            }));
+            });
         }
+        List<java.util.concurrent.Future<Boolean>> futures = executorRegistry.submitAll(ExecutorRegistry.LLM, tasks);
 
         // 等待所有任务完成
         int updatedCount = 0;
@@ -493,8 +495,6 @@ public class DatasourceServiceImpl implements DatasourceService {
         Datasource ds = datasourceRepository.findById(datasourceId)
                 .orElseThrow(() -> new RuntimeException("数据源不存在，ID: " + datasourceId));
 
-        ChatClient chat = chatBuilder.build();
-
         // 查询表结构（已保存的表）
         List<TableSchema> tables = StringUtils.hasText(schema) ?
                 tableSchemaRepository.findByTableSchem(schema) :
@@ -502,10 +502,10 @@ public class DatasourceServiceImpl implements DatasourceService {
 
         if (tables.isEmpty()) return 0;
 
-        List<java.util.concurrent.Future<Boolean>> futures = new ArrayList<>();
+        List<java.util.concurrent.Callable<Boolean>> tasks = new ArrayList<>();
 
         for (TableSchema table : tables) {
-            futures.add(CommonPool.cachedPool.submit(() -> {
+            tasks.add(() -> {
                 try {
                     String tableName = table.getTableName();
 
@@ -523,9 +523,10 @@ public class DatasourceServiceImpl implements DatasourceService {
                     // 构建大模型提示
                     String prompt = buildGroupPrompt(tableName, columns);
 
-                    // 调用大模型生成分类
-                    String content = chat.prompt(prompt).call().content();
-                    Map<String, Object> groupMap = new ObjectMapper().readValue(content, new TypeReference<>() {});
+                    // 调用大模型生成分类（表结构未变化时命中缓存）
+                    Map<String, Object> groupMap = llmTaskScheduler.callCached("tableGroupGenerate",
+                            LLMResponseCache.BUILTIN_TEMPLATE_VERSION, prompt,
+                            content -> new ObjectMapper().readValue(content, new TypeReference<Map<String, Object>>() {}));
 
                     String category = (String) groupMap.get("category");
                     if (StringUtils.hasText(category)) {
@@ -539,8 +540,9 @@ public class DatasourceServiceImpl implements DatasourceService {
                     System.err.println("表 " + table.getTableName() + " 分类失败: " + e.getMessage());
                     return false;
                 }
-            }));
+            });
         }
+        List<java.util.concurrent.Future<Boolean>> futures = executorRegistry.submitAll(ExecutorRegistry.LLM, tasks);
 
         int updatedCount = 0;
         for (java.util.concurrent.Future<Boolean> f : futures) {
@@ -565,81 +567,63 @@ public class DatasourceServiceImpl implements DatasourceService {
                 throw new RuntimeException("没有可导出的表结构数据");
             }
 
-            // 读取模板
-            String templatePath = "templates/table_dict_template.xlsx";
-            try (InputStream is = getClass().getClassLoader().getResourceAsStream(templatePath)) {
-                if (is == null) throw new RuntimeException("Excel 模板未找到: " + templatePath);
-
-                XSSFWorkbook workbook = new XSSFWorkbook(is);
-
-                // 按 tableCat 分组
-                Map<String, List<TableSchema>> tablesByCat = new HashMap<>();
-                for (TableSchema table : tables) {
-                    String cat = table.getTableCat();
-                    if (!StringUtils.hasText(cat)) cat = "未分类";
-                    tablesByCat.computeIfAbsent(cat, k -> new ArrayList<>()).add(table);
-                }
-
-                for (Map.Entry<String, List<TableSchema>> entry : tablesByCat.entrySet()) {
-                    String cat = entry.getKey();
-                    List<TableSchema> catTables = entry.getValue();
-
-                    // 获取对应 sheet
-                    XSSFSheet sheet = workbook.getSheet(cat);
-                    if (sheet == null) {
-                        // sheet 不存在则创建
-                        sheet = workbook.createSheet(cat);
-                    }
-
-                    // 构造循环数据
-                    List<Map<String, Object>> loopData = new ArrayList<>();
-                    for (TableSchema table : catTables) {
-                        List<ColumnSchema> columns = table.getColumns();
-                        if (columns == null) columns = new ArrayList<>();
-
-                        for (ColumnSchema col : columns) {
-                            Map<String, Object> map = new LinkedHashMap<>();
-                            map.put("tableCat", String.valueOf(table.getTableCat()));
-                            map.put("tableSchem", String.valueOf(table.getTableSchem()));
-                            map.put("tableName", String.valueOf(table.getTableName()));
-                            map.put("tableType", String.valueOf(table.getTableType()));
-                            map.put("tableRemark", String.valueOf(table.getRemarks()));
-
-                            map.put("columnName", String.valueOf(col.getColumnName()));
-                            map.put("dataType", String.valueOf(col.getDataType()));
-                            map.put("columnSize", String.valueOf(col.getColumnSize()));
-                            map.put("decimalDigits", String.valueOf(col.getDecimalDigits()));
-                            map.put("nullable", String.valueOf(col.getNullable()));
-                            map.put("primaryKey", String.valueOf(col.getPrimaryKey()));
-                            map.put("defaultValue", String.valueOf(col.getDefaultValue()));
-                            map.put("remarks", String.valueOf(col.getRemarks()));
-
-                            loopData.add(map);
-                        }
+            // 按 tableCat 分组
+            Map<String, List<TableSchema>> tablesByCat = new HashMap<>();
+            for (TableSchema table : tables) {
+                String cat = table.getTableCat();
+                if (!StringUtils.hasText(cat)) cat = "未分类";
+                tablesByCat.computeIfAbsent(cat, k -> new ArrayList<>()).add(table);
+            }
 
+            Map<String, ExcelTemplatePlan.SheetData> sheetDataMap = new LinkedHashMap<>();
+            for (Map.Entry<String, List<TableSchema>> entry : tablesByCat.entrySet()) {
+                String cat = entry.getKey();
+                List<TableSchema> catTables = entry.getValue();
+
+                // 构造循环数据
+                List<Map<String, Object>> loopData = new ArrayList<>();
+                for (TableSchema table : catTables) {
+                    List<ColumnSchema> columns = table.getColumns();
+                    if (columns == null) columns = new ArrayList<>();
+
+                    for (ColumnSchema col : columns) {
+                        Map<String, Object> map = new LinkedHashMap<>();
+                        map.put("tableCat", String.valueOf(table.getTableCat()));
+                        map.put("tableSchem", String.valueOf(table.getTableSchem()));
+                        map.put("tableName", String.valueOf(table.getTableName()));
+                        map.put("tableType", String.valueOf(table.getTableType()));
+                        map.put("tableRemark", String.valueOf(table.getRemarks()));
+
+                        map.put("columnName", String.valueOf(col.getColumnName()));
+                        map.put("dataType", String.valueOf(col.getDataType()));
+                        map.put("columnSize", String.valueOf(col.getColumnSize()));
+                        map.put("decimalDigits", String.valueOf(col.getDecimalDigits()));
+                        map.put("nullable", String.valueOf(col.getNullable()));
+                        map.put("primaryKey", String.valueOf(col.getPrimaryKey()));
+                        map.put("defaultValue", String.valueOf(col.getDefaultValue()));
+                        map.put("remarks", String.valueOf(col.getRemarks()));
+
+                        loopData.add(map);
                     }
 
-                    // 填充 sheet
-                    Map<String, String> staticSource = new HashMap<>();
-                    List<Map<String, Object>> dynamicList = new ArrayList<>();
-                    Map<String, Object> dynamic = new HashMap<>();
-                    dynamic.put("loopId", "loop"); // 模板循环关键字
-                    dynamic.put("dataList", loopData);
-                    dynamicList.add(dynamic);
-
-                    ExcelTemplateHelper.handleSheet(sheet, staticSource, dynamicList, ExcelTemplateHelper.getBorderStyle(workbook));
                 }
 
-                // 输出到响应
-                String fileName = "表结构导出_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + ".xlsx";
-                response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-                response.setHeader("Content-Disposition", "attachment; filename=" + URLEncoder.encode(fileName, "UTF-8"));
+                // 填充数据，模板中不存在的分类会新建 sheet
+                List<Map<String, Object>> dynamicList = new ArrayList<>();
+                Map<String, Object> dynamic = new HashMap<>();
+                dynamic.put("loopId", "loop"); // 模板循环关键字
+                dynamic.put("dataList", loopData);
+                dynamicList.add(dynamic);
+                sheetDataMap.put(cat, new ExcelTemplatePlan.SheetData(new HashMap<>(), dynamicList));
+            }
 
-                try (OutputStream os = response.getOutputStream()) {
-                    workbook.write(os);
-                }
+            // 输出到响应（模板只编译一次，后续导出复用编译结果）
+            String fileName = "表结构导出_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + ".xlsx";
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            response.setHeader("Content-Disposition", "attachment; filename=" + URLEncoder.encode(fileName, "UTF-8"));
 
-                workbook.close();
+            try (OutputStream os = response.getOutputStream()) {
+                ExcelTemplateHelper.renderTemplate("templates/table_dict_template.xlsx", sheetDataMap, os);
             }
 
         } catch (Exception e) {
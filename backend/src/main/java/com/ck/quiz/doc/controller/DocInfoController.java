@@ -2,14 +2,15 @@ package com.ck.quiz.doc.controller;
 
 import com.ck.quiz.doc.dto.*;
 import com.ck.quiz.doc.service.DocInfoService;
+import com.ck.quiz.utils.KeysetPage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -104,6 +105,22 @@ public class DocInfoController {
         return ResponseEntity.ok(processNodePage);
     }
 
+    /**
+     * 游标分页查询文档流程节点
+     *
+     * @param docId    文档ID
+     * @param queryDto 查询条件
+     * @return 流程节点游标分页结果
+     */
+    @GetMapping("/{docId}/process-nodes/cursor")
+    @Operation(summary = "游标分页查询文档流程节点", description = "按序号游标分页查询指定文档的流程节点，支持关键词搜索和标题筛选")
+    public ResponseEntity<KeysetPage<DocProcessNodeDto>> keysetDocProcessNode(
+            @Parameter(description = "文档ID") @PathVariable String docId,
+            @Valid DocProcessNodeQueryDto queryDto) {
+        queryDto.setDocId(docId);
+        return ResponseEntity.ok(docInfoService.keysetDocProcessNode(queryDto));
+    }
+
     /**
      * 上传文档文件
      *
@@ -194,6 +211,18 @@ public class DocInfoController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping("/process/flow/{functionId}")
+    @Operation(summary = "获取流程图", description = "获取本地渲染的功能点流程图 PNG 图片")
+    public ResponseEntity<byte[]> getFlowImage(
+            @Parameter(description = "功能点ID", required = true)
+            @PathVariable String functionId) {
+        byte[] image = docInfoService.getFlowImage(functionId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .contentLength(image.length)
+                .body(image);
+    }
+
     @PostMapping("/process/generate/inf/{functionId}")
     public ResponseEntity<Map<String, Object>> generateInf(
             @Parameter(description = "功能点ID", required = true)
@@ -205,62 +234,49 @@ public class DocInfoController {
 
     @GetMapping("/process/batchgenerate")
     public ResponseEntity batchGenerateProcessDescription() {
-        docInfoService.batchGenerateProcessDescription();
-        return ResponseEntity.ok().build();
+        return ResponseEntity.ok(docInfoService.batchGenerateProcessDescription());
     }
 
     @GetMapping("/process/batchgenerate/flow")
     public ResponseEntity batchGenerateFlow() {
-        docInfoService.batchGenerateFlowByProcess();
-        return ResponseEntity.ok().build();
+        return ResponseEntity.ok(docInfoService.batchGenerateFlowByProcess());
     }
 
     @GetMapping("/process/batchgenerate/inf")
     public ResponseEntity batchGenerateInf() {
-        docInfoService.batchGenerateInf();
-        return ResponseEntity.ok().build();
+        return ResponseEntity.ok(docInfoService.batchGenerateInf());
     }
     
     /**
      * 导出文档标题为docx文件
      *
-     * @param id 文档ID
-     * @return 生成的docx文档
+     * @param id       文档ID
+     * @param response HTTP 响应，docx 直接写入响应流
      */
     @GetMapping("/{id}/export-headings")
     @Operation(summary = "导出文档标题", description = "将文档标题数据导出为docx文件")
-    public ResponseEntity<byte[]> exportHeadings(
-            @Parameter(description = "文档ID") @PathVariable String id) {
-        byte[] docxBytes = docInfoService.exportHeadingsToDocx(id);
-        
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=doc_headings_" + id + ".docx")
-                .contentLength(docxBytes.length)
-                .body(docxBytes);
+    public void exportHeadings(
+            @Parameter(description = "文档ID") @PathVariable String id,
+            HttpServletResponse response) {
+        docInfoService.exportHeadingsToDocx(id, response);
     }
 
     /**
      * 导出接口信息为Excel文件
      *
-     * @param id 文档ID
-     * @return 生成的Excel文件
+     * @param id       文档ID
+     * @param response HTTP 响应，Excel 流式写入响应流
      */
     @GetMapping("/{id}/export-inf")
     @Operation(
             summary = "导出接口信息",
             description = "将文档中提取的接口信息（infDetail）导出为Excel文件，包含接口名称、描述、输入参数、输出参数等内容"
     )
-    public ResponseEntity<byte[]> exportInfToExcel(
+    public void exportInfToExcel(
             @Parameter(description = "文档ID", required = true)
-            @PathVariable String id) {
-        byte[] excelBytes = docInfoService.exportToExcel(id);
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=inf_detail_" + id + ".xlsx")
-                .contentLength(excelBytes.length)
-                .body(excelBytes);
+            @PathVariable String id,
+            HttpServletResponse response) {
+        docInfoService.exportToExcel(id, response);
     }
 
 
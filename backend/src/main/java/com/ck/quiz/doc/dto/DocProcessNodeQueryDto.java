@@ -36,4 +36,14 @@ public class DocProcessNodeQueryDto {
      * 标题ID
      */
     private String headingId;
+
+    /**
+     * 游标分页：上一页返回的 nextCursor，首页为空
+     */
+    private String cursor;
+
+    /**
+     * 游标分页：总数统计方式 EXACT / APPROXIMATE / NONE
+     */
+    private String countMode;
 }
\ No newline at end of file
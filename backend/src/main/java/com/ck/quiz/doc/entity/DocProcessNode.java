@@ -9,7 +9,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "doc_process_node",
-        indexes = {@Index(name = "idx_doc_id", columnList = "doc_id")})
+        indexes = {@Index(name = "idx_doc_id", columnList = "doc_id"),
+                @Index(name = "idx_doc_process_node_seq", columnList = "doc_id, sequence_no")})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -46,6 +46,9 @@ public class FunctionPoint {
     @Column(name = "mermaid_code", columnDefinition = "TEXT")
     private String mermaidCode;
 
+    @Column(name = "flow_hash", length = 64)
+    private String flowHash; // 已渲染流程图对应的 mermaid_code 哈希，未变化时跳过渲染
+
     @Column(name = "inf_desc", length=512)
     private String infDesc;
 
@@ -0,0 +1,175 @@
+package com.ck.quiz.doc.flow;
+
+import jakarta.annotation.PostConstruct;
+import com.ck.quiz.thpool.ExecutorRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流程图渲染服务
+ * - 按 quiz.doc.flow.renderer 选择渲染器（local / mermaid-ink），渲染器不支持的图表类型交给 quiz.doc.flow.fallback-renderer
+ * - 渲染在有界线程池中执行，队列满时由提交线程执行，形成背压
+ * - 以 渲染器类型 + mermaid_code 的哈希记录到 function_point.flow_hash，内容未变化且图片存在时跳过渲染
+ */
+@Slf4j
+@Service
+public class FlowRenderService {
+
+    @Autowired
+    private List<FlowRenderer> renderers;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    @Value("${quiz.doc.flow.renderer:local}")
+    private String rendererType;
+
+    @Value("${quiz.doc.flow.fallback-renderer:mermaid-ink}")
+    private String fallbackType;
+
+    @Value("${quiz.doc.flow.output-dir:${user.home}/quiz/flows}")
+    private String outputDir;
+
+    @Value("${quiz.doc.flow.render-threads:4}")
+    private int renderThreads;
+
+    @Value("${quiz.doc.flow.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private FlowRenderer renderer;
+
+    private FlowRenderer fallback;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() throws IOException {
+        renderer = findRenderer(rendererType);
+        fallback = StringUtils.hasText(fallbackType) && !fallbackType.equals(rendererType) ? findRenderer(fallbackType) : null;
+        Files.createDirectories(Paths.get(outputDir));
+
+        AtomicInteger threadNo = new AtomicInteger();
+        executor = new ThreadPoolExecutor(renderThreads, renderThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "flow-render-" + threadNo.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executorRegistry.register("flow-render", executor);
+        log.info("流程图渲染器: {}，备用渲染器: {}，输出目录: {}，渲染线程数: {}", rendererType,
+                fallback != null ? fallbackType : "无", outputDir, renderThreads);
+    }
+
+    private FlowRenderer findRenderer(String type) {
+        return renderers.stream()
+                .filter(r -> r.getType().equals(type))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("未知的流程图渲染器：" + type));
+    }
+
+    /**
+     * 选择渲染器：首选渲染器不支持该图表类型时使用备用渲染器，无备用时仍由首选渲染器给出错误
+     */
+    private FlowRenderer select(String mermaidCode) {
+        if (fallback != null && !renderer.supports(mermaidCode)) {
+            return fallback;
+        }
+        return renderer;
+    }
+
+    /**
+     * 功能点流程图图片路径
+     */
+    public Path getImagePath(String functionId) {
+        return Paths.get(outputDir, functionId + ".png");
+    }
+
+    /**
+     * 提交渲染任务
+     *
+     * @return 是否实际执行了渲染（内容未变化时为 false）
+     */
+    public CompletableFuture<Boolean> submit(String functionId, String mermaidCode) {
+        return CompletableFuture.supplyAsync(() -> renderIfChanged(functionId, mermaidCode), executor);
+    }
+
+    /**
+     * 渲染并等待完成
+     *
+     * @return 是否实际执行了渲染（内容未变化时为 false）
+     */
+    public boolean render(String functionId, String mermaidCode) {
+        try {
+            return submit(functionId, mermaidCode).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("流程图渲染失败：" + functionId, cause);
+        }
+    }
+
+    private boolean renderIfChanged(String functionId, String mermaidCode) {
+        FlowRenderer selected = select(mermaidCode);
+        String hash = sha256(selected.getType() + "\n" + mermaidCode);
+        Path imagePath = getImagePath(functionId);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("functionId", functionId);
+        params.put("flowHash", hash);
+        List<String> stored = jdbcTemplate.queryForList(
+                "select flow_hash from function_point where id = :functionId", params, String.class);
+        if (!stored.isEmpty() && hash.equals(stored.get(0)) && Files.exists(imagePath)) {
+            log.debug("功能点 [{}] 流程图未变化，跳过渲染", functionId);
+            return false;
+        }
+
+        try {
+            byte[] image = selected.render(mermaidCode);
+            // 先写临时文件再替换，避免导出文档时读到写了一半的图片
+            Path tempPath = imagePath.resolveSibling(functionId + ".png.tmp");
+            Files.write(tempPath, image);
+            Files.move(tempPath, imagePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("流程图渲染失败：" + functionId, e);
+        }
+
+        jdbcTemplate.update("update function_point set flow_hash = :flowHash where id = :functionId", params);
+        return true;
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
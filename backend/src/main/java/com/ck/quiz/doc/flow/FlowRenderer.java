@@ -0,0 +1,30 @@
+package com.ck.quiz.doc.flow;
+
+import java.io.IOException;
+
+/**
+ * 流程图渲染器
+ * 将 Mermaid 代码渲染为 PNG 图片，通过 quiz.doc.flow.renderer 选择具体实现
+ */
+public interface FlowRenderer {
+
+    /**
+     * 渲染器类型，对应 quiz.doc.flow.renderer 配置值
+     */
+    String getType();
+
+    /**
+     * 渲染 Mermaid 代码
+     *
+     * @param mermaidCode Mermaid 流程图代码
+     * @return PNG 图片内容
+     */
+    byte[] render(String mermaidCode) throws IOException;
+
+    /**
+     * 是否支持该 Mermaid 代码的图表类型，不支持时由 quiz.doc.flow.fallback-renderer 渲染
+     */
+    default boolean supports(String mermaidCode) {
+        return true;
+    }
+}
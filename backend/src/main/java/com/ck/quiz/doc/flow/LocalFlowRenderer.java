@@ -0,0 +1,616 @@
+package com.ck.quiz.doc.flow;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.*;
+
+/**
+ * 本地流程图渲染器
+ * 在 JVM 内完成 Mermaid 流程图的解析、分层布局与 Java2D 绘制，不依赖外部服务，可离线运行。
+ * 布局采用简化的分层算法：DFS 去环 → 最长路径分层 → 长边插入虚拟节点 → 重心法排序 → 逐层对齐。
+ * 仅支持 graph / flowchart 类型，其他类型（sequenceDiagram 等）交给备用渲染器。
+ */
+@Slf4j
+@Component
+public class LocalFlowRenderer implements FlowRenderer {
+
+    public static final String TYPE = "local";
+
+    private static final int PADDING_X = 16;
+
+    private static final int PADDING_Y = 10;
+
+    private static final int NODE_GAP = 40;
+
+    private static final int DUMMY_GAP = 16;
+
+    private static final int RANK_GAP = 56;
+
+    private static final int MARGIN = 24;
+
+    private static final int ORDER_ITERATIONS = 4;
+
+    /**
+     * 图片最大边长，超出时整体缩放，避免超大图占用过多内存
+     */
+    private static final int MAX_IMAGE_SIZE = 8000;
+
+    private static final Color NODE_FILL = new Color(0xECECFF);
+
+    private static final Color NODE_STROKE = new Color(0x9370DB);
+
+    private static final Color EDGE_COLOR = new Color(0x333333);
+
+    private static final Color TEXT_COLOR = new Color(0x333333);
+
+    @Value("${quiz.doc.flow.font-family:SansSerif}")
+    private String fontFamily;
+
+    @Value("${quiz.doc.flow.font-size:14}")
+    private int fontSize;
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public boolean supports(String mermaidCode) {
+        return MermaidFlowchart.isFlowchart(mermaidCode);
+    }
+
+    @Override
+    public byte[] render(String mermaidCode) throws IOException {
+        MermaidFlowchart chart;
+        try {
+            chart = MermaidFlowchart.parse(mermaidCode);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("流程图解析失败: " + e.getMessage(), e);
+        }
+        if (chart.getNodes().isEmpty()) {
+            throw new IOException("流程图中没有节点");
+        }
+
+        Font font = new Font(fontFamily, Font.PLAIN, fontSize);
+        Layout layout = new Layout(chart, measureGraphics(font).getFontMetrics());
+        layout.run();
+        return draw(layout, font);
+    }
+
+    private Graphics2D measureGraphics(Font font) {
+        Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+        g.setFont(font);
+        return g;
+    }
+
+    // ==================== 绘制 ====================
+
+    private byte[] draw(Layout layout, Font font) throws IOException {
+        double scale = Math.min(1D, MAX_IMAGE_SIZE / Math.max(layout.width, layout.height));
+        int width = (int) Math.ceil(layout.width * scale);
+        int height = (int) Math.ceil(layout.height * scale);
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.scale(scale, scale);
+            g.setFont(font);
+
+            for (Route route : layout.routes) {
+                drawEdge(g, route);
+            }
+            for (Box box : layout.boxes) {
+                if (box.node != null) {
+                    drawNode(g, box);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private void drawNode(Graphics2D g, Box box) {
+        double x = box.x - box.width / 2;
+        double y = box.y - box.height / 2;
+        Shape shape = switch (box.node.getShape()) {
+            case ROUND -> new RoundRectangle2D.Double(x, y, box.width, box.height, 16, 16);
+            case CIRCLE -> new Ellipse2D.Double(x, y, box.width, box.height);
+            case DIAMOND -> polygon(box.x, y, x + box.width, box.y, box.x, y + box.height, x, box.y);
+            case HEXAGON -> {
+                double inset = box.height / 4;
+                yield polygon(x + inset, y, x + box.width - inset, y, x + box.width, box.y,
+                        x + box.width - inset, y + box.height, x + inset, y + box.height, x, box.y);
+            }
+            default -> new Rectangle2D.Double(x, y, box.width, box.height);
+        };
+
+        g.setColor(NODE_FILL);
+        g.fill(shape);
+        g.setColor(NODE_STROKE);
+        g.setStroke(new BasicStroke(1.5f));
+        g.draw(shape);
+
+        g.setColor(TEXT_COLOR);
+        drawText(g, box.lines, box.x, box.y);
+    }
+
+    private void drawEdge(Graphics2D g, Route route) {
+        g.setColor(EDGE_COLOR);
+        g.setStroke(switch (route.edge.getStyle()) {
+            case THICK -> new BasicStroke(3f);
+            case DOTTED -> new BasicStroke(1.5f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10f, new float[]{4f, 4f}, 0f);
+            default -> new BasicStroke(1.5f);
+        });
+
+        List<Point2D> points = route.points();
+        Path2D path = new Path2D.Double();
+        Point2D labelPoint;
+        Point2D tip;
+        Point2D tail;
+
+        if (points.size() == 1) {
+            // 自环：从节点右侧绕出再回到节点右侧
+            Box box = route.boxes.get(0);
+            double right = box.x + box.width / 2;
+            path.moveTo(right, box.y - box.height / 4);
+            path.curveTo(right + 40, box.y - box.height / 2 - 10, right + 40, box.y + box.height / 2 + 10, right, box.y + box.height / 4);
+            tip = new Point2D.Double(right, box.y + box.height / 4);
+            tail = new Point2D.Double(right + 10, box.y + box.height / 4 + 4);
+            labelPoint = new Point2D.Double(right + 30, box.y);
+        } else {
+            path.moveTo(points.get(0).getX(), points.get(0).getY());
+            for (int i = 1; i < points.size(); i++) {
+                path.lineTo(points.get(i).getX(), points.get(i).getY());
+            }
+            tip = points.get(points.size() - 1);
+            tail = points.get(points.size() - 2);
+            labelPoint = midpoint(points);
+        }
+        g.draw(path);
+
+        if (route.edge.isArrow()) {
+            g.setStroke(new BasicStroke(1.5f));
+            drawArrowHead(g, tail, tip);
+        }
+
+        String label = route.edge.getLabel();
+        if (label != null && !label.isEmpty()) {
+            String[] lines = label.split("\n");
+            FontMetrics metrics = g.getFontMetrics();
+            double textWidth = Arrays.stream(lines).mapToInt(metrics::stringWidth).max().orElse(0);
+            double textHeight = lines.length * metrics.getHeight();
+            g.setColor(Color.WHITE);
+            g.fill(new Rectangle2D.Double(labelPoint.getX() - textWidth / 2 - 2, labelPoint.getY() - textHeight / 2,
+                    textWidth + 4, textHeight));
+            g.setColor(TEXT_COLOR);
+            drawText(g, lines, labelPoint.getX(), labelPoint.getY());
+        }
+    }
+
+    private void drawArrowHead(Graphics2D g, Point2D from, Point2D to) {
+        double angle = Math.atan2(to.getY() - from.getY(), to.getX() - from.getX());
+        double length = 10;
+        double spread = Math.toRadians(25);
+        Path2D head = polygon(
+                to.getX(), to.getY(),
+                to.getX() - length * Math.cos(angle - spread), to.getY() - length * Math.sin(angle - spread),
+                to.getX() - length * Math.cos(angle + spread), to.getY() - length * Math.sin(angle + spread));
+        g.fill(head);
+    }
+
+    private void drawText(Graphics2D g, String[] lines, double centerX, double centerY) {
+        FontMetrics metrics = g.getFontMetrics();
+        double top = centerY - lines.length * metrics.getHeight() / 2.0;
+        for (int i = 0; i < lines.length; i++) {
+            float x = (float) (centerX - metrics.stringWidth(lines[i]) / 2.0);
+            float baseline = (float) (top + i * metrics.getHeight() + metrics.getAscent());
+            g.drawString(lines[i], x, baseline);
+        }
+    }
+
+    private static Path2D polygon(double... coords) {
+        Path2D path = new Path2D.Double();
+        path.moveTo(coords[0], coords[1]);
+        for (int i = 2; i < coords.length; i += 2) {
+            path.lineTo(coords[i], coords[i + 1]);
+        }
+        path.closePath();
+        return path;
+    }
+
+    /**
+     * 折线按长度计算的中点，用于放置连线文字
+     */
+    private static Point2D midpoint(List<Point2D> points) {
+        double total = 0;
+        for (int i = 1; i < points.size(); i++) {
+            total += points.get(i - 1).distance(points.get(i));
+        }
+        double remaining = total / 2;
+        for (int i = 1; i < points.size(); i++) {
+            Point2D a = points.get(i - 1);
+            Point2D b = points.get(i);
+            double segment = a.distance(b);
+            if (segment >= remaining && segment > 0) {
+                double ratio = remaining / segment;
+                return new Point2D.Double(a.getX() + (b.getX() - a.getX()) * ratio, a.getY() + (b.getY() - a.getY()) * ratio);
+            }
+            remaining -= segment;
+        }
+        return points.get(0);
+    }
+
+    // ==================== 布局 ====================
+
+    /**
+     * 布局单元：流程图节点或长边上的虚拟节点（node 为空）
+     */
+    private static class Box {
+        private final MermaidFlowchart.Node node;
+        private final String[] lines;
+        private final double width;
+        private final double height;
+        private int rank;
+        private int order;
+        private double main;
+        private double cross;
+        private double x;
+        private double y;
+        private final List<Box> upper = new ArrayList<>();
+        private final List<Box> lower = new ArrayList<>();
+
+        Box(MermaidFlowchart.Node node, String[] lines, double width, double height) {
+            this.node = node;
+            this.lines = lines;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * 连线经过的布局单元，按原始连线方向（from → to）排列
+     */
+    private static class Route {
+        private final MermaidFlowchart.Edge edge;
+        private final List<Box> boxes;
+        private final boolean horizontal;
+
+        Route(MermaidFlowchart.Edge edge, List<Box> boxes, boolean horizontal) {
+            this.edge = edge;
+            this.boxes = boxes;
+            this.horizontal = horizontal;
+        }
+
+        List<Point2D> points() {
+            List<Point2D> points = new ArrayList<>();
+            if (boxes.size() == 1) {
+                points.add(new Point2D.Double(boxes.get(0).x, boxes.get(0).y));
+                return points;
+            }
+            points.add(anchor(boxes.get(0), boxes.get(1)));
+            for (int i = 1; i < boxes.size() - 1; i++) {
+                points.add(new Point2D.Double(boxes.get(i).x, boxes.get(i).y));
+            }
+            points.add(anchor(boxes.get(boxes.size() - 1), boxes.get(boxes.size() - 2)));
+            return points;
+        }
+
+        /**
+         * 连线与节点的连接点：节点朝向相邻单元一侧的中点
+         */
+        private Point2D anchor(Box box, Box toward) {
+            if (horizontal) {
+                double side = Math.signum(toward.x - box.x);
+                return new Point2D.Double(box.x + side * box.width / 2, box.y);
+            }
+            double side = Math.signum(toward.y - box.y);
+            return new Point2D.Double(box.x, box.y + side * box.height / 2);
+        }
+    }
+
+    private static class Layout {
+        private final MermaidFlowchart chart;
+        private final FontMetrics metrics;
+        private final boolean horizontal;
+        private final Map<String, Box> nodeBoxes = new LinkedHashMap<>();
+        private final List<Box> boxes = new ArrayList<>();
+        private final List<Route> routes = new ArrayList<>();
+        private final List<List<Box>> ranks = new ArrayList<>();
+        private double width;
+        private double height;
+
+        Layout(MermaidFlowchart chart, FontMetrics metrics) {
+            this.chart = chart;
+            this.metrics = metrics;
+            this.horizontal = "LR".equals(chart.getDirection()) || "RL".equals(chart.getDirection());
+        }
+
+        void run() {
+            for (MermaidFlowchart.Node node : chart.getNodes().values()) {
+                Box box = createBox(node);
+                nodeBoxes.put(node.getId(), box);
+                boxes.add(box);
+            }
+            Set<MermaidFlowchart.Edge> reversed = findBackEdges();
+            assignRanks(reversed);
+            buildRoutes(reversed);
+            orderRanks();
+            assignCoordinates();
+        }
+
+        private Box createBox(MermaidFlowchart.Node node) {
+            String[] lines = node.getText().split("\n");
+            double textWidth = Arrays.stream(lines).mapToInt(metrics::stringWidth).max().orElse(0);
+            double textHeight = lines.length * metrics.getHeight();
+            double w = textWidth + 2 * PADDING_X;
+            double h = textHeight + 2 * PADDING_Y;
+            return switch (node.getShape()) {
+                // 菱形按 2:1 外接文字区域
+                case DIAMOND -> new Box(node, lines, w + 2 * h, (w + 2 * h) / 2);
+                case HEXAGON -> new Box(node, lines, w + h / 2, h);
+                case CIRCLE -> {
+                    double d = Math.hypot(textWidth + PADDING_Y, textHeight + PADDING_Y);
+                    yield new Box(node, lines, d, d);
+                }
+                default -> new Box(node, lines, w, h);
+            };
+        }
+
+        /**
+         * DFS 找出构成环的回边，分层时按反向处理
+         */
+        private Set<MermaidFlowchart.Edge> findBackEdges() {
+            Map<String, List<MermaidFlowchart.Edge>> outgoing = new HashMap<>();
+            for (MermaidFlowchart.Edge edge : chart.getEdges()) {
+                if (!edge.getFrom().equals(edge.getTo())) {
+                    outgoing.computeIfAbsent(edge.getFrom(), k -> new ArrayList<>()).add(edge);
+                }
+            }
+
+            Set<MermaidFlowchart.Edge> backEdges = Collections.newSetFromMap(new IdentityHashMap<>());
+            Map<String, Integer> state = new HashMap<>();
+            for (String id : nodeBoxes.keySet()) {
+                if (!state.containsKey(id)) {
+                    // 迭代式 DFS，避免深层流程图导致栈溢出
+                    Deque<Iterator<MermaidFlowchart.Edge>> stack = new ArrayDeque<>();
+                    Deque<String> path = new ArrayDeque<>();
+                    state.put(id, 1);
+                    path.push(id);
+                    stack.push(outgoing.getOrDefault(id, List.of()).iterator());
+                    while (!stack.isEmpty()) {
+                        Iterator<MermaidFlowchart.Edge> it = stack.peek();
+                        if (!it.hasNext()) {
+                            stack.pop();
+                            state.put(path.pop(), 2);
+                            continue;
+                        }
+                        MermaidFlowchart.Edge edge = it.next();
+                        Integer targetState = state.get(edge.getTo());
+                        if (targetState == null) {
+                            state.put(edge.getTo(), 1);
+                            path.push(edge.getTo());
+                            stack.push(outgoing.getOrDefault(edge.getTo(), List.of()).iterator());
+                        } else if (targetState == 1) {
+                            backEdges.add(edge);
+                        }
+                    }
+                }
+            }
+            return backEdges;
+        }
+
+        /**
+         * 最长路径分层
+         */
+        private void assignRanks(Set<MermaidFlowchart.Edge> reversed) {
+            Map<String, List<String>> successors = new HashMap<>();
+            Map<String, Integer> inDegree = new HashMap<>();
+            nodeBoxes.keySet().forEach(id -> inDegree.put(id, 0));
+            for (MermaidFlowchart.Edge edge : chart.getEdges()) {
+                if (edge.getFrom().equals(edge.getTo())) {
+                    continue;
+                }
+                String from = reversed.contains(edge) ? edge.getTo() : edge.getFrom();
+                String to = reversed.contains(edge) ? edge.getFrom() : edge.getTo();
+                successors.computeIfAbsent(from, k -> new ArrayList<>()).add(to);
+                inDegree.merge(to, 1, Integer::sum);
+            }
+
+            Deque<String> queue = new ArrayDeque<>();
+            inDegree.forEach((id, degree) -> {
+                if (degree == 0) {
+                    queue.add(id);
+                }
+            });
+            while (!queue.isEmpty()) {
+                String id = queue.poll();
+                int rank = nodeBoxes.get(id).rank;
+                for (String next : successors.getOrDefault(id, List.of())) {
+                    Box box = nodeBoxes.get(next);
+                    box.rank = Math.max(box.rank, rank + 1);
+                    if (inDegree.merge(next, -1, Integer::sum) == 0) {
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 为跨越多层的连线插入虚拟节点，并记录相邻层关系
+         */
+        private void buildRoutes(Set<MermaidFlowchart.Edge> reversed) {
+            for (MermaidFlowchart.Edge edge : chart.getEdges()) {
+                Box from = nodeBoxes.get(edge.getFrom());
+                Box to = nodeBoxes.get(edge.getTo());
+                if (from == to) {
+                    routes.add(new Route(edge, List.of(from), horizontal));
+                    continue;
+                }
+
+                boolean back = reversed.contains(edge);
+                Box top = back ? to : from;
+                Box bottom = back ? from : to;
+                List<Box> chain = new ArrayList<>();
+                chain.add(top);
+                for (int rank = top.rank + 1; rank < bottom.rank; rank++) {
+                    Box dummy = new Box(null, new String[0], 0, 0);
+                    dummy.rank = rank;
+                    boxes.add(dummy);
+                    chain.add(dummy);
+                }
+                chain.add(bottom);
+                for (int i = 1; i < chain.size(); i++) {
+                    chain.get(i - 1).lower.add(chain.get(i));
+                    chain.get(i).upper.add(chain.get(i - 1));
+                }
+                if (back) {
+                    Collections.reverse(chain);
+                }
+                routes.add(new Route(edge, chain, horizontal));
+            }
+        }
+
+        /**
+         * 重心法减少连线交叉
+         */
+        private void orderRanks() {
+            for (Box box : boxes) {
+                while (ranks.size() <= box.rank) {
+                    ranks.add(new ArrayList<>());
+                }
+                List<Box> rank = ranks.get(box.rank);
+                box.order = rank.size();
+                rank.add(box);
+            }
+
+            for (int iteration = 0; iteration < ORDER_ITERATIONS; iteration++) {
+                for (int r = 1; r < ranks.size(); r++) {
+                    sortByBarycenter(ranks.get(r), true);
+                }
+                for (int r = ranks.size() - 2; r >= 0; r--) {
+                    sortByBarycenter(ranks.get(r), false);
+                }
+            }
+        }
+
+        private void sortByBarycenter(List<Box> rank, boolean useUpper) {
+            Map<Box, Double> barycenter = new IdentityHashMap<>();
+            for (Box box : rank) {
+                List<Box> neighbors = useUpper ? box.upper : box.lower;
+                barycenter.put(box, neighbors.isEmpty() ? box.order
+                        : neighbors.stream().mapToInt(n -> n.order).average().orElse(box.order));
+            }
+            rank.sort(Comparator.comparingDouble(barycenter::get));
+            for (int i = 0; i < rank.size(); i++) {
+                rank.get(i).order = i;
+            }
+        }
+
+        private double mainSize(Box box) {
+            return horizontal ? box.width : box.height;
+        }
+
+        private double crossSize(Box box) {
+            return horizontal ? box.height : box.width;
+        }
+
+        private double gapAfter(Box box) {
+            return box.node == null ? DUMMY_GAP : NODE_GAP;
+        }
+
+        private void assignCoordinates() {
+            // 主轴：逐层累加
+            double mainCursor = MARGIN;
+            for (List<Box> rank : ranks) {
+                double size = rank.stream().mapToDouble(this::mainSize).max().orElse(0);
+                for (Box box : rank) {
+                    box.main = mainCursor + size / 2;
+                }
+                mainCursor += size + RANK_GAP;
+            }
+            double totalMain = mainCursor - RANK_GAP + MARGIN;
+
+            // 交叉轴：先紧凑排列，再向相邻层的连接节点对齐
+            for (List<Box> rank : ranks) {
+                double cursor = 0;
+                for (Box box : rank) {
+                    box.cross = cursor + crossSize(box) / 2;
+                    cursor += crossSize(box) + gapAfter(box);
+                }
+            }
+            for (int iteration = 0; iteration < ORDER_ITERATIONS; iteration++) {
+                for (int r = 1; r < ranks.size(); r++) {
+                    alignRank(ranks.get(r), true);
+                }
+                for (int r = ranks.size() - 2; r >= 0; r--) {
+                    alignRank(ranks.get(r), false);
+                }
+            }
+
+            double minCross = boxes.stream().mapToDouble(b -> b.cross - crossSize(b) / 2).min().orElse(0);
+            double maxCross = boxes.stream().mapToDouble(b -> b.cross + crossSize(b) / 2).max().orElse(0);
+            double totalCross = maxCross - minCross + 2 * MARGIN;
+
+            String direction = chart.getDirection();
+            for (Box box : boxes) {
+                double main = "BT".equals(direction) || "RL".equals(direction) ? totalMain - box.main : box.main;
+                double cross = box.cross - minCross + MARGIN;
+                box.x = horizontal ? main : cross;
+                box.y = horizontal ? cross : main;
+            }
+            width = horizontal ? totalMain : totalCross;
+            height = horizontal ? totalCross : totalMain;
+        }
+
+        /**
+         * 将层内节点移向相邻层连接节点的平均位置，保持顺序且不重叠
+         */
+        private void alignRank(List<Box> rank, boolean useUpper) {
+            double[] desired = new double[rank.size()];
+            for (int i = 0; i < rank.size(); i++) {
+                Box box = rank.get(i);
+                List<Box> neighbors = useUpper ? box.upper : box.lower;
+                desired[i] = neighbors.isEmpty() ? box.cross
+                        : neighbors.stream().mapToDouble(n -> n.cross).average().orElse(box.cross);
+            }
+
+            // 从左到右放置，避免与前一个节点重叠
+            double[] placed = new double[rank.size()];
+            for (int i = 0; i < rank.size(); i++) {
+                Box box = rank.get(i);
+                placed[i] = desired[i];
+                if (i > 0) {
+                    Box prev = rank.get(i - 1);
+                    double min = placed[i - 1] + crossSize(prev) / 2 + gapAfter(prev) + crossSize(box) / 2;
+                    placed[i] = Math.max(placed[i], min);
+                }
+            }
+            // 整体左移，抵消向右推挤造成的偏移
+            double shift = 0;
+            for (int i = 0; i < rank.size(); i++) {
+                shift += placed[i] - desired[i];
+            }
+            shift /= Math.max(rank.size(), 1);
+            for (int i = 0; i < rank.size(); i++) {
+                rank.get(i).cross = placed[i] - shift;
+            }
+        }
+    }
+}
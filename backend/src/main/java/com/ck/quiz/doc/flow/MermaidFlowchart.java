@@ -0,0 +1,322 @@
+package com.ck.quiz.doc.flow;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mermaid 流程图（graph / flowchart）解析结果
+ * 仅解析节点、形状、连线及连线文字，subgraph、style、classDef 等装饰语法忽略
+ */
+@Data
+public class MermaidFlowchart {
+
+    private static final Pattern HEADER = Pattern.compile("^(graph|flowchart)(\\s+(TB|TD|BT|LR|RL))?$", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern NODE_ID = Pattern.compile("^[\\p{L}\\p{N}_]+");
+
+    /**
+     * 带竖线文字或无文字的连线，如 -->、-.->、==>、---、-->|是|
+     */
+    private static final Pattern LINK = Pattern.compile("^(<?(?:-{2,}|={2,}|-\\.+-)[>xo]?)\\s*(?:\\|([^|]*)\\|)?");
+
+    /**
+     * 文字写在连线中间的形式，如 -- 是 -->、-. 可选 .->、== 重要 ==>
+     */
+    private static final Pattern TEXT_LINK = Pattern.compile("^(--|==|-\\.)\\s*([^\\s>|-][^>|]*?)\\s*(-{2,}>|={2,}>|\\.-+>|-{3,}|={3,}|\\.-+)");
+
+    /**
+     * 节点形状分隔符：开始符、结束符、形状，长分隔符优先匹配
+     */
+    private static final String[][] SHAPE_DELIMITERS = {
+            {"(((", ")))", "CIRCLE"}, {"((", "))", "CIRCLE"}, {"([", "])", "ROUND"}, {"[[", "]]", "RECT"},
+            {"[(", ")]", "ROUND"}, {"{{", "}}", "HEXAGON"}, {"[/", "]", "RECT"}, {"[\\", "]", "RECT"},
+            {"[", "]", "RECT"}, {"(", ")", "ROUND"}, {"{", "}", "DIAMOND"}, {">", "]", "RECT"}
+    };
+
+    private static final String[] IGNORED_KEYWORDS = {"subgraph", "end", "classDef", "class", "style", "linkStyle", "click", "direction"};
+
+    /**
+     * 节点形状
+     */
+    public enum Shape {
+        RECT, ROUND, CIRCLE, DIAMOND, HEXAGON
+    }
+
+    /**
+     * 连线样式
+     */
+    public enum LineStyle {
+        SOLID, DOTTED, THICK
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Node {
+        private String id;
+        private String text;
+        private Shape shape;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Edge {
+        private String from;
+        private String to;
+        private String label;
+        private LineStyle style;
+        private boolean arrow;
+    }
+
+    /**
+     * 方向：TB、BT、LR、RL（TD 统一为 TB）
+     */
+    private String direction = "TB";
+
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    private final List<Edge> edges = new ArrayList<>();
+
+    /**
+     * 解析 Mermaid 流程图代码
+     *
+     * @throws IllegalArgumentException 非 graph / flowchart 类型或语法无法识别
+     */
+    public static MermaidFlowchart parse(String code) {
+        MermaidFlowchart chart = new MermaidFlowchart();
+        boolean headerFound = false;
+
+        for (String rawLine : code.replace("\r", "").split("\n")) {
+            String line = rawLine.trim();
+            if (line.isEmpty() || line.startsWith("%%")) {
+                continue;
+            }
+            for (String statement : splitStatements(line)) {
+                if (headerFound) {
+                    chart.parseStatement(statement.trim());
+                    continue;
+                }
+                Matcher header = HEADER.matcher(statement.trim());
+                if (!header.matches()) {
+                    throw new IllegalArgumentException("仅支持 graph / flowchart 类型的流程图: " + line);
+                }
+                String dir = header.group(3) != null ? header.group(3).toUpperCase() : "TB";
+                chart.direction = "TD".equals(dir) ? "TB" : dir;
+                headerFound = true;
+            }
+        }
+
+        if (!headerFound) {
+            throw new IllegalArgumentException("流程图代码为空");
+        }
+        return chart;
+    }
+
+    /**
+     * 是否为 graph / flowchart 类型，只检查首条语句
+     */
+    public static boolean isFlowchart(String code) {
+        if (code == null) {
+            return false;
+        }
+        for (String rawLine : code.replace("\r", "").split("\n")) {
+            String line = rawLine.trim();
+            if (line.isEmpty() || line.startsWith("%%")) {
+                continue;
+            }
+            return HEADER.matcher(splitStatements(line).get(0).trim()).matches();
+        }
+        return false;
+    }
+
+    /**
+     * 按分号拆分语句，忽略节点文字中的分号
+     */
+    private static List<String> splitStatements(String line) {
+        List<String> statements = new ArrayList<>();
+        int depth = 0;
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (c == '[' || c == '(' || c == '{')) {
+                depth++;
+            } else if (!quoted && (c == ']' || c == ')' || c == '}') && depth > 0) {
+                depth--;
+            } else if (!quoted && depth == 0 && c == ';') {
+                statements.add(line.substring(start, i));
+                start = i + 1;
+            }
+        }
+        statements.add(line.substring(start));
+        return statements;
+    }
+
+    private void parseStatement(String statement) {
+        if (statement.isEmpty()) {
+            return;
+        }
+        for (String keyword : IGNORED_KEYWORDS) {
+            if (statement.equals(keyword) || statement.startsWith(keyword + " ")) {
+                return;
+            }
+        }
+
+        Cursor cursor = new Cursor(statement);
+        List<String> previous = parseNodeGroup(cursor);
+        while (!cursor.atEnd()) {
+            cursor.skipSpaces();
+            String rest = cursor.rest();
+
+            String label = null;
+            String link;
+            Matcher textLink = TEXT_LINK.matcher(rest);
+            Matcher plainLink = LINK.matcher(rest);
+            if (textLink.find()) {
+                label = textLink.group(2);
+                link = textLink.group(1) + textLink.group(3);
+                cursor.advance(textLink.end());
+            } else if (plainLink.find()) {
+                link = plainLink.group(1);
+                label = plainLink.group(2);
+                cursor.advance(plainLink.end());
+            } else {
+                throw new IllegalArgumentException("无法识别的流程图语句: " + statement);
+            }
+
+            List<String> next = parseNodeGroup(cursor);
+            LineStyle style = link.contains(".") ? LineStyle.DOTTED : link.contains("=") ? LineStyle.THICK : LineStyle.SOLID;
+            boolean arrow = link.endsWith(">");
+            for (String from : previous) {
+                for (String to : next) {
+                    edges.add(new Edge(from, to, label != null ? cleanText(label) : null, style, arrow));
+                }
+            }
+            previous = next;
+        }
+    }
+
+    /**
+     * 解析以 & 连接的一组节点
+     */
+    private List<String> parseNodeGroup(Cursor cursor) {
+        List<String> ids = new ArrayList<>();
+        ids.add(parseNode(cursor));
+        cursor.skipSpaces();
+        while (cursor.peek() == '&') {
+            cursor.advance(1);
+            ids.add(parseNode(cursor));
+            cursor.skipSpaces();
+        }
+        return ids;
+    }
+
+    private String parseNode(Cursor cursor) {
+        cursor.skipSpaces();
+        Matcher idMatcher = NODE_ID.matcher(cursor.rest());
+        if (!idMatcher.find()) {
+            throw new IllegalArgumentException("缺少节点ID: " + cursor.text);
+        }
+        String id = idMatcher.group();
+        cursor.advance(idMatcher.end());
+
+        String rest = cursor.rest();
+        Shape shape = null;
+        String open = null;
+        String close = null;
+        for (String[] delimiter : SHAPE_DELIMITERS) {
+            if (rest.startsWith(delimiter[0])) {
+                open = delimiter[0];
+                close = delimiter[1];
+                shape = Shape.valueOf(delimiter[2]);
+                break;
+            }
+        }
+
+        Node node = nodes.get(id);
+        if (open == null) {
+            if (node == null) {
+                nodes.put(id, new Node(id, id, Shape.RECT));
+            }
+            return id;
+        }
+
+        cursor.advance(open.length());
+        String body = cursor.rest();
+        String text;
+        int end;
+        if (body.startsWith("\"")) {
+            int quoteEnd = body.indexOf('"', 1);
+            if (quoteEnd < 0) {
+                throw new IllegalArgumentException("节点文字缺少结束引号: " + cursor.text);
+            }
+            text = body.substring(1, quoteEnd);
+            end = body.indexOf(close, quoteEnd + 1);
+        } else {
+            end = body.indexOf(close);
+            text = end >= 0 ? body.substring(0, end) : null;
+        }
+        if (end < 0) {
+            throw new IllegalArgumentException("节点缺少结束符 " + close + ": " + cursor.text);
+        }
+        cursor.advance(end + close.length());
+
+        text = cleanText(text);
+        // 平行四边形等形状的内侧斜线不作为文字
+        if (open.startsWith("[/") || open.startsWith("[\\")) {
+            text = text.replaceAll("[/\\\\]$", "");
+        }
+        nodes.put(id, new Node(id, text, shape));
+        return id;
+    }
+
+    private static String cleanText(String text) {
+        return text.replaceAll("(?i)<br\\s*/?>", "\n")
+                .replace("#quot;", "\"")
+                .replace("\"", "")
+                .trim();
+    }
+
+    /**
+     * 语句读取游标
+     */
+    private static class Cursor {
+        private final String text;
+        private int pos;
+
+        Cursor(String text) {
+            this.text = text;
+        }
+
+        boolean atEnd() {
+            skipSpaces();
+            return pos >= text.length() || text.charAt(pos) == ';';
+        }
+
+        char peek() {
+            return pos < text.length() ? text.charAt(pos) : 0;
+        }
+
+        String rest() {
+            return text.substring(pos);
+        }
+
+        void advance(int count) {
+            pos += count;
+        }
+
+        void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
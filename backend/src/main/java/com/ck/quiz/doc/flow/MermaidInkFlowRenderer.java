@@ -0,0 +1,50 @@
+package com.ck.quiz.doc.flow;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 远程流程图渲染器
+ * 调用 mermaid.ink（或自建的兼容服务）生成图片，需要网络访问，支持 sequenceDiagram 等全部 Mermaid 语法
+ */
+@Component
+public class MermaidInkFlowRenderer implements FlowRenderer {
+
+    public static final String TYPE = "mermaid-ink";
+
+    @Value("${quiz.doc.flow.mermaid-ink-url:https://mermaid.ink/img/}")
+    private String baseUrl;
+
+    @Value("${quiz.doc.flow.timeout-ms:30000}")
+    private int timeoutMs;
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public byte[] render(String mermaidCode) throws IOException {
+        String mermaidBase64 = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(mermaidCode.getBytes(StandardCharsets.UTF_8));
+        String imageUrl = baseUrl + mermaidBase64;
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(imageUrl).openConnection();
+        connection.setConnectTimeout(timeoutMs);
+        connection.setReadTimeout(timeoutMs);
+        try (InputStream in = connection.getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new IOException("下载 Mermaid 流程图失败：" + imageUrl, e);
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.ck.quiz.doc.repository;
+
+import com.ck.quiz.doc.entity.DocHeading;
+import com.ck.quiz.doc.entity.DocProcessNode;
+import com.ck.quiz.doc.entity.FunctionPoint;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文档解析结果批量写入器
+ * 标题、流程节点、功能点按批次缓存，达到批大小后通过 batchUpdate 一次性写入，
+ * 替代逐条 repository.save() 带来的大量单行 INSERT 往返。
+ * 非线程安全，每次文档解析创建一个实例，需在事务内使用。
+ */
+@Slf4j
+public class DocBatchWriter {
+
+    private static final String INSERT_HEADING_SQL = "insert into doc_heading (heading_id, doc_id, heading_text, heading_level, parent_id, order_no, page_number, style_name, create_date, create_user) " +
+            "values (:id, :docId, :headingText, :headingLevel, :parentId, :orderNo, :pageNumber, :styleName, :createDate, :createUser)";
+
+    private static final String INSERT_NODE_SQL = "insert into doc_process_node (node_id, doc_id, heading_id, sequence_no, content, create_date) " +
+            "values (:id, :docId, :headingId, :sequenceNo, :content, :createDate)";
+
+    private static final String INSERT_FUNCTION_POINT_SQL = "insert into function_point (id, doc_id, parent_id, name, level, type, order_num, create_date) " +
+            "values (:id, :docId, :parentId, :name, :level, :type, :orderNum, :createDate)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final int batchSize;
+
+    private final String createUser;
+
+    private final List<SqlParameterSource> headingBatch = new ArrayList<>();
+
+    private final List<SqlParameterSource> nodeBatch = new ArrayList<>();
+
+    private final List<SqlParameterSource> functionPointBatch = new ArrayList<>();
+
+    private long headingRows = 0;
+
+    private long nodeRows = 0;
+
+    private long functionPointRows = 0;
+
+    private long writeNanos = 0;
+
+    public DocBatchWriter(NamedParameterJdbcTemplate jdbcTemplate, int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(batchSize, 1);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        this.createUser = authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+
+    public void addHeading(DocHeading heading) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        heading.setCreateDate(now.toLocalDateTime());
+        heading.setCreateUser(createUser);
+        headingBatch.add(new MapSqlParameterSource()
+                .addValue("id", heading.getId())
+                .addValue("docId", heading.getDocId())
+                .addValue("headingText", heading.getHeadingText())
+                .addValue("headingLevel", heading.getHeadingLevel())
+                .addValue("parentId", heading.getParentId())
+                .addValue("orderNo", heading.getOrderNo())
+                .addValue("pageNumber", heading.getPageNumber())
+                .addValue("styleName", heading.getStyleName())
+                .addValue("createDate", now)
+                .addValue("createUser", createUser));
+        if (headingBatch.size() >= batchSize) {
+            headingRows += write(INSERT_HEADING_SQL, headingBatch);
+        }
+    }
+
+    public void addProcessNode(DocProcessNode node) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        node.setCreateDate(now.toLocalDateTime());
+        nodeBatch.add(new MapSqlParameterSource()
+                .addValue("id", node.getId())
+                .addValue("docId", node.getDocId())
+                .addValue("headingId", node.getHeadingId())
+                .addValue("sequenceNo", node.getSequenceNo())
+                .addValue("content", node.getContent())
+                .addValue("createDate", now));
+        if (nodeBatch.size() >= batchSize) {
+            nodeRows += write(INSERT_NODE_SQL, nodeBatch);
+        }
+    }
+
+    public void addFunctionPoint(FunctionPoint functionPoint) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        functionPoint.setCreateDate(now.toLocalDateTime());
+        functionPointBatch.add(new MapSqlParameterSource()
+                .addValue("id", functionPoint.getId())
+                .addValue("docId", functionPoint.getDocId())
+                .addValue("parentId", functionPoint.getParentId())
+                .addValue("name", functionPoint.getName())
+                .addValue("level", functionPoint.getLevel())
+                .addValue("type", functionPoint.getType())
+                .addValue("orderNum", functionPoint.getOrderNum())
+                .addValue("createDate", now));
+        if (functionPointBatch.size() >= batchSize) {
+            functionPointRows += write(INSERT_FUNCTION_POINT_SQL, functionPointBatch);
+        }
+    }
+
+    /**
+     * 写入所有剩余缓存，并输出写入统计
+     */
+    public void flush(String docId) {
+        headingRows += write(INSERT_HEADING_SQL, headingBatch);
+        nodeRows += write(INSERT_NODE_SQL, nodeBatch);
+        functionPointRows += write(INSERT_FUNCTION_POINT_SQL, functionPointBatch);
+
+        long totalRows = headingRows + nodeRows + functionPointRows;
+        long elapsedMs = writeNanos / 1_000_000;
+        long rowsPerSecond = writeNanos > 0 ? totalRows * 1_000_000_000L / writeNanos : totalRows;
+        log.info("文档 [{}] 批量写入完成：标题 {} 条，流程节点 {} 条，功能点 {} 条，批大小 {}，写入耗时 {} ms，速率 {} 行/秒",
+                docId, headingRows, nodeRows, functionPointRows, batchSize, elapsedMs, rowsPerSecond);
+    }
+
+    private int write(String sql, List<SqlParameterSource> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        jdbcTemplate.batchUpdate(sql, batch.toArray(new SqlParameterSource[0]));
+        writeNanos += System.nanoTime() - start;
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+}
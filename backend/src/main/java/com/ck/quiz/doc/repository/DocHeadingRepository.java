@@ -17,8 +17,4 @@ public interface DocHeadingRepository extends JpaRepository<DocHeading, String>
     @Modifying
     @Query("delete from DocHeading h where h.docId = :docId")
     int deleteByDocId(@Param("docId") String docId);
-
-    List<DocHeading> findByDocIdAndHeadingText(String docId, String text);
-
-    List<DocHeading> findByDocIdAndHeadingLevelIn(String docId, List<Integer> headingLevels);
 }
@@ -2,6 +2,7 @@ package com.ck.quiz.doc.service;
 
 import com.ck.quiz.doc.dto.*;
 import com.ck.quiz.doc.entity.DocProcessNode;
+import com.ck.quiz.utils.KeysetPage;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.web.multipart.MultipartFile;
@@ -69,14 +70,22 @@ public interface DocInfoService {
      * @return 流程节点分页结果
      */
     Page<DocProcessNodeDto> pageDocProcessNode(DocProcessNodeQueryDto queryDto);
+
+    /**
+     * 游标分页查询文档流程节点
+     *
+     * @param queryDto 查询条件（cursor 为上一页返回的 nextCursor，首页为空）
+     * @return 流程节点游标分页结果
+     */
+    KeysetPage<DocProcessNodeDto> keysetDocProcessNode(DocProcessNodeQueryDto queryDto);
     
     /**
-     * 导出文档标题为docx文件
+     * 导出文档标题为docx文件，直接写入响应流
      *
-     * @param docId 文档ID
-     * @return 生成的docx文档字节数组
+     * @param docId    文档ID
+     * @param response HTTP 响应
      */
-    byte[] exportHeadingsToDocx(String docId);
+    void exportHeadingsToDocx(String docId, HttpServletResponse response);
     
     /**
      * 根据文档ID获取功能点树
@@ -96,16 +105,45 @@ public interface DocInfoService {
 
     Map<String, Object> generateByProcess(String functionId);
 
-    void batchGenerateProcessDescription();
+    /**
+     * 批量生成流程说明，提交到大模型任务调度器异步执行
+     *
+     * @return 批次ID，可用于查询进度
+     */
+    String batchGenerateProcessDescription();
 
     String generateFlowByProcess(String functionId);
 
-    void batchGenerateFlowByProcess();
+    /**
+     * 批量生成流程图，提交到大模型任务调度器异步执行
+     *
+     * @return 批次ID，可用于查询进度
+     */
+    String batchGenerateFlowByProcess();
+
+    /**
+     * 读取已渲染的功能点流程图
+     *
+     * @param functionId 功能点ID
+     * @return PNG 图片内容
+     */
+    byte[] getFlowImage(String functionId);
 
     Map<String, Object> generateInfByProcess(String functionId);
 
-    void batchGenerateInf();
+    /**
+     * 批量生成接口信息，提交到大模型任务调度器异步执行
+     *
+     * @return 批次ID，可用于查询进度
+     */
+    String batchGenerateInf();
 
-    byte[] exportToExcel(String docId);
+    /**
+     * 导出接口信息为Excel文件，按游标读取功能点并以 SXSSF 流式写入响应流
+     *
+     * @param docId    文档ID
+     * @param response HTTP 响应
+     */
+    void exportToExcel(String docId, HttpServletResponse response);
     
 }
\ No newline at end of file
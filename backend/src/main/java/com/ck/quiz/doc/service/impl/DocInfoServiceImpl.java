@@ -6,15 +6,20 @@ import com.ck.quiz.doc.entity.DocInfo;
 import com.ck.quiz.doc.entity.DocProcessNode;
 import com.ck.quiz.doc.entity.FunctionPoint;
 import com.ck.quiz.doc.exception.DocInfoException;
+import com.ck.quiz.doc.flow.FlowRenderService;
+import com.ck.quiz.doc.repository.DocBatchWriter;
 import com.ck.quiz.doc.repository.DocHeadingRepository;
 import com.ck.quiz.doc.repository.DocInfoRepository;
 import com.ck.quiz.doc.repository.DocProcessNodeRepository;
 import com.ck.quiz.doc.repository.FunctionPointRepository;
 import com.ck.quiz.doc.service.DocInfoService;
-import com.ck.quiz.thpool.CommonPool;
+import com.ck.quiz.llmmodel.service.LLMResponseCache;
+import com.ck.quiz.llmmodel.service.LLMTaskScheduler;
+import com.ck.quiz.utils.DocxStreamHelper;
 import com.ck.quiz.utils.HumpHelper;
 import com.ck.quiz.utils.IdHelper;
 import com.ck.quiz.utils.JdbcQueryHelper;
+import com.ck.quiz.utils.KeysetPage;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -24,15 +29,16 @@ import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.util.Units;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xwpf.usermodel.*;
 import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTAbstractNum;
 import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTLvl;
 import org.openxmlformats.schemas.wordprocessingml.x2006.main.STNumberFormat;
-import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -42,16 +48,16 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
 import java.math.BigInteger;
-import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -80,7 +86,22 @@ public class DocInfoServiceImpl implements DocInfoService {
     private FunctionPointRepository functionPointRepository;
 
     @Autowired
-    private ChatClient.Builder chatBuilder;
+    private LLMTaskScheduler llmTaskScheduler;
+
+    @Autowired
+    private FlowRenderService flowRenderService;
+
+    /**
+     * 文档解析结果批量写入的批大小
+     */
+    @Value("${quiz.doc.ingest.batch-size:500}")
+    private int ingestBatchSize;
+
+    @Value("${quiz.doc.export.row-window:500}")
+    private int exportRowWindow;
+
+    @Value("${quiz.doc.export.fetch-size:500}")
+    private int exportFetchSize;
 
     @Override
     @Transactional
@@ -218,13 +239,8 @@ public class DocInfoServiceImpl implements DocInfoService {
             docInfo = docInfoRepository.save(docInfo);
             log.info("文档信息保存成功: {}", docInfo.getId());
 
-            // 🔹 解析文档标题及层级关系
-            extractAndSaveHeadings(docInfo.getId(), filePath);
-
-            // 解析流程节点
-            extractProcessNodesWithHeading(docInfo.getId(), filePath);
-            // 解析功能点
-            extractFunctionPoints(docInfo.getId());
+            // 🔹 单次遍历解析标题、流程节点及功能点
+            ingestDocument(docInfo.getId(), filePath);
 
             // 转换为DTO返回
             return convertToDto(docInfo);
@@ -238,20 +254,157 @@ public class DocInfoServiceImpl implements DocInfoService {
     }
 
     /**
-     * @param docId
+     * 单次遍历文档，同时提取标题、流程节点及功能点
+     * 基于 StAX 流式读取 word/document.xml，整个过程不加载完整文档 DOM
+     *
+     * @param docId    文档ID
+     * @param filePath 文件路径
      */
-    private void extractFunctionPoints(String docId) {
-        log.info("提取功能点，文档ID: {}", docId);
-
-        // 1️⃣ 删除旧功能点
+    private void ingestDocument(String docId, String filePath) {
+        // 删除旧记录
+        nodeRepository.deleteByDocId(docId);
+        docHeadingRepository.deleteByDocId(docId);
         functionPointRepository.deleteByDocId(docId);
 
-        // 2️⃣ 查询3、4、5级标题
-        List<DocHeading> headings = docHeadingRepository.findByDocIdAndHeadingLevelIn(
-                docId,
-                Arrays.asList(3, 4, 5)
-        );
+        DocBatchWriter writer = new DocBatchWriter(jdbcTemplate, ingestBatchSize);
+        DocIngestionHandler handler = new DocIngestionHandler(docId, writer);
+        try {
+            int paragraphCount = DocxStreamHelper.readParagraphs(filePath, handler);
+            handler.finish();
+            log.info("文档 [{}] 解析完成，共 {} 个段落，{} 个标题，{} 个流程节点",
+                    docId, paragraphCount, handler.orderNo.get() - 1, handler.seqNo.get() - 1);
+        } catch (DocInfoException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("解析文档失败: {}", e.getMessage(), e);
+            throw new DocInfoException("DOC_PARSE_FAIL", "文档解析失败: " + e.getMessage());
+        }
+
+        // 基于内存中的 3~5 级标题提取功能点，无需回查数据库
+        extractFunctionPoints(docId, handler.functionHeadings, writer);
+
+        writer.flush(docId);
+    }
+
+    /**
+     * 文档段落处理器
+     * 在一次遍历中完成：
+     * - 标题识别及父子层级计算
+     * - 七级标题下“本时序图流程步骤如下：”后的流程节点收集
+     * - 3~5 级标题暂存，用于功能点提取
+     */
+    private class DocIngestionHandler implements DocxStreamHelper.ParagraphHandler {
+
+        private final String docId;
+
+        private final DocBatchWriter writer;
+
+        private final AtomicInteger orderNo = new AtomicInteger(1);
+
+        private final AtomicInteger seqNo = new AtomicInteger(1);
+
+        private final Map<Integer, DocHeading> lastHeadingByLevel = new HashMap<>();
+
+        private final List<DocHeading> functionHeadings = new ArrayList<>();
+
+        private final StringBuilder processBuffer = new StringBuilder();
+
+        private boolean inProcessSection = false;
+
+        private String currentHeadingId = null;
+
+        private DocIngestionHandler(String docId, DocBatchWriter writer) {
+            this.docId = docId;
+            this.writer = writer;
+        }
+
+        @Override
+        public void handle(DocxStreamHelper.DocxParagraph para) {
+            String text = para.getText().trim();
+            if (text.isEmpty()) return;
+
+            // 提取层级
+            int level = extractHeadingLevelCompat(para.getStyleId(), para.getStyleName());
+            if (level > 0) {
+                saveHeading(para.getStyleId(), text, level);
+            }
+
+            // === 检测七级标题（Heading 7）===
+            if (level == 7) {
+                // 遇到新标题前，先保存上一个“流程步骤”缓冲区内容
+                if (inProcessSection && currentHeadingId != null && processBuffer.length() > 0) {
+                    saveProcessNodes(docId, currentHeadingId, processBuffer.toString(), seqNo, writer);
+                    processBuffer.setLength(0);
+                    inProcessSection = false;
+                }
+
+                // 设置当前 headingId（取刚保存的本标题，无需按标题文本回查数据库，同名标题互不干扰）
+                currentHeadingId = lastHeadingByLevel.get(level).getId();
+                return;
+            }
+
+            // === 检测“本时序图流程步骤如下：”开始标记 ===
+            if (text.contains("本时序图流程步骤如下：")) {
+                inProcessSection = true;
+                processBuffer.setLength(0); // 清空旧内容
+                return;
+            }
+
+            // === 如果在流程步骤区，收集内容，直到下一个七级标题出现 ===
+            if (inProcessSection) {
+                processBuffer.append(text).append("\n");
+            }
+        }
+
+        /**
+         * 文档结束时若仍在流程区，也保存
+         */
+        private void finish() {
+            if (inProcessSection && currentHeadingId != null && processBuffer.length() > 0) {
+                saveProcessNodes(docId, currentHeadingId, processBuffer.toString(), seqNo, writer);
+            }
+        }
+
+        private void saveHeading(String style, String text, int level) {
+            DocHeading heading = new DocHeading();
+            heading.setId(IdHelper.genUuid());
+            heading.setDocId(docId);
+            heading.setHeadingText(text);
+            heading.setHeadingLevel(level);
+            heading.setOrderNo(orderNo.getAndIncrement());
+            heading.setStyleName(style);
+
+            // 找父标题
+            DocHeading parentHeading = null;
+            for (int i = level - 1; i >= 1; i--) {
+                if (lastHeadingByLevel.containsKey(i)) {
+                    parentHeading = lastHeadingByLevel.get(i);
+                    break;
+                }
+            }
+            heading.setParentId(parentHeading != null ? parentHeading.getId() : null);
+
+            // 更新当前层级状态
+            lastHeadingByLevel.put(level, heading);
+            lastHeadingByLevel.keySet().removeIf(l -> l > level);
+
+            if (level >= 3 && level <= 5) {
+                functionHeadings.add(heading);
+            }
 
+            writer.addHeading(heading);
+        }
+    }
+
+    /**
+     * 根据 3、4、5 级标题提取功能点
+     *
+     * @param docId    文档ID
+     * @param headings 3~5 级标题列表
+     * @param writer   批量写入器
+     */
+    private void extractFunctionPoints(String docId, List<DocHeading> headings, DocBatchWriter writer) {
+        log.info("提取功能点，文档ID: {}", docId);
         if (headings.isEmpty()) {
             log.info("文档 [{}] 未发现 3~5 级标题，无需提取功能点", docId);
             return;
@@ -284,7 +437,7 @@ public class DocInfoServiceImpl implements DocInfoService {
             fp1.setLevel(1);
             fp1.setType("模块");
             fp1.setOrderNum(orderCounter.getAndIncrement());
-            functionPointRepository.save(fp1);
+            writer.addFunctionPoint(fp1);
 
             // 5️⃣ 获取四级标题（作为二级功能点）
             List<DocHeading> level4List = childrenMap.getOrDefault(level3.getId(), Collections.emptyList())
@@ -302,7 +455,7 @@ public class DocInfoServiceImpl implements DocInfoService {
                 fp2.setLevel(2);
                 fp2.setType("子模块");
                 fp2.setOrderNum(orderCounter.getAndIncrement());
-                functionPointRepository.save(fp2);
+                writer.addFunctionPoint(fp2);
 
                 // 6️⃣ 获取五级标题（作为三级功能点）
                 List<DocHeading> level5List = childrenMap.getOrDefault(level4.getId(), Collections.emptyList())
@@ -320,7 +473,7 @@ public class DocInfoServiceImpl implements DocInfoService {
                     fp3.setLevel(3);
                     fp3.setType("功能");
                     fp3.setOrderNum(orderCounter.getAndIncrement());
-                    functionPointRepository.save(fp3);
+                    writer.addFunctionPoint(fp3);
                 }
             }
         }
@@ -329,69 +482,17 @@ public class DocInfoServiceImpl implements DocInfoService {
     }
 
 
-    public void extractAndSaveHeadings(String docId, String filePath) {
-        try (FileInputStream fis = new FileInputStream(filePath);
-             XWPFDocument document = new XWPFDocument(fis)) {
-
-            // 删除旧标题记录
-            docHeadingRepository.deleteByDocId(docId);
-
-            List<XWPFParagraph> paragraphs = document.getParagraphs();
-            AtomicInteger orderNo = new AtomicInteger(1);
-
-            Map<Integer, DocHeading> lastHeadingByLevel = new HashMap<>();
-
-            for (XWPFParagraph para : paragraphs) {
-                String style = para.getStyle();
-                String text = para.getText().trim();
-                if (text.isEmpty()) continue;
-
-                // 提取层级
-                int level = extractHeadingLevelCompat(document, para, style);
-
-                if (level > 0) {
-                    DocHeading heading = new DocHeading();
-                    heading.setId(IdHelper.genUuid());
-                    heading.setDocId(docId);
-                    heading.setHeadingText(text);
-                    heading.setHeadingLevel(level);
-                    heading.setOrderNo(orderNo.getAndIncrement());
-                    heading.setStyleName(style);
-
-                    // 找父标题
-                    DocHeading parentHeading = null;
-                    for (int i = level - 1; i >= 1; i--) {
-                        if (lastHeadingByLevel.containsKey(i)) {
-                            parentHeading = lastHeadingByLevel.get(i);
-                            break;
-                        }
-                    }
-                    heading.setParentId(parentHeading != null ? parentHeading.getId() : null);
-
-                    // 更新当前层级状态
-                    lastHeadingByLevel.put(level, heading);
-                    lastHeadingByLevel.keySet().removeIf(l -> l > level);
-
-                    docHeadingRepository.save(heading);
-                }
-            }
-
-            log.info("文档 [{}] 标题解析完成，共 {} 个标题", docId, orderNo.get() - 1);
-
-        } catch (Exception e) {
-            log.error("解析文档标题层级失败: {}", e.getMessage(), e);
-            throw new DocInfoException("DOC_HEADING_PARSE_FAIL", "文档标题解析失败: " + e.getMessage());
-        }
-    }
-
     /**
      * 智能识别标题层级
      * 支持：
      * - Heading 1 / 标题1 / heading1
      * - 手动加粗 + 大字号（伪标题）
      * - 自定义样式引用
+     *
+     * @param style     段落样式 ID
+     * @param styleName 样式表中的样式名称
      */
-    private int extractHeadingLevelCompat(XWPFDocument doc, XWPFParagraph para, String style) {
+    private int extractHeadingLevelCompat(String style, String styleName) {
         // ✅ 1. 优先识别标准样式
         if (style != null) {
             style = style.toLowerCase();
@@ -405,21 +506,15 @@ public class DocInfoServiceImpl implements DocInfoService {
         }
 
         // ✅ 2. 尝试通过样式表 (StyleDefinitions) 判断
-        try {
-            if (style != null) {
-                XWPFStyle xwpfStyle = doc.getStyles().getStyle(style);
-                if (xwpfStyle != null && xwpfStyle.getName() != null) {
-                    String name = xwpfStyle.getName().toLowerCase();
-                    if (name.contains("heading")) {
-                        return extractHeadingLevel(name);
-                    }
-                    if (name.contains("标题")) {
-                        Matcher m = Pattern.compile("(标题\\s*(\\d+))").matcher(name);
-                        if (m.find()) return Integer.parseInt(m.group(2));
-                    }
-                }
+        if (style != null && styleName != null) {
+            String name = styleName.toLowerCase();
+            if (name.contains("heading")) {
+                return extractHeadingLevel(name);
+            }
+            if (name.contains("标题")) {
+                Matcher m = Pattern.compile("(标题\\s*(\\d+))").matcher(name);
+                if (m.find()) return Integer.parseInt(m.group(2));
             }
-        } catch (Exception ignored) {
         }
 
         // ✅ 3. 通过“伪标题”特征判断（加粗 + 大字体 + 特殊间距）
@@ -468,8 +563,15 @@ public class DocInfoServiceImpl implements DocInfoService {
      */
     private String calculateFileMd5(File file) throws IOException, NoSuchAlgorithmException {
         MessageDigest md = MessageDigest.getInstance("MD5");
-        byte[] fileBytes = Files.readAllBytes(file.toPath());
-        byte[] hashBytes = md.digest(fileBytes);
+        // 分块读取，避免大文档整体加载到内存
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                md.update(buffer, 0, len);
+            }
+        }
+        byte[] hashBytes = md.digest();
 
         StringBuilder sb = new StringBuilder();
         for (byte b : hashBytes) {
@@ -634,7 +736,7 @@ public class DocInfoServiceImpl implements DocInfoService {
     }
 
     @Override
-    public byte[] exportHeadingsToDocx(String docId) {
+    public void exportHeadingsToDocx(String docId, HttpServletResponse response) {
         log.info("导出文档标题为docx，文档ID: {}", docId);
 
         // 验证文档是否存在
@@ -661,11 +763,12 @@ public class DocInfoServiceImpl implements DocInfoService {
                 addHeadingToDocument(document, rootNode, 1, functionIdMap);
             }
 
-            // 保存到字节数组
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            document.write(outputStream);
-            outputStream.flush();
-            return outputStream.toByteArray();
+            // 直接写入响应流，避免再复制一份字节数组
+            response.setContentType("application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+            response.setHeader("Content-Disposition", "attachment; filename=doc_headings_" + docId + ".docx");
+            try (OutputStream outputStream = response.getOutputStream()) {
+                document.write(outputStream);
+            }
 
         } catch (IOException e) {
             log.error("导出docx文档失败: {}", e.getMessage(), e);
@@ -801,8 +904,7 @@ public class DocInfoServiceImpl implements DocInfoService {
      * 插入功能流程图（如果图片存在）
      */
     private void insertFlowImage(XWPFDocument document, String functionId) {
-        String uploadDir = "D:\\quiz\\flows";
-        Path imagePath = Paths.get(uploadDir, functionId + ".png");
+        Path imagePath = flowRenderService.getImagePath(functionId);
 
         if (Files.exists(imagePath)) {
             try (InputStream is = Files.newInputStream(imagePath)) {
@@ -956,75 +1058,10 @@ public class DocInfoServiceImpl implements DocInfoService {
 //        }
 //    }
 
-    public void extractProcessNodesWithHeading(String docId, String filePath) {
-        try (FileInputStream fis = new FileInputStream(filePath);
-             XWPFDocument document = new XWPFDocument(fis)) {
-
-            // 删除旧记录
-            nodeRepository.deleteByDocId(docId);
-
-            List<XWPFParagraph> paragraphs = document.getParagraphs();
-            AtomicInteger seqNo = new AtomicInteger(1);
-
-            boolean inProcessSection = false;
-            String currentHeadingId = null;
-            StringBuilder processBuffer = new StringBuilder();
-
-            for (int i = 0; i < paragraphs.size(); i++) {
-                XWPFParagraph para = paragraphs.get(i);
-                String text = para.getText().trim();
-                if (text.isEmpty()) continue;
-
-                // 检测标题级别
-                String style = para.getStyle();
-                int level = extractHeadingLevelCompat(document, para, style);
-
-                // === 检测七级标题（Heading 7）===
-                if (level == 7) {
-                    // 遇到新标题前，先保存上一个“流程步骤”缓冲区内容
-                    if (inProcessSection && currentHeadingId != null && processBuffer.length() > 0) {
-                        saveProcessNodes(docId, currentHeadingId, processBuffer.toString(), seqNo);
-                        processBuffer.setLength(0);
-                        inProcessSection = false;
-                    }
-
-                    // 设置当前 headingId
-                    List<DocHeading> headings = docHeadingRepository.findByDocIdAndHeadingText(docId, text);
-                    if (!headings.isEmpty()) {
-                        currentHeadingId = headings.get(0).getId();
-                    } else {
-                        currentHeadingId = null;
-                    }
-                    continue;
-                }
-
-                // === 检测“本时序图流程步骤如下：”开始标记 ===
-                if (text.contains("本时序图流程步骤如下：")) {
-                    inProcessSection = true;
-                    processBuffer.setLength(0); // 清空旧内容
-                    continue;
-                }
-
-                // === 如果在流程步骤区，收集内容，直到下一个七级标题出现 ===
-                if (inProcessSection) {
-                    processBuffer.append(text).append("\n");
-                }
-            }
-
-            // 文档结束时若仍在流程区，也保存
-            if (inProcessSection && currentHeadingId != null && processBuffer.length() > 0) {
-                saveProcessNodes(docId, currentHeadingId, processBuffer.toString(), seqNo);
-            }
-
-        } catch (Exception e) {
-            throw new RuntimeException("提取流程节点失败: " + e.getMessage(), e);
-        }
-    }
-
     /**
      * 按行或编号拆分保存流程节点
      */
-    private void saveProcessNodes(String docId, String headingId, String content, AtomicInteger seqNo) {
+    private void saveProcessNodes(String docId, String headingId, String content, AtomicInteger seqNo, DocBatchWriter writer) {
         // 按编号或换行拆分，如 "1、" 或 "2."
         String[] lines = content.split("(?<=^|\\n)(?=\\d+\\s*[、.])");
         for (String line : lines) {
@@ -1038,7 +1075,7 @@ public class DocInfoServiceImpl implements DocInfoService {
             node.setSequenceNo(seqNo.getAndIncrement());
             node.setContent(line);
 
-            nodeRepository.save(node);
+            writer.addProcessNode(node);
         }
     }
 
@@ -1053,43 +1090,13 @@ public class DocInfoServiceImpl implements DocInfoService {
     public Page<DocProcessNodeDto> pageDocProcessNode(DocProcessNodeQueryDto queryDto) {
         log.info("分页查询文档流程节点，查询条件: {}", queryDto);
 
-        String docId = queryDto.getDocId();
         Integer pageNum = queryDto.getPageNum();
         Integer pageSize = queryDto.getPageSize();
-        String keyWord = queryDto.getKeyWord();
-        String headingId = queryDto.getHeadingId();
-
-        // 验证文档是否存在
-        docInfoRepository.findById(docId)
-                .orElseThrow(() -> new DocInfoException("DOC_NOT_FOUND", "文档不存在: " + docId));
-
-        StringBuilder sql = new StringBuilder(
-                "SELECT n.node_id, n.doc_id, n.heading_id, n.sequence_no, n.content, n.create_date, h.heading_text " +
-                        "FROM doc_process_node n LEFT JOIN doc_heading h ON n.heading_id = h.heading_id " +
-                        "WHERE n.doc_id = :docId "
-        );
-
-        StringBuilder countSql = new StringBuilder(
-                "SELECT COUNT(1) FROM doc_process_node n WHERE n.doc_id = :docId "
-        );
 
+        StringBuilder sql = new StringBuilder();
+        StringBuilder countSql = new StringBuilder();
         Map<String, Object> params = new HashMap<>();
-        params.put("docId", docId);
-
-        // 添加标题ID筛选条件
-        if (headingId != null && !headingId.isEmpty()) {
-            sql.append("AND n.heading_id = :headingId ");
-            countSql.append("AND n.heading_id = :headingId ");
-            params.put("headingId", headingId);
-        }
-
-        // 添加关键词搜索条件
-        if (keyWord != null && !keyWord.isEmpty()) {
-            String searchPattern = "%" + keyWord + "%";
-            sql.append("AND (n.content LIKE :keyWord OR h.heading_text LIKE :keyWord) ");
-            countSql.append("AND (n.content LIKE :keyWord OR (SELECT h.heading_text FROM doc_heading h WHERE h.heading_id = n.heading_id) LIKE :keyWord) ");
-            params.put("keyWord", searchPattern);
-        }
+        buildProcessNodeQuery(queryDto, sql, countSql, params);
 
         // 排序（按序号正序）
         JdbcQueryHelper.order(
@@ -1107,21 +1114,7 @@ public class DocInfoServiceImpl implements DocInfoService {
         );
 
         // 查询数据，返回DTO对象
-        List<DocProcessNodeDto> nodeDtos = jdbcTemplate.query(
-                limitSql,
-                params,
-                (rs, rowNum) -> {
-                    DocProcessNodeDto dto = new DocProcessNodeDto();
-                    dto.setId(rs.getString("node_id"));
-                    dto.setDocId(rs.getString("doc_id"));
-                    dto.setHeadingId(rs.getString("heading_id"));
-                    dto.setSequenceNo(rs.getInt("sequence_no"));
-                    dto.setContent(rs.getString("content"));
-                    dto.setCreateDate(rs.getTimestamp("create_date").toLocalDateTime());
-                    dto.setHeadingText(rs.getString("heading_text")); // 添加标题文本
-                    return dto;
-                }
-        );
+        List<DocProcessNodeDto> nodeDtos = jdbcTemplate.query(limitSql, params, this::mapProcessNodeRow);
 
         // 组装分页对象
         return JdbcQueryHelper.toPage(
@@ -1134,6 +1127,75 @@ public class DocInfoServiceImpl implements DocInfoService {
         );
     }
 
+    /**
+     * 游标分页查询文档流程节点，按 sequence_no、node_id 正序
+     *
+     * @param queryDto 查询条件
+     * @return 流程节点游标分页结果
+     */
+    @Override
+    public KeysetPage<DocProcessNodeDto> keysetDocProcessNode(DocProcessNodeQueryDto queryDto) {
+        log.info("游标分页查询文档流程节点，查询条件: {}", queryDto);
+
+        StringBuilder sql = new StringBuilder();
+        StringBuilder countSql = new StringBuilder();
+        Map<String, Object> params = new HashMap<>();
+        buildProcessNodeQuery(queryDto, sql, countSql, params);
+
+        return JdbcQueryHelper.keysetPage(jdbcTemplate, sql.toString(), countSql.toString(), params,
+                "n.sequence_no", "sequence_no", "n.node_id", "node_id", false,
+                queryDto.getCursor(), queryDto.getPageSize(), KeysetPage.CountMode.of(queryDto.getCountMode()),
+                this::mapProcessNodeRow);
+    }
+
+    /**
+     * 拼接流程节点查询 sql 与统计 sql，不含排序与分页
+     */
+    private void buildProcessNodeQuery(DocProcessNodeQueryDto queryDto, StringBuilder sql, StringBuilder countSql, Map<String, Object> params) {
+        String docId = queryDto.getDocId();
+        String keyWord = queryDto.getKeyWord();
+        String headingId = queryDto.getHeadingId();
+
+        // 验证文档是否存在
+        docInfoRepository.findById(docId)
+                .orElseThrow(() -> new DocInfoException("DOC_NOT_FOUND", "文档不存在: " + docId));
+
+        sql.append("SELECT n.node_id, n.doc_id, n.heading_id, n.sequence_no, n.content, n.create_date, h.heading_text " +
+                "FROM doc_process_node n LEFT JOIN doc_heading h ON n.heading_id = h.heading_id " +
+                "WHERE n.doc_id = :docId ");
+
+        countSql.append("SELECT COUNT(1) FROM doc_process_node n WHERE n.doc_id = :docId ");
+
+        params.put("docId", docId);
+
+        // 添加标题ID筛选条件
+        if (headingId != null && !headingId.isEmpty()) {
+            sql.append("AND n.heading_id = :headingId ");
+            countSql.append("AND n.heading_id = :headingId ");
+            params.put("headingId", headingId);
+        }
+
+        // 添加关键词搜索条件
+        if (keyWord != null && !keyWord.isEmpty()) {
+            String searchPattern = "%" + keyWord + "%";
+            sql.append("AND (n.content LIKE :keyWord OR h.heading_text LIKE :keyWord) ");
+            countSql.append("AND (n.content LIKE :keyWord OR (SELECT h.heading_text FROM doc_heading h WHERE h.heading_id = n.heading_id) LIKE :keyWord) ");
+            params.put("keyWord", searchPattern);
+        }
+    }
+
+    private DocProcessNodeDto mapProcessNodeRow(ResultSet rs, int rowNum) throws SQLException {
+        DocProcessNodeDto dto = new DocProcessNodeDto();
+        dto.setId(rs.getString("node_id"));
+        dto.setDocId(rs.getString("doc_id"));
+        dto.setHeadingId(rs.getString("heading_id"));
+        dto.setSequenceNo(rs.getInt("sequence_no"));
+        dto.setContent(rs.getString("content"));
+        dto.setCreateDate(rs.getTimestamp("create_date").toLocalDateTime());
+        dto.setHeadingText(rs.getString("heading_text")); // 添加标题文本
+        return dto;
+    }
+
     @Override
     public List<FunctionPointTreeDto> getFunctionPointTree(String docId) {
         log.info("获取功能点树，文档ID: {}", docId);
@@ -1343,28 +1405,9 @@ public class DocInfoServiceImpl implements DocInfoService {
         String prompt = MapUtils.getString(list.get(0), "content");
         prompt = prompt.replace("{{processDetail}}", String.join("\n", contents));
 
-        // 4. 调用大模型生成接口信息 JSON
-        ChatClient chatClient = chatBuilder.build();
-        String result = chatClient.prompt()
-                .user(prompt)
-                .call()
-                .content();
-
+        // 4. 调用大模型生成接口信息 JSON 并解析（流程内容未变化时命中缓存）
         ObjectMapper mapper = new ObjectMapper();
-        Map<String, Object> jsonRes;
-
-        // 5. 尝试解析 JSON
-        try {
-            jsonRes = parseAiResult(result, mapper);
-        } catch (Exception e) {
-            String jsonPart = extractJson(result);
-            try {
-                jsonRes = mapper.readValue(jsonPart, new TypeReference<Map<String, Object>>() {
-                });
-            } catch (Exception ex) {
-                throw new RuntimeException("AI 返回结果解析失败：" + result, ex);
-            }
-        }
+        Map<String, Object> jsonRes = callAiForJson("infGenerate", list.get(0), prompt, mapper);
 
         // 6. 补充 functionId
         jsonRes.put("functionId", functionId);
@@ -1421,21 +1464,16 @@ public class DocInfoServiceImpl implements DocInfoService {
         String prompt = MapUtils.getString(list.get(0), "content");
         prompt = prompt.replace("{{processDetail}}", StringUtils.join(contents, "\n"));
 
-        // 调用大模型生成结果
-        ChatClient chatClient = chatBuilder.build();
-        String result = chatClient.prompt()
-                .user(prompt)
-                .call()
-                .content();
-        if (!result.startsWith("[") && result.endsWith("]")) {
-            result = result.substring(0, result.length() - 1);
-        }
+        // 调用大模型生成结果并解析 JSON（流程内容未变化时命中缓存）
         ObjectMapper mapper = new ObjectMapper();
-        Map<String, Object> jsonRes;
-
-        // 尝试解析 JSON
         try {
-            jsonRes = parseAiResult(result, mapper);
+            Map<String, Object> jsonRes = llmTaskScheduler.callCached("processGenerate",
+                    LLMResponseCache.templateVersion(list.get(0)), prompt, result -> {
+                        if (!result.startsWith("[") && result.endsWith("]")) {
+                            result = result.substring(0, result.length() - 1);
+                        }
+                        return parseAiResult(result, mapper);
+                    });
             jsonRes.put("functionId", functionId);
 
             // 更新数据库
@@ -1444,8 +1482,10 @@ public class DocInfoServiceImpl implements DocInfoService {
                     jsonRes
             );
             return jsonRes;
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
-            throw new RuntimeException("AI 返回结果解析失败：" + result, e);
+            throw new RuntimeException("AI 返回结果解析失败：" + e.getMessage(), e);
         }
     }
 
@@ -1479,27 +1519,9 @@ public class DocInfoServiceImpl implements DocInfoService {
         String prompt = MapUtils.getString(list.get(0), "content");
         prompt = prompt.replace("{{processDetail}}", String.join("\n", contents));
 
-        // 4. 调用大模型生成 Mermaid 流程图 JSON
-        ChatClient chatClient = chatBuilder.build();
-        String result = chatClient.prompt()
-                .user(prompt)
-                .call()
-                .content();
-
-        // 5. 尝试解析 JSON
+        // 4. 调用大模型生成 Mermaid 流程图 JSON 并解析（流程内容未变化时命中缓存）
         ObjectMapper mapper = new ObjectMapper();
-        Map<String, Object> jsonRes;
-        try {
-            jsonRes = parseAiResult(result, mapper);
-        } catch (Exception e) {
-            String jsonPart = extractJson(result);
-            try {
-                jsonRes = mapper.readValue(jsonPart, new TypeReference<Map<String, Object>>() {
-                });
-            } catch (Exception ex) {
-                throw new RuntimeException("AI 返回结果解析失败：" + result, ex);
-            }
-        }
+        Map<String, Object> jsonRes = callAiForJson("flowGenerate", list.get(0), prompt, mapper);
 
         // 6. 补充 functionId 并更新数据库
         jsonRes.put("functionId", functionId);
@@ -1513,102 +1535,115 @@ public class DocInfoServiceImpl implements DocInfoService {
             throw new RuntimeException("AI 未生成 mermaidCode");
         }
 
-        // 7. 使用 URL 安全 Base64 编码
-        String mermaidBase64 = Base64.getUrlEncoder().withoutPadding()
-                .encodeToString(mermaidCode.getBytes(StandardCharsets.UTF_8));
-
-        // 8. 调用 mermaid.ink 下载图片
-        String imageUrl = "https://mermaid.ink/img/" + mermaidBase64;
-        String uploadDir = "D:\\quiz\\flows";
-
-        Path targetPath = Paths.get(uploadDir, functionId + ".png");
-        try (InputStream in = new URL(imageUrl).openStream()) {
-            Files.createDirectories(targetPath.getParent());
-            Files.copy(in, targetPath, StandardCopyOption.REPLACE_EXISTING);
-        } catch (IOException e) {
-            throw new RuntimeException("下载 Mermaid 流程图失败：" + imageUrl, e);
-        }
+        // 7. 渲染流程图图片（在渲染线程池中执行）
+        flowRenderService.render(functionId, mermaidCode);
 
-        return mermaidBase64;
+        // 8. 返回 URL 安全 Base64 编码，供前端在线预览
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(mermaidCode.getBytes(StandardCharsets.UTF_8));
     }
 
 
     @Override
-    public void batchGenerateFlowByProcess() {
+    public String batchGenerateFlowByProcess() {
         Map<String, Object> params = new HashMap<>();
-        String uploadDir = "D:\\quiz\\flows";
-        File dir = new File(uploadDir);
-        if (!dir.exists()) dir.mkdirs();
-
         List<Map<String, Object>> functionPoints = HumpHelper.lineToHump(
-                jdbcTemplate.queryForList("select * from function_point where level = 3", params)
+                jdbcTemplate.queryForList("select id, mermaid_code from function_point where level = 3", params)
         );
 
         if (functionPoints.isEmpty()) {
             log.info("没有需要生成流程图的功能点");
-            return;
         }
 
-        functionPoints.forEach(map -> {
-            CommonPool.cachedPool.execute(() -> {
-                String functionId = MapUtils.getString(map, "id");
-
-                File imgFile = new File(uploadDir, functionId + ".png");
-                String mermaidCode = MapUtils.getString(map, "mermaidCode");
-
-                try {
-                    // 图片存在且 mermaidCode 不为空 → 跳过
-                    if (imgFile.exists() && StringUtils.isNotBlank(mermaidCode)) {
-                        log.info("功能点 [{}] 流程图已存在，跳过生成", functionId);
-                        return;
-                    }
+        // 已有 mermaidCode 的直接提交渲染线程池（未变化的自动跳过），缺少的交给大模型生成后再渲染
+        List<String> toGenerate = new ArrayList<>();
+        List<CompletableFuture<Boolean>> renders = new ArrayList<>();
+        for (Map<String, Object> map : functionPoints) {
+            String functionId = MapUtils.getString(map, "id");
+            String mermaidCode = MapUtils.getString(map, "mermaidCode");
+            if (StringUtils.isBlank(mermaidCode)) {
+                toGenerate.add(functionId);
+                continue;
+            }
+            renders.add(flowRenderService.submit(functionId, mermaidCode).whenComplete((rendered, e) -> {
+                if (e != null) {
+                    log.error("功能点 [{}] 流程图渲染失败", functionId, e);
+                } else if (rendered) {
+                    log.info("功能点 [{}] 流程图渲染成功: {}", functionId, flowRenderService.getImagePath(functionId));
+                }
+            }));
+        }
+        CompletableFuture.allOf(renders.toArray(new CompletableFuture[0]))
+                .whenComplete((v, e) -> log.info("流程图渲染完成，共 {} 个功能点", renders.size()));
 
-                    // 如果 mermaidCode 为空 → 调用 AI 生成
-                    if (StringUtils.isBlank(mermaidCode)) {
-                        mermaidCode = generateFlowByProcess(functionId);
-                    }
+        return llmTaskScheduler.submitBatch("batchGenerateFlowByProcess", toGenerate, functionId -> {
+            generateFlowByProcess(functionId);
+            log.info("功能点 [{}] 流程图生成并保存成功: {}", functionId, flowRenderService.getImagePath(functionId));
+        });
+    }
 
-                    // 下载图片
-                    String mermaidBase64 = Base64.getUrlEncoder().withoutPadding()
-                            .encodeToString(mermaidCode.getBytes(StandardCharsets.UTF_8));
-                    String imgUrl = "https://mermaid.ink/img/" + mermaidBase64;
-
-                    try (InputStream in = new URL(imgUrl).openStream();
-                         FileOutputStream out = new FileOutputStream(imgFile)) {
-                        byte[] buffer = new byte[8192];
-                        int len;
-                        while ((len = in.read(buffer)) != -1) {
-                            out.write(buffer, 0, len);
-                        }
-                    }
 
-                    log.info("功能点 [{}] 流程图生成并保存成功: {}", functionId, imgFile.getAbsolutePath());
-                } catch (Exception e) {
-                    log.error("功能点 [{}] 流程图生成失败: {}", functionId, e.getMessage(), e);
-                }
-            });
-        });
+    @Override
+    public byte[] getFlowImage(String functionId) {
+        Path imagePath = flowRenderService.getImagePath(functionId);
+        if (!Files.exists(imagePath)) {
+            throw new DocInfoException("FLOW_NOT_FOUND", "流程图不存在，请先生成: " + functionId);
+        }
+        try {
+            return Files.readAllBytes(imagePath);
+        } catch (IOException e) {
+            throw new DocInfoException("FLOW_READ_FAIL", "读取流程图失败: " + e.getMessage());
+        }
     }
 
 
     @Override
-    public void batchGenerateProcessDescription() {
+    public String batchGenerateProcessDescription() {
         Map<String, Object> params = new HashMap<>();
+        List<String> functionIds = new ArrayList<>();
         HumpHelper.lineToHump(jdbcTemplate.queryForList("select * from function_point where level = 3 and (process_summary is null or function_desc is null or business_desc is null)", params)).forEach(map -> {
-            CommonPool.cachedPool.execute(() -> {
-                generateByProcess(MapUtils.getString(map, "id"));
-            });
+            functionIds.add(MapUtils.getString(map, "id"));
         });
+        return llmTaskScheduler.submitBatch("batchGenerateProcessDescription", functionIds, this::generateByProcess);
     }
 
     @Override
-    public void batchGenerateInf() {
+    public String batchGenerateInf() {
         Map<String, Object> params = new HashMap<>();
+        List<String> functionIds = new ArrayList<>();
         HumpHelper.lineToHump(jdbcTemplate.queryForList("select * from function_point where level = 3 and (inf_desc is null or inf_detail is null)", params)).forEach(map -> {
-            CommonPool.cachedPool.execute(() -> {
-                generateInfByProcess(MapUtils.getString(map, "id"));
-            });
+            functionIds.add(MapUtils.getString(map, "id"));
         });
+        return llmTaskScheduler.submitBatch("batchGenerateInf", functionIds, this::generateInfByProcess);
+    }
+
+    /**
+     * 调用大模型并将结果解析为 JSON，响应按模板 + 提示词缓存
+     *
+     * @param templateName 提示词模板名称
+     * @param template     提示词模板记录
+     * @param prompt       渲染后的提示词
+     */
+    private Map<String, Object> callAiForJson(String templateName, Map<String, Object> template, String prompt, ObjectMapper mapper) {
+        try {
+            return llmTaskScheduler.callCached(templateName, LLMResponseCache.templateVersion(template), prompt, result -> {
+                try {
+                    return parseAiResult(result, mapper);
+                } catch (Exception e) {
+                    String jsonPart = extractJson(result);
+                    try {
+                        return mapper.readValue(jsonPart, new TypeReference<Map<String, Object>>() {
+                        });
+                    } catch (Exception ex) {
+                        throw new RuntimeException("AI 返回结果解析失败：" + result, ex);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("AI 调用失败：" + e.getMessage(), e);
+        }
     }
 
     /**
@@ -1652,144 +1687,118 @@ public class DocInfoServiceImpl implements DocInfoService {
     }
 
     @Override
-    public byte[] exportToExcel(String docId) {
+    @Transactional(readOnly = true)
+    public void exportToExcel(String docId, HttpServletResponse response) {
         log.info("导出接口信息为 Excel，文档ID: {}", docId);
 
         // 验证文档是否存在
         docInfoRepository.findById(docId)
                 .orElseThrow(() -> new DocInfoException("DOC_NOT_FOUND", "文档不存在: " + docId));
 
+        // SXSSF 只在内存中保留最近的 exportRowWindow 行，其余行写入临时文件
+        SXSSFWorkbook workbook = new SXSSFWorkbook(exportRowWindow);
+        workbook.setCompressTempFiles(true);
         try {
-            // 获取文档标题树与功能点树
-            List<DocHeadingTreeDto> headingTree = getDocHeadingTree(docId);
-            List<FunctionPointTreeDto> functionPointTree = getFunctionPointTree(docId);
-            Map<String, FunctionPointTreeDto> functionIdMap = new HashMap<>();
-            resolveFunctionIdMap(functionPointTree, functionIdMap);
-
-            // 收集接口信息
-            List<Map<String, Object>> loopData = new ArrayList<>();
-            for (DocHeadingTreeDto rootNode : headingTree) {
-                loadInfData(rootNode, 1, functionIdMap, loopData);
+            Sheet sheet = workbook.createSheet("接口信息");
+
+            // 标题行
+            String[] headers = {"功能点名称", "序号", "接口名称", "接口说明", "中文字段名称", "出入参"};
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+                sheet.setColumnWidth(i, 8000);
             }
 
-            // === 创建 Excel 工作簿 ===
-            try (Workbook workbook = new XSSFWorkbook()) {
-                Sheet sheet = workbook.createSheet("接口信息");
-
-                // 标题行
-                String[] headers = {"功能点名称", "序号", "接口名称", "接口说明", "中文字段名称", "出入参"};
-                Row headerRow = sheet.createRow(0);
-                for (int i = 0; i < headers.length; i++) {
-                    Cell cell = headerRow.createCell(i);
-                    cell.setCellValue(headers[i]);
-                    sheet.setColumnWidth(i, 8000);
-                }
-
-                int rowNum = 1;
-                int seq = 1;
-
-                for (Map<String, Object> data : loopData) {
-                    // 每个接口的入参、出参按行展开
-                    String functionName = Objects.toString(data.get("functionName"), "");
-                    String interfaceName = Objects.toString(data.get("interfaceName"), "");
-                    String description = Objects.toString(data.get("description"), "");
-
-                    List<Map<String, Object>> inputParams = (List<Map<String, Object>>) data.get("inputList");
-                    List<Map<String, Object>> outputParams = (List<Map<String, Object>>) data.get("outputList");
-
-                    int startRow = rowNum;
-
-                    // 入参
-                    for (Map<String, Object> p : inputParams) {
-                        Row row = sheet.createRow(rowNum++);
-                        row.createCell(0).setCellValue(functionName);
-                        row.createCell(1).setCellValue(seq);
-                        row.createCell(2).setCellValue(interfaceName);
-                        row.createCell(3).setCellValue(description);
-                        row.createCell(4).setCellValue(Objects.toString(p.get("name"), ""));
-                        row.createCell(5).setCellValue("入参");
-                    }
-
-                    // 出参
-                    for (Map<String, Object> p : outputParams) {
-                        Row row = sheet.createRow(rowNum++);
-                        row.createCell(0).setCellValue(functionName);
-                        row.createCell(1).setCellValue(seq);
-                        row.createCell(2).setCellValue(interfaceName);
-                        row.createCell(3).setCellValue(description);
-                        row.createCell(4).setCellValue(Objects.toString(p.get("name"), ""));
-                        row.createCell(5).setCellValue("出参");
-                    }
-
-                    seq++;
-                }
-
-                // 输出为字节数组
-                try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-                    workbook.write(outputStream);
-                    outputStream.flush();
-                    return outputStream.toByteArray();
-                }
+            // 按游标逐行读取三级功能点（对应五级标题），order_num 与标题树深度优先顺序一致
+            Map<String, Object> params = new HashMap<>();
+            params.put("docId", docId);
+            ObjectMapper objectMapper = new ObjectMapper();
+            AtomicInteger rowNum = new AtomicInteger(1);
+            AtomicInteger seq = new AtomicInteger(1);
+            cursorJdbcTemplate().query(
+                    "select name, inf_detail from function_point where doc_id = :docId and level = 3 " +
+                            "and inf_detail is not null and inf_detail <> '' order by order_num",
+                    params,
+                    rs -> {
+                        writeInfRows(sheet, rs.getString("name"), rs.getString("inf_detail"), objectMapper, rowNum, seq);
+                    });
+
+            // 所有行已写入临时文件，再输出到响应流
+            String fileName = "inf_detail_" + docId + ".xlsx";
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            response.setHeader("Content-Disposition", "attachment; filename=" + fileName);
+            try (OutputStream outputStream = response.getOutputStream()) {
+                workbook.write(outputStream);
             }
+            log.info("文档 [{}] 接口信息导出完成，共 {} 个接口，{} 行", docId, seq.get() - 1, rowNum.get() - 1);
 
         } catch (IOException e) {
             log.error("导出 Excel 文档失败: {}", e.getMessage(), e);
             throw new DocInfoException("DOC_EXPORT_FAIL", "导出 Excel 文件失败: " + e.getMessage());
+        } catch (DocInfoException e) {
+            throw e;
         } catch (Exception e) {
             log.error("生成接口信息 Excel 失败: {}", e.getMessage(), e);
             throw new RuntimeException("导出 Excel 文件失败: " + e.getMessage(), e);
+        } finally {
+            workbook.dispose();
         }
     }
 
     /**
-     * 只保留每个功能点的第一个接口
+     * 写入一个功能点的接口信息，只保留第一个接口，入参、出参按行展开
      */
-    private void loadInfData(DocHeadingTreeDto heading, int level, Map<String, FunctionPointTreeDto> functionIdMap, List<Map<String, Object>> loopData) {
-        int actualLevel = Math.min(level, 9);
-
-        if (actualLevel == 5 && functionIdMap.containsKey(heading.getId())) {
-            FunctionPointTreeDto functionPoint = functionIdMap.get(heading.getId());
-            String infDetail = functionPoint.getInfDetail();
-            if (infDetail != null && !infDetail.isEmpty()) {
-                try {
-                    ObjectMapper objectMapper = new ObjectMapper();
-                    Map<String, Map<String, Object>> infMap = objectMapper.readValue(infDetail,
-                            new TypeReference<Map<String, Map<String, Object>>>() {});
-
-                    // 只取第一个接口
-                    Map.Entry<String, Map<String, Object>> firstEntry = infMap.entrySet().iterator().next();
-                    Map<String, Object> detail = firstEntry.getValue();
-
-                    String interfaceName = Objects.toString(detail.get("interfaceName"), "");
-                    String description = Objects.toString(detail.get("description"), "");
+    private void writeInfRows(Sheet sheet, String functionName, String infDetail, ObjectMapper objectMapper,
+                              AtomicInteger rowNum, AtomicInteger seq) {
+        Map<String, Map<String, Object>> infMap;
+        try {
+            infMap = objectMapper.readValue(infDetail, new TypeReference<Map<String, Map<String, Object>>>() {});
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("解析 infDetail JSON 出错: " + e.getMessage(), e);
+        }
+        if (infMap.isEmpty()) {
+            return;
+        }
 
-                    Map<String, Object> params = (Map<String, Object>) detail.get("params");
-                    List<Map<String, Object>> inputList = params != null ? (List<Map<String, Object>>) params.get("input") : Collections.emptyList();
-                    List<Map<String, Object>> outputList = params != null ? (List<Map<String, Object>>) params.get("output") : Collections.emptyList();
+        // 只取第一个接口
+        Map<String, Object> detail = infMap.values().iterator().next();
+        String interfaceName = Objects.toString(detail.get("interfaceName"), "");
+        String description = Objects.toString(detail.get("description"), "");
 
-                    Map<String, Object> row = new LinkedHashMap<>();
-                    row.put("functionName", heading.getHeadingText());
-                    row.put("interfaceName", interfaceName);
-                    row.put("description", description);
-                    row.put("inputList", inputList);
-                    row.put("outputList", outputList);
+        Map<String, Object> params = (Map<String, Object>) detail.get("params");
+        List<Map<String, Object>> inputList = params != null ? (List<Map<String, Object>>) params.get("input") : null;
+        List<Map<String, Object>> outputList = params != null ? (List<Map<String, Object>>) params.get("output") : null;
 
-                    loopData.add(row);
+        int currentSeq = seq.getAndIncrement();
+        String name = Objects.toString(functionName, "");
+        writeParamRows(sheet, rowNum, name, currentSeq, interfaceName, description, inputList, "入参");
+        writeParamRows(sheet, rowNum, name, currentSeq, interfaceName, description, outputList, "出参");
+    }
 
-                } catch (Exception e) {
-                    throw new RuntimeException("解析 infDetail JSON 出错: " + e.getMessage(), e);
-                }
-            }
+    private void writeParamRows(Sheet sheet, AtomicInteger rowNum, String functionName, int seq, String interfaceName,
+                                String description, List<Map<String, Object>> paramList, String direction) {
+        if (paramList == null) {
+            return;
         }
-
-        // 递归子节点
-        if (heading.getChildren() != null && !heading.getChildren().isEmpty()) {
-            for (DocHeadingTreeDto child : heading.getChildren()) {
-                loadInfData(child, actualLevel + 1, functionIdMap, loopData);
-            }
+        for (Map<String, Object> p : paramList) {
+            Row row = sheet.createRow(rowNum.getAndIncrement());
+            row.createCell(0).setCellValue(functionName);
+            row.createCell(1).setCellValue(seq);
+            row.createCell(2).setCellValue(interfaceName);
+            row.createCell(3).setCellValue(description);
+            row.createCell(4).setCellValue(Objects.toString(p.get("name"), ""));
+            row.createCell(5).setCellValue(direction);
         }
     }
 
+    /**
+     * 按游标读取的查询模板，fetchSize 由方言决定（MySQL 逐行流式读取），只用于导出查询，不影响全局连接参数
+     */
+    private NamedParameterJdbcTemplate cursorJdbcTemplate() {
+        JdbcTemplate cursorTemplate = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        cursorTemplate.setFetchSize(JdbcQueryHelper.getDialect(jdbcTemplate).streamingFetchSize(exportFetchSize));
+        return new NamedParameterJdbcTemplate(cursorTemplate);
+    }
 
-
-}
\ No newline at end of file
+}
@@ -38,11 +38,12 @@ public class ExamController {
         return ResponseEntity.ok(examService.updateExam(examUpdateDto));
     }
 
-    @Operation(summary = "删除试卷", description = "根据ID删除指定试卷")
+    @Operation(summary = "删除试卷", description = "根据ID删除指定试卷；keepHistory=true 时软删除并保留历史答卷")
     @DeleteMapping("/{id}")
     public ResponseEntity deleteExam(
-            @Parameter(description = "试卷ID", required = true) @PathVariable String id) {
-        return ResponseEntity.ok(examService.deleteExam(id));
+            @Parameter(description = "试卷ID", required = true) @PathVariable String id,
+            @Parameter(description = "是否保留历史答卷（软删除）") @RequestParam(defaultValue = "false") boolean keepHistory) {
+        return ResponseEntity.ok(keepHistory ? examService.softDeleteExam(id) : examService.deleteExam(id));
     }
 
     @Operation(summary = "获取试卷详情", description = "根据ID获取试卷详细信息")
@@ -145,6 +146,20 @@ public class ExamController {
         return ResponseEntity.ok(examService.submitExam(id, submitDto));
     }
 
+    @Operation(summary = "试卷作答统计", description = "返回交卷次数、平均分、成绩分布及各题正确率与区分度")
+    @GetMapping("/{id}/analytics")
+    public ResponseEntity<ExamAnalyticsDto> getExamAnalytics(
+            @Parameter(description = "试卷ID", required = true) @PathVariable String id) {
+        return ResponseEntity.ok(examService.getExamAnalytics(id));
+    }
+
+    @Operation(summary = "重新统计试卷", description = "从历史答卷重新统计试卷作答情况，用于补录历史数据或修复统计")
+    @PostMapping("/{id}/analytics/rebuild")
+    public ResponseEntity<ExamAnalyticsDto> rebuildExamAnalytics(
+            @Parameter(description = "试卷ID", required = true) @PathVariable String id) {
+        return ResponseEntity.ok(examService.rebuildExamAnalytics(id));
+    }
+
     @Operation(summary = "查询用户历史答卷", description = "根据用户ID（可选试卷ID）查询历史答卷列表")
     @GetMapping("/results")
     public ResponseEntity<Page<ExamResultHistoryItemDto>> listUserResults(
@@ -0,0 +1,16 @@
+package com.ck.quiz.exam.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ExamAnalyticsDto {
+    private String examId;
+    private int maxScore; // 满分（各题分值之和）
+    private long attempts; // 交卷次数
+    private double averageScore;
+    private double scoreStdDev; // 总分标准差
+    private List<ExamScoreBucketDto> distribution; // 成绩分布
+    private List<ExamQuestionAnalyticsDto> questions; // 按题目顺序
+}
@@ -1,11 +1,14 @@
 package com.ck.quiz.exam.dto;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * 一键智能生成试卷的请求DTO
  */
@@ -15,9 +18,8 @@ import lombok.NoArgsConstructor;
 public class ExamAutoGenerateDto {
 
     /**
-     * 题目数量
+     * 题目数量（未指定分层条件时必填，指定分层条件时以各层题目数之和为准）
      */
-    @NotNull(message = "题目数量不能为空")
     @Positive(message = "题目数量必须为正数")
     private Integer questionCount;
 
@@ -54,4 +56,10 @@ public class ExamAutoGenerateDto {
      * 试卷描述（可选）
      */
     private String description;
+
+    /**
+     * 分层抽题条件（可选，不传则在学科题库中随机抽取 questionCount 道题）
+     */
+    @Valid
+    private List<ExamGenerateStratumDto> strata;
 }
\ No newline at end of file
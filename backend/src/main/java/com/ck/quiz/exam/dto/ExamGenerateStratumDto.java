@@ -0,0 +1,57 @@
+package com.ck.quiz.exam.dto;
+
+import com.ck.quiz.question.entity.Question;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 智能组卷的分层抽题条件
+ * 例如：10 道难度 3±1 的单选题；5 道多选题，至少覆盖 4 个知识点
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamGenerateStratumDto {
+
+    /**
+     * 题型（为空表示不限）
+     */
+    private Question.QuestionType type;
+
+    /**
+     * 目标难度 1-5（为空表示不限）
+     */
+    @Min(value = 1, message = "难度范围为1-5")
+    @Max(value = 5, message = "难度范围为1-5")
+    private Integer difficulty;
+
+    /**
+     * 难度允许偏差（±），默认 0
+     */
+    @Min(value = 0, message = "难度偏差不能为负数")
+    private Integer difficultyTolerance = 0;
+
+    /**
+     * 抽取题目数量
+     */
+    @NotNull(message = "分层题目数量不能为空")
+    @Positive(message = "分层题目数量必须为正数")
+    private Integer count;
+
+    /**
+     * 每题分值（可选，不传则由剩余总分均分）
+     */
+    @Positive(message = "分值必须为正数")
+    private Integer score;
+
+    /**
+     * 本层题目至少覆盖的知识点数（可选）
+     */
+    @Positive(message = "知识点覆盖数必须为正数")
+    private Integer minKnowledgeCoverage;
+}
@@ -0,0 +1,13 @@
+package com.ck.quiz.exam.dto;
+
+import lombok.Data;
+
+@Data
+public class ExamQuestionAnalyticsDto {
+    private String examQuestionId;
+    private int score; // 题目分值
+    private long attempts;
+    private long correctCount;
+    private double correctRate; // 正确率，即难度系数 P
+    private Double discrimination; // 点双列相关区分度，样本不足（全对、全错或总分无差异）时为空
+}
@@ -0,0 +1,10 @@
+package com.ck.quiz.exam.dto;
+
+import lombok.Data;
+
+@Data
+public class ExamScoreBucketDto {
+    private double lower; // 区间下限（含）
+    private double upper; // 区间上限（不含，最后一个区间包含满分）
+    private long count;
+}
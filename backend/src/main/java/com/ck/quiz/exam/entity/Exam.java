@@ -67,9 +67,12 @@ public class Exam {
      * draft = 草稿
      * published = 已发布
      * archived = 已归档
+     * deleting = 删除中（正在分批删除答卷，不再接受交卷）
+     * deleted = 已删除（保留历史答卷的软删除）
+     * 使用 varchar 而非 MySQL enum 列，新增状态无需修改列定义
      */
     @Enumerated(EnumType.STRING)
-    @Column(name = "status", length = 20, nullable = false)
+    @Column(name = "status", length = 20, nullable = false, columnDefinition = "varchar(20)")
     private ExamPaperStatus status = ExamPaperStatus.DRAFT;
 
     /**
@@ -127,6 +130,8 @@ public class Exam {
     public enum ExamPaperStatus {
         DRAFT,
         PUBLISHED,
-        ARCHIVED
+        ARCHIVED,
+        DELETING,
+        DELETED
     }
 }
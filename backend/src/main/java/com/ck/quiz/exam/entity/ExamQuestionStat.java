@@ -0,0 +1,59 @@
+package com.ck.quiz.exam.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 试卷题目作答汇总
+ * 由交卷统计增量累加，用于计算正确率（难度）及点双列相关区分度
+ */
+@Entity
+@Table(
+        name = "exam_question_stat",
+        indexes = {
+                @Index(name = "idx_exam_question_stat_paper", columnList = "paper_id")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamQuestionStat {
+
+    @Id
+    @Column(name = "rela_id", length = 32, nullable = false)
+    private String examQuestionId;
+
+    @Column(name = "paper_id", length = 32, nullable = false)
+    private String examId;
+
+    /**
+     * 作答次数
+     */
+    @Column(name = "attempts", nullable = false)
+    private Long attempts;
+
+    /**
+     * 答对次数
+     */
+    @Column(name = "correct_count", nullable = false)
+    private Long correctCount;
+
+    /**
+     * 作答者的试卷总分之和
+     */
+    @Column(name = "score_sum", nullable = false)
+    private Long scoreSum;
+
+    /**
+     * 答对者的试卷总分之和
+     */
+    @Column(name = "correct_score_sum", nullable = false)
+    private Long correctScoreSum;
+
+    @Column(name = "update_date")
+    private LocalDateTime updateDate;
+}
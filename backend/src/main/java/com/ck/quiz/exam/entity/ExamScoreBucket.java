@@ -0,0 +1,42 @@
+package com.ck.quiz.exam.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 试卷成绩分布
+ * 按满分等分为若干区间，记录各区间的交卷次数
+ */
+@Entity
+@Table(
+        name = "exam_score_bucket",
+        indexes = {
+                @Index(name = "idx_exam_score_bucket_paper", columnList = "paper_id")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamScoreBucket {
+
+    /**
+     * 试卷ID + "_" + 区间序号
+     */
+    @Id
+    @Column(name = "bucket_id", length = 40, nullable = false)
+    private String id;
+
+    @Column(name = "paper_id", length = 32, nullable = false)
+    private String examId;
+
+    /**
+     * 区间序号，从 0 开始
+     */
+    @Column(name = "bucket", nullable = false)
+    private Integer bucket;
+
+    @Column(name = "num", nullable = false)
+    private Long num;
+}
@@ -0,0 +1,45 @@
+package com.ck.quiz.exam.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 试卷成绩汇总
+ * 由交卷统计增量累加，用于计算平均分、标准差
+ */
+@Entity
+@Table(name = "exam_stat")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamStat {
+
+    @Id
+    @Column(name = "paper_id", length = 32, nullable = false)
+    private String examId;
+
+    /**
+     * 交卷次数
+     */
+    @Column(name = "attempts", nullable = false)
+    private Long attempts;
+
+    /**
+     * 总分之和
+     */
+    @Column(name = "score_sum", nullable = false)
+    private Long scoreSum;
+
+    /**
+     * 总分平方之和
+     */
+    @Column(name = "score_sq_sum", nullable = false)
+    private Long scoreSqSum;
+
+    @Column(name = "update_date")
+    private LocalDateTime updateDate;
+}
@@ -1,5 +1,6 @@
 package com.ck.quiz.exam.service;
 
+import com.ck.quiz.exam.dto.ExamAnalyticsDto;
 import com.ck.quiz.exam.dto.ExamCreateDto;
 import com.ck.quiz.exam.dto.ExamDto;
 import com.ck.quiz.exam.dto.ExamQueryDto;
@@ -38,13 +39,21 @@ public interface ExamService {
     ExamDto updateExam(ExamUpdateDto examUpdateDto);
 
     /**
-     * 删除试卷
+     * 删除试卷，同时删除该试卷的全部历史答卷
      *
      * @param examId 试卷ID
      * @return 被删除的试卷信息（可用于前端回显或确认）
      */
     ExamDto deleteExam(String examId);
 
+    /**
+     * 软删除试卷：标记为已删除，不再出现在试卷列表中，也不能再交卷，历史答卷保留
+     *
+     * @param examId 试卷ID
+     * @return 被删除的试卷信息
+     */
+    ExamDto softDeleteExam(String examId);
+
     /**
      * 根据ID获取试卷信息
      *
@@ -142,6 +151,22 @@ public interface ExamService {
      */
     void deleteExamResult(String resultId, String userId);
 
+    /**
+     * 查询试卷作答统计（成绩分布、各题正确率及区分度）
+     *
+     * @param examId 试卷ID
+     * @return 试卷统计
+     */
+    ExamAnalyticsDto getExamAnalytics(String examId);
+
+    /**
+     * 从历史答卷重新统计试卷作答情况
+     *
+     * @param examId 试卷ID
+     * @return 重新统计后的试卷统计
+     */
+    ExamAnalyticsDto rebuildExamAnalytics(String examId);
+
     /**
      * 一键智能生成试卷
      *
@@ -0,0 +1,579 @@
+package com.ck.quiz.exam.service.impl;
+
+import com.ck.quiz.exam.dto.ExamAnalyticsDto;
+import com.ck.quiz.exam.dto.ExamQuestionAnalyticsDto;
+import com.ck.quiz.exam.dto.ExamScoreBucketDto;
+import com.ck.quiz.utils.HumpHelper;
+import com.ck.quiz.utils.JdbcQueryHelper;
+import com.ck.quiz.utils.SqlDialect;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 试卷作答统计
+ * <p>
+ * 每次交卷在内存中累加：试卷的交卷次数、总分和、总分平方和、成绩分布区间计数，
+ * 以及每道题的作答次数、答对次数、作答者总分和、答对者总分和。计数器使用分段的 LongAdder，
+ * 高并发交卷时不争用同一变量；后台线程每 flush-interval-ms 将增量 upsert 到 exam_stat、
+ * exam_question_stat、exam_score_bucket 汇总表。
+ * 查询只读取汇总表并叠加尚未写入的增量，耗时与题目数相关，与交卷次数无关；
+ * 点双列相关区分度 r = (M1 - M0) / s * sqrt(p * q) 由上述汇总直接计算。
+ * 历史答卷或异常后的汇总可通过 {@link #rebuild(ExamAnswerKeyCache.AnswerKey)} 从答卷表重新统计。
+ */
+@Slf4j
+@Component
+public class ExamAnalytics {
+
+    /**
+     * 成绩分布区间数，按满分等分
+     */
+    public static final int BUCKETS = 10;
+
+    /**
+     * 已删除试卷的记录数上限，仅用于拦截删除前后迟到的统计
+     */
+    private static final int DELETED_CAPACITY = 1024;
+
+    private static final Map<String, String> EXAM_COLUMNS = columns(
+            "paper_id", "examId", "attempts", "attempts", "score_sum", "scoreSum", "score_sq_sum", "scoreSqSum",
+            "update_date", "now");
+
+    private static final Map<String, String> QUESTION_COLUMNS = columns(
+            "rela_id", "examQuestionId", "paper_id", "examId", "attempts", "attempts", "correct_count", "correctCount",
+            "score_sum", "scoreSum", "correct_score_sum", "correctScoreSum", "update_date", "now");
+
+    private static final Map<String, String> BUCKET_COLUMNS = columns(
+            "bucket_id", "id", "paper_id", "examId", "bucket", "bucket", "num", "num");
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${quiz.exam.analytics.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    private final Map<String, ExamCounters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 已删除的试卷，删除提交后才到达的统计（如删除前已提交交卷的 afterCommit）不再计入
+     */
+    private final Map<String, Boolean> deleted = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > DELETED_CAPACITY;
+        }
+    });
+
+    /**
+     * 写入、查询、重建互斥，避免汇总表与内存增量重复计算
+     */
+    private final Object flushLock = new Object();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "exam-analytics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    /**
+     * 统计一次交卷，处于事务中时提交后再计入
+     *
+     * @param key        试卷答案键
+     * @param totalScore 得分
+     * @param answers    题目关系ID -> 是否答对
+     */
+    public void record(ExamAnswerKeyCache.AnswerKey key, int totalScore, Map<String, Boolean> answers) {
+        afterCommit(() -> apply(key.getExamId(), key.getMaxScore(), totalScore, answers, 1));
+    }
+
+    /**
+     * 撤销一次交卷的统计（删除答卷时）
+     */
+    public void remove(ExamAnswerKeyCache.AnswerKey key, int totalScore, Map<String, Boolean> answers) {
+        afterCommit(() -> apply(key.getExamId(), key.getMaxScore(), totalScore, answers, -1));
+    }
+
+    /**
+     * 删除试卷的全部统计，此后到达的该试卷统计被忽略；处于事务中时提交后再删除，试卷删除回滚时统计保留
+     */
+    public void clear(String examId) {
+        afterCommit(() -> {
+            synchronized (flushLock) {
+                deleted.put(examId, Boolean.TRUE);
+                counters.remove(examId);
+                Map<String, Object> params = Map.of("examId", examId);
+                jdbcTemplate.update("delete from exam_stat where paper_id = :examId", params);
+                jdbcTemplate.update("delete from exam_question_stat where paper_id = :examId", params);
+                jdbcTemplate.update("delete from exam_score_bucket where paper_id = :examId", params);
+            }
+        });
+    }
+
+    private void apply(String examId, int maxScore, int totalScore, Map<String, Boolean> answers, int sign) {
+        if (deleted.containsKey(examId)) {
+            return;
+        }
+        ExamCounters exam = counters.computeIfAbsent(examId, id -> new ExamCounters());
+        exam.rebuildLock.readLock().lock();
+        try {
+            exam.attempts.add(sign);
+            exam.scoreSum.add((long) sign * totalScore);
+            exam.scoreSqSum.add((long) sign * totalScore * totalScore);
+            exam.buckets[bucket(totalScore, maxScore)].add(sign);
+            answers.forEach((examQuestionId, correct) -> {
+                QuestionCounters question = exam.questions.computeIfAbsent(examQuestionId, id -> new QuestionCounters());
+                question.attempts.add(sign);
+                question.scoreSum.add((long) sign * totalScore);
+                if (Boolean.TRUE.equals(correct)) {
+                    question.correctCount.add(sign);
+                    question.correctScoreSum.add((long) sign * totalScore);
+                }
+            });
+        } finally {
+            exam.rebuildLock.readLock().unlock();
+        }
+        if (deleted.containsKey(examId)) {
+            // 与 clear 并发时可能重新创建了计数器，移除；写入前 flush 也会再次过滤
+            counters.remove(examId, exam);
+        }
+    }
+
+    /**
+     * 列名与参数名成对给出，保持插入顺序
+     */
+    private static Map<String, String> columns(String... pairs) {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            columns.put(pairs[i], pairs[i + 1]);
+        }
+        return columns;
+    }
+
+    private static int bucket(long score, int maxScore) {
+        if (maxScore <= 0) {
+            return 0;
+        }
+        return (int) Math.max(0, Math.min(BUCKETS - 1, score * BUCKETS / maxScore));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 将各试卷的增量写入汇总表，写入成功后才确认，失败时保留到下一轮
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            counters.forEach((examId, exam) -> {
+                if (deleted.containsKey(examId)) {
+                    counters.remove(examId, exam);
+                    return;
+                }
+                try {
+                    flush(examId, exam);
+                } catch (Exception e) {
+                    log.error("试卷统计写入失败 examId={}:{}", examId, ExceptionUtils.getStackTrace(e));
+                }
+            });
+        }
+    }
+
+    private void flush(String examId, ExamCounters exam) {
+        Deltas deltas = exam.pending();
+        if (deltas.isEmpty()) {
+            return;
+        }
+        SqlDialect dialect = JdbcQueryHelper.getDialect(jdbcTemplate);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(dialect.upsertSql("exam_stat", "paper_id", EXAM_COLUMNS,
+                    Set.of("attempts", "score_sum", "score_sq_sum")), new MapSqlParameterSource()
+                    .addValue("examId", examId)
+                    .addValue("attempts", deltas.attempts)
+                    .addValue("scoreSum", deltas.scoreSum)
+                    .addValue("scoreSqSum", deltas.scoreSqSum)
+                    .addValue("now", now));
+            List<SqlParameterSource> bucketParams = new ArrayList<>();
+            for (int i = 0; i < BUCKETS; i++) {
+                if (deltas.buckets[i] != 0) {
+                    bucketParams.add(new MapSqlParameterSource()
+                            .addValue("id", examId + "_" + i)
+                            .addValue("examId", examId)
+                            .addValue("bucket", i)
+                            .addValue("num", deltas.buckets[i]));
+                }
+            }
+            if (!bucketParams.isEmpty()) {
+                jdbcTemplate.batchUpdate(dialect.upsertSql("exam_score_bucket", "bucket_id", BUCKET_COLUMNS, Set.of("num")),
+                        bucketParams.toArray(new SqlParameterSource[0]));
+            }
+            List<SqlParameterSource> questionParams = new ArrayList<>();
+            deltas.questions.forEach((examQuestionId, sums) -> questionParams.add(new MapSqlParameterSource()
+                    .addValue("examQuestionId", examQuestionId)
+                    .addValue("examId", examId)
+                    .addValue("attempts", sums[0])
+                    .addValue("correctCount", sums[1])
+                    .addValue("scoreSum", sums[2])
+                    .addValue("correctScoreSum", sums[3])
+                    .addValue("now", now)));
+            if (!questionParams.isEmpty()) {
+                jdbcTemplate.batchUpdate(dialect.upsertSql("exam_question_stat", "rela_id", QUESTION_COLUMNS,
+                                Set.of("attempts", "correct_count", "score_sum", "correct_score_sum")),
+                        questionParams.toArray(new SqlParameterSource[0]));
+            }
+        });
+        // 提交成功，确认已写入的增量
+        exam.ack(deltas);
+    }
+
+    /**
+     * 查询试卷统计：汇总表 + 内存中尚未写入的增量
+     */
+    public ExamAnalyticsDto get(ExamAnswerKeyCache.AnswerKey key) {
+        String examId = key.getExamId();
+        Map<String, Object> params = Map.of("examId", examId);
+        synchronized (flushLock) {
+            ExamCounters pending = counters.get(examId);
+
+            long attempts = 0;
+            long scoreSum = 0;
+            long scoreSqSum = 0;
+            for (Map<String, Object> row : HumpHelper.lineToHump(jdbcTemplate.queryForList(
+                    "select attempts, score_sum, score_sq_sum from exam_stat where paper_id = :examId", params))) {
+                attempts = MapUtils.getLongValue(row, "attempts");
+                scoreSum = MapUtils.getLongValue(row, "scoreSum");
+                scoreSqSum = MapUtils.getLongValue(row, "scoreSqSum");
+            }
+            long[] buckets = new long[BUCKETS];
+            for (Map<String, Object> row : jdbcTemplate.queryForList(
+                    "select bucket, num from exam_score_bucket where paper_id = :examId", params)) {
+                int bucket = MapUtils.getIntValue(row, "bucket");
+                if (bucket >= 0 && bucket < BUCKETS) {
+                    buckets[bucket] = MapUtils.getLongValue(row, "num");
+                }
+            }
+            Map<String, long[]> questions = new HashMap<>();
+            for (Map<String, Object> row : HumpHelper.lineToHump(jdbcTemplate.queryForList(
+                    "select rela_id, attempts, correct_count, score_sum, correct_score_sum from exam_question_stat where paper_id = :examId", params))) {
+                questions.put(MapUtils.getString(row, "relaId"), new long[]{
+                        MapUtils.getLongValue(row, "attempts"),
+                        MapUtils.getLongValue(row, "correctCount"),
+                        MapUtils.getLongValue(row, "scoreSum"),
+                        MapUtils.getLongValue(row, "correctScoreSum")});
+            }
+            if (pending != null) {
+                Deltas deltas = pending.pending();
+                attempts += deltas.attempts;
+                scoreSum += deltas.scoreSum;
+                scoreSqSum += deltas.scoreSqSum;
+                for (int i = 0; i < BUCKETS; i++) {
+                    buckets[i] += deltas.buckets[i];
+                }
+                deltas.questions.forEach((examQuestionId, sums) -> {
+                    long[] total = questions.computeIfAbsent(examQuestionId, id -> new long[4]);
+                    for (int i = 0; i < total.length; i++) {
+                        total[i] += sums[i];
+                    }
+                });
+            }
+            return toDto(key, attempts, scoreSum, scoreSqSum, buckets, questions);
+        }
+    }
+
+    private ExamAnalyticsDto toDto(ExamAnswerKeyCache.AnswerKey key, long attempts, long scoreSum, long scoreSqSum,
+                                   long[] buckets, Map<String, long[]> questions) {
+        ExamAnalyticsDto dto = new ExamAnalyticsDto();
+        dto.setExamId(key.getExamId());
+        dto.setMaxScore(key.getMaxScore());
+        dto.setAttempts(attempts);
+        double mean = attempts > 0 ? (double) scoreSum / attempts : 0;
+        double stdDev = attempts > 0 ? Math.sqrt(Math.max(0, (double) scoreSqSum / attempts - mean * mean)) : 0;
+        dto.setAverageScore(mean);
+        dto.setScoreStdDev(stdDev);
+
+        List<ExamScoreBucketDto> distribution = new ArrayList<>(BUCKETS);
+        double width = (double) key.getMaxScore() / BUCKETS;
+        for (int i = 0; i < BUCKETS; i++) {
+            ExamScoreBucketDto bucket = new ExamScoreBucketDto();
+            bucket.setLower(width * i);
+            bucket.setUpper(width * (i + 1));
+            bucket.setCount(buckets[i]);
+            distribution.add(bucket);
+        }
+        dto.setDistribution(distribution);
+
+        List<ExamQuestionAnalyticsDto> items = new ArrayList<>(key.getItems().size());
+        for (ExamAnswerKeyCache.Item item : key.getItems()) {
+            long[] sums = questions.getOrDefault(item.getExamQuestionId(), new long[4]);
+            long n = sums[0];
+            long n1 = sums[1];
+            long n0 = n - n1;
+            ExamQuestionAnalyticsDto q = new ExamQuestionAnalyticsDto();
+            q.setExamQuestionId(item.getExamQuestionId());
+            q.setScore(item.getScore());
+            q.setAttempts(n);
+            q.setCorrectCount(n1);
+            q.setCorrectRate(n > 0 ? (double) n1 / n : 0);
+            if (n1 > 0 && n0 > 0 && stdDev > 0) {
+                double m1 = (double) sums[3] / n1;
+                double m0 = (double) (sums[2] - sums[3]) / n0;
+                double r = (m1 - m0) / stdDev * Math.sqrt((double) n1 / n * n0 / n);
+                q.setDiscrimination(Math.max(-1, Math.min(1, r)));
+            }
+            items.add(q);
+        }
+        dto.setQuestions(items);
+        return dto;
+    }
+
+    /**
+     * 从答卷表重新统计试卷的全部汇总（历史答卷补录或修复）。
+     * 重建期间暂停计入增量，重建提交后丢弃该试卷内存中尚未写入的增量（均已包含在答卷表中）。
+     * 异步写入模式下尚未入库的答卷在入库后计入。
+     */
+    public void rebuild(ExamAnswerKeyCache.AnswerKey key) {
+        String examId = key.getExamId();
+        synchronized (flushLock) {
+            ExamCounters exam = counters.computeIfAbsent(examId, id -> new ExamCounters());
+            exam.rebuildLock.writeLock().lock();
+            try {
+                rebuild(examId, key.getMaxScore());
+                exam.ack(exam.pending());
+            } finally {
+                exam.rebuildLock.writeLock().unlock();
+            }
+        }
+        log.info("试卷统计已重建 examId={}", examId);
+    }
+
+    private void rebuild(String examId, int maxScore) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("examId", examId)
+                .addValue("buckets", BUCKETS)
+                .addValue("maxScore", Math.max(1, maxScore))
+                .addValue("correct", Boolean.TRUE)
+                .addValue("now", Timestamp.valueOf(LocalDateTime.now()));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from exam_stat where paper_id = :examId", params);
+            jdbcTemplate.update("delete from exam_question_stat where paper_id = :examId", params);
+            jdbcTemplate.update("delete from exam_score_bucket where paper_id = :examId", params);
+            jdbcTemplate.update("""
+                    insert into exam_stat (paper_id, attempts, score_sum, score_sq_sum, update_date)
+                    select :examId, count(*), coalesce(sum(total_score), 0), coalesce(sum(total_score * total_score), 0), :now
+                      from exam_result where paper_id = :examId
+                    """, params);
+            // 区间ID在 Java 中拼接，不依赖各数据库的字符串拼接函数
+            List<SqlParameterSource> bucketParams = new ArrayList<>();
+            for (Map<String, Object> row : jdbcTemplate.queryForList("""
+                    select b.bucket, count(*) num
+                      from (select greatest(0, least(:buckets - 1, floor(total_score * :buckets / :maxScore))) bucket
+                              from exam_result where paper_id = :examId) b
+                     group by b.bucket
+                    """, params)) {
+                int bucket = MapUtils.getIntValue(row, "bucket");
+                bucketParams.add(new MapSqlParameterSource()
+                        .addValue("id", examId + "_" + bucket)
+                        .addValue("examId", examId)
+                        .addValue("bucket", bucket)
+                        .addValue("num", MapUtils.getLongValue(row, "num")));
+            }
+            if (!bucketParams.isEmpty()) {
+                jdbcTemplate.batchUpdate("insert into exam_score_bucket (bucket_id, paper_id, bucket, num) values (:id, :examId, :bucket, :num)",
+                        bucketParams.toArray(new SqlParameterSource[0]));
+            }
+            // 布尔列与绑定参数比较，由驱动转换为各数据库的布尔/数值表示
+            jdbcTemplate.update("""
+                    insert into exam_question_stat (rela_id, paper_id, attempts, correct_count, score_sum, correct_score_sum, update_date)
+                    select a.rela_id, :examId, count(*), sum(case when a.is_correct = :correct then 1 else 0 end),
+                           sum(r.total_score), sum(case when a.is_correct = :correct then r.total_score else 0 end), :now
+                      from exam_result_answer a
+                      join exam_result r on r.result_id = a.result_id
+                     where r.paper_id = :examId
+                     group by a.rela_id
+                    """, params);
+        });
+    }
+
+    /**
+     * 累计计数器：LongAdder 只增不清零，已写入汇总表的部分记录在 flushed 中，
+     * 增量 = 当前值 - flushed，避免 sumThenReset 在并发累加时丢失计数
+     */
+    private static class Counter {
+
+        private final LongAdder adder = new LongAdder();
+
+        /**
+         * 仅在 flushLock 内修改
+         */
+        private volatile long flushed;
+
+        private void add(long value) {
+            adder.add(value);
+        }
+
+        private long pending() {
+            return adder.sum() - flushed;
+        }
+
+        private void ack(long delta) {
+            flushed += delta;
+        }
+    }
+
+    private static class ExamCounters {
+
+        private final Counter attempts = new Counter();
+
+        private final Counter scoreSum = new Counter();
+
+        private final Counter scoreSqSum = new Counter();
+
+        private final Counter[] buckets = new Counter[BUCKETS];
+
+        private final Map<String, QuestionCounters> questions = new ConcurrentHashMap<>();
+
+        /**
+         * 累加持读锁、重建持写锁：重建期间暂停该试卷的计入，避免重建已读取的答卷其增量再被计入一次
+         */
+        private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+        private ExamCounters() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new Counter();
+            }
+        }
+
+        /**
+         * 当前尚未写入汇总表的增量
+         */
+        private Deltas pending() {
+            Deltas deltas = new Deltas();
+            deltas.attempts = attempts.pending();
+            deltas.scoreSum = scoreSum.pending();
+            deltas.scoreSqSum = scoreSqSum.pending();
+            for (int i = 0; i < BUCKETS; i++) {
+                deltas.buckets[i] = buckets[i].pending();
+            }
+            questions.forEach((examQuestionId, question) -> {
+                long[] sums = question.pending();
+                if (sums[0] != 0 || sums[1] != 0 || sums[2] != 0 || sums[3] != 0) {
+                    deltas.questions.put(examQuestionId, sums);
+                }
+            });
+            return deltas;
+        }
+
+        /**
+         * 确认增量已写入汇总表，只确认取出时的值，之后的累加保留
+         */
+        private void ack(Deltas deltas) {
+            attempts.ack(deltas.attempts);
+            scoreSum.ack(deltas.scoreSum);
+            scoreSqSum.ack(deltas.scoreSqSum);
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i].ack(deltas.buckets[i]);
+            }
+            deltas.questions.forEach((examQuestionId, sums) -> questions.get(examQuestionId).ack(sums));
+        }
+    }
+
+    /**
+     * 某一时刻取出的试卷增量
+     */
+    private static class Deltas {
+
+        private long attempts;
+
+        private long scoreSum;
+
+        private long scoreSqSum;
+
+        private final long[] buckets = new long[BUCKETS];
+
+        /**
+         * 题目关系ID -> {作答次数, 答对次数, 作答者总分和, 答对者总分和}
+         */
+        private final Map<String, long[]> questions = new HashMap<>();
+
+        private boolean isEmpty() {
+            if (attempts != 0 || scoreSum != 0 || scoreSqSum != 0 || !questions.isEmpty()) {
+                return false;
+            }
+            for (long bucket : buckets) {
+                if (bucket != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class QuestionCounters {
+
+        private final Counter attempts = new Counter();
+
+        private final Counter correctCount = new Counter();
+
+        private final Counter scoreSum = new Counter();
+
+        private final Counter correctScoreSum = new Counter();
+
+        private long[] pending() {
+            return new long[]{attempts.pending(), correctCount.pending(), scoreSum.pending(), correctScoreSum.pending()};
+        }
+
+        private void ack(long[] deltas) {
+            attempts.ack(deltas[0]);
+            correctCount.ack(deltas[1]);
+            scoreSum.ack(deltas[2]);
+            correctScoreSum.ack(deltas[3]);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.ck.quiz.exam.service.impl;
+
+import com.ck.quiz.exam.entity.Exam;
+import com.ck.quiz.question.entity.Question;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 试卷答案键缓存
+ * <p>
+ * 判分所需的标准答案按试卷编译一次：单选、多选的选项字母编译为位掩码，填空预先去除首尾空格，
+ * 判分时只比较位掩码或字符串数组，不再读取题库、拆分答案或构造集合。
+ * 只缓存已发布的试卷；试卷或题目变更时调用 {@link #invalidate(String)} / {@link #invalidateAll()}，
+ * 处于事务中时提交后再失效一次，避免并发交卷把未提交前的旧答案重新放入缓存。
+ */
+@Slf4j
+@Component
+public class ExamAnswerKeyCache {
+
+    private static final String EXAM_SQL = "select status from exam where paper_id = :examId";
+
+    private static final String KEY_SQL = """
+            select pq.rela_id, pq.score, q.type, q.answer
+              from exam_paper_question pq
+              join question q on q.question_id = pq.question_id
+             where pq.paper_id = :examId
+             order by pq.order_no
+            """;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${quiz.exam.answer-key.cache-size:256}")
+    private int cacheSize;
+
+    private Map<String, AnswerKey> cache;
+
+    /**
+     * 每次失效递增，加载期间发生失效的结果不放入缓存
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AnswerKey> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * 获取试卷答案键，已发布试卷从缓存读取
+     *
+     * @return 试卷不存在时返回 null
+     */
+    public AnswerKey get(String examId) {
+        AnswerKey key = cache.get(examId);
+        if (key != null) {
+            return key;
+        }
+        long gen = generation.get();
+        key = load(examId);
+        if (key != null && key.isPublished() && generation.get() == gen) {
+            cache.put(examId, key);
+        }
+        return key;
+    }
+
+    /**
+     * 试卷内容、题目关系或状态变更后使其答案键失效
+     */
+    public void invalidate(String examId) {
+        generation.incrementAndGet();
+        cache.remove(examId);
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            cache.remove(examId);
+        });
+    }
+
+    /**
+     * 题库中的题目变更后使所有答案键失效（题目可能被多张试卷引用）
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.clear();
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            cache.clear();
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private AnswerKey load(String examId) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("examId", examId);
+        List<String> status = jdbcTemplate.queryForList(EXAM_SQL, params, String.class);
+        if (status.isEmpty()) {
+            return null;
+        }
+        List<Item> items = jdbcTemplate.query(KEY_SQL, params, (rs, rowNum) -> Item.compile(
+                rs.getString("rela_id"),
+                rs.getInt("score"),
+                parseType(rs.getString("type")),
+                rs.getString("answer")));
+        return new AnswerKey(examId, Exam.ExamPaperStatus.valueOf(status.get(0)), items);
+    }
+
+    /**
+     * 题型为空或无法识别时返回 null，该题按原有判分规则判为错误，不影响其他题目
+     */
+    private static Question.QuestionType parseType(String type) {
+        if (type == null) {
+            return null;
+        }
+        for (Question.QuestionType value : Question.QuestionType.values()) {
+            if (value.name().equals(type)) {
+                return value;
+            }
+        }
+        log.warn("未知的题型 {}，该题按错误判分", type);
+        return null;
+    }
+
+    /**
+     * 单个试卷的答案键，创建后不可变，可被并发交卷共享
+     */
+    public static final class AnswerKey {
+
+        private final String examId;
+
+        private final Exam.ExamPaperStatus status;
+
+        private final List<Item> items;
+
+        private final int maxScore;
+
+        private AnswerKey(String examId, Exam.ExamPaperStatus status, List<Item> items) {
+            this.examId = examId;
+            this.status = status;
+            this.items = Collections.unmodifiableList(items);
+            this.maxScore = items.stream().mapToInt(Item::getScore).sum();
+        }
+
+        public String getExamId() {
+            return examId;
+        }
+
+        public Exam.ExamPaperStatus getStatus() {
+            return status;
+        }
+
+        public boolean isPublished() {
+            return status == Exam.ExamPaperStatus.PUBLISHED;
+        }
+
+        /**
+         * 按题目顺序排列的判分项
+         */
+        public List<Item> getItems() {
+            return items;
+        }
+
+        /**
+         * 满分，各题分值之和
+         */
+        public int getMaxScore() {
+            return maxScore;
+        }
+    }
+
+    /**
+     * 单道题的判分项，标准答案按题型预先编译
+     */
+    public static final class Item {
+
+        private final String examQuestionId;
+
+        private final int score;
+
+        private final Question.QuestionType type;
+
+        /**
+         * 单选、多选的选项位掩码（A=1, B=2, ...），标准答案含非字母选项时为 -1，改用 values 比较
+         */
+        private final long mask;
+
+        /**
+         * 去除首尾空格后的标准答案；多选为大写
+         */
+        private final String[] values;
+
+        private Item(String examQuestionId, int score, Question.QuestionType type, long mask, String[] values) {
+            this.examQuestionId = examQuestionId;
+            this.score = score;
+            this.type = type;
+            this.mask = mask;
+            this.values = values;
+        }
+
+        static Item compile(String examQuestionId, int score, Question.QuestionType type, String answer) {
+            // 与原有判分一致：标准答案按英文逗号拆分
+            String[] parts = StringUtils.hasText(answer) ? answer.split(",") : new String[0];
+            String[] values = new String[parts.length];
+            long mask = 0;
+            for (int i = 0; i < parts.length; i++) {
+                String value = parts[i].trim();
+                if (type == Question.QuestionType.SINGLE || type == Question.QuestionType.MULTIPLE) {
+                    long bit = optionBit(value);
+                    mask = bit < 0 || mask < 0 ? -1 : mask | bit;
+                }
+                if (type == Question.QuestionType.MULTIPLE) {
+                    // 与原有判分一致：多选转大写后按集合比较；单选按 equalsIgnoreCase 比较，保留原文
+                    value = value.toUpperCase();
+                }
+                values[i] = value;
+            }
+            if (type == Question.QuestionType.SINGLE) {
+                // 单选只比较第一个答案
+                mask = values.length == 0 ? 0 : optionBit(values[0]);
+            }
+            return new Item(examQuestionId, score, type, mask, values);
+        }
+
+        public String getExamQuestionId() {
+            return examQuestionId;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * 判断用户作答是否正确
+         */
+        public boolean isCorrect(List<String> user) {
+            if (type == null) {
+                return false;
+            }
+            switch (type) {
+                case SINGLE:
+                    if (mask > 0 && !user.isEmpty()) {
+                        long bit = optionBit(user.get(0));
+                        // 作答不是单个字母时按原文比较，与原有判分结果保持一致
+                        return bit > 0 ? bit == mask : matchFirst(user);
+                    }
+                    return matchFirst(user);
+                case SHORT_ANSWER:
+                    return matchFirst(user);
+                case MULTIPLE:
+                    return mask >= 0 ? matchMask(user) : matchSet(user);
+                case BLANK:
+                    if (values.length != user.size()) {
+                        return false;
+                    }
+                    for (int i = 0; i < values.length; i++) {
+                        if (!values[i].equals(user.get(i).trim())) {
+                            return false;
+                        }
+                    }
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private boolean matchFirst(List<String> user) {
+            String s = values.length == 0 ? "" : values[0];
+            String u = user.isEmpty() ? "" : user.get(0).trim();
+            return s.equalsIgnoreCase(u);
+        }
+
+        private boolean matchMask(List<String> user) {
+            long bits = 0;
+            for (String u : user) {
+                long bit = optionBit(u);
+                if (bit < 0) {
+                    // 作答含非字母选项，按集合比较
+                    return matchSet(user);
+                }
+                bits |= bit;
+            }
+            return bits == mask;
+        }
+
+        private boolean matchSet(List<String> user) {
+            Set<String> s = new HashSet<>(Arrays.asList(values));
+            Set<String> u = new HashSet<>();
+            for (String v : user) {
+                u.add(v.trim().toUpperCase());
+            }
+            return s.equals(u);
+        }
+
+        /**
+         * 单个字母选项对应的位，忽略首尾空格及大小写；非单个字母时返回 -1
+         */
+        private static long optionBit(String option) {
+            int start = 0;
+            int end = option.length();
+            while (start < end && option.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && option.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (end - start != 1) {
+                return -1;
+            }
+            char c = option.charAt(start);
+            if (c >= 'a' && c <= 'z') {
+                c -= 'a' - 'A';
+            }
+            return c >= 'A' && c <= 'Z' ? 1L << (c - 'A') : -1;
+        }
+    }
+}
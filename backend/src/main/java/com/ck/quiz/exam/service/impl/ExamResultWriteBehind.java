@@ -0,0 +1,336 @@
+package com.ck.quiz.exam.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 交卷结果异步写入（write-behind）
+ * <p>
+ * 开启 quiz.exam.submit.write-behind 后，交卷在内存中判分，记录追加到本地日志 {@link ExamSubmissionJournal}
+ * 并刷盘后即返回成绩；写入线程按批（batch-size 条或每 flush-interval-ms）读取日志，
+ * 在一个事务内通过 batchUpdate 写入 exam_result 及 exam_result_answer，成功后再提交消费进度。
+ * 启动时从上次进度回放未入库的记录，已存在的答卷跳过，保证不丢失、不重复。
+ * 数据库不可用时整批退避重试；违反约束（如试卷已删除）的记录逐条写入，失败的转存 dead-letter.log。
+ * 作答统计只计入本次实际写入的答卷，回放跳过及转存 dead-letter 的记录不计入。
+ */
+@Slf4j
+@Component
+public class ExamResultWriteBehind {
+
+    private static final String INSERT_RESULT_SQL = "insert into exam_result (result_id, paper_id, user_id, total_score, correct_count, submit_time) " +
+            "values (:id, :examId, :userId, :totalScore, :correctCount, :submitTime)";
+
+    private static final String INSERT_ANSWER_SQL = "insert into exam_result_answer (answer_id, result_id, rela_id, user_answer, is_correct, gain_score) " +
+            "values (:id, :resultId, :examQuestionId, :userAnswer, :correct, :gainScore)";
+
+    private static final long RETRY_BACKOFF_MS = 5000;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ExamAnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private ExamAnalytics examAnalytics;
+
+    @Value("${quiz.exam.submit.write-behind:false}")
+    private boolean enabled;
+
+    @Value("${quiz.exam.submit.journal-dir:${user.home}/quiz/submit-journal}")
+    private String journalDir;
+
+    @Value("${quiz.exam.submit.batch-size:200}")
+    private int batchSize;
+
+    @Value("${quiz.exam.submit.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${quiz.exam.submit.segment-bytes:67108864}")
+    private long segmentBytes;
+
+    private ExamSubmissionJournal journal;
+
+    private volatile boolean running = true;
+
+    private Thread writerThread;
+
+    private final Semaphore wakeup = new Semaphore(0);
+
+    private Counter persistedCounter;
+
+    private Counter deadLetterCounter;
+
+    @PostConstruct
+    public void start() throws IOException {
+        persistedCounter = Counter.builder("quiz.exam.submit.persisted").register(meterRegistry);
+        deadLetterCounter = Counter.builder("quiz.exam.submit.dead_letter").register(meterRegistry);
+        Path dir = Paths.get(journalDir);
+        if (!enabled && !Files.isDirectory(dir)) {
+            return;
+        }
+        journal = new ExamSubmissionJournal(dir, segmentBytes);
+        journal.open(enabled);
+        if (!enabled) {
+            if (!journal.hasPending()) {
+                journal.close();
+                journal = null;
+                return;
+            }
+            log.info("交卷异步写入已关闭，回放遗留的交卷记录：{}", journalDir);
+        }
+        writerThread = new Thread(this::loop, "exam-result-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            wakeup.release();
+            // 等待当前批次写完，剩余记录下次启动时回放
+            writerThread.join(10_000);
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 追加交卷记录，返回时记录已落盘
+     */
+    public void submit(Submission submission) {
+        try {
+            journal.append(objectMapper.writeValueAsString(submission));
+        } catch (IOException e) {
+            throw new UncheckedIOException("交卷记录写入失败", e);
+        }
+    }
+
+    private void loop() {
+        List<ExamSubmissionJournal.Entry> batch = Collections.emptyList();
+        // 当前批次已转存 dead-letter 的记录，重试时不再重复转存
+        Set<ExamSubmissionJournal.Entry> deadLettered = new HashSet<>();
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    batch = journal.read(batchSize);
+                }
+                if (!batch.isEmpty()) {
+                    persist(batch, deadLettered);
+                    journal.commit(batch.get(batch.size() - 1));
+                }
+                int size = batch.size();
+                batch = Collections.emptyList();
+                deadLettered.clear();
+                // 积压时连续写入，否则等待下一个刷新周期攒批
+                if (size < batchSize) {
+                    wakeup.tryAcquire(flushIntervalMs, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // 保留当前批次，退避后重试
+                log.error("交卷记录写入数据库失败，{} ms 后重试:{}", RETRY_BACKOFF_MS, ExceptionUtils.getStackTrace(e));
+                try {
+                    wakeup.tryAcquire(RETRY_BACKOFF_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void persist(List<ExamSubmissionJournal.Entry> batch, Set<ExamSubmissionJournal.Entry> deadLettered)
+            throws IOException {
+        Map<String, Submission> submissions = new LinkedHashMap<>();
+        Map<String, ExamSubmissionJournal.Entry> entries = new HashMap<>();
+        for (ExamSubmissionJournal.Entry entry : batch) {
+            if (deadLettered.contains(entry)) {
+                continue;
+            }
+            try {
+                Submission submission = objectMapper.readValue(entry.record(), Submission.class);
+                submissions.put(submission.getResultId(), submission);
+                entries.put(submission.getResultId(), entry);
+            } catch (JsonProcessingException e) {
+                deadLetter(entry, "记录无法解析：" + e.getOriginalMessage());
+                deadLettered.add(entry);
+            }
+        }
+        if (submissions.isEmpty()) {
+            return;
+        }
+        try {
+            List<Submission> inserted = transactionTemplate.execute(status -> insert(submissions.values()));
+            persistedCounter.increment(inserted.size());
+            record(inserted);
+        } catch (DataIntegrityViolationException e) {
+            // 批内有无法写入的记录，逐条写入以隔离
+            for (Submission submission : submissions.values()) {
+                try {
+                    List<Submission> inserted = transactionTemplate.execute(status -> insert(List.of(submission)));
+                    persistedCounter.increment(inserted.size());
+                    record(inserted);
+                } catch (DataIntegrityViolationException ex) {
+                    ExamSubmissionJournal.Entry entry = entries.get(submission.getResultId());
+                    deadLetter(entry, ex.getMessage());
+                    deadLettered.add(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * 入库提交后计入作答统计，试卷已不存在时跳过
+     */
+    private void record(List<Submission> inserted) {
+        if (inserted == null) {
+            return;
+        }
+        for (Submission submission : inserted) {
+            ExamAnswerKeyCache.AnswerKey key = answerKeyCache.get(submission.getExamId());
+            if (key == null) {
+                continue;
+            }
+            Map<String, Boolean> correctness = new HashMap<>();
+            for (Answer answer : submission.getAnswers()) {
+                correctness.put(answer.getExamQuestionId(), answer.isCorrect());
+            }
+            examAnalytics.record(key, submission.getTotalScore(), correctness);
+        }
+    }
+
+    private void deadLetter(ExamSubmissionJournal.Entry entry, String reason) throws IOException {
+        log.error("交卷记录无法入库，转存 dead-letter：{}", reason);
+        journal.deadLetter(entry);
+        deadLetterCounter.increment();
+    }
+
+    /**
+     * 写入答卷及作答明细，回放时跳过已入库的答卷
+     *
+     * @return 本次实际写入的答卷
+     */
+    private List<Submission> insert(Collection<Submission> submissions) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", submissions.stream().map(Submission::getResultId).toList());
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "select result_id from exam_result where result_id in (:ids)", params, String.class));
+        List<SqlParameterSource> results = new ArrayList<>();
+        List<SqlParameterSource> answers = new ArrayList<>();
+        List<Submission> inserted = new ArrayList<>();
+        for (Submission submission : submissions) {
+            if (existing.contains(submission.getResultId())) {
+                continue;
+            }
+            inserted.add(submission);
+            results.add(new MapSqlParameterSource()
+                    .addValue("id", submission.getResultId())
+                    .addValue("examId", submission.getExamId())
+                    .addValue("userId", submission.getUserId())
+                    .addValue("totalScore", submission.getTotalScore())
+                    .addValue("correctCount", submission.getCorrectCount())
+                    .addValue("submitTime", Timestamp.valueOf(submission.getSubmitTime())));
+            for (Answer answer : submission.getAnswers()) {
+                answers.add(new MapSqlParameterSource()
+                        .addValue("id", answer.getId())
+                        .addValue("resultId", submission.getResultId())
+                        .addValue("examQuestionId", answer.getExamQuestionId())
+                        .addValue("userAnswer", answer.getUserAnswer())
+                        .addValue("correct", answer.isCorrect())
+                        .addValue("gainScore", answer.getGainScore()));
+            }
+        }
+        if (!results.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_RESULT_SQL, results.toArray(new SqlParameterSource[0]));
+        }
+        if (!answers.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ANSWER_SQL, answers.toArray(new SqlParameterSource[0]));
+        }
+        return inserted;
+    }
+
+    /**
+     * 已判分的交卷记录
+     */
+    @Data
+    public static class Submission {
+
+        private String resultId;
+
+        private String examId;
+
+        private String userId;
+
+        private int totalScore;
+
+        private int correctCount;
+
+        private LocalDateTime submitTime;
+
+        private List<Answer> answers = new ArrayList<>();
+    }
+
+    /**
+     * 单题作答结果
+     */
+    @Data
+    public static class Answer {
+
+        private String id;
+
+        private String examQuestionId;
+
+        /**
+         * 用户作答（JSON 数组）
+         */
+        private String userAnswer;
+
+        private boolean correct;
+
+        private int gainScore;
+    }
+}
@@ -16,9 +16,11 @@ import com.ck.quiz.question.service.QuestionService;
 import com.ck.quiz.utils.HumpHelper;
 import com.ck.quiz.utils.IdHelper;
 import com.ck.quiz.utils.JdbcQueryHelper;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.MapUtils;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -26,8 +28,12 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PostConstruct;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
@@ -38,6 +44,7 @@ import java.util.stream.Collectors;
 /**
  * 试卷管理服务实现类
  */
+@Slf4j
 @Service
 public class ExamServiceImpl implements ExamService {
 
@@ -65,6 +72,40 @@ public class ExamServiceImpl implements ExamService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ExamAnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private QuestionBankIndex questionBankIndex;
+
+    @Autowired
+    private ExamResultWriteBehind resultWriteBehind;
+
+    @Autowired
+    private ExamAnalytics examAnalytics;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 删除试卷时每批删除的答卷数
+     */
+    @Value("${quiz.exam.delete-batch-size:1000}")
+    private int deleteBatchSize;
+
+    /**
+     * 删除答卷每批条数上限，避免配置过大时单批持有大量行锁
+     */
+    private static final int MAX_DELETE_BATCH_SIZE = 10000;
+
+    private ObjectWriter answerWriter;
+
+    @PostConstruct
+    public void init() {
+        answerWriter = objectMapper.writerFor(new TypeReference<List<String>>() {
+        });
+    }
+
     @Override
     @Transactional
     public ExamDto createExam(ExamCreateDto examCreateDto) {
@@ -121,6 +162,7 @@ public class ExamServiceImpl implements ExamService {
         }
 
         Exam savedExam = examRepository.save(exam);
+        answerKeyCache.invalidate(exam.getId());
 
         // 更新题目列表
         if (examUpdateDto.getQuestions() != null) {
@@ -137,24 +179,68 @@ public class ExamServiceImpl implements ExamService {
         return convertToDto(savedExam);
     }
 
+    /**
+     * 物理删除试卷及其全部答卷。
+     * 先在独立事务中将试卷置为删除中并提交，此后的交卷被拒绝；
+     * 答卷按 exam_result_answer -> exam_result 的外键顺序分批删除，每批独立提交，
+     * 大试卷不会长时间持有大量行锁；中途失败时试卷保持删除中，重试即可继续删除剩余答卷
+     */
     @Override
-    @Transactional
     public ExamDto deleteExam(String examId) {
+        ExamDto examDto = transactionTemplate.execute(status -> {
+            Optional<Exam> optionalExam = examRepository.findById(examId);
+            if (optionalExam.isEmpty()) {
+                throw new RuntimeException("试卷不存在，ID: " + examId);
+            }
+            Exam exam = optionalExam.get();
+            ExamDto dto = convertToDto(exam);
+            exam.setStatus(Exam.ExamPaperStatus.DELETING);
+            examRepository.save(exam);
+            answerKeyCache.invalidate(examId);
+            return dto;
+        });
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("examId", examId);
+        int batchSize = Math.max(1, Math.min(MAX_DELETE_BATCH_SIZE, deleteBatchSize));
+        String selectSql = JdbcQueryHelper.getLimitSql(jdbcTemplate,
+                "select result_id from exam_result where paper_id = :examId", 0, batchSize);
+        List<String> resultIds;
+        long deleted = 0;
+        while (!(resultIds = jdbcTemplate.queryForList(selectSql, params, String.class)).isEmpty()) {
+            Map<String, Object> batch = Map.of("ids", resultIds);
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("delete from exam_result_answer where result_id in (:ids)", batch);
+                jdbcTemplate.update("delete from exam_result where result_id in (:ids)", batch);
+            });
+            deleted += resultIds.size();
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from exam_paper_question where paper_id = :examId", params);
+            jdbcTemplate.update("delete from exam where paper_id = :examId", params);
+            examAnalytics.clear(examId);
+        });
+        answerKeyCache.invalidate(examId);
+        if (deleted > 0) {
+            log.info("试卷 {} 已删除，同时删除答卷 {} 份", examId, deleted);
+        }
+        return examDto;
+    }
+
+    @Override
+    @Transactional
+    public ExamDto softDeleteExam(String examId) {
         Optional<Exam> optionalExam = examRepository.findById(examId);
         if (optionalExam.isEmpty()) {
             throw new RuntimeException("试卷不存在，ID: " + examId);
         }
-        List<ExamResult> resultsToDelete = examResultRepository.findAll().stream()
-                .filter(r -> r.getExam() != null && examId.equals(r.getExam().getId()))
-                .collect(Collectors.toList());
-        if (!resultsToDelete.isEmpty()) {
-            examResultRepository.deleteAll(resultsToDelete);
-        }
 
-        // 删除试卷（Exam -> ExamQuestion 已配置级联与孤儿删除，会自动清理试卷题目关系）
-        ExamDto examDto = convertToDto(optionalExam.get());
-        examRepository.deleteById(examId);
-        return examDto;
+        Exam exam = optionalExam.get();
+        exam.setStatus(Exam.ExamPaperStatus.DELETED);
+        Exam savedExam = examRepository.save(exam);
+        answerKeyCache.invalidate(examId);
+        return convertToDto(savedExam);
     }
 
 
@@ -190,10 +276,13 @@ public class ExamServiceImpl implements ExamService {
                     " AND (LOWER(e.name) LIKE :keyWord OR LOWER(e.description) LIKE :keyWord) ", params, jdbcTemplate, sb, countSb);
         }
 
-        // 状态精确查询
+        // 状态精确查询，未指定状态时不返回已删除的试卷
         if (queryDto.getStatus() != null) {
             JdbcQueryHelper.equals("status", queryDto.getStatus().name(),
                     " AND e.status = :status ", params, sb, countSb);
+        } else {
+            JdbcQueryHelper.equals("deletedStatus", Exam.ExamPaperStatus.DELETED.name(),
+                    " AND e.status <> :deletedStatus ", params, sb, countSb);
         }
         
         // 学科ID精确查询
@@ -283,6 +372,7 @@ public class ExamServiceImpl implements ExamService {
         Exam exam = optionalExam.get();
         exam.setStatus(Exam.ExamPaperStatus.PUBLISHED);
         Exam savedExam = examRepository.save(exam);
+        answerKeyCache.invalidate(examId);
         return convertToDto(savedExam);
     }
 
@@ -297,6 +387,7 @@ public class ExamServiceImpl implements ExamService {
         Exam exam = optionalExam.get();
         exam.setStatus(Exam.ExamPaperStatus.ARCHIVED);
         Exam savedExam = examRepository.save(exam);
+        answerKeyCache.invalidate(examId);
         return convertToDto(savedExam);
     }
 
@@ -321,6 +412,7 @@ public class ExamServiceImpl implements ExamService {
         examQuestion.setScore(score);
 
         examQuestionRepository.save(examQuestion);
+        answerKeyCache.invalidate(examId);
     }
 
     @Override
@@ -331,6 +423,7 @@ public class ExamServiceImpl implements ExamService {
                 .filter(eq -> eq.getQuestion().getId().equals(questionId))
                 .findFirst()
                 .ifPresent(examQuestionRepository::delete);
+        answerKeyCache.invalidate(examId);
     }
 
     @Override
@@ -349,6 +442,7 @@ public class ExamServiceImpl implements ExamService {
                     }
                     examQuestionRepository.save(examQuestion);
                 });
+        answerKeyCache.invalidate(examId);
     }
 
     @Override
@@ -392,18 +486,25 @@ public class ExamServiceImpl implements ExamService {
             eq.setScore(1);
             examQuestionRepository.save(eq);
         }
+        answerKeyCache.invalidate(examId);
     }
 
+    /**
+     * 交卷判分。异步写入模式下只追加本地日志，不开启事务、不占用数据库连接，
+     * 统计由写入线程入库成功后计入；同步模式下答卷与统计在同一事务中提交
+     */
     @Override
-    @Transactional
     public ExamResultDto submitExam(String examId, ExamSubmitDto submitDto) {
-        Optional<Exam> optionalExam = examRepository.findById(examId);
-        if (optionalExam.isEmpty()) {
+        // 已发布试卷的答案键来自缓存，判分过程不再读取题库
+        ExamAnswerKeyCache.AnswerKey answerKey = answerKeyCache.get(examId);
+        if (answerKey == null) {
             throw new RuntimeException("试卷不存在，ID: " + examId);
         }
-        Exam exam = optionalExam.get();
+        if (!answerKey.isPublished()) {
+            // 草稿、已归档、删除中、已删除的试卷不接受交卷
+            throw new RuntimeException("试卷未发布或已删除，ID: " + examId);
+        }
 
-        List<ExamQuestion> examQuestions = examQuestionRepository.findByExamIdOrderByOrderNo(examId);
         Map<String, List<String>> answerMap = new HashMap<>();
         if (submitDto.getAnswers() != null) {
             for (ExamSubmitAnswerDto a : submitDto.getAnswers()) {
@@ -413,65 +514,103 @@ public class ExamServiceImpl implements ExamService {
 
         int totalScore = 0;
         int correctCount = 0;
-        String resultId = IdHelper.genUuid();
-        ExamResult result = new ExamResult();
-        result.setId(resultId);
-        result.setExam(exam);
-        result.setUserId(submitDto.getUserId());
-        result.setSubmitTime(LocalDateTime.now());
-
-        List<ExamResultAnswer> resultAnswers = new ArrayList<>();
-
-        for (ExamQuestion eq : examQuestions) {
-            Question q = eq.getQuestion();
-            List<String> std = new ArrayList<>();
-            if(StringUtils.hasText(q.getAnswer())) {
-                std = Arrays.asList(q.getAnswer().split(","));
-            }
-
-            List<String> userAns = answerMap.getOrDefault(eq.getId(), Collections.emptyList());
-            boolean correct = isCorrect(q.getType(), std, userAns);
-            int gain = correct ? Optional.ofNullable(eq.getScore()).orElse(0) : 0;
+        ExamResultWriteBehind.Submission submission = new ExamResultWriteBehind.Submission();
+        submission.setResultId(IdHelper.genUuid());
+        submission.setExamId(examId);
+        submission.setUserId(submitDto.getUserId());
+        submission.setSubmitTime(LocalDateTime.now());
+
+        List<ExamResultAnswerDto> answerDtos = new ArrayList<>(answerKey.getItems().size());
+        Map<String, Boolean> correctness = new HashMap<>();
+
+        for (ExamAnswerKeyCache.Item item : answerKey.getItems()) {
+            List<String> userAns = answerMap.getOrDefault(item.getExamQuestionId(), Collections.emptyList());
+            boolean correct = item.isCorrect(userAns);
+            int gain = correct ? item.getScore() : 0;
             if (correct) {
                 correctCount++;
                 totalScore += gain;
             }
 
+            ExamResultWriteBehind.Answer answer = new ExamResultWriteBehind.Answer();
+            answer.setId(IdHelper.genUuid());
+            answer.setExamQuestionId(item.getExamQuestionId());
+            answer.setUserAnswer(writeUserAnswer(userAns));
+            answer.setCorrect(correct);
+            answer.setGainScore(gain);
+            submission.getAnswers().add(answer);
+
+            ExamResultAnswerDto ad = new ExamResultAnswerDto();
+            ad.setExamQuestionId(item.getExamQuestionId());
+            ad.setCorrect(correct);
+            ad.setGainScore(gain);
+            answerDtos.add(ad);
+            correctness.put(item.getExamQuestionId(), correct);
+        }
+        submission.setTotalScore(totalScore);
+        submission.setCorrectCount(correctCount);
+
+        if (resultWriteBehind.isEnabled()) {
+            // 记录落盘后即返回成绩，由写入线程批量入库
+            resultWriteBehind.submit(submission);
+        } else {
+            transactionTemplate.executeWithoutResult(status -> {
+                saveResult(submission);
+                examAnalytics.record(answerKey, submission.getTotalScore(), correctness);
+            });
+        }
+
+        ExamResultDto dto = new ExamResultDto();
+        dto.setResultId(submission.getResultId());
+        dto.setExamId(examId);
+        dto.setUserId(submission.getUserId());
+        dto.setTotalScore(totalScore);
+        dto.setCorrectCount(correctCount);
+        dto.setSubmitTime(submission.getSubmitTime());
+        dto.setAnswers(answerDtos);
+        return dto;
+    }
+
+    /**
+     * 在当前事务内保存答卷，作答明细随答卷级联保存
+     */
+    private void saveResult(ExamResultWriteBehind.Submission submission) {
+        ExamResult result = new ExamResult();
+        result.setId(submission.getResultId());
+        result.setExam(examRepository.getReferenceById(submission.getExamId()));
+        result.setUserId(submission.getUserId());
+        result.setSubmitTime(submission.getSubmitTime());
+        result.setTotalScore(submission.getTotalScore());
+        result.setCorrectCount(submission.getCorrectCount());
+
+        List<ExamResultAnswer> resultAnswers = new ArrayList<>(submission.getAnswers().size());
+        for (ExamResultWriteBehind.Answer answer : submission.getAnswers()) {
             ExamResultAnswer ra = new ExamResultAnswer();
-            ra.setId(IdHelper.genUuid());
+            ra.setId(answer.getId());
             ra.setExamResult(result);
-            ra.setExamQuestion(eq);
-            try {
-                ra.setUserAnswer(objectMapper.writeValueAsString(userAns));
-            } catch (Exception e) {
-                ra.setUserAnswer("[]");
-            }
-            ra.setCorrect(correct);
-            ra.setGainScore(gain);
+            // 只需外键，使用引用代理避免加载试卷题目关系
+            ra.setExamQuestion(examQuestionRepository.getReferenceById(answer.getExamQuestionId()));
+            ra.setUserAnswer(answer.getUserAnswer());
+            ra.setCorrect(answer.isCorrect());
+            ra.setGainScore(answer.getGainScore());
             resultAnswers.add(ra);
         }
-
-        result.setCorrectCount(correctCount);
-        result.setTotalScore(totalScore);
         result.setAnswers(resultAnswers);
-
         examResultRepository.save(result);
+    }
 
-        ExamResultDto dto = new ExamResultDto();
-        dto.setResultId(result.getId());
-        dto.setExamId(exam.getId());
-        dto.setUserId(result.getUserId());
-        dto.setTotalScore(result.getTotalScore());
-        dto.setCorrectCount(result.getCorrectCount());
-        dto.setSubmitTime(result.getSubmitTime());
-        dto.setAnswers(resultAnswers.stream().map(ra -> {
-            ExamResultAnswerDto ad = new ExamResultAnswerDto();
-            ad.setExamQuestionId(ra.getExamQuestion().getId());
-            ad.setCorrect(Boolean.TRUE.equals(ra.getCorrect()));
-            ad.setGainScore(Optional.ofNullable(ra.getGainScore()).orElse(0));
-            return ad;
-        }).collect(Collectors.toList()));
-        return dto;
+    /**
+     * 序列化用户作答，未作答时直接返回 []
+     */
+    private String writeUserAnswer(List<String> userAns) {
+        if (userAns.isEmpty()) {
+            return "[]";
+        }
+        try {
+            return answerWriter.writeValueAsString(userAns);
+        } catch (Exception e) {
+            return "[]";
+        }
     }
 
     @Override
@@ -559,6 +698,35 @@ public class ExamServiceImpl implements ExamService {
         
         // 删除答卷记录
         examResultRepository.delete(examResult);
+
+        // 从试卷统计中扣除
+        ExamAnswerKeyCache.AnswerKey answerKey = answerKeyCache.get(examResult.getExam().getId());
+        if (answerKey != null) {
+            Map<String, Boolean> correctness = new HashMap<>();
+            for (ExamResultAnswer answer : answers) {
+                correctness.put(answer.getExamQuestion().getId(), Boolean.TRUE.equals(answer.getCorrect()));
+            }
+            examAnalytics.remove(answerKey, Optional.ofNullable(examResult.getTotalScore()).orElse(0), correctness);
+        }
+    }
+
+    @Override
+    public ExamAnalyticsDto getExamAnalytics(String examId) {
+        ExamAnswerKeyCache.AnswerKey answerKey = answerKeyCache.get(examId);
+        if (answerKey == null) {
+            throw new RuntimeException("试卷不存在，ID: " + examId);
+        }
+        return examAnalytics.get(answerKey);
+    }
+
+    @Override
+    public ExamAnalyticsDto rebuildExamAnalytics(String examId) {
+        ExamAnswerKeyCache.AnswerKey answerKey = answerKeyCache.get(examId);
+        if (answerKey == null) {
+            throw new RuntimeException("试卷不存在，ID: " + examId);
+        }
+        examAnalytics.rebuild(answerKey);
+        return examAnalytics.get(answerKey);
     }
     
     @Override
@@ -615,8 +783,22 @@ public class ExamServiceImpl implements ExamService {
         Integer durationMinutes = autoGenerateDto.getDurationMinutes();
         boolean publish = autoGenerateDto.getPublishImmediately() != null ? autoGenerateDto.getPublishImmediately() : true;
 
-        if (questionCount == null || questionCount <= 0) {
-            throw new RuntimeException("题目数量必须为正数");
+        List<ExamGenerateStratumDto> strata = autoGenerateDto.getStrata();
+        if (strata == null || strata.isEmpty()) {
+            if (questionCount == null || questionCount <= 0) {
+                throw new RuntimeException("题目数量必须为正数");
+            }
+            // 未指定分层条件时在学科题库中不限题型、难度抽取
+            ExamGenerateStratumDto any = new ExamGenerateStratumDto();
+            any.setCount(questionCount);
+            strata = List.of(any);
+        } else {
+            for (ExamGenerateStratumDto stratum : strata) {
+                if (stratum.getCount() == null || stratum.getCount() <= 0) {
+                    throw new RuntimeException("分层题目数量必须为正数");
+                }
+            }
+            questionCount = strata.stream().mapToInt(ExamGenerateStratumDto::getCount).sum();
         }
         if (totalScore == null || totalScore <= 0) {
             throw new RuntimeException("总分必须为正数");
@@ -628,35 +810,35 @@ public class ExamServiceImpl implements ExamService {
             throw new RuntimeException("考试时长必须为正数");
         }
 
-        // 查询满足条件的题目ID列表（通过知识点关联过滤学科和类目）
-        String sql = """
-                SELECT DISTINCT q.question_id AS id
-                FROM question q
-                LEFT JOIN question_knowledge_rela r ON q.question_id = r.question_id
-                LEFT JOIN knowledge k ON k.knowledge_id = r.knowledge_id
-                WHERE 1=1 AND k.subject_id = :subjectId
-                """;
-        Map<String, Object> params = new HashMap<>();
-        params.put("subjectId", subjectId);
-
-        List<String> allIds = jdbcTemplate.query(sql, params, (rs, rowNum) -> rs.getString("id"));
-        if (allIds.size() < questionCount) {
-            throw new RuntimeException("可用题目数量不足：需要" + questionCount + "，实际" + allIds.size());
+        // 指定了分值的分层按各自分值计分，剩余总分在其余题目间均分，余数分配到前面的题目
+        int fixedScore = 0;
+        int flexibleCount = 0;
+        for (ExamGenerateStratumDto stratum : strata) {
+            if (stratum.getScore() != null) {
+                fixedScore += stratum.getScore() * stratum.getCount();
+            } else {
+                flexibleCount += stratum.getCount();
+            }
         }
+        int remainingScore = totalScore - fixedScore;
+        if (flexibleCount == 0 ? remainingScore != 0 : remainingScore < flexibleCount) {
+            throw new RuntimeException("分层分值合计与总分不匹配：总分" + totalScore + "，已指定分值合计" + fixedScore);
+        }
+        int baseScore = flexibleCount == 0 ? 0 : remainingScore / flexibleCount;
+        int remainder = flexibleCount == 0 ? 0 : remainingScore % flexibleCount;
 
-        // 随机挑选指定数量的题目ID
-        Collections.shuffle(allIds);
-        List<String> selectedIds = allIds.subList(0, questionCount);
-
-        // 计算每题分值，均分并把余数分配到前面的题目
-        int baseScore = totalScore / questionCount;
-        int remainder = totalScore % questionCount;
+        // 按分层条件从学科题库索引中抽题
+        List<List<String>> sampled = questionBankIndex.sample(subjectId, strata);
 
         List<ExamQuestionCreateDto> examQuestions = new ArrayList<>();
         int order = 1;
-        for (int i = 0; i < selectedIds.size(); i++) {
-            int score = baseScore + (i < remainder ? 1 : 0);
-            examQuestions.add(new ExamQuestionCreateDto(selectedIds.get(i), order++, score));
+        int flexibleIndex = 0;
+        for (int i = 0; i < strata.size(); i++) {
+            Integer stratumScore = strata.get(i).getScore();
+            for (String questionId : sampled.get(i)) {
+                int score = stratumScore != null ? stratumScore : baseScore + (flexibleIndex++ < remainder ? 1 : 0);
+                examQuestions.add(new ExamQuestionCreateDto(questionId, order++, score));
+            }
         }
 
         // 生成试卷名称（可选）
@@ -685,26 +867,6 @@ public class ExamServiceImpl implements ExamService {
 
         return created;
     }
-    private boolean isCorrect(Question.QuestionType type, List<String> std, List<String> user) {
-        if (type == Question.QuestionType.SINGLE || type == Question.QuestionType.SHORT_ANSWER) {
-            String s = std.isEmpty() ? "" : std.get(0);
-            String u = user.isEmpty() ? "" : user.get(0);
-            return s.trim().equalsIgnoreCase(u.trim());
-        }
-        if (type == Question.QuestionType.MULTIPLE) {
-            Set<String> s1 = std.stream().map(v -> v.trim().toUpperCase()).collect(Collectors.toSet());
-            Set<String> s2 = user.stream().map(v -> v.trim().toUpperCase()).collect(Collectors.toSet());
-            return s1.equals(s2);
-        }
-        if (type == Question.QuestionType.BLANK) {
-            if (std.size() != user.size()) return false;
-            for (int i = 0; i < std.size(); i++) {
-                if (!std.get(i).trim().equals(user.get(i).trim())) return false;
-            }
-            return true;
-        }
-        return false;
-    }
 
     /**
      * 将ExamQuestion实体转换为ExamQuestionDto
@@ -0,0 +1,325 @@
+package com.ck.quiz.exam.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 交卷记录本地追加日志
+ * <p>
+ * 每条记录为一行 JSON，按段文件（submit-序号.log）顺序追加；每次启动新开一个段，写满 segmentBytes 后滚动。
+ * 多个交卷线程并发追加时合并刷盘（group commit）：追加后若已有线程完成覆盖该位置的 force，则直接返回。
+ * 消费进度（段序号 + 偏移）保存在 checkpoint 文件中，已完全消费的段被删除；
+ * 崩溃时未写完整的末行没有换行符，不会被读取。
+ * 追加方法线程安全，读取及进度相关方法仅由写入线程调用。
+ */
+@Slf4j
+public class ExamSubmissionJournal implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "submit-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String CHECKPOINT = "checkpoint";
+
+    private static final String DEAD_LETTER = "dead-letter.log";
+
+    private final Path dir;
+
+    private final long segmentBytes;
+
+    private final Object writeLock = new Object();
+
+    private final Object syncLock = new Object();
+
+    private FileChannel active;
+
+    private volatile long activeSegment;
+
+    private long writePosition;
+
+    private long durableSegment;
+
+    private long durablePosition;
+
+    /**
+     * 读取进度
+     */
+    private long readSegment;
+
+    private long readPosition;
+
+    private FileChannel reader;
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(256 * 1024);
+
+    public ExamSubmissionJournal(Path dir, long segmentBytes) {
+        this.dir = dir;
+        this.segmentBytes = Math.max(segmentBytes, 1024 * 1024);
+    }
+
+    /**
+     * 打开日志目录，加载消费进度，清理已消费的段
+     *
+     * @param writable 是否开启新的段用于追加（关闭异步写入时仅回放遗留记录）
+     */
+    public void open(boolean writable) throws IOException {
+        Files.createDirectories(dir);
+        loadCheckpoint();
+        List<Long> segments = segments();
+        for (long segment : segments) {
+            if (segment < readSegment) {
+                Files.deleteIfExists(segmentPath(segment));
+            }
+        }
+        long last = segments.isEmpty() ? readSegment : Math.max(readSegment, segments.get(segments.size() - 1));
+        if (!segments.isEmpty() && segments.get(0) > readSegment) {
+            // 进度文件丢失或落后于已清理的段，从最早的段开始
+            readSegment = segments.get(0);
+            readPosition = 0;
+        }
+        activeSegment = last + 1;
+        if (writable) {
+            active = FileChannel.open(segmentPath(activeSegment), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+        durableSegment = activeSegment;
+    }
+
+    /**
+     * 是否存在尚未消费的段
+     */
+    public boolean hasPending() throws IOException {
+        return segments().stream().anyMatch(segment -> segment >= readSegment);
+    }
+
+    /**
+     * 追加一条记录，返回时已刷入磁盘
+     */
+    public void append(String record) throws IOException {
+        byte[] bytes = (record + "\n").getBytes(StandardCharsets.UTF_8);
+        long segment;
+        long end;
+        synchronized (writeLock) {
+            if (active == null) {
+                throw new IOException("交卷日志未开启写入");
+            }
+            if (writePosition > 0 && writePosition + bytes.length > segmentBytes) {
+                roll();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                active.write(buffer);
+            }
+            writePosition += bytes.length;
+            segment = activeSegment;
+            end = writePosition;
+        }
+        sync(segment, end);
+    }
+
+    /**
+     * 写满后刷盘并切换到新段，旧段在切换前已完整落盘
+     */
+    private void roll() throws IOException {
+        active.force(false);
+        active.close();
+        activeSegment++;
+        active = FileChannel.open(segmentPath(activeSegment), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        writePosition = 0;
+    }
+
+    private void sync(long segment, long end) throws IOException {
+        synchronized (syncLock) {
+            if (segment < durableSegment || (segment == durableSegment && end <= durablePosition)) {
+                // 其他线程的刷盘已覆盖本条记录
+                return;
+            }
+            FileChannel channel;
+            long position;
+            synchronized (writeLock) {
+                if (activeSegment != segment) {
+                    // 已滚动，旧段在滚动时已刷盘
+                    return;
+                }
+                channel = active;
+                position = writePosition;
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // 刷盘前被滚动关闭，滚动时已刷盘
+                return;
+            }
+            durableSegment = segment;
+            durablePosition = position;
+        }
+    }
+
+    /**
+     * 从消费进度处读取完整的记录
+     *
+     * @param max 最多读取条数
+     */
+    public List<Entry> read(int max) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        while (entries.size() < max) {
+            Path path = segmentPath(readSegment);
+            if (reader == null) {
+                if (!Files.exists(path)) {
+                    if (!advance()) {
+                        break;
+                    }
+                    continue;
+                }
+                reader = FileChannel.open(path, StandardOpenOption.READ);
+            }
+            // 先确认该段是否已停止追加，再读取，避免漏读滚动前最后写入的记录
+            boolean sealed = readSegment < activeSegment;
+            int before = entries.size();
+            readSegment(entries, max);
+            if (entries.size() > before) {
+                continue;
+            }
+            // 已停止追加的段读完（末尾不完整的行为崩溃残留），切换到下一段
+            if (sealed && advance()) {
+                continue;
+            }
+            break;
+        }
+        return entries;
+    }
+
+    private void readSegment(List<Entry> entries, int max) throws IOException {
+        readBuffer.clear();
+        int n = reader.read(readBuffer, readPosition);
+        if (n <= 0) {
+            return;
+        }
+        byte[] bytes = readBuffer.array();
+        int lineStart = 0;
+        for (int i = 0; i < n && entries.size() < max; i++) {
+            if (bytes[i] == '\n') {
+                long end = readPosition + i + 1;
+                entries.add(new Entry(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8), readSegment, end));
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart == 0 && n == readBuffer.capacity()) {
+            // 单条记录超过缓冲区，扩容后重读
+            readBuffer = ByteBuffer.allocate(readBuffer.capacity() * 2);
+            readSegment(entries, max);
+            return;
+        }
+        readPosition += lineStart;
+    }
+
+    /**
+     * 切换到下一个存在的段
+     */
+    private boolean advance() throws IOException {
+        Long next = segments().stream().filter(segment -> segment > readSegment).findFirst().orElse(null);
+        if (next == null) {
+            return false;
+        }
+        closeReader();
+        readSegment = next;
+        readPosition = 0;
+        return true;
+    }
+
+    /**
+     * 提交消费进度并删除已完全消费的段
+     */
+    public void commit(Entry last) throws IOException {
+        Path tmp = Files.createTempFile(dir, CHECKPOINT, ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeLong(last.segment());
+            out.writeLong(last.end());
+        }
+        Files.move(tmp, dir.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (long segment : segments()) {
+            if (segment < last.segment()) {
+                Files.deleteIfExists(segmentPath(segment));
+            }
+        }
+    }
+
+    /**
+     * 无法入库的记录转存到 dead-letter.log，供人工处理
+     */
+    public void deadLetter(Entry entry) throws IOException {
+        Files.writeString(dir.resolve(DEAD_LETTER), entry.record() + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void loadCheckpoint() throws IOException {
+        Path checkpoint = dir.resolve(CHECKPOINT);
+        readSegment = 0;
+        readPosition = 0;
+        if (!Files.isRegularFile(checkpoint)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint)))) {
+            readSegment = in.readLong();
+            readPosition = in.readLong();
+        } catch (EOFException e) {
+            log.warn("交卷日志进度文件损坏，从最早的段开始回放：{}", checkpoint);
+            readSegment = 0;
+            readPosition = 0;
+        }
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private void closeReader() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+            reader = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        closeReader();
+        synchronized (writeLock) {
+            if (active != null) {
+                try {
+                    active.force(false);
+                    active.close();
+                } catch (IOException e) {
+                    log.warn("关闭交卷日志失败：{}", e.getMessage());
+                }
+                active = null;
+            }
+        }
+    }
+
+    /**
+     * 一条记录及其在日志中的结束位置
+     */
+    public record Entry(String record, long segment, long end) {
+    }
+}
@@ -0,0 +1,370 @@
+package com.ck.quiz.exam.service.impl;
+
+import com.ck.quiz.exam.dto.ExamGenerateStratumDto;
+import com.ck.quiz.question.entity.Question;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 智能组卷题库索引
+ * <p>
+ * 按学科加载一次题目的题型、难度及所属知识点，组织为 题型 → 难度(1-5，未评级单独一桶) → 题目ID 数组，
+ * 组卷时各分层只在匹配的桶内抽样，不再把学科下所有题目查出后整体打乱。
+ * 未评级的题目只参与未指定难度的分层，不会被当作某一难度抽出；题型为空或无法识别的题目同理只参与未指定题型的分层。
+ * 抽样使用惰性 Fisher-Yates（只记录被交换过的位置），抽取 k 道题的开销与 k 相关，与桶大小无关。
+ * 索引按学科 LRU 缓存，题目或知识点关联变更时调用 {@link #invalidateAll()}，另按 ttl-ms 过期兜底
+ * （知识点调整学科等不经过题目服务的变更）。
+ */
+@Slf4j
+@Component
+public class QuestionBankIndex {
+
+    private static final String LOAD_SQL = """
+            select q.question_id, q.type, q.difficulty_level, r.knowledge_id
+              from question q
+              join question_knowledge_rela r on r.question_id = q.question_id
+              join knowledge k on k.knowledge_id = r.knowledge_id
+             where k.subject_id = :subjectId
+            """;
+
+    /**
+     * 未设置难度的题目所在的桶
+     */
+    private static final int UNRATED = 0;
+
+    private static final int MIN_DIFFICULTY = 1;
+
+    private static final int MAX_DIFFICULTY = 5;
+
+    private static final Question.QuestionType[] TYPES = Question.QuestionType.values();
+
+    /**
+     * 题型为空或无法识别的题目所在的桶，排在各题型之后
+     */
+    private static final int UNTYPED = TYPES.length;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${quiz.exam.generate.index-cache-size:32}")
+    private int cacheSize;
+
+    @Value("${quiz.exam.generate.index-ttl-ms:300000}")
+    private long ttlMs;
+
+    private Map<String, SubjectIndex> cache;
+
+    /**
+     * 每次失效递增，加载期间发生失效的结果不放入缓存
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SubjectIndex> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * 题目或知识点关联变更后使所有学科索引失效，处于事务中时提交后再失效一次
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generation.incrementAndGet();
+                    cache.clear();
+                }
+            });
+        }
+    }
+
+    /**
+     * 按分层条件抽题，先抽取候选较少的分层，避免宽泛条件占用稀缺题目
+     *
+     * @return 与 strata 一一对应的题目ID列表
+     */
+    public List<List<String>> sample(String subjectId, List<ExamGenerateStratumDto> strata) {
+        SubjectIndex index = get(subjectId);
+        Random random = ThreadLocalRandom.current();
+        List<Pool> pools = new ArrayList<>();
+        for (ExamGenerateStratumDto stratum : strata) {
+            pools.add(index.pool(stratum));
+        }
+        Integer[] order = new Integer[strata.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> pools.get(i).size));
+
+        Set<String> used = new HashSet<>();
+        List<List<String>> result = new ArrayList<>(Collections.nCopies(strata.size(), null));
+        for (int i : order) {
+            result.set(i, sampleStratum(index, strata.get(i), pools.get(i), used, random));
+        }
+        return result;
+    }
+
+    private List<String> sampleStratum(SubjectIndex index, ExamGenerateStratumDto stratum, Pool pool,
+                                       Set<String> used, Random random) {
+        int count = stratum.getCount();
+        int coverage = stratum.getMinKnowledgeCoverage() != null ? stratum.getMinKnowledgeCoverage() : 0;
+        List<String> picked = new ArrayList<>(count);
+        Set<String> covered = new HashSet<>();
+        // 覆盖要求未满足时暂缓的题目，覆盖满足后或候选耗尽时再补入
+        List<String> deferred = new ArrayList<>();
+        LazyShuffle shuffle = new LazyShuffle(pool.size, random);
+        while (picked.size() < count && shuffle.hasNext()) {
+            String id = pool.get(shuffle.next());
+            if (used.contains(id)) {
+                continue;
+            }
+            int missing = coverage - covered.size();
+            if (missing > 0 && missing >= count - picked.size() && !addsKnowledge(index.knowledge.get(id), covered)) {
+                deferred.add(id);
+                continue;
+            }
+            pick(index, id, picked, covered, used);
+        }
+        for (int i = 0; i < deferred.size() && picked.size() < count; i++) {
+            pick(index, deferred.get(i), picked, covered, used);
+        }
+        if (picked.size() < count) {
+            throw new RuntimeException("可用题目数量不足：" + describe(stratum) + "需要" + count + "，实际" + picked.size());
+        }
+        if (covered.size() < coverage) {
+            throw new RuntimeException("无法满足知识点覆盖要求：" + describe(stratum) + "需要覆盖" + coverage
+                    + "个知识点，实际" + covered.size());
+        }
+        return picked;
+    }
+
+    private void pick(SubjectIndex index, String id, List<String> picked, Set<String> covered, Set<String> used) {
+        picked.add(id);
+        used.add(id);
+        Collections.addAll(covered, index.knowledge.get(id));
+    }
+
+    private boolean addsKnowledge(String[] knowledgeIds, Set<String> covered) {
+        for (String knowledgeId : knowledgeIds) {
+            if (!covered.contains(knowledgeId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String describe(ExamGenerateStratumDto stratum) {
+        StringBuilder sb = new StringBuilder();
+        if (stratum.getType() != null) {
+            sb.append("题型").append(stratum.getType()).append("，");
+        }
+        if (stratum.getDifficulty() != null) {
+            sb.append("难度").append(stratum.getDifficulty());
+            int tolerance = tolerance(stratum);
+            if (tolerance > 0) {
+                sb.append("±").append(tolerance);
+            }
+            sb.append("，");
+        }
+        return sb.toString();
+    }
+
+    private static int tolerance(ExamGenerateStratumDto stratum) {
+        return stratum.getDifficultyTolerance() != null ? stratum.getDifficultyTolerance() : 0;
+    }
+
+    private SubjectIndex get(String subjectId) {
+        SubjectIndex index = cache.get(subjectId);
+        if (index != null && System.currentTimeMillis() - index.loadedAt < ttlMs) {
+            return index;
+        }
+        long gen = generation.get();
+        index = load(subjectId);
+        if (generation.get() == gen) {
+            cache.put(subjectId, index);
+        }
+        return index;
+    }
+
+    private SubjectIndex load(String subjectId) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("subjectId", subjectId);
+        // 每道题一行知识点关联，流式读取，只保留ID、题型、难度和知识点
+        Map<String, List<String>> knowledge = new HashMap<>();
+        List<List<List<String>>> buckets = new ArrayList<>();
+        int[] untyped = new int[1];
+        for (int t = 0; t <= UNTYPED; t++) {
+            List<List<String>> byDifficulty = new ArrayList<>();
+            for (int d = UNRATED; d <= MAX_DIFFICULTY; d++) {
+                byDifficulty.add(new ArrayList<>());
+            }
+            buckets.add(byDifficulty);
+        }
+        jdbcTemplate.query(LOAD_SQL, params, rs -> {
+            String questionId = rs.getString("question_id");
+            List<String> knowledgeIds = knowledge.get(questionId);
+            if (knowledgeIds == null) {
+                knowledgeIds = new ArrayList<>(1);
+                knowledge.put(questionId, knowledgeIds);
+                Question.QuestionType type = parseType(rs.getString("type"));
+                if (type == null) {
+                    untyped[0]++;
+                }
+                int difficulty = rs.getInt("difficulty_level");
+                if (rs.wasNull()) {
+                    difficulty = UNRATED;
+                } else {
+                    difficulty = Math.max(MIN_DIFFICULTY, Math.min(MAX_DIFFICULTY, difficulty));
+                }
+                buckets.get(type != null ? type.ordinal() : UNTYPED).get(difficulty).add(questionId);
+            }
+            knowledgeIds.add(rs.getString("knowledge_id"));
+        });
+        if (untyped[0] > 0) {
+            log.warn("学科 {} 有 {} 道题目题型为空或无法识别，仅用于不限题型的分层", subjectId, untyped[0]);
+        }
+
+        SubjectIndex index = new SubjectIndex();
+        index.buckets = new String[UNTYPED + 1][][];
+        for (int t = 0; t <= UNTYPED; t++) {
+            index.buckets[t] = new String[MAX_DIFFICULTY + 1][];
+            for (int d = 0; d < index.buckets[t].length; d++) {
+                index.buckets[t][d] = buckets.get(t).get(d).toArray(new String[0]);
+            }
+        }
+        index.knowledge = new HashMap<>(knowledge.size() * 4 / 3 + 1);
+        knowledge.forEach((questionId, knowledgeIds) -> index.knowledge.put(questionId, knowledgeIds.toArray(new String[0])));
+        index.loadedAt = System.currentTimeMillis();
+        return index;
+    }
+
+    private static Question.QuestionType parseType(String type) {
+        if (type == null) {
+            return null;
+        }
+        for (Question.QuestionType value : TYPES) {
+            if (value.name().equals(type)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 单个学科的索引，创建后不可变
+     */
+    private static final class SubjectIndex {
+
+        /**
+         * [题型，UNTYPED 为题型未知][难度，0 为未评级] → 题目ID
+         */
+        private String[][][] buckets;
+
+        /**
+         * 题目ID → 所属知识点（限本学科）
+         */
+        private Map<String, String[]> knowledge;
+
+        private long loadedAt;
+
+        /**
+         * 分层条件匹配的桶，按顺序拼接为一个逻辑数组，不复制题目ID
+         */
+        private Pool pool(ExamGenerateStratumDto stratum) {
+            // 未指定难度时包含未评级的题目
+            int low = UNRATED;
+            int high = MAX_DIFFICULTY;
+            if (stratum.getDifficulty() != null) {
+                int tolerance = tolerance(stratum);
+                low = Math.max(MIN_DIFFICULTY, stratum.getDifficulty() - tolerance);
+                high = Math.min(MAX_DIFFICULTY, stratum.getDifficulty() + tolerance);
+            }
+            List<String[]> segments = new ArrayList<>();
+            for (int t = 0; t <= UNTYPED; t++) {
+                // 指定题型时不包含题型未知的题目
+                if (stratum.getType() != null && (t == UNTYPED || TYPES[t] != stratum.getType())) {
+                    continue;
+                }
+                for (int d = low; d <= high; d++) {
+                    String[] bucket = buckets[t][d];
+                    if (bucket.length > 0) {
+                        segments.add(bucket);
+                    }
+                }
+            }
+            return new Pool(segments);
+        }
+    }
+
+    private static final class Pool {
+
+        private final List<String[]> segments;
+
+        private final int size;
+
+        private Pool(List<String[]> segments) {
+            this.segments = segments;
+            this.size = segments.stream().mapToInt(segment -> segment.length).sum();
+        }
+
+        private String get(int i) {
+            for (String[] segment : segments) {
+                if (i < segment.length) {
+                    return segment[i];
+                }
+                i -= segment.length;
+            }
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * 惰性 Fisher-Yates：依次返回 [0, size) 的随机排列，只记录被交换过的位置
+     */
+    private static final class LazyShuffle {
+
+        private final Map<Integer, Integer> swapped = new HashMap<>();
+
+        private final Random random;
+
+        private final int size;
+
+        private int next;
+
+        private LazyShuffle(int size, Random random) {
+            this.size = size;
+            this.random = random;
+        }
+
+        private boolean hasNext() {
+            return next < size;
+        }
+
+        private int next() {
+            int j = next + random.nextInt(size - next);
+            int value = swapped.getOrDefault(j, j);
+            swapped.put(j, swapped.getOrDefault(next, next));
+            swapped.remove(next);
+            next++;
+            return value;
+        }
+    }
+}
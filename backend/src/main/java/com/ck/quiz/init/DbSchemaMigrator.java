@@ -0,0 +1,49 @@
+package com.ck.quiz.init;
+
+import com.ck.quiz.utils.JdbcQueryHelper;
+import com.ck.quiz.utils.SqlDialect;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据库结构迁移
+ * ddl-auto: update 只新增表和列，不修改已有列的定义，已有库需要变更列定义时在此补充。
+ * 在 JPA 建表之后、Web 服务启动之前执行，迁移语句须可重复执行。
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class DbSchemaMigrator {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        if (JdbcQueryHelper.getDialect(jdbcTemplate) != SqlDialect.MYSQL) {
+            return;
+        }
+        migrateExamStatus();
+    }
+
+    /**
+     * exam.status 早期按 @Enumerated 生成为 MySQL enum 列，新增的删除中、已删除状态无法写入，改为 varchar(20)
+     */
+    private void migrateExamStatus() {
+        List<String> types = jdbcTemplate.queryForList("""
+                select data_type from information_schema.columns
+                 where table_schema = database() and table_name = 'exam' and column_name = 'status'
+                """, Map.of(), String.class);
+        if (types.stream().anyMatch("enum"::equalsIgnoreCase)) {
+            jdbcTemplate.getJdbcTemplate().execute("alter table exam modify status varchar(20) not null");
+            log.info("exam.status 列已由 enum 调整为 varchar(20)");
+        }
+    }
+}
@@ -3,8 +3,11 @@ package com.ck.quiz.llmmodel.controller;
 import com.ck.quiz.llmmodel.dto.LLMModelCreateDto;
 import com.ck.quiz.llmmodel.dto.LLMModelQueryDto;
 import com.ck.quiz.llmmodel.dto.LLMModelUpdateDto;
+import com.ck.quiz.llmmodel.dto.LLMTaskProgressDto;
 import com.ck.quiz.llmmodel.entity.LLMModel;
 import com.ck.quiz.llmmodel.service.LLMModelService;
+import com.ck.quiz.llmmodel.service.LLMResponseCache;
+import com.ck.quiz.llmmodel.service.LLMTaskScheduler;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -14,6 +17,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @Tag(name = "大语言模型管理", description = "大语言模型相关的API接口")
 @RestController
@@ -23,6 +27,12 @@ public class LLMModelController {
     @Autowired
     private LLMModelService modelService;
 
+    @Autowired
+    private LLMTaskScheduler llmTaskScheduler;
+
+    @Autowired
+    private LLMResponseCache llmResponseCache;
+
     @Operation(summary = "创建模型", description = "创建新的大语言模型")
     @PostMapping("/create")
     public ResponseEntity createModel(
@@ -95,4 +105,30 @@ public class LLMModelController {
         modelService.setDefaultModel(id);
         return ResponseEntity.ok().build();
     }
+
+    @Operation(summary = "查询大模型批量任务进度", description = "查询所有大模型批量任务的执行进度")
+    @GetMapping("/tasks")
+    public ResponseEntity<List<LLMTaskProgressDto>> listTaskProgress() {
+        return ResponseEntity.ok(llmTaskScheduler.listProgress());
+    }
+
+    @Operation(summary = "查询指定批次进度", description = "根据批次ID查询大模型批量任务的执行进度")
+    @GetMapping("/tasks/{batchId}")
+    public ResponseEntity<LLMTaskProgressDto> getTaskProgress(
+            @Parameter(description = "批次ID", required = true) @PathVariable String batchId) {
+        return ResponseEntity.ok(llmTaskScheduler.getProgress(batchId));
+    }
+
+    @Operation(summary = "查询响应缓存统计", description = "查询大模型响应缓存的命中率等统计信息")
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(llmResponseCache.stats());
+    }
+
+    @Operation(summary = "清除模板缓存", description = "清除指定提示词模板的大模型响应缓存")
+    @DeleteMapping("/cache/{templateName}")
+    public ResponseEntity<Integer> evictTemplateCache(
+            @Parameter(description = "模板名称", required = true) @PathVariable String templateName) {
+        return ResponseEntity.ok(llmResponseCache.evictTemplate(templateName));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.ck.quiz.llmmodel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 大模型批量任务进度 DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LLMTaskProgressDto {
+
+    /**
+     * 批次ID
+     */
+    private String batchId;
+
+    /**
+     * 批次名称，如 batchGenerateInf
+     */
+    private String name;
+
+    /**
+     * 任务总数
+     */
+    private int total;
+
+    /**
+     * 等待执行的任务数
+     */
+    private int pending;
+
+    /**
+     * 执行中的任务数
+     */
+    private int running;
+
+    /**
+     * 成功的任务数
+     */
+    private int succeeded;
+
+    /**
+     * 失败的任务数（重试耗尽）
+     */
+    private int failed;
+
+    /**
+     * 累计重试次数
+     */
+    private int retries;
+
+    /**
+     * 是否已全部完成
+     */
+    private boolean finished;
+
+    /**
+     * 开始时间
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间
+     */
+    private LocalDateTime endTime;
+}
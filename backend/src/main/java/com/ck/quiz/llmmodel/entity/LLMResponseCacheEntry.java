@@ -0,0 +1,80 @@
+package com.ck.quiz.llmmodel.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 大模型响应缓存实体类
+ * 以 提示词模板名称/版本 + 模型 + 渲染后提示词哈希 作为缓存键，内容不变时复用历史响应
+ */
+@Entity
+@Table(
+        name = "llm_response_cache",
+        indexes = {
+                @Index(name = "idx_llm_cache_template", columnList = "template_name")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LLMResponseCacheEntry {
+
+    /**
+     * 缓存键（SHA-256）
+     */
+    @Id
+    @Column(name = "cache_key", length = 64, nullable = false)
+    private String cacheKey;
+
+    /**
+     * 提示词模板名称
+     */
+    @Column(name = "template_name", length = 100, nullable = false)
+    private String templateName;
+
+    /**
+     * 提示词模板版本
+     */
+    @Column(name = "template_version", length = 64)
+    private String templateVersion;
+
+    /**
+     * 模型名称
+     */
+    @Column(name = "model_name", length = 100)
+    private String modelName;
+
+    /**
+     * 渲染后提示词哈希（SHA-256）
+     */
+    @Column(name = "prompt_hash", length = 64, nullable = false)
+    private String promptHash;
+
+    /**
+     * 模型响应内容
+     */
+    @Lob
+    @Column(name = "response", columnDefinition = "LONGTEXT", nullable = false)
+    private String response;
+
+    /**
+     * 命中次数
+     */
+    @Column(name = "hit_count")
+    private Long hitCount = 0L;
+
+    @Column(name = "create_date", updatable = false)
+    private LocalDateTime createDate;
+
+    @Column(name = "last_hit_date")
+    private LocalDateTime lastHitDate;
+
+    @PrePersist
+    public void prePersist() {
+        this.createDate = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,34 @@
+package com.ck.quiz.llmmodel.repository;
+
+import com.ck.quiz.llmmodel.entity.LLMResponseCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * 大模型响应缓存数据访问接口
+ */
+@Repository
+public interface LLMResponseCacheRepository extends JpaRepository<LLMResponseCacheEntry, String> {
+
+    /**
+     * 记录一次缓存命中
+     */
+    @Modifying
+    @Transactional
+    @Query("update LLMResponseCacheEntry c set c.hitCount = c.hitCount + 1, c.lastHitDate = :hitDate where c.cacheKey = :cacheKey")
+    int markHit(@Param("cacheKey") String cacheKey, @Param("hitDate") LocalDateTime hitDate);
+
+    /**
+     * 清除指定模板的缓存
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from LLMResponseCacheEntry c where c.templateName = :templateName")
+    int deleteByTemplateName(@Param("templateName") String templateName);
+}
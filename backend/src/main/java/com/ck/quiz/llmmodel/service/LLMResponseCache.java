@@ -0,0 +1,179 @@
+package com.ck.quiz.llmmodel.service;
+
+import com.ck.quiz.llmmodel.entity.LLMResponseCacheEntry;
+import com.ck.quiz.llmmodel.repository.LLMResponseCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.MapUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 大模型响应缓存
+ * 缓存键 = SHA-256(模板名称 + 模板版本 + 模型名称 + SHA-256(渲染后提示词))
+ * - 内存层：按访问顺序淘汰的 LRU，容量可配置
+ * - 数据库层：llm_response_cache 表，重启后仍可命中
+ * 命中/未命中次数通过 Micrometer 指标 quiz.llm.cache 暴露
+ */
+@Slf4j
+@Component
+public class LLMResponseCache {
+
+    /**
+     * 代码内置提示词的默认版本，修改内置提示词时应同步调整
+     */
+    public static final String BUILTIN_TEMPLATE_VERSION = "1";
+
+    @Autowired
+    private LLMResponseCacheRepository cacheRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quiz.llm.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quiz.llm.cache.memory-size:1000}")
+    private int memorySize;
+
+    private Map<String, String> memoryCache;
+
+    private Counter memoryHits;
+
+    private Counter dbHits;
+
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        memoryCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > memorySize;
+            }
+        });
+        memoryHits = Counter.builder("quiz.llm.cache").tag("result", "memory_hit").register(meterRegistry);
+        dbHits = Counter.builder("quiz.llm.cache").tag("result", "db_hit").register(meterRegistry);
+        misses = Counter.builder("quiz.llm.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 计算缓存键
+     */
+    public String buildKey(String templateName, String templateVersion, String modelName, String prompt) {
+        return sha256(templateName + "\n" + templateVersion + "\n" + modelName + "\n" + sha256(prompt));
+    }
+
+    /**
+     * 查询缓存，先查内存再查数据库
+     *
+     * @return 缓存的响应内容，未命中返回 null
+     */
+    public String get(String cacheKey) {
+        String response = memoryCache.get(cacheKey);
+        if (response != null) {
+            memoryHits.increment();
+            return response;
+        }
+
+        Optional<LLMResponseCacheEntry> entry = cacheRepository.findById(cacheKey);
+        if (entry.isPresent()) {
+            dbHits.increment();
+            response = entry.get().getResponse();
+            memoryCache.put(cacheKey, response);
+            cacheRepository.markHit(cacheKey, LocalDateTime.now());
+            return response;
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 写入缓存（内存 + 数据库）
+     */
+    public void put(String cacheKey, String templateName, String templateVersion, String modelName, String prompt, String response) {
+        memoryCache.put(cacheKey, response);
+        try {
+            LLMResponseCacheEntry entry = new LLMResponseCacheEntry();
+            entry.setCacheKey(cacheKey);
+            entry.setTemplateName(templateName);
+            entry.setTemplateVersion(templateVersion);
+            entry.setModelName(modelName);
+            entry.setPromptHash(sha256(prompt));
+            entry.setResponse(response);
+            entry.setHitCount(0L);
+            cacheRepository.save(entry);
+        } catch (Exception e) {
+            // 持久化失败不影响本次调用结果
+            log.warn("写入大模型响应缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 移除缓存（响应无法解析时调用）
+     */
+    public void evict(String cacheKey) {
+        memoryCache.remove(cacheKey);
+        cacheRepository.deleteById(cacheKey);
+    }
+
+    /**
+     * 清除指定模板的全部缓存
+     */
+    public int evictTemplate(String templateName) {
+        // 内存层键为哈希值，无法按模板区分，直接清空
+        memoryCache.clear();
+        return cacheRepository.deleteByTemplateName(templateName);
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("memorySize", memoryCache.size());
+        stats.put("memoryCapacity", memorySize);
+        stats.put("memoryHits", (long) memoryHits.count());
+        stats.put("dbHits", (long) dbHits.count());
+        stats.put("misses", (long) misses.count());
+        long total = (long) (memoryHits.count() + dbHits.count() + misses.count());
+        stats.put("hitRate", total == 0 ? 0D : (memoryHits.count() + dbHits.count()) / total);
+        return stats;
+    }
+
+    /**
+     * 根据提示词模板记录（prompt_templates 查询结果，驼峰键）计算模板版本
+     * 以最后修改时间作为版本，模板内容变更后旧缓存自然失效
+     */
+    public static String templateVersion(Map<String, Object> template) {
+        Object version = template.get("updateDate");
+        if (version == null) {
+            version = template.get("createDate");
+        }
+        return version != null ? String.valueOf(version) : MapUtils.getString(template, "id", BUILTIN_TEMPLATE_VERSION);
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.ck.quiz.llmmodel.service;
+
+import com.ck.quiz.llmmodel.dto.LLMTaskProgressDto;
+import com.ck.quiz.llmmodel.entity.LLMModel;
+import com.ck.quiz.llmmodel.repository.LLMModelRepository;
+import com.ck.quiz.thpool.ExecutorRegistry;
+import com.ck.quiz.utils.IdHelper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 大模型任务调度器
+ * - 批量任务在 ExecutorRegistry 的 llm 线程池中执行，与其他大模型调用共用同一并发上限（quiz.executor.pools.llm，
+ *   可开启虚拟线程）；每个批次最多占用线程池最大并发数个工作任务，依次消费批次内的 key，大批次不会占满等待队列
+ * - 按模型维度的请求数/Token 数每分钟限流（令牌桶）
+ * - 限流（429）、服务端错误（5xx）及网络异常按指数退避 + 随机抖动重试，配置错误、响应解析失败等其他异常直接失败
+ * - 批次进度查询
+ */
+@Slf4j
+@Component
+public class LLMTaskScheduler {
+
+    /**
+     * 已结束批次的进度保留时长
+     */
+    private static final long FINISHED_BATCH_TTL_MINUTES = 60;
+
+    @Autowired
+    private ChatClient.Builder chatBuilder;
+
+    @Autowired
+    private LLMModelRepository modelRepository;
+
+    @Autowired
+    private LLMResponseCache responseCache;
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 当前默认调用的模型名称，作为限流维度
+     */
+    @Value("${spring.ai.openai.chat.options.model:default}")
+    private String defaultModelName;
+
+    @Value("${quiz.llm.requests-per-minute:60}")
+    private int defaultRequestsPerMinute;
+
+    @Value("${quiz.llm.tokens-per-minute:100000}")
+    private int defaultTokensPerMinute;
+
+    @Value("${quiz.llm.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${quiz.llm.backoff-base-ms:1000}")
+    private long backoffBaseMs;
+
+    @Value("${quiz.llm.backoff-max-ms:30000}")
+    private long backoffMaxMs;
+
+    private final Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    private final Map<String, BatchProgress> batches = new ConcurrentHashMap<>();
+
+    /**
+     * 调用默认模型（受限流控制）
+     *
+     * @param prompt 用户提示词
+     * @return 模型返回内容
+     */
+    public String call(String prompt) {
+        acquire(defaultModelName, estimateTokens(prompt));
+        return chatBuilder.build()
+                .prompt()
+                .user(prompt)
+                .call()
+                .content();
+    }
+
+    /**
+     * 带响应缓存的模型调用
+     * 模板、模型及渲染后提示词均未变化时直接返回缓存结果，不再调用模型；
+     * 仅在 parser 解析成功后写入缓存，避免缓存无效响应
+     *
+     * @param templateName    提示词模板名称
+     * @param templateVersion 提示词模板版本
+     * @param prompt          渲染后的提示词
+     * @param parser          响应解析逻辑
+     * @return 解析结果
+     */
+    public <T> T callCached(String templateName, String templateVersion, String prompt, ResponseParser<T> parser) throws Exception {
+        if (!responseCache.isEnabled()) {
+            return parser.parse(call(prompt));
+        }
+
+        String cacheKey = responseCache.buildKey(templateName, templateVersion, defaultModelName, prompt);
+        String cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            try {
+                return parser.parse(cached);
+            } catch (Exception e) {
+                log.warn("缓存的大模型响应解析失败，重新调用模型，模板: {}", templateName);
+                responseCache.evict(cacheKey);
+            }
+        }
+
+        String result = call(prompt);
+        T parsed = parser.parse(result);
+        responseCache.put(cacheKey, templateName, templateVersion, defaultModelName, prompt, result);
+        return parsed;
+    }
+
+    /**
+     * 提交批量任务，每个 key 对应一次 action 调用，失败时自动重试
+     *
+     * @param name   批次名称
+     * @param keys   任务标识列表，如功能点ID
+     * @param action 任务逻辑
+     * @return 批次ID
+     */
+    public String submitBatch(String name, List<String> keys, Consumer<String> action) {
+        evictFinishedBatches();
+
+        String batchId = IdHelper.genUuid();
+        BatchProgress progress = new BatchProgress(batchId, name, keys.size());
+        batches.put(batchId, progress);
+        log.info("提交大模型批量任务 [{}] {}，任务数: {}", batchId, name, keys.size());
+
+        Queue<String> queue = new ConcurrentLinkedQueue<>(keys);
+        int workers = Math.min(keys.size(), executorRegistry.maxConcurrency(ExecutorRegistry.LLM));
+        int accepted = 0;
+        for (int i = 0; i < workers; i++) {
+            try {
+                executorRegistry.get(ExecutorRegistry.LLM).execute(() -> {
+                    String key;
+                    while ((key = queue.poll()) != null) {
+                        runWithRetry(progress, key, action);
+                    }
+                });
+                accepted++;
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        if (accepted == 0 && !keys.isEmpty()) {
+            // 线程池已满，整批失败
+            log.warn("大模型线程池已满，批量任务 [{}] {} 被拒绝", batchId, name);
+            while (queue.poll() != null) {
+                progress.pending.decrementAndGet();
+                progress.failed.incrementAndGet();
+            }
+        }
+        progress.checkFinished();
+        return batchId;
+    }
+
+    /**
+     * 查询批次进度
+     */
+    public LLMTaskProgressDto getProgress(String batchId) {
+        BatchProgress progress = batches.get(batchId);
+        if (progress == null) {
+            throw new RuntimeException("批次不存在或已过期: " + batchId);
+        }
+        return progress.toDto();
+    }
+
+    /**
+     * 查询所有批次进度，按开始时间倒序
+     */
+    public List<LLMTaskProgressDto> listProgress() {
+        List<LLMTaskProgressDto> list = new ArrayList<>();
+        batches.values().forEach(progress -> list.add(progress.toDto()));
+        list.sort(Comparator.comparing(LLMTaskProgressDto::getStartTime).reversed());
+        return list;
+    }
+
+    /**
+     * 模型配置变更后清除对应限流器，下次调用时按新配置重建
+     */
+    public void evictRateLimiter(String modelName) {
+        if (modelName != null) {
+            rateLimiters.remove(modelName);
+        }
+    }
+
+    /**
+     * 模型响应解析器
+     */
+    public interface ResponseParser<T> {
+        T parse(String content) throws Exception;
+    }
+
+    private void runWithRetry(BatchProgress progress, String key, Consumer<String> action) {
+        progress.pending.decrementAndGet();
+        progress.running.incrementAndGet();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    action.accept(key);
+                    progress.succeeded.incrementAndGet();
+                    return;
+                } catch (Exception e) {
+                    if (attempt >= maxAttempts || !isRetryable(e)) {
+                        log.error("大模型任务 [{}] {} 执行失败，已尝试 {} 次: {}", progress.name, key, attempt, e.getMessage(), e);
+                        progress.failed.incrementAndGet();
+                        return;
+                    }
+                    long delay = backoffDelay(attempt);
+                    log.warn("大模型任务 [{}] {} 第 {} 次执行失败，{} ms 后重试: {}", progress.name, key, attempt, delay, e.getMessage());
+                    progress.retries.incrementAndGet();
+                    Thread.sleep(delay);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.failed.incrementAndGet();
+        } finally {
+            progress.running.decrementAndGet();
+            progress.checkFinished();
+        }
+    }
+
+    /**
+     * 是否值得重试：仅限流（429）、服务端错误（5xx）及网络异常；
+     * 模型不存在、密钥错误等其他 4xx、响应 JSON 解析失败及业务异常重试也不会成功，直接失败以免重复消耗 Token 与限流额度
+     */
+    static boolean isRetryable(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof JsonProcessingException) {
+                // 同为 IOException，但属于模型响应格式问题
+                return false;
+            }
+            if (t instanceof TransientAiException || t instanceof ResourceAccessException || t instanceof IOException) {
+                return true;
+            }
+            if (t instanceof RestClientResponseException response) {
+                int status = response.getStatusCode().value();
+                return status == 429 || status >= 500;
+            }
+            if (t instanceof NonTransientAiException) {
+                // Spring AI 将 4xx 响应统一转为 NonTransientAiException，消息以状态码开头
+                return StringUtils.startsWith(t.getMessage(), "429");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 指数退避 + 随机抖动：在 [cap/2, cap] 内取值，cap = min(max, base * 2^(attempt-1))
+     */
+    private long backoffDelay(int attempt) {
+        long cap = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+    }
+
+    private void acquire(String modelName, int tokens) {
+        RateLimiter limiter = rateLimiters.computeIfAbsent(modelName, this::createRateLimiter);
+        try {
+            limiter.acquire(tokens);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待大模型限流许可被中断", e);
+        }
+    }
+
+    /**
+     * 按模型配置创建限流器，LLMModel.config 中可配置 requestsPerMinute、tokensPerMinute
+     */
+    private RateLimiter createRateLimiter(String modelName) {
+        int rpm = defaultRequestsPerMinute;
+        int tpm = defaultTokensPerMinute;
+        for (LLMModel model : modelRepository.findByStatus(LLMModel.ModelStatus.ACTIVE)) {
+            if (!modelName.equals(model.getName()) || StringUtils.isBlank(model.getConfig())) {
+                continue;
+            }
+            try {
+                Map<String, Object> config = objectMapper.readValue(model.getConfig(), new TypeReference<>() {
+                });
+                rpm = MapUtils.getIntValue(config, "requestsPerMinute", rpm);
+                tpm = MapUtils.getIntValue(config, "tokensPerMinute", tpm);
+            } catch (Exception e) {
+                log.warn("解析模型 [{}] 限流配置失败，使用默认配置: {}", modelName, e.getMessage());
+            }
+            break;
+        }
+        log.info("创建模型 [{}] 限流器，RPM: {}，TPM: {}", modelName, rpm, tpm);
+        return new RateLimiter(rpm, tpm);
+    }
+
+    /**
+     * 粗略估算提示词 Token 数（中文约 1 字 1 Token，按字符数保守估计）
+     */
+    private int estimateTokens(String prompt) {
+        return prompt == null ? 0 : prompt.length();
+    }
+
+    private void evictFinishedBatches() {
+        LocalDateTime expireBefore = LocalDateTime.now().minusMinutes(FINISHED_BATCH_TTL_MINUTES);
+        batches.values().removeIf(p -> p.endTime != null && p.endTime.isBefore(expireBefore));
+    }
+
+    /**
+     * 每分钟请求数 + Token 数双令牌桶
+     * 许可不足时允许透支，调用方按透支量计算等待时长后再执行
+     */
+    private static class RateLimiter {
+
+        private final TokenBucket requests;
+
+        private final TokenBucket tokens;
+
+        private RateLimiter(int requestsPerMinute, int tokensPerMinute) {
+            this.requests = new TokenBucket(requestsPerMinute);
+            this.tokens = new TokenBucket(tokensPerMinute);
+        }
+
+        private void acquire(int tokenCount) throws InterruptedException {
+            long waitNanos = Math.max(requests.reserve(1), tokens.reserve(tokenCount));
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+
+    private static class TokenBucket {
+
+        private final double capacity;
+
+        private final double permitsPerNano;
+
+        private double available;
+
+        private long lastRefillNanos;
+
+        private TokenBucket(int permitsPerMinute) {
+            this.capacity = Math.max(permitsPerMinute, 1);
+            this.permitsPerNano = capacity / TimeUnit.MINUTES.toNanos(1);
+            this.available = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        /**
+         * 预占许可，返回需要等待的纳秒数
+         */
+        private synchronized long reserve(int permits) {
+            long now = System.nanoTime();
+            available = Math.min(capacity, available + (now - lastRefillNanos) * permitsPerNano);
+            lastRefillNanos = now;
+            available -= permits;
+            return available >= 0 ? 0 : (long) (-available / permitsPerNano);
+        }
+    }
+
+    private static class BatchProgress {
+
+        private final String batchId;
+
+        private final String name;
+
+        private final int total;
+
+        private final AtomicInteger pending;
+
+        private final AtomicInteger running = new AtomicInteger();
+
+        private final AtomicInteger succeeded = new AtomicInteger();
+
+        private final AtomicInteger failed = new AtomicInteger();
+
+        private final AtomicInteger retries = new AtomicInteger();
+
+        private final LocalDateTime startTime = LocalDateTime.now();
+
+        private volatile LocalDateTime endTime;
+
+        private BatchProgress(String batchId, String name, int total) {
+            this.batchId = batchId;
+            this.name = name;
+            this.total = total;
+            this.pending = new AtomicInteger(total);
+        }
+
+        private synchronized void checkFinished() {
+            if (endTime == null && succeeded.get() + failed.get() >= total) {
+                endTime = LocalDateTime.now();
+                log.info("大模型批量任务 [{}] {} 完成，成功: {}，失败: {}，重试: {}", batchId, name, succeeded.get(), failed.get(), retries.get());
+            }
+        }
+
+        private LLMTaskProgressDto toDto() {
+            return new LLMTaskProgressDto(batchId, name, total, pending.get(), running.get(), succeeded.get(),
+                    failed.get(), retries.get(), endTime != null, startTime, endTime);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.ck.quiz.llmmodel.dto.LLMModelUpdateDto;
 import com.ck.quiz.llmmodel.entity.LLMModel;
 import com.ck.quiz.llmmodel.repository.LLMModelRepository;
 import com.ck.quiz.llmmodel.service.LLMModelService;
+import com.ck.quiz.llmmodel.service.LLMTaskScheduler;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -30,6 +31,9 @@ public class LLMModelServiceImpl implements LLMModelService {
     @Autowired
     private LLMModelRepository modelRepository;
 
+    @Autowired
+    private LLMTaskScheduler llmTaskScheduler;
+
     @Override
     @Transactional
     public LLMModelDto createModel(LLMModelCreateDto modelCreateDto) {
@@ -71,6 +75,9 @@ public class LLMModelServiceImpl implements LLMModelService {
         }
 
         LLMModel updatedModel = modelRepository.save(model);
+
+        // 限流配置可能变更，清除缓存的限流器
+        llmTaskScheduler.evictRateLimiter(updatedModel.getName());
         return convertToDto(updatedModel);
     }
 
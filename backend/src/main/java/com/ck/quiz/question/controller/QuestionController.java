@@ -83,6 +83,31 @@ public class QuestionController {
         return ResponseEntity.ok(questionService.searchQuestions(queryDto));
     }
 
+    @Operation(summary = "游标分页查询题目", description = "按创建时间游标分页查询题目列表，深分页性能稳定")
+    @GetMapping("/cursor")
+    public ResponseEntity searchQuestionsByCursor(
+            @Parameter(description = "") @RequestParam(required = false) String subjectId,
+            @Parameter(description = "") @RequestParam(required = false) String categoryId,
+            @Parameter(description = "题目类型") @RequestParam(required = false) Question.QuestionType type,
+            @Parameter(description = "题干内容") @RequestParam(required = false) String content,
+            @Parameter(description = "难度等级") @RequestParam(required = false) Integer difficultyLevel,
+            @Parameter(description = "上一页返回的游标，首页为空") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int pageSize,
+            @Parameter(description = "总数统计方式：EXACT/APPROXIMATE/NONE") @RequestParam(defaultValue = "APPROXIMATE") String countMode,
+            @Parameter(description = "排序方向") @RequestParam(defaultValue = "desc") String sortType) {
+        QuestionQueryDto queryDto = new QuestionQueryDto();
+        queryDto.setType(type);
+        queryDto.setContent(content);
+        queryDto.setDifficultyLevel(difficultyLevel);
+        queryDto.setCursor(cursor);
+        queryDto.setPageSize(pageSize);
+        queryDto.setCountMode(countMode);
+        queryDto.setSortType(sortType);
+        queryDto.setSubjectId(subjectId);
+        queryDto.setCategoryId(categoryId);
+        return ResponseEntity.ok(questionService.searchQuestionsByCursor(queryDto));
+    }
+
     @Operation(summary = "根据知识点生成题目", description = "根据知识点描述调用大模型生成题目")
     @PostMapping("/generate")
     public ResponseEntity<List<QuestionCreateDto>> generateQuestions(
@@ -52,4 +52,14 @@ public class QuestionQueryDto {
     private String subjectId;
 
     private String categoryId;
+
+    /**
+     * 游标分页：上一页返回的 nextCursor，首页为空
+     */
+    private String cursor;
+
+    /**
+     * 游标分页：总数统计方式 EXACT / APPROXIMATE / NONE
+     */
+    private String countMode;
 }
\ No newline at end of file
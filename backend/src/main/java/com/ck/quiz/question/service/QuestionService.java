@@ -5,6 +5,7 @@ import com.ck.quiz.question.dto.QuestionDto;
 import com.ck.quiz.question.dto.QuestionQueryDto;
 import com.ck.quiz.question.dto.QuestionUpdateDto;
 import com.ck.quiz.question.entity.Question;
+import com.ck.quiz.utils.KeysetPage;
 import org.springframework.data.domain.Page;
 
 import java.util.List;
@@ -59,6 +60,14 @@ public interface QuestionService {
      */
     Page<QuestionDto> searchQuestions(QuestionQueryDto queryDto);
 
+    /**
+     * 游标分页查询题目列表，按创建时间排序
+     *
+     * @param queryDto 查询条件（cursor 为上一页返回的 nextCursor，首页为空）
+     * @return 游标分页结果
+     */
+    KeysetPage<QuestionDto> searchQuestionsByCursor(QuestionQueryDto queryDto);
+
     /**
      * 将实体类对象转换为传输对象
      *
@@ -1,10 +1,14 @@
 package com.ck.quiz.question.service.impl;
 
+import com.ck.quiz.exam.service.impl.ExamAnswerKeyCache;
+import com.ck.quiz.exam.service.impl.QuestionBankIndex;
 import com.ck.quiz.knowledge.dto.KnowledgeCreateDto;
 import com.ck.quiz.knowledge.dto.KnowledgeDto;
 import com.ck.quiz.knowledge.entity.Knowledge;
 import com.ck.quiz.knowledge.repository.KnowledgeRepository;
 import com.ck.quiz.knowledge.service.KnowledgeService;
+import com.ck.quiz.llmmodel.service.LLMResponseCache;
+import com.ck.quiz.llmmodel.service.LLMTaskScheduler;
 import com.ck.quiz.question.dto.QuestionCreateDto;
 import com.ck.quiz.question.dto.QuestionDto;
 import com.ck.quiz.question.dto.QuestionQueryDto;
@@ -15,9 +19,9 @@ import com.ck.quiz.question.repository.QuestionRepository;
 import com.ck.quiz.question.service.QuestionService;
 import com.ck.quiz.utils.IdHelper;
 import com.ck.quiz.utils.JdbcQueryHelper;
+import com.ck.quiz.utils.KeysetPage;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -29,6 +33,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -54,7 +60,13 @@ public class QuestionServiceImpl implements QuestionService {
     private NamedParameterJdbcTemplate jdbcTemplate;
 
     @Autowired
-    private ChatClient.Builder chatBuilder;
+    private LLMTaskScheduler llmTaskScheduler;
+
+    @Autowired
+    private ExamAnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private QuestionBankIndex questionBankIndex;
 
     @Override
     @Transactional
@@ -103,10 +115,12 @@ public class QuestionServiceImpl implements QuestionService {
                 questionRepository.save(savedQuestion);
             }
 
+            questionBankIndex.invalidateAll();
             return convertToDto(savedQuestion);
         }
 
         Question savedQuestion = questionRepository.save(question);
+        questionBankIndex.invalidateAll();
         return convertToDto(savedQuestion);
     }
 
@@ -141,6 +155,9 @@ public class QuestionServiceImpl implements QuestionService {
         }
 
         Question savedQuestion = questionRepository.save(question);
+        // 题型或答案可能已变更，已编译的试卷答案键失效
+        answerKeyCache.invalidateAll();
+        questionBankIndex.invalidateAll();
         return convertToDto(savedQuestion);
     }
 
@@ -154,6 +171,8 @@ public class QuestionServiceImpl implements QuestionService {
 
         Question question = optionalQuestion.get();
         questionRepository.delete(question);
+        answerKeyCache.invalidateAll();
+        questionBankIndex.invalidateAll();
         return convertToDto(question);
     }
 
@@ -170,15 +189,58 @@ public class QuestionServiceImpl implements QuestionService {
     @Override
     @Transactional(readOnly = true)
     public Page<QuestionDto> searchQuestions(QuestionQueryDto queryDto) {
-        StringBuilder sql = new StringBuilder(
-                "SELECT q.question_id AS id, q.type, q.content, q.options, q.answer, q.explanation, " +
-                        "q.difficulty_level, q.create_date, q.create_user, q.update_date, q.update_user, u.user_name create_user_name " +
-                        "FROM question q left join user u on u.user_id = q.create_user "
-        );
+        StringBuilder sql = new StringBuilder();
+        StringBuilder countSql = new StringBuilder();
+        Map<String, Object> params = new HashMap<>();
+        buildQuestionQuery(queryDto, sql, countSql, params);
 
-        StringBuilder countSql = new StringBuilder(
-                "SELECT COUNT(1) FROM question q "
-        );
+        // 添加排序
+        JdbcQueryHelper.order(queryDto.getSortColumn(), queryDto.getSortType(), sql);
+
+        // 分页查询
+        String pageSql = JdbcQueryHelper.getLimitSql(jdbcTemplate, sql.toString(), queryDto.getPageNum(), queryDto.getPageSize());
+
+        List<QuestionDto> list = jdbcTemplate.query(pageSql, params, this::mapQuestionRow);
+        fillQuestionRela(list);
+
+        // 获取总数
+        Long total = jdbcTemplate.queryForObject(countSql.toString(), params, Long.class);
+
+        return new PageImpl<>(list,
+                org.springframework.data.domain.PageRequest.of(queryDto.getPageNum(), queryDto.getPageSize()),
+                total != null ? total : 0);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<QuestionDto> searchQuestionsByCursor(QuestionQueryDto queryDto) {
+        // 游标分页只支持非空的创建时间排序
+        String sortColumn = queryDto.getSortColumn();
+        if (StringUtils.hasText(sortColumn) && !"create_date".equals(sortColumn) && !"createDate".equals(sortColumn)) {
+            throw new RuntimeException("游标分页不支持的排序字段: " + sortColumn);
+        }
+
+        StringBuilder sql = new StringBuilder();
+        StringBuilder countSql = new StringBuilder();
+        Map<String, Object> params = new HashMap<>();
+        buildQuestionQuery(queryDto, sql, countSql, params);
+
+        KeysetPage<QuestionDto> page = JdbcQueryHelper.keysetPage(jdbcTemplate, sql.toString(), countSql.toString(), params,
+                "q.create_date", "create_date", "q.question_id", "id", !"asc".equals(queryDto.getSortType()),
+                queryDto.getCursor(), queryDto.getPageSize(), KeysetPage.CountMode.of(queryDto.getCountMode()), this::mapQuestionRow);
+        fillQuestionRela(page.getContent());
+        return page;
+    }
+
+    /**
+     * 拼接题目查询 sql 与统计 sql 的公共部分（select/from/where），不含排序与分页
+     */
+    private void buildQuestionQuery(QuestionQueryDto queryDto, StringBuilder sql, StringBuilder countSql, Map<String, Object> params) {
+        sql.append("SELECT q.question_id AS id, q.type, q.content, q.options, q.answer, q.explanation, " +
+                "q.difficulty_level, q.create_date, q.create_user, q.update_date, q.update_user, u.user_name create_user_name " +
+                "FROM question q left join user u on u.user_id = q.create_user ");
+
+        countSql.append("SELECT COUNT(1) FROM question q ");
 
         if (queryDto.getCategoryId() != null || queryDto.getSubjectId() != null) {
             sql.append(" LEFT JOIN question_knowledge_rela r on q.question_id = r.question_id LEFT JOIN knowledge k on k.knowledge_id = r.knowledge_id ");
@@ -188,8 +250,6 @@ public class QuestionServiceImpl implements QuestionService {
         sql.append(" WHERE 1=1 ");
         countSql.append(" WHERE 1=1 ");
 
-        Map<String, Object> params = new HashMap<>();
-
         // 添加查询条件
         if (queryDto.getType() != null) {
             JdbcQueryHelper.equals("type", queryDto.getType().name(), " AND q.type = :type ", params, sql, countSql);
@@ -209,30 +269,29 @@ public class QuestionServiceImpl implements QuestionService {
         if (authentication != null && authentication.isAuthenticated()) {
             JdbcQueryHelper.equals("createUser", authentication.getName(), " AND q.create_user = :createUser ", params, sql, countSql);
         }
+    }
 
+    private QuestionDto mapQuestionRow(ResultSet rs, int rowNum) throws SQLException {
+        QuestionDto dto = new QuestionDto();
+        dto.setId(rs.getString("id"));
+        dto.setType(Question.QuestionType.valueOf(rs.getString("type")));
+        dto.setContent(rs.getString("content"));
+        dto.setOptions(rs.getString("options"));
+        dto.setAnswer(rs.getString("answer"));
+        dto.setExplanation(rs.getString("explanation"));
+        dto.setDifficultyLevel(rs.getInt("difficulty_level"));
+        dto.setCreateDate(rs.getTimestamp("create_date") != null ? rs.getTimestamp("create_date").toLocalDateTime() : null);
+        dto.setCreateUser(rs.getString("create_user"));
+        dto.setCreateUserName(rs.getString("create_user_name"));
+        dto.setUpdateDate(rs.getTimestamp("update_date") != null ? rs.getTimestamp("update_date").toLocalDateTime() : null);
+        dto.setUpdateUser(rs.getString("update_user"));
+        return dto;
+    }
 
-        // 添加排序
-        JdbcQueryHelper.order(queryDto.getSortColumn(), queryDto.getSortType(), sql);
-
-        // 分页查询
-        String pageSql = JdbcQueryHelper.getLimitSql(jdbcTemplate, sql.toString(), queryDto.getPageNum(), queryDto.getPageSize());
-
-        List<QuestionDto> list = jdbcTemplate.query(pageSql, params, (rs, rowNum) -> {
-            QuestionDto dto = new QuestionDto();
-            dto.setId(rs.getString("id"));
-            dto.setType(Question.QuestionType.valueOf(rs.getString("type")));
-            dto.setContent(rs.getString("content"));
-            dto.setOptions(rs.getString("options"));
-            dto.setAnswer(rs.getString("answer"));
-            dto.setExplanation(rs.getString("explanation"));
-            dto.setDifficultyLevel(rs.getInt("difficulty_level"));
-            dto.setCreateDate(rs.getTimestamp("create_date") != null ? rs.getTimestamp("create_date").toLocalDateTime() : null);
-            dto.setCreateUser(rs.getString("create_user"));
-            dto.setCreateUserName(rs.getString("create_user_name"));
-            dto.setUpdateDate(rs.getTimestamp("update_date") != null ? rs.getTimestamp("update_date").toLocalDateTime() : null);
-            dto.setUpdateUser(rs.getString("update_user"));
-            return dto;
-        });
+    /**
+     * 回填题目关联的分类、学科
+     */
+    private void fillQuestionRela(List<QuestionDto> list) {
         if (!list.isEmpty()) {
             List<String> questionIds = list.stream().map(QuestionDto::getId).collect(Collectors.toList());
 
@@ -274,13 +333,6 @@ public class QuestionServiceImpl implements QuestionService {
                 }
             }
         }
-
-        // 获取总数
-        Long total = jdbcTemplate.queryForObject(countSql.toString(), params, Long.class);
-
-        return new PageImpl<>(list,
-                org.springframework.data.domain.PageRequest.of(queryDto.getPageNum(), queryDto.getPageSize()),
-                total != null ? total : 0);
     }
 
     @Override
@@ -292,7 +344,6 @@ public class QuestionServiceImpl implements QuestionService {
 
     @Override
     public List<QuestionCreateDto> generateQuestions(String knowledgeDescr, int num) {
-        ChatClient chat = chatBuilder.build();
         ObjectMapper objectMapper = new ObjectMapper();
 
         int maxRetries = 3;          // 最大重试次数
@@ -302,9 +353,11 @@ public class QuestionServiceImpl implements QuestionService {
         while (true) {
             try {
                 attempt++;
-                String content = chat.prompt(buildPrompt(knowledgeDescr, num)).call().content();
-                return objectMapper.readValue(content, new TypeReference<>() {
-                });
+                // 相同知识点与题目数量的请求命中缓存，解析失败的响应不会入缓存
+                return llmTaskScheduler.callCached("questionGenerate", LLMResponseCache.BUILTIN_TEMPLATE_VERSION,
+                        buildPrompt(knowledgeDescr, num),
+                        content -> objectMapper.readValue(content, new TypeReference<List<QuestionCreateDto>>() {
+                        }));
             } catch (Exception e) {
                 if (attempt >= maxRetries) {
                     throw new RuntimeException("生成题目失败，重试次数已达上限", e);
@@ -376,6 +429,7 @@ public class QuestionServiceImpl implements QuestionService {
         }
 
         questionRepository.save(question);
+        questionBankIndex.invalidateAll();
     }
 
     @Override
@@ -392,6 +446,7 @@ public class QuestionServiceImpl implements QuestionService {
         }
 
         questionRepository.save(question);
+        questionBankIndex.invalidateAll();
     }
 
     @Override
@@ -11,7 +11,7 @@ import com.ck.quiz.subject.entity.Subject;
 import com.ck.quiz.subject.exception.SubjectException;
 import com.ck.quiz.subject.repository.SubjectRepository;
 import com.ck.quiz.subject.service.SubjectService;
-import com.ck.quiz.thpool.CommonPool;
+import com.ck.quiz.thpool.ExecutorRegistry;
 import com.ck.quiz.utils.IdHelper;
 import com.ck.quiz.utils.JdbcQueryHelper;
 import jakarta.servlet.http.HttpServletResponse;
@@ -49,6 +49,9 @@ public class SubjectServiceImpl implements SubjectService {
     @Autowired
     private SubjectRepository subjectRepository;
 
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
     @Autowired
     private NamedParameterJdbcTemplate jdbcTemplate;
 
@@ -375,7 +378,7 @@ public class SubjectServiceImpl implements SubjectService {
                 .orElseThrow(() -> new SubjectException("SUBJECT_NOT_FOUND", "学科不存在: " + subjectId));
         List<Category> categories = categoryRepository.findBySubjectId(subjectId);
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        CommonPool.cachedPool.execute(()->{
+        executorRegistry.get(ExecutorRegistry.LLM).execute(()->{
             categories.forEach(category -> {
                 categoryService.initCategoryQuestions(authentication.getName(), category.getId(), questionNum);
             });
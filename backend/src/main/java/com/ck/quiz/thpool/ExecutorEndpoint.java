@@ -0,0 +1,24 @@
+package com.ck.quiz.thpool;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * /actuator/executors：各线程池的线程数、活跃、排队及完成任务数
+ */
+@Component
+@Endpoint(id = "executors")
+public class ExecutorEndpoint {
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> executors() {
+        return executorRegistry.stats();
+    }
+}
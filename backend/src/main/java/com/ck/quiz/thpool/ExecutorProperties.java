@@ -0,0 +1,57 @@
+package com.ck.quiz.thpool;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 线程池配置（quiz.executor）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "quiz.executor")
+public class ExecutorProperties {
+
+    /**
+     * 停机时等待线程池内任务结束的最长时间，超时后中断
+     */
+    private long shutdownTimeoutSeconds = 30;
+
+    /**
+     * 线程池名称 -> 配置
+     */
+    private Map<String, Pool> pools = new LinkedHashMap<>();
+
+    @Data
+    public static class Pool {
+
+        /**
+         * 最大线程数，即该线程池的并发上限：任务到达时先新建线程直到该值，之后才进入等待队列
+         */
+        private int maxSize = 16;
+
+        /**
+         * 等待队列容量
+         */
+        private int queueCapacity = 1000;
+
+        /**
+         * 空闲线程存活时间（秒）
+         */
+        private long keepAliveSeconds = 60;
+
+        /**
+         * 拒绝策略：ABORT / CALLER_RUNS / DISCARD / DISCARD_OLDEST
+         */
+        private String rejection = "ABORT";
+
+        /**
+         * 是否使用虚拟线程（需 Java 21+ 运行时，否则退回平台线程池）。
+         * 开启后每个任务一个虚拟线程，maxSize 为最大同时执行数，queueCapacity 为最大排队数，keepAliveSeconds 不生效
+         */
+        private boolean virtual = false;
+    }
+}
@@ -0,0 +1,236 @@
+package com.ck.quiz.thpool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程池注册表
+ * <p>
+ * 按用途隔离的有界线程池（舱壁），取代原先共用的无界 CommonPool.cachedPool 与 DynamicCronTaskScheduler.executor：
+ * - llm：知识点出题、表备注生成、文档批量生成等大模型任务，同时也是模型调用的并发上限
+ * - job-exec：队列作业及手动触发的定时任务执行
+ * - job-io：脚本执行、SSH 等长时间阻塞的作业（作业类型由 AbstractAsyncJob.isBlockingIo 声明）
+ * - sse：SSE 日志推送
+ * <p>
+ * 线程数、队列容量、拒绝策略由 quiz.executor.pools.&lt;name&gt; 配置；各线程池的活跃线程、排队、完成数通过
+ * Micrometer（executor.* 指标，tag name=线程池名）及 /actuator/executors 暴露；停机时先等待任务结束再中断。
+ * 配置 virtual=true 的线程池在 Java 21+ 运行时改用 {@link VirtualThreadExecutor}。
+ */
+@Slf4j
+@Component
+public class ExecutorRegistry {
+
+    public static final String LLM = "llm";
+
+    public static final String JOB_EXEC = "job-exec";
+
+    public static final String JOB_IO = "job-io";
+
+    public static final String SSE = "sse";
+
+    @Autowired
+    private ExecutorProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (String name : new String[]{LLM, JOB_EXEC, JOB_IO, SSE}) {
+            properties.getPools().putIfAbsent(name, new ExecutorProperties.Pool());
+        }
+        properties.getPools().forEach(this::create);
+    }
+
+    /**
+     * 获取线程池
+     */
+    public ExecutorService get(String name) {
+        ExecutorService executor = executors.get(name);
+        if (executor == null) {
+            throw new IllegalArgumentException("未定义的线程池: " + name);
+        }
+        return executor;
+    }
+
+    /**
+     * 线程池最大同时执行数
+     */
+    public int maxConcurrency(String name) {
+        ExecutorService executor = get(name);
+        if (executor instanceof VirtualThreadExecutor virtual) {
+            return virtual.getMaxConcurrency();
+        }
+        if (executor instanceof ThreadPoolExecutor pool) {
+            return pool.getMaximumPoolSize();
+        }
+        return 1;
+    }
+
+    /**
+     * 批量提交任务：同时在途（执行中 + 排队）的任务不超过线程池最大线程数的 2 倍，
+     * 超出时阻塞调用线程等待，避免一次提交大量任务超出队列容量被拒绝；仍被拒绝的任务在调用线程执行
+     *
+     * @return 与 tasks 顺序一致的 Future
+     */
+    public <T> List<Future<T>> submitAll(String name, Collection<? extends Callable<T>> tasks) {
+        ExecutorService executor = get(name);
+        Semaphore inFlight = new Semaphore(maxConcurrency(name) * 2);
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                throw new IllegalStateException("等待线程池 [" + name + "] 空闲被中断", e);
+            }
+            FutureTask<T> future = new FutureTask<>(() -> {
+                try {
+                    return task.call();
+                } finally {
+                    inFlight.release();
+                }
+            });
+            futures.add(future);
+            try {
+                executor.execute(future);
+            } catch (RejectedExecutionException e) {
+                future.run();
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * 登记由业务组件自行创建的线程池，纳入指标监控与统一停机
+     */
+    public void register(String name, ExecutorService executor) {
+        if (executors.putIfAbsent(name, executor) != null) {
+            throw new IllegalStateException("线程池名称重复: " + name);
+        }
+        if (executor instanceof VirtualThreadExecutor virtual) {
+            Gauge.builder("executor.active", virtual, VirtualThreadExecutor::getActiveCount).tag("name", name).register(meterRegistry);
+            Gauge.builder("executor.queued", virtual, VirtualThreadExecutor::getQueuedCount).tag("name", name).register(meterRegistry);
+            Gauge.builder("executor.queue.remaining", virtual, VirtualThreadExecutor::getRemainingCapacity).tag("name", name).register(meterRegistry);
+            Gauge.builder("executor.completed", virtual, VirtualThreadExecutor::getCompletedTaskCount).tag("name", name).register(meterRegistry);
+        } else {
+            new ExecutorServiceMetrics(executor, name, Tags.empty()).bindTo(meterRegistry);
+        }
+    }
+
+    /**
+     * 创建并登记虚拟线程执行器，运行时不支持虚拟线程时返回 null，由调用方退回平台线程池
+     *
+     * @param maxConcurrency 最大同时执行数
+     * @param queueCapacity  最大排队数
+     */
+    public VirtualThreadExecutor registerVirtual(String name, int maxConcurrency, int queueCapacity, String rejection) {
+        if (!VirtualThreadExecutor.isSupported()) {
+            log.warn("线程池 [{}] 配置为虚拟线程，但当前运行时为 Java {}（需 21+），退回平台线程池", name, Runtime.version().feature());
+            return null;
+        }
+        Counter rejected = Counter.builder("quiz.executor.rejected").tag("name", name).register(meterRegistry);
+        VirtualThreadExecutor executor = new VirtualThreadExecutor(name, maxConcurrency, queueCapacity, rejection, rejected::increment);
+        register(name, executor);
+        log.info("线程池 [{}] 已创建（虚拟线程），最大并发 {}，排队容量 {}，拒绝策略 {}", name, maxConcurrency, queueCapacity, rejection);
+        return executor;
+    }
+
+    /**
+     * 各线程池运行状态
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        executors.forEach((name, service) -> {
+            Map<String, Object> stat = new LinkedHashMap<>();
+            if (service instanceof VirtualThreadExecutor virtual) {
+                stat.put("virtual", true);
+                stat.put("maxConcurrency", virtual.getMaxConcurrency());
+                stat.put("active", virtual.getActiveCount());
+                stat.put("queued", virtual.getQueuedCount());
+                stat.put("queueRemaining", virtual.getRemainingCapacity());
+                stat.put("completed", virtual.getCompletedTaskCount());
+                stats.put(name, stat);
+                return;
+            }
+            if (!(service instanceof ThreadPoolExecutor executor)) {
+                return;
+            }
+            stat.put("coreSize", executor.getCorePoolSize());
+            stat.put("maxSize", executor.getMaximumPoolSize());
+            stat.put("poolSize", executor.getPoolSize());
+            stat.put("active", executor.getActiveCount());
+            stat.put("queued", executor.getQueue().size());
+            stat.put("queueRemaining", executor.getQueue().remainingCapacity());
+            stat.put("completed", executor.getCompletedTaskCount());
+            stat.put("largestPoolSize", executor.getLargestPoolSize());
+            stats.put(name, stat);
+        });
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executors.values().forEach(ExecutorService::shutdown);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(properties.getShutdownTimeoutSeconds());
+        executors.forEach((name, executor) -> {
+            try {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !executor.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                    log.warn("线程池 [{}] 未在限定时间内结束，中断剩余 {} 个任务", name, executor.shutdownNow().size());
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private void create(String name, ExecutorProperties.Pool pool) {
+        if (pool.isVirtual() && registerVirtual(name, pool.getMaxSize(), pool.getQueueCapacity(), pool.getRejection()) != null) {
+            return;
+        }
+        AtomicInteger threadNo = new AtomicInteger(1);
+        // 核心线程数 = 最大线程数：ThreadPoolExecutor 只有队列满后才会超出核心线程数扩容，
+        // 二者不同时 maxSize 实际不生效；核心线程空闲超时回收，空闲时不常驻
+        int threads = Math.max(1, pool.getMaxSize());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                pool.getKeepAliveSeconds(), TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(pool.getQueueCapacity()),
+                r -> new Thread(r, name + "-" + threadNo.getAndIncrement()),
+                rejectionHandler(name, pool.getRejection()));
+        executor.allowCoreThreadTimeOut(true);
+        register(name, executor);
+        log.info("线程池 [{}] 已创建，最大线程 {}，队列容量 {}，拒绝策略 {}",
+                name, executor.getMaximumPoolSize(), pool.getQueueCapacity(), pool.getRejection());
+    }
+
+    private RejectedExecutionHandler rejectionHandler(String name, String rejection) {
+        RejectedExecutionHandler handler = switch (rejection == null ? "ABORT" : rejection.toUpperCase()) {
+            case "CALLER_RUNS" -> new ThreadPoolExecutor.CallerRunsPolicy();
+            case "DISCARD" -> new ThreadPoolExecutor.DiscardPolicy();
+            case "DISCARD_OLDEST" -> new ThreadPoolExecutor.DiscardOldestPolicy();
+            default -> new ThreadPoolExecutor.AbortPolicy();
+        };
+        Counter rejected = Counter.builder("quiz.executor.rejected").tag("name", name).register(meterRegistry);
+        return (r, executor) -> {
+            rejected.increment();
+            handler.rejectedExecution(r, executor);
+        };
+    }
+}
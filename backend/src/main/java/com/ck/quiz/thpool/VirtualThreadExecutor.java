@@ -0,0 +1,225 @@
+package com.ck.quiz.thpool;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 虚拟线程执行器（每个任务一个虚拟线程）
+ * <p>
+ * 适用于大部分时间阻塞在进程管道、SSH 通道、HTTP 响应上的任务：阻塞时虚拟线程让出载体线程，
+ * 上千个并发任务只占用少量 OS 线程。仍保留有界语义：
+ * - maxConcurrency：同时执行的任务数（保护下游 SSH、数据库、大模型接口），超出的任务以挂起的虚拟线程排队
+ * - queueCapacity：排队任务数上限，执行中 + 排队超过上限时按拒绝策略处理
+ * <p>
+ * 虚拟线程需 Java 21+ 运行时。项目默认以 Java 17 编译，这里通过反射创建线程工厂，
+ * 运行时不支持时由 {@link #isSupported()} 返回 false，调用方退回平台线程池。
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+    private final String name;
+
+    private final ThreadFactory threadFactory;
+
+    private final int maxConcurrency;
+
+    private final int capacity;
+
+    private final String rejection;
+
+    private final Runnable onRejected;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong completed = new AtomicLong();
+
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    private final ReentrantLock terminationLock = new ReentrantLock();
+
+    private final Condition terminated = terminationLock.newCondition();
+
+    private volatile boolean shutdown;
+
+    /**
+     * @param name           线程名前缀
+     * @param maxConcurrency 最大同时执行任务数
+     * @param queueCapacity  最大排队任务数
+     * @param rejection      拒绝策略：ABORT / CALLER_RUNS / DISCARD（DISCARD_OLDEST 按 DISCARD 处理）
+     * @param onRejected     发生拒绝时的回调（指标计数），可为 null
+     */
+    public VirtualThreadExecutor(String name, int maxConcurrency, int queueCapacity, String rejection, Runnable onRejected) {
+        this.name = name;
+        this.threadFactory = virtualThreadFactory(name + "-");
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.capacity = this.maxConcurrency + Math.max(0, queueCapacity);
+        this.rejection = rejection == null ? "ABORT" : rejection.toUpperCase();
+        this.onRejected = onRejected;
+        this.permits = new Semaphore(this.maxConcurrency);
+    }
+
+    /**
+     * 当前运行时是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (shutdown) {
+            reject(command);
+            return;
+        }
+        if (inFlight.incrementAndGet() > capacity) {
+            inFlight.decrementAndGet();
+            reject(command);
+            return;
+        }
+        Thread thread = threadFactory.newThread(() -> {
+            try {
+                permits.acquire();
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+                completed.incrementAndGet();
+            } catch (InterruptedException e) {
+                // shutdownNow 中断排队中的任务，直接放弃
+                Thread.currentThread().interrupt();
+            } finally {
+                threads.remove(Thread.currentThread());
+                if (inFlight.decrementAndGet() == 0 && shutdown) {
+                    signalTerminated();
+                }
+            }
+        });
+        threads.add(thread);
+        thread.start();
+    }
+
+    private void reject(Runnable command) {
+        if (onRejected != null) {
+            onRejected.run();
+        }
+        switch (rejection) {
+            case "CALLER_RUNS" -> {
+                if (!shutdown) {
+                    command.run();
+                }
+            }
+            case "DISCARD", "DISCARD_OLDEST" -> {
+            }
+            default -> throw new RejectedExecutionException("虚拟线程执行器 [" + name + "] "
+                    + (shutdown ? "已关闭" : "排队任务已满（" + capacity + "）"));
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (inFlight.get() == 0) {
+            signalTerminated();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        threads.forEach(Thread::interrupt);
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && inFlight.get() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        terminationLock.lock();
+        try {
+            while (!isTerminated()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = terminated.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            terminationLock.unlock();
+        }
+    }
+
+    private void signalTerminated() {
+        terminationLock.lock();
+        try {
+            terminated.signalAll();
+        } finally {
+            terminationLock.unlock();
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * 正在执行的任务数
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * 排队等待执行的任务数
+     */
+    public int getQueuedCount() {
+        return Math.max(0, inFlight.get() - getActiveCount());
+    }
+
+    /**
+     * 剩余可排队数
+     */
+    public int getRemainingCapacity() {
+        return Math.max(0, capacity - inFlight.get());
+    }
+
+    public long getCompletedTaskCount() {
+        return completed.get();
+    }
+
+    /**
+     * 通过反射构造 Thread.ofVirtual().name(prefix, 1).factory()，使代码可在 Java 17 下编译
+     */
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("当前运行时 Java " + Runtime.version().feature() + " 不支持虚拟线程，需 Java 21+");
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("创建虚拟线程工厂失败", e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.ck.quiz.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * docx 流式读取工具类
+ * 基于 StAX 逐段读取 word/document.xml，不构建完整的 XWPFDocument DOM，
+ * 适用于数百页的大文档解析
+ */
+@Slf4j
+public class DocxStreamHelper {
+
+    private static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    private static final String DOCUMENT_PART = "word/document.xml";
+
+    private static final String STYLES_PART = "word/styles.xml";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    /**
+     * 段落回调
+     */
+    public interface ParagraphHandler {
+        void handle(DocxParagraph paragraph);
+    }
+
+    /**
+     * 正文段落（仅包含 body 下的直接段落，与 XWPFDocument.getParagraphs() 范围一致）
+     */
+    @Data
+    @AllArgsConstructor
+    public static class DocxParagraph {
+
+        /**
+         * 段落样式 ID（w:pStyle）
+         */
+        private String styleId;
+
+        /**
+         * 样式表中的样式名称（w:name），可能为空
+         */
+        private String styleName;
+
+        /**
+         * 段落文本
+         */
+        private String text;
+    }
+
+    /**
+     * 顺序读取 docx 正文段落
+     *
+     * @param filePath docx 文件路径
+     * @param handler  段落回调
+     * @return 读取的段落总数
+     */
+    public static int readParagraphs(String filePath, ParagraphHandler handler) throws IOException, XMLStreamException {
+        try (ZipFile zip = new ZipFile(filePath)) {
+            Map<String, String> styleNames = readStyleNames(zip);
+
+            ZipEntry entry = zip.getEntry(DOCUMENT_PART);
+            if (entry == null) {
+                throw new IOException("无效的 docx 文件，缺少 " + DOCUMENT_PART);
+            }
+
+            try (InputStream in = zip.getInputStream(entry)) {
+                return readBody(in, styleNames, handler);
+            }
+        }
+    }
+
+    private static int readBody(InputStream in, Map<String, String> styleNames, ParagraphHandler handler) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            int depth = 0;
+            int bodyDepth = -1;
+            int paraDepth = -1;
+            // 文本框等嵌套内容所在层级，不计入当前段落文本
+            int skipDepth = -1;
+            boolean inPPr = false;
+            boolean inText = false;
+            int count = 0;
+            String styleId = null;
+            StringBuilder text = new StringBuilder();
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (skipDepth > 0 || !W_NS.equals(reader.getNamespaceURI())) {
+                        continue;
+                    }
+                    String name = reader.getLocalName();
+                    if (bodyDepth < 0) {
+                        if ("body".equals(name)) {
+                            bodyDepth = depth;
+                        }
+                    } else if (paraDepth < 0) {
+                        if ("p".equals(name) && depth == bodyDepth + 1) {
+                            paraDepth = depth;
+                            styleId = null;
+                            text.setLength(0);
+                        }
+                    } else {
+                        switch (name) {
+                            case "pPr" -> inPPr = depth == paraDepth + 1;
+                            case "pStyle" -> {
+                                if (inPPr) {
+                                    styleId = reader.getAttributeValue(W_NS, "val");
+                                }
+                            }
+                            case "t" -> inText = true;
+                            case "tab" -> {
+                                if (!inPPr) {
+                                    text.append('\t');
+                                }
+                            }
+                            case "br", "cr" -> text.append('\n');
+                            case "txbxContent" -> skipDepth = depth;
+                            default -> {
+                            }
+                        }
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    if (inText && skipDepth < 0) {
+                        text.append(reader.getText());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == skipDepth) {
+                        skipDepth = -1;
+                    } else if (skipDepth < 0 && paraDepth > 0) {
+                        String name = reader.getLocalName();
+                        if ("t".equals(name)) {
+                            inText = false;
+                        } else if ("pPr".equals(name) && depth == paraDepth + 1) {
+                            inPPr = false;
+                        } else if (depth == paraDepth) {
+                            String styleName = styleId != null ? styleNames.get(styleId) : null;
+                            handler.handle(new DocxParagraph(styleId, styleName, text.toString()));
+                            count++;
+                            paraDepth = -1;
+                            inPPr = false;
+                            inText = false;
+                        }
+                    }
+                    depth--;
+                }
+            }
+            return count;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 读取样式表，构建 styleId -> 样式名称 映射
+     */
+    private static Map<String, String> readStyleNames(ZipFile zip) throws IOException, XMLStreamException {
+        Map<String, String> styleNames = new HashMap<>();
+        ZipEntry entry = zip.getEntry(STYLES_PART);
+        if (entry == null) {
+            return styleNames;
+        }
+
+        try (InputStream in = zip.getInputStream(entry)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                String currentStyleId = null;
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT || !W_NS.equals(reader.getNamespaceURI())) {
+                        continue;
+                    }
+                    String name = reader.getLocalName();
+                    if ("style".equals(name)) {
+                        currentStyleId = reader.getAttributeValue(W_NS, "styleId");
+                    } else if ("name".equals(name) && currentStyleId != null) {
+                        styleNames.put(currentStyleId, reader.getAttributeValue(W_NS, "val"));
+                        currentStyleId = null;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return styleNames;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // 禁用 DTD 与外部实体，防止 XXE
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
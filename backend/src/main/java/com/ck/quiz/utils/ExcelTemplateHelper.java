@@ -25,13 +25,105 @@ import org.xml.sax.XMLReader;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 public class ExcelTemplateHelper {
 
+    private static final int DEFAULT_ROW_WINDOW = 500;
+
+    /**
+     * 预编译模板缓存：模板路径 -> 编译结果
+     */
+    private static final Map<String, ExcelTemplatePlan> TEMPLATE_PLANS = new ConcurrentHashMap<>();
+
+    /**
+     * 获取预编译模板，模板文件（jar 内资源为 jar 条目）的修改时间或大小变化时重新编译
+     *
+     * @param templatePath 文件系统路径或 classpath 路径
+     */
+    public static ExcelTemplatePlan getTemplatePlan(String templatePath) throws IOException {
+        Path file = Paths.get(templatePath);
+        URL resource = null;
+        if (!Files.isRegularFile(file)) {
+            resource = Thread.currentThread().getContextClassLoader().getResource(templatePath);
+            if (resource == null) {
+                throw new IOException("Excel 模板未找到: " + templatePath);
+            }
+            if ("file".equals(resource.getProtocol())) {
+                try {
+                    file = Paths.get(resource.toURI());
+                    resource = null;
+                } catch (URISyntaxException e) {
+                    throw new IOException("Excel 模板路径无效: " + resource, e);
+                }
+            }
+        }
+
+        // 先按修改时间 + 大小判断缓存，命中时不读取模板内容
+        String fingerprint;
+        URLConnection connection = null;
+        if (resource == null) {
+            fingerprint = Files.getLastModifiedTime(file).toMillis() + ":" + Files.size(file);
+        } else {
+            connection = resource.openConnection();
+            fingerprint = connection.getLastModified() + ":" + connection.getContentLengthLong();
+        }
+        ExcelTemplatePlan cached = TEMPLATE_PLANS.get(templatePath);
+        if (cached != null && cached.getFingerprint().equals(fingerprint)) {
+            return cached;
+        }
+
+        byte[] content;
+        if (connection == null) {
+            content = Files.readAllBytes(file);
+        } else {
+            try (InputStream is = connection.getInputStream()) {
+                content = is.readAllBytes();
+            }
+        }
+
+        try {
+            return TEMPLATE_PLANS.compute(templatePath, (key, cached) -> {
+                if (cached != null && cached.getFingerprint().equals(fingerprint)) {
+                    return cached;
+                }
+                try {
+                    long start = System.currentTimeMillis();
+                    ExcelTemplatePlan plan = ExcelTemplatePlan.compile(content, fingerprint);
+                    log.info("编译 Excel 模板 {}，耗时 {} ms", templatePath, System.currentTimeMillis() - start);
+                    return plan;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 使用预编译模板渲染 Excel 并写入输出流
+     *
+     * @param templatePath 文件系统路径或 classpath 路径
+     * @param sheetDataMap sheet 名称 -> 填充数据
+     * @param out          输出流
+     */
+    public static void renderTemplate(String templatePath, Map<String, ExcelTemplatePlan.SheetData> sheetDataMap, OutputStream out) throws IOException {
+        getTemplatePlan(templatePath).render(sheetDataMap, DEFAULT_ROW_WINDOW, out);
+    }
+
     public static Map<String, Object> readData(SXSSFSheet sheet, String loopKey, SXSSFSheet srcSheet) {
         return readDataFromTpl(sheet, loopKey, readTemplate(srcSheet, loopKey));
     }
@@ -388,7 +480,11 @@ public class ExcelTemplateHelper {
     }
 
     public static XSSFCellStyle getBorderStyle(XSSFWorkbook xssfBook) {
-        XSSFCellStyle style = xssfBook.createCellStyle();
+        return (XSSFCellStyle) getBorderStyle((Workbook) xssfBook);
+    }
+
+    public static CellStyle getBorderStyle(Workbook workbook) {
+        CellStyle style = workbook.createCellStyle();
         style.setBorderBottom(BorderStyle.THIN);
         style.setBottomBorderColor(IndexedColors.BLACK.getIndex());
         style.setBorderLeft(BorderStyle.THIN);
@@ -0,0 +1,323 @@
+package com.ck.quiz.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的 Excel 模板
+ * 模板工作簿只解析一次，记录每个 sheet 的行、单元格、占位符位置、循环行及样式索引；
+ * 渲染时按计划顺序生成行并写入 SXSSFWorkbook，不再重复解析模板、扫描占位符或 shiftRows/copyRows。
+ * 占位符替换规则与 ExcelTemplateHelper.handleSheet 一致。
+ * 实例不可变，可在多线程间共享（样式克隆时对原型工作簿加锁）。
+ */
+public class ExcelTemplatePlan {
+
+    private static final Pattern LOOP_PREFIX = Pattern.compile("^\\{\\{([^.{}]+)\\.");
+
+    /**
+     * 模板指纹（文件或 jar 条目的修改时间 + 大小），用于判断缓存是否失效
+     */
+    @Getter
+    private final String fingerprint;
+
+    @Getter
+    private final List<SheetPlan> sheets;
+
+    /**
+     * 原型工作簿，仅作为样式来源，不对外暴露
+     */
+    private final XSSFWorkbook prototype;
+
+    /**
+     * 单个 sheet 的填充数据
+     */
+    @Data
+    @AllArgsConstructor
+    public static class SheetData {
+
+        /**
+         * 静态占位符 {{key}} 数据
+         */
+        private Map<String, String> staticSource;
+
+        /**
+         * 循环数据，每项包含 loopId 与 dataList，与 handleSheet 参数格式一致
+         */
+        private List<Map<String, Object>> dynamicSourceList;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class SheetPlan {
+        private final String name;
+        private final int defaultColumnWidth;
+        private final short defaultRowHeight;
+        private final int[] columnWidths;
+        private final List<RowPlan> rows;
+        private final List<CellRangeAddress> mergedRegions;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RowPlan {
+        private final int rowIndex;
+        private final short height;
+        /**
+         * 循环标识，非循环行为 null
+         */
+        private final String loopId;
+        private final List<CellPlan> cells;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class CellPlan {
+        private final int column;
+        private final short styleIndex;
+        private final CellType type;
+        private final String text;
+        private final double number;
+        private final boolean bool;
+        /**
+         * 是否包含占位符，不含占位符的单元格渲染时直接复制
+         */
+        private final boolean placeholder;
+    }
+
+    private ExcelTemplatePlan(String fingerprint, List<SheetPlan> sheets, XSSFWorkbook prototype) {
+        this.fingerprint = fingerprint;
+        this.sheets = Collections.unmodifiableList(sheets);
+        this.prototype = prototype;
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param templateBytes 模板文件内容
+     * @param fingerprint   模板指纹
+     */
+    public static ExcelTemplatePlan compile(byte[] templateBytes, String fingerprint) throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(templateBytes));
+        List<SheetPlan> sheets = new ArrayList<>();
+        for (int s = 0; s < workbook.getNumberOfSheets(); s++) {
+            sheets.add(compileSheet(workbook.getSheetAt(s)));
+        }
+        return new ExcelTemplatePlan(fingerprint, sheets, workbook);
+    }
+
+    private static SheetPlan compileSheet(Sheet sheet) {
+        List<RowPlan> rows = new ArrayList<>();
+        int maxColumn = 0;
+        for (Row row : sheet) {
+            List<CellPlan> cells = new ArrayList<>();
+            String loopId = null;
+            for (Cell cell : row) {
+                CellPlan cellPlan = compileCell(cell);
+                cells.add(cellPlan);
+                maxColumn = Math.max(maxColumn, cell.getColumnIndex() + 1);
+                if (loopId == null && cellPlan.isPlaceholder()) {
+                    Matcher matcher = LOOP_PREFIX.matcher(cellPlan.getText());
+                    if (matcher.find()) {
+                        loopId = matcher.group(1);
+                    }
+                }
+            }
+            rows.add(new RowPlan(row.getRowNum(), row.getHeight(), loopId, Collections.unmodifiableList(cells)));
+        }
+
+        int[] columnWidths = new int[maxColumn];
+        for (int c = 0; c < maxColumn; c++) {
+            columnWidths[c] = sheet.getColumnWidth(c);
+        }
+        return new SheetPlan(sheet.getSheetName(), sheet.getDefaultColumnWidth(), sheet.getDefaultRowHeight(),
+                columnWidths, Collections.unmodifiableList(rows), Collections.unmodifiableList(sheet.getMergedRegions()));
+    }
+
+    private static CellPlan compileCell(Cell cell) {
+        short styleIndex = cell.getCellStyle().getIndex();
+        return switch (cell.getCellType()) {
+            case STRING -> {
+                String text = cell.getStringCellValue();
+                yield new CellPlan(cell.getColumnIndex(), styleIndex, CellType.STRING, text, 0, false,
+                        text != null && text.contains("{{"));
+            }
+            case NUMERIC -> new CellPlan(cell.getColumnIndex(), styleIndex, CellType.NUMERIC, null, cell.getNumericCellValue(), false, false);
+            case BOOLEAN -> new CellPlan(cell.getColumnIndex(), styleIndex, CellType.BOOLEAN, null, 0, cell.getBooleanCellValue(), false);
+            case FORMULA -> new CellPlan(cell.getColumnIndex(), styleIndex, CellType.FORMULA, cell.getCellFormula(), 0, false, false);
+            default -> new CellPlan(cell.getColumnIndex(), styleIndex, CellType.BLANK, null, 0, false, false);
+        };
+    }
+
+    /**
+     * 按计划渲染并写入输出流
+     *
+     * @param sheetDataMap sheet 名称 -> 填充数据；模板中不存在的 sheet 会新建空 sheet
+     * @param rowWindow    SXSSF 内存保留行数
+     * @param out          输出流
+     */
+    public void render(Map<String, SheetData> sheetDataMap, int rowWindow, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        try {
+            Map<Short, CellStyle> styles = new HashMap<>();
+            CellStyle borderStyle = ExcelTemplateHelper.getBorderStyle(workbook);
+            Set<String> rendered = new HashSet<>();
+
+            for (SheetPlan sheetPlan : sheets) {
+                SheetData data = sheetDataMap.get(sheetPlan.getName());
+                renderSheet(workbook, sheetPlan, data, styles, borderStyle);
+                rendered.add(sheetPlan.getName());
+            }
+            for (String sheetName : sheetDataMap.keySet()) {
+                if (!rendered.contains(sheetName)) {
+                    workbook.createSheet(sheetName);
+                }
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void renderSheet(SXSSFWorkbook workbook, SheetPlan plan, SheetData data, Map<Short, CellStyle> styles, CellStyle borderStyle) {
+        Sheet sheet = workbook.createSheet(plan.getName());
+        sheet.setDefaultColumnWidth(plan.getDefaultColumnWidth());
+        sheet.setDefaultRowHeight(plan.getDefaultRowHeight());
+        int[] columnWidths = plan.getColumnWidths();
+        for (int c = 0; c < columnWidths.length; c++) {
+            sheet.setColumnWidth(c, columnWidths[c]);
+        }
+
+        Map<String, String> staticSource = data != null && data.getStaticSource() != null ? data.getStaticSource() : Collections.emptyMap();
+        Map<String, List<Map<String, String>>> loops = new HashMap<>();
+        if (data != null && data.getDynamicSourceList() != null) {
+            for (Map<String, Object> dynamic : data.getDynamicSourceList()) {
+                loops.put(MapUtils.getString(dynamic, "loopId"), (List<Map<String, String>>) dynamic.get("dataList"));
+            }
+        }
+
+        // 模板行号 -> 输出行号，用于平移合并单元格
+        Map<Integer, Integer> staticRowMapping = new HashMap<>();
+        // 循环模板行号 -> [首个输出行号, 输出行数]，行内合并单元格逐行复制
+        Map<Integer, int[]> loopRowMapping = new HashMap<>();
+        int offset = 0;
+        for (RowPlan rowPlan : plan.getRows()) {
+            int targetIndex = rowPlan.getRowIndex() + offset;
+            String loopId = rowPlan.getLoopId();
+            if (loopId != null && loops.containsKey(loopId)) {
+                List<Map<String, String>> dataList = loops.get(loopId);
+                if (dataList == null) {
+                    // 与 handleSheet 一致：没有数据列表时保留模板行原样
+                    staticRowMapping.put(rowPlan.getRowIndex(), targetIndex);
+                    writeRow(workbook, sheet.createRow(targetIndex), rowPlan, Collections.emptyMap(), loopId, styles, borderStyle);
+                    continue;
+                }
+                loopRowMapping.put(rowPlan.getRowIndex(), new int[]{targetIndex, dataList.size()});
+                for (int i = 0; i < dataList.size(); i++) {
+                    writeRow(workbook, sheet.createRow(targetIndex + i), rowPlan, dataList.get(i), loopId, styles, borderStyle);
+                }
+                // 模板行本身占 1 行，空列表时模板行被移除
+                offset += dataList.size() - 1;
+            } else {
+                staticRowMapping.put(rowPlan.getRowIndex(), targetIndex);
+                writeRow(workbook, sheet.createRow(targetIndex), rowPlan, staticSource, null, styles, borderStyle);
+            }
+        }
+
+        for (CellRangeAddress region : plan.getMergedRegions()) {
+            int[] loopRows = region.getFirstRow() == region.getLastRow() ? loopRowMapping.get(region.getFirstRow()) : null;
+            if (loopRows != null) {
+                for (int i = 0; i < loopRows[1]; i++) {
+                    sheet.addMergedRegionUnsafe(new CellRangeAddress(loopRows[0] + i, loopRows[0] + i,
+                            region.getFirstColumn(), region.getLastColumn()));
+                }
+                continue;
+            }
+            Integer first = staticRowMapping.get(region.getFirstRow());
+            Integer last = staticRowMapping.get(region.getLastRow());
+            if (first != null && last != null && last - first == region.getLastRow() - region.getFirstRow()) {
+                sheet.addMergedRegionUnsafe(new CellRangeAddress(first, last, region.getFirstColumn(), region.getLastColumn()));
+            }
+        }
+    }
+
+    private void writeRow(SXSSFWorkbook workbook, Row row, RowPlan rowPlan, Map<String, String> source, String prefixKey,
+                          Map<Short, CellStyle> styles, CellStyle borderStyle) {
+        row.setHeight(rowPlan.getHeight());
+        for (CellPlan cellPlan : rowPlan.getCells()) {
+            Cell cell = row.createCell(cellPlan.getColumn());
+            cell.setCellStyle(templateStyle(workbook, cellPlan.getStyleIndex(), styles));
+            switch (cellPlan.getType()) {
+                case STRING -> {
+                    if (cellPlan.isPlaceholder() && !source.isEmpty()) {
+                        replaceValue(cell, cellPlan.getText(), source, prefixKey, borderStyle);
+                    } else {
+                        cell.setCellValue(cellPlan.getText());
+                    }
+                }
+                case NUMERIC -> cell.setCellValue(cellPlan.getNumber());
+                case BOOLEAN -> cell.setCellValue(cellPlan.isBool());
+                case FORMULA -> cell.setCellFormula(cellPlan.getText());
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * 与 ExcelTemplateHelper.replaceCellValue 规则一致：替换所有占位符，替换过的单元格使用边框样式，
+     * 未匹配的整格占位符置空
+     */
+    private static void replaceValue(Cell cell, String template, Map<String, String> source, String prefixKey, CellStyle borderStyle) {
+        String cellValue = template;
+        if (StringUtils.isBlank(cellValue)) {
+            cell.setCellValue(cellValue);
+            return;
+        }
+        String prefix = StringUtils.isBlank(prefixKey) ? "" : (prefixKey + ".");
+        for (Map.Entry<String, String> current : source.entrySet()) {
+            String placeholder = "{{" + prefix + current.getKey() + "}}";
+            if (cellValue.contains(placeholder)) {
+                String value = current.getValue() == null ? "" : current.getValue();
+                String oldCellValue = cellValue;
+                cellValue = cellValue.replace(placeholder, value);
+                if (!oldCellValue.equals(cellValue)) {
+                    cell.setCellStyle(borderStyle);
+                } else {
+                    cellValue = "";
+                }
+            }
+        }
+        if (cellValue.startsWith("{{") && cellValue.endsWith("}}")) {
+            cellValue = "";
+        }
+        cell.setCellValue(cellValue);
+    }
+
+    /**
+     * 将模板样式克隆到目标工作簿，每次渲染每种样式只克隆一次
+     */
+    private CellStyle templateStyle(SXSSFWorkbook workbook, short styleIndex, Map<Short, CellStyle> styles) {
+        return styles.computeIfAbsent(styleIndex, index -> {
+            CellStyle style = workbook.createCellStyle();
+            synchronized (prototype) {
+                style.cloneStyleFrom(prototype.getCellStyleAt(index));
+            }
+            return style;
+        });
+    }
+}
@@ -6,18 +6,21 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 
 import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,6 +36,13 @@ public class JdbcQueryHelper {
 
     private static final Logger LOG = LoggerFactory.getLogger(JdbcQueryHelper.class);
 
+    private static final Pattern DRIVER_PATTERN = Pattern.compile(".*(db2|oracle|mysql|sql server|hive|teradata|gbase|vertica|postgresql|dm|h2).*");
+
+    /**
+     * 数据源 -> 数据库类型，弱引用键，临时创建的数据源回收后自动移除
+     */
+    private static final Map<DataSource, String> DATABASE_TYPES = Collections.synchronizedMap(new WeakHashMap<>());
+
     private static final Pattern SQL_INJECTION_PATTERN = Pattern.compile("\\b(and|exec|insert|select|drop|grant|alter|delete|update|count|chr|mid|master|truncate|case|sleep|char|declare|or|where|union|limit|from|substr|for)\\b");
 
     public static void equals(String name, String param, StringBuilder sb, String sqlSegment, Map<String, Object> params) {
@@ -69,35 +79,15 @@ public class JdbcQueryHelper {
 
     public static void lowerLike(String name, String param, StringBuilder sb, String sqlSegment,
                                  Map<String, Object> params, NamedParameterJdbcTemplate jt) {
-        String dbType = getDatabaseType(jt.getJdbcTemplate().getDataSource());
-        if (StringUtils.isNotBlank(param)) {
-            if ("mysql".equalsIgnoreCase(dbType)) {
-                param = param.replaceAll("\\/", "//").replaceAll("\\%", "/%").replaceAll("_", "/_").replaceAll("\\\\", "/\\\\");
-                sqlSegment = sqlSegment.replaceAll(name, name + " escape '\\/'");
-            } else if ("oracle".equalsIgnoreCase(dbType)) {
-                param = param.replaceAll("\\\\", "\\\\\\\\").replaceAll("\\%", "\\\\%").replaceAll("_", "\\\\_");
-                sqlSegment = sqlSegment.replaceAll(name, name + " escape chr(92 USING NCHAR_CS)");
-            } else {
-                LOG.warn("暂不支持对数据库类型为“{}”的模糊查询sql进行特殊字符处理！", dbType);
-            }
-            sb.append(sqlSegment);
-            params.put(name, '%' + param.toLowerCase() + '%');
-        }
+        lowerLike(name, param, sqlSegment, params, jt, sb);
     }
 
     public static void lowerLike(String name, String param, String sqlSegment,
                                  Map<String, Object> params, NamedParameterJdbcTemplate jt, StringBuilder... sbs) {
-        String dbType = getDatabaseType(jt.getJdbcTemplate().getDataSource());
-            if (StringUtils.isNotBlank(param)) {
-            if ("mysql".equalsIgnoreCase(dbType)) {
-                param = param.replaceAll("\\/", "//").replaceAll("\\%", "/%").replaceAll("_", "/_").replaceAll("\\\\", "/\\\\");
-                sqlSegment = sqlSegment.replaceAll(name, name + " escape '\\/'");
-            } else if ("oracle".equalsIgnoreCase(dbType)) {
-                param = param.replaceAll("\\\\", "\\\\\\\\").replaceAll("\\%", "\\\\%").replaceAll("_", "\\\\_");
-                sqlSegment = sqlSegment.replaceAll(name, name + " escape chr(92 USING NCHAR_CS)");
-            } else {
-                LOG.warn("暂不支持对数据库类型为“{}”的模糊查询sql进行特殊字符处理！", dbType);
-            }
+        if (StringUtils.isNotBlank(param)) {
+            SqlDialect dialect = getDialect(jt);
+            param = dialect.escapeLikeValue(param);
+            sqlSegment = dialect.appendLikeEscape(name, sqlSegment);
             for (StringBuilder sb : sbs) {
                 sb.append(sqlSegment);
             }
@@ -107,15 +97,11 @@ public class JdbcQueryHelper {
 
     public static void datetimeBetween(String fieldName, String startName, Date startTime, String endName, Date endTime,
                                        Map<String, Object> params, NamedParameterJdbcTemplate jt, StringBuilder... sbs) {
-        String dsType = getDatabaseType(jt.getJdbcTemplate().getDataSource());
         if (startTime != null && endTime != null) {
-            for (StringBuilder sb : sbs) {
-                if (dsType.equals("mysql") || dsType.equals("postgresql")) {
-                    sb.append("and ").append(fieldName).append(" between :").append(startName).append(" and :").append(endName).append(" ");
-                } else if (dsType.equals("oracle") || dsType.equals("dm")) {
-                    sb.append("and (").append(fieldName).append(" > to_date(:").append(startName).append(",'yyyy-mm-dd hh24:mi:ss') and ").append(fieldName).append("<to_date(:").append(endName).append(",'yyyy-mm-dd hh24:mi:ss')) ");
-                } else {
-                    LOG.warn("暂不支持对数据库类型为“{}”的sql进行日期特殊处理！", dsType);
+            String segment = getDialect(jt).datetimeBetween(fieldName, startName, endName);
+            if (segment != null) {
+                for (StringBuilder sb : sbs) {
+                    sb.append(segment);
                 }
             }
             SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
@@ -125,57 +111,56 @@ public class JdbcQueryHelper {
     }
 
     public static String getLimitSql(NamedParameterJdbcTemplate jt, String listSql, int pageNum, int pageSize) {
-        String dbType = getDatabaseType(jt.getJdbcTemplate().getDataSource());
-        switch (dbType) {
-            case "oracle":
-                return getOracleLimitSQL(listSql, pageSize, pageNum * pageSize, null);
-            case "dm":
-                return getOracleLimitSQL(listSql, pageSize, pageNum * pageSize, null);
-            case "mysql":
-                return getMysqlLimitSQL(listSql, pageSize, pageNum * pageSize, null);
-            case "postgresql":
-                return getPgLimitSQL(listSql, pageSize, pageNum * pageSize, null);
-            default:
-                return "";
-        }
+        return getDialect(jt).limitSql(listSql, pageSize, (long) pageNum * pageSize);
     }
 
     public static String getLimitSql(NamedParameterJdbcTemplate jt, String listSql, long pageNum, long pageSize) {
-        String dbType = getDatabaseType(jt.getJdbcTemplate().getDataSource());
-        switch (dbType) {
-            case "oracle":
-                return getOracleLimitSQL(listSql, pageSize, pageNum * pageSize, null);
-            case "dm":
-                return getOracleLimitSQL(listSql, pageSize, pageNum * pageSize, null);
-            case "mysql":
-                return getMysqlLimitSQL(listSql, pageSize, pageNum * pageSize, null);
-            case "postgresql":
-                return getPgLimitSQL(listSql, pageSize, pageNum * pageSize, null);
-            default:
-                return "";
-        }
+        return getDialect(jt).limitSql(listSql, pageSize, pageNum * pageSize);
     }
 
+    /**
+     * 获取数据源对应的 SQL 方言，按数据源缓存，不会每次获取连接
+     */
+    public static SqlDialect getDialect(NamedParameterJdbcTemplate jt) {
+        return getDialect(jt.getJdbcTemplate().getDataSource());
+    }
+
+    public static SqlDialect getDialect(DataSource dataSource) {
+        return SqlDialect.of(getDatabaseType(dataSource));
+    }
+
+    /**
+     * 识别数据库类型，每个数据源只在首次调用时读取一次 DatabaseMetaData
+     */
     public static String getDatabaseType(DataSource dataSource) {
-        String driverName = "";
+        String cached = DATABASE_TYPES.get(dataSource);
+        if (cached != null) {
+            return cached;
+        }
+
+        String driverName;
         Connection con = DataSourceUtils.getConnection(dataSource);
         try {
             DatabaseMetaData dbmd = con.getMetaData();
             driverName = dbmd.getDriverName();
         } catch (SQLException e) {
-            e.printStackTrace();
+            // 识别失败不缓存，下次调用重新探测
+            LOG.error("识别数据库类型失败", e);
+            return "";
         } finally {
             DataSourceUtils.releaseConnection(con, dataSource);
         }
-        String result = "";
-        Pattern pattern = Pattern.compile(".*(db2|oracle|mysql|sql server|hive|teradata|gbase|vertica|postgresql|dm).*");
-        Matcher m = pattern.matcher(driverName.toLowerCase());
+        String result;
+        Matcher m = DRIVER_PATTERN.matcher(driverName.toLowerCase());
         if (m.matches()) {
             result = m.group(1);
         } else {
             result = driverName;
         }
-        return result.replace(" ", "");
+        result = result.replace(" ", "");
+        DATABASE_TYPES.put(dataSource, result);
+        LOG.info("数据源类型识别为: {}，方言: {}", result, SqlDialect.of(result));
+        return result;
     }
 
     public static String getOracleLimitSQL(String sql, int limit, int start, String orderColumn) {
@@ -262,6 +247,146 @@ public class JdbcQueryHelper {
         return new PageImpl(objListt, PageRequest.of(pageNum, pageSize), jt.queryForObject(countSql, params, Long.class));
     }
 
+    /**
+     * 游标分页 APPROXIMATE 模式的计数上限
+     */
+    public static final int APPROXIMATE_COUNT_LIMIT = 10000;
+
+    /**
+     * 游标分页未指定每页条数时的默认值
+     */
+    public static final int DEFAULT_KEYSET_PAGE_SIZE = 20;
+
+    /**
+     * 游标分页每页最大条数
+     */
+    public static final int MAX_KEYSET_PAGE_SIZE = 1000;
+
+    /**
+     * 游标（keyset）分页
+     * 以 (排序列, 唯一列) 作为定位条件代替 offset，首页之外只查询 pageSize + 1 条，总数仅在首页按 countMode 统计
+     *
+     * @param listSql    查询sql，须已包含 where 子句且不包含 order by
+     * @param countSql   统计sql，仅 EXACT 模式使用
+     * @param sortColumn 排序列（sql 表达式），列值不能为空
+     * @param sortLabel  排序列在结果集中的列名
+     * @param idColumn   唯一列（sql 表达式），排序值相同时用于确定顺序
+     * @param idLabel    唯一列在结果集中的列名
+     * @param desc       是否倒序
+     * @param cursor     上一页返回的 nextCursor，首页传空
+     * @param pageSize   每页大小，为空时取 DEFAULT_KEYSET_PAGE_SIZE，限制在 1 ~ MAX_KEYSET_PAGE_SIZE 之间
+     */
+    public static <T> KeysetPage<T> keysetPage(NamedParameterJdbcTemplate jt, String listSql, String countSql, Map<String, Object> params,
+                                               String sortColumn, String sortLabel, String idColumn, String idLabel, boolean desc,
+                                               String cursor, Integer pageSize, KeysetPage.CountMode countMode, RowMapper<T> rowMapper) {
+        int size = Math.max(1, Math.min(pageSize == null ? DEFAULT_KEYSET_PAGE_SIZE : pageSize, MAX_KEYSET_PAGE_SIZE));
+        SqlDialect dialect = getDialect(jt);
+        Map<String, Object> listParams = new HashMap<>(params);
+        StringBuilder sb = new StringBuilder(listSql);
+        boolean firstPage = StringUtils.isBlank(cursor);
+        if (!firstPage) {
+            Object[] key = decodeCursor(cursor);
+            String op = desc ? " < " : " > ";
+            sb.append(" and (").append(sortColumn).append(op).append(":ksSortKey or (")
+                    .append(sortColumn).append(" = :ksSortKey and ").append(idColumn).append(op).append(":ksId)) ");
+            listParams.put("ksSortKey", key[0]);
+            listParams.put("ksId", key[1]);
+        }
+        String direction = desc ? " desc" : " asc";
+        sb.append(" order by ").append(sortColumn).append(direction).append(", ").append(idColumn).append(direction);
+
+        // 多取一条用于判断是否有下一页
+        String limitSql = dialect.limitSql(sb.toString(), size + 1, 0);
+        if (StringUtils.isBlank(limitSql)) {
+            limitSql = sb.toString();
+        }
+        List<T> content = new ArrayList<>(size);
+        Object[] lastKey = new Object[2];
+        boolean hasNext = Boolean.TRUE.equals(jt.query(limitSql, listParams, rs -> {
+            while (rs.next()) {
+                if (content.size() == size) {
+                    return true;
+                }
+                content.add(rowMapper.mapRow(rs, content.size()));
+                lastKey[0] = rs.getObject(sortLabel);
+                lastKey[1] = rs.getString(idLabel);
+            }
+            return false;
+        }));
+
+        KeysetPage<T> page = new KeysetPage<>();
+        page.setContent(content);
+        page.setSize(size);
+        page.setHasNext(hasNext);
+        page.setNextCursor(hasNext ? encodeCursor(lastKey[0], (String) lastKey[1]) : null);
+        if (firstPage && countMode == KeysetPage.CountMode.EXACT) {
+            page.setTotal(jt.queryForObject(countSql, params, Long.class));
+            page.setTotalExact(true);
+        } else if (firstPage && countMode == KeysetPage.CountMode.APPROXIMATE) {
+            if (!hasNext) {
+                page.setTotal((long) content.size());
+                page.setTotalExact(true);
+            } else {
+                String cappedSql = dialect.limitSql(listSql, APPROXIMATE_COUNT_LIMIT + 1, 0);
+                if (StringUtils.isBlank(cappedSql)) {
+                    page.setTotal(jt.queryForObject(countSql, params, Long.class));
+                    page.setTotalExact(true);
+                } else {
+                    Long count = jt.queryForObject("select count(1) from (" + cappedSql + ") ks_count", params, Long.class);
+                    long total = count == null ? 0L : count;
+                    page.setTotal(Math.min(total, APPROXIMATE_COUNT_LIMIT));
+                    page.setTotalExact(total <= APPROXIMATE_COUNT_LIMIT);
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * 游标编码：类型标记:排序值 + 换行 + id，再做 url 安全的 base64
+     */
+    public static String encodeCursor(Object sortValue, String id) {
+        String value;
+        if (sortValue == null) {
+            throw new IllegalStateException("游标分页的排序列不能为空");
+        } else if (sortValue instanceof Timestamp) {
+            // 保留纳秒，避免精度截断导致同一毫秒内的数据被跳过
+            value = "T:" + ((Timestamp) sortValue).toInstant();
+        } else if (sortValue instanceof LocalDateTime) {
+            value = "L:" + sortValue;
+        } else if (sortValue instanceof Number) {
+            value = "N:" + sortValue;
+        } else {
+            value = "S:" + sortValue;
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((value + "\n" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 游标解码
+     *
+     * @return [排序值, id]
+     */
+    public static Object[] decodeCursor(String cursor) {
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = text.lastIndexOf('\n');
+            String value = text.substring(2, sep);
+            String id = text.substring(sep + 1);
+            Object sortValue = switch (text.substring(0, 2)) {
+                case "T:" -> Timestamp.from(Instant.parse(value));
+                case "L:" -> LocalDateTime.parse(value);
+                case "N:" -> new BigDecimal(value);
+                case "S:" -> value;
+                default -> throw new IllegalArgumentException(text);
+            };
+            return new Object[]{sortValue, id};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor, e);
+        }
+    }
+
     public static void order(String sortColumn, String sortType, StringBuilder sb) {
         if (StringUtils.isNotBlank(sortColumn)) {
             if (SQL_INJECTION_PATTERN.matcher(sortColumn.toLowerCase()).find()) {
@@ -0,0 +1,75 @@
+package com.ck.quiz.utils;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 游标（keyset）分页结果
+ * 不使用 offset 定位，按上一页最后一行的 排序键 + id 继续查询，深分页耗时与页码无关
+ */
+@Data
+public class KeysetPage<T> {
+
+    /**
+     * 本页数据
+     */
+    private List<T> content;
+
+    /**
+     * 每页大小
+     */
+    private int size;
+
+    /**
+     * 下一页游标，没有下一页时为 null
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有下一页
+     */
+    private boolean hasNext;
+
+    /**
+     * 总数，countMode 为 NONE 时为 null
+     */
+    private Long total;
+
+    /**
+     * total 是否为精确值，APPROXIMATE 模式下超过上限时为 false（total 即上限）
+     */
+    private boolean totalExact;
+
+    /**
+     * 总数统计方式
+     */
+    public enum CountMode {
+        /**
+         * 精确 count(*)
+         */
+        EXACT,
+        /**
+         * 最多统计到上限条数，超过上限时只返回上限
+         */
+        APPROXIMATE,
+        /**
+         * 不统计总数
+         */
+        NONE;
+
+        /**
+         * 解析请求参数，为空或无法识别时使用默认的 APPROXIMATE
+         */
+        public static CountMode of(String mode) {
+            if (mode != null) {
+                for (CountMode value : values()) {
+                    if (value.name().equalsIgnoreCase(mode.trim())) {
+                        return value;
+                    }
+                }
+            }
+            return APPROXIMATE;
+        }
+    }
+}
@@ -1,45 +1,318 @@
 package com.ck.quiz.utils;
 
+import com.ck.quiz.thpool.ExecutorRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * 作业日志广播
+ * <p>
+ * - 每个作业一个有界环形缓冲区（主题），写入方只做一次原子自增和数组写入，不加锁、不阻塞
+ * - 同一作业可有多个查看端，每个查看端独立维护读取游标；慢查看端被覆盖的日志直接跳过，
+ *   跳过的行数计入 quiz.log.push.dropped 指标，并以 dropped 事件告知查看端
+ * - 调度线程每 50ms 检查一次，有新日志的查看端在 sse 线程池中发送，单个慢连接不影响其他连接
+ * - 作业结束后发送完剩余日志再关闭连接；没有查看端且长时间无写入的主题自动清理
+ * - 日志行可附带文件偏移，作为 SSE 事件 id 发送；查看端可指定起始偏移，之前的行不再推送
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class LogPushService {
 
-    private final SseEmitterManager emitterManager;
+    private static final int BATCH_SIZE = 500;
 
-    private final Map<String, BlockingQueue<String>> logQueueMap = new ConcurrentHashMap<>();
+    @Autowired
+    private ExecutorRegistry executorRegistry;
 
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 每个作业缓冲的日志行数，向上取整为 2 的幂
+     */
+    @Value("${quiz.job.log.push.buffer-size:4096}")
+    private int bufferSize;
+
+    /**
+     * 没有查看端的主题保留时长
+     */
+    @Value("${quiz.job.log.push.idle-ttl-ms:60000}")
+    private long idleTtlMs;
+
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private Counter droppedCounter;
 
     @PostConstruct
     public void init() {
-        // 定时任务批量发送日志，每 50ms
-        scheduler.scheduleAtFixedRate(() -> {
-            for (String taskId : logQueueMap.keySet()) {
-                BlockingQueue<String> queue = logQueueMap.get(taskId);
-                List<String> batch = new ArrayList<>();
-                queue.drainTo(batch, 100);
+        droppedCounter = Counter.builder("quiz.log.push.dropped").register(meterRegistry);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "log-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::dispatch, 50, 50, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+        topics.values().forEach(topic -> topic.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        topics.clear();
+    }
+
+    /**
+     * 订阅作业日志，新查看端从缓冲区中保留的最早一行开始接收
+     *
+     * @param fromOffset 客户端已收到的文件偏移，偏移不超过该值的行不再推送；从头接收时为 0
+     */
+    public Subscriber subscribe(String taskId, SseEmitter emitter, long fromOffset) {
+        Topic topic = topics.computeIfAbsent(taskId, key -> new Topic(bufferSize));
+        Subscriber subscriber = new Subscriber(emitter, topic.oldest(), fromOffset);
+        topic.subscribers.add(subscriber);
+        topic.touch();
+        return subscriber;
+    }
+
+    public void unsubscribe(String taskId, Subscriber subscriber) {
+        Topic topic = topics.get(taskId);
+        if (topic != null) {
+            topic.subscribers.remove(subscriber);
+            topic.touch();
+        }
+    }
+
+    /**
+     * 是否有连接中的查看端
+     */
+    public boolean hasSubscribers(String taskId) {
+        Topic topic = topics.get(taskId);
+        return topic != null && !topic.subscribers.isEmpty();
+    }
+
+    /**
+     * 写入一行日志，没有查看端时直接丢弃
+     */
+    public void appendLog(String taskId, String log) {
+        appendLog(taskId, log, -1);
+    }
+
+    /**
+     * 写入一行日志及其结束位置的文件偏移
+     */
+    public void appendLog(String taskId, String log, long offset) {
+        Topic topic = topics.get(taskId);
+        if (topic != null && !topic.subscribers.isEmpty()) {
+            topic.publish(log, offset);
+        }
+    }
+
+    /**
+     * 最慢的查看端还能容纳的行数，供日志跟踪等可暂停的写入方控制读取速度
+     */
+    public int remainingCapacity(String taskId) {
+        Topic topic = topics.get(taskId);
+        return topic == null ? bufferSize : topic.remainingCapacity();
+    }
+
+    /**
+     * 作业日志结束，发送完剩余日志后关闭所有查看端
+     */
+    public void complete(String taskId) {
+        Topic topic = topics.get(taskId);
+        if (topic != null) {
+            topic.completed = true;
+        }
+    }
+
+    private void dispatch() {
+        long now = System.currentTimeMillis();
+        topics.forEach((taskId, topic) -> {
+            try {
+                if (topic.subscribers.isEmpty()) {
+                    if (topic.completed || now - topic.lastActivity > idleTtlMs) {
+                        topics.remove(taskId, topic);
+                    }
+                    return;
+                }
+                for (Subscriber subscriber : topic.subscribers) {
+                    if ((subscriber.cursor < topic.head.get() || topic.completed) && subscriber.sending.compareAndSet(false, true)) {
+                        try {
+                            executorRegistry.get(ExecutorRegistry.SSE).execute(() -> drain(taskId, topic, subscriber));
+                        } catch (RejectedExecutionException e) {
+                            // 发送线程池已满，下一轮再试
+                            subscriber.sending.set(false);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                log.error("日志推送异常 taskId={}：{}", taskId, e.getMessage());
+            }
+        });
+    }
+
+    private void drain(String taskId, Topic topic, Subscriber subscriber) {
+        try {
+            List<String> batch;
+            do {
+                long dropped = subscriber.dropped;
+                batch = topic.read(subscriber, BATCH_SIZE);
+                if (subscriber.dropped > dropped) {
+                    droppedCounter.increment(subscriber.dropped - dropped);
+                    subscriber.emitter.send(SseEmitter.event().name("dropped").data(subscriber.dropped));
+                }
                 if (!batch.isEmpty()) {
-                    emitterManager.send(taskId, batch);
+                    SseEmitter.SseEventBuilder event = SseEmitter.event().data(batch);
+                    if (subscriber.lastOffset >= 0) {
+                        event.id(String.valueOf(subscriber.lastOffset));
+                    }
+                    subscriber.emitter.send(event);
                 }
+            } while (batch.size() == BATCH_SIZE);
+            if (topic.completed && subscriber.cursor >= topic.head.get()) {
+                topic.subscribers.remove(subscriber);
+                subscriber.emitter.complete();
             }
-        }, 0, 50, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // 连接已断开
+            topic.subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.sending.set(false);
+        }
     }
 
-    public void appendLog(String taskId, String log) {
-        logQueueMap.computeIfAbsent(taskId, k -> new LinkedBlockingQueue<>(5000)).offer(log);
+    /**
+     * 查看端，游标仅由持有 sending 标记的发送线程修改
+     */
+    public static class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private volatile long cursor;
+
+        private volatile long dropped;
+
+        /**
+         * 偏移不超过该值的行客户端已收到
+         */
+        private final long fromOffset;
+
+        /**
+         * 最近发送的一行的文件偏移，未知时为 -1
+         */
+        private long lastOffset = -1;
+
+        private Subscriber(SseEmitter emitter, long cursor, long fromOffset) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+            this.fromOffset = fromOffset;
+        }
     }
 
-    public void complete(String taskId) {
-        emitterManager.complete(taskId);
-        logQueueMap.remove(taskId);
+    private record Entry(long seq, String line, long offset) {
+    }
+
+    /**
+     * 单个作业的环形缓冲区
+     */
+    private static class Topic {
+
+        private final AtomicReferenceArray<Entry> slots;
+
+        private final int capacity;
+
+        private final int mask;
+
+        /**
+         * 下一条日志的序号
+         */
+        private final AtomicLong head = new AtomicLong();
+
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+        private volatile boolean completed;
+
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        private Topic(int bufferSize) {
+            int size = Integer.highestOneBit(Math.max(16, bufferSize) - 1) << 1;
+            this.slots = new AtomicReferenceArray<>(size);
+            this.capacity = size;
+            this.mask = size - 1;
+        }
+
+        private void touch() {
+            lastActivity = System.currentTimeMillis();
+        }
+
+        private void publish(String line, long offset) {
+            long seq = head.getAndIncrement();
+            slots.set((int) (seq & mask), new Entry(seq, line, offset));
+            lastActivity = System.currentTimeMillis();
+        }
+
+        private long oldest() {
+            return Math.max(0, head.get() - capacity);
+        }
+
+        private int remainingCapacity() {
+            long h = head.get();
+            long min = h;
+            for (Subscriber subscriber : subscribers) {
+                min = Math.min(min, subscriber.cursor);
+            }
+            return (int) Math.max(0, capacity - (h - min));
+        }
+
+        /**
+         * 读取查看端游标之后的日志，游标落后超过缓冲区容量时跳到最早可读的位置
+         */
+        private List<String> read(Subscriber subscriber, int max) {
+            long h = head.get();
+            long cursor = subscriber.cursor;
+            long skipped = 0;
+            if (h - cursor > capacity) {
+                skipped = h - capacity - cursor;
+                cursor = h - capacity;
+            }
+            List<String> lines = new ArrayList<>(Math.min(max, (int) Math.max(0, h - cursor)));
+            while (cursor < h && lines.size() < max) {
+                Entry entry = slots.get((int) (cursor & mask));
+                if (entry == null || entry.seq() < cursor) {
+                    // 序号已分配但尚未写入
+                    break;
+                }
+                if (entry.seq() > cursor) {
+                    // 读取期间被写入方覆盖
+                    skipped++;
+                } else if (entry.offset() < 0 || entry.offset() > subscriber.fromOffset) {
+                    lines.add(entry.line());
+                    subscriber.lastOffset = entry.offset();
+                }
+                cursor++;
+            }
+            subscriber.cursor = cursor;
+            subscriber.dropped += skipped;
+            return lines;
+        }
     }
 }
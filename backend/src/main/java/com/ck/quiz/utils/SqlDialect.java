@@ -0,0 +1,252 @@
+package com.ck.quiz.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * SQL 方言
+ * 由 JdbcQueryHelper 按数据源解析一次并缓存，分页、模糊查询转义、日期区间等拼接逻辑统一由方言提供，
+ * 查询热点路径上不再获取连接读取元数据。
+ */
+public enum SqlDialect {
+
+    MYSQL("mysql") {
+        @Override
+        public String limitSql(String sql, long limit, long offset) {
+            return JdbcQueryHelper.getMysqlLimitSQL(sql, limit, offset, null);
+        }
+
+        @Override
+        public String forUpdateSkipLocked() {
+            return " for update skip locked";
+        }
+
+        @Override
+        public String escapeLikeValue(String param) {
+            return param.replaceAll("\\/", "//").replaceAll("\\%", "/%").replaceAll("_", "/_").replaceAll("\\\\", "/\\\\");
+        }
+
+        @Override
+        public String appendLikeEscape(String name, String sqlSegment) {
+            return sqlSegment.replaceAll(name, name + " escape '\\/'");
+        }
+
+        /**
+         * values() 引用待插入值自 8.0.20 起废弃，使用行别名（8.0.19+）
+         */
+        @Override
+        public String upsertSql(String table, String keyColumn, Map<String, String> columns, Set<String> accumulate) {
+            return insertSql(table, columns) + " as new on duplicate key update "
+                    + assignments(keyColumn, columns, accumulate, "", "new.");
+        }
+
+        /**
+         * Connector/J 未开启 useCursorFetch 时忽略普通的 fetchSize，Integer.MIN_VALUE 表示逐行流式读取，
+         * 结果集关闭前该连接不能执行其他语句
+         */
+        @Override
+        public int streamingFetchSize(int fetchSize) {
+            return Integer.MIN_VALUE;
+        }
+    },
+
+    POSTGRESQL("postgresql") {
+        @Override
+        public String limitSql(String sql, long limit, long offset) {
+            return JdbcQueryHelper.getPgLimitSQL(sql, limit, offset, null);
+        }
+
+        @Override
+        public String forUpdateSkipLocked() {
+            return " for update skip locked";
+        }
+
+        @Override
+        public String upsertSql(String table, String keyColumn, Map<String, String> columns, Set<String> accumulate) {
+            return insertSql(table, columns) + " on conflict (" + keyColumn + ") do update set "
+                    + assignments(keyColumn, columns, accumulate, table + ".", "excluded.");
+        }
+    },
+
+    ORACLE("oracle") {
+        @Override
+        public String limitSql(String sql, long limit, long offset) {
+            return JdbcQueryHelper.getOracleLimitSQL(sql, limit, offset, null);
+        }
+
+        @Override
+        public String forUpdateSkipLocked() {
+            return " for update skip locked";
+        }
+
+        @Override
+        public String escapeLikeValue(String param) {
+            return param.replaceAll("\\\\", "\\\\\\\\").replaceAll("\\%", "\\\\%").replaceAll("_", "\\\\_");
+        }
+
+        @Override
+        public String appendLikeEscape(String name, String sqlSegment) {
+            return sqlSegment.replaceAll(name, name + " escape chr(92 USING NCHAR_CS)");
+        }
+
+        @Override
+        public String datetimeBetween(String fieldName, String startName, String endName) {
+            return toDateBetween(fieldName, startName, endName);
+        }
+    },
+
+    DM("dm") {
+        @Override
+        public String limitSql(String sql, long limit, long offset) {
+            return JdbcQueryHelper.getOracleLimitSQL(sql, limit, offset, null);
+        }
+
+        @Override
+        public String datetimeBetween(String fieldName, String startName, String endName) {
+            return toDateBetween(fieldName, startName, endName);
+        }
+    },
+
+    /**
+     * H2（本地开发/测试），行锁不支持跳过，退化为普通 for update
+     */
+    H2("h2") {
+        @Override
+        public String limitSql(String sql, long limit, long offset) {
+            return JdbcQueryHelper.getPgLimitSQL(sql, limit, offset, null);
+        }
+    },
+
+    /**
+     * 未识别的数据库：不分页、不转义、不拼接日期条件（与原有行为一致）
+     */
+    OTHER("") {
+        @Override
+        public String limitSql(String sql, long limit, long offset) {
+            return "";
+        }
+
+        @Override
+        public String datetimeBetween(String fieldName, String startName, String endName) {
+            LOG.warn("暂不支持对数据库类型为“{}”的sql进行日期特殊处理！", getType());
+            return null;
+        }
+    };
+
+    private static final Logger LOG = LoggerFactory.getLogger(SqlDialect.class);
+
+    private final String type;
+
+    SqlDialect(String type) {
+        this.type = type;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * 根据 JdbcQueryHelper.getDatabaseType 的结果获取方言
+     */
+    public static SqlDialect of(String databaseType) {
+        for (SqlDialect dialect : values()) {
+            if (dialect != OTHER && dialect.type.equalsIgnoreCase(databaseType)) {
+                return dialect;
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * 分页 SQL
+     *
+     * @param limit  每页条数
+     * @param offset 起始行（从 0 开始）
+     */
+    public abstract String limitSql(String sql, long limit, long offset);
+
+    /**
+     * 转义模糊查询参数中的通配符，不支持的数据库原样返回
+     */
+    public String escapeLikeValue(String param) {
+        LOG.warn("暂不支持对数据库类型为“{}”的模糊查询sql进行特殊字符处理！", type);
+        return param;
+    }
+
+    /**
+     * 为模糊查询条件追加 escape 子句，不支持的数据库原样返回
+     */
+    public String appendLikeEscape(String name, String sqlSegment) {
+        return sqlSegment;
+    }
+
+    /**
+     * 日期区间条件，参数以 yyyy-MM-dd HH:mm:ss 字符串传入
+     *
+     * @return 条件片段，不支持的数据库返回 null
+     */
+    public String datetimeBetween(String fieldName, String startName, String endName) {
+        return "and " + fieldName + " between :" + startName + " and :" + endName + " ";
+    }
+
+    /**
+     * 行锁子句：支持的数据库跳过已被其他事务锁定的行（多节点抢占任务），否则退化为普通 for update
+     */
+    public String forUpdateSkipLocked() {
+        return " for update";
+    }
+
+    /**
+     * 游标读取大结果集时 Statement 使用的 fetchSize。
+     * PostgreSQL 需在事务内（关闭自动提交）才按 fetchSize 分批读取
+     */
+    public int streamingFetchSize(int fetchSize) {
+        return fetchSize;
+    }
+
+    /**
+     * 按主键插入一行，主键已存在时更新：accumulate 中的列在原值上累加待插入的值，其余列覆盖为待插入的值。
+     * 默认使用标准 MERGE 语句（Oracle、达梦、H2）
+     *
+     * @param columns 列名 -> 参数名，按插入顺序
+     */
+    public String upsertSql(String table, String keyColumn, Map<String, String> columns, Set<String> accumulate) {
+        String source = columns.entrySet().stream()
+                .map(column -> ":" + column.getValue() + " " + column.getKey())
+                .collect(Collectors.joining(", ", "select ", " from dual"));
+        return "merge into " + table + " t using (" + source + ") s on (t." + keyColumn + " = s." + keyColumn + ")"
+                + " when matched then update set " + assignments(keyColumn, columns, accumulate, "t.", "s.")
+                + " when not matched then insert (" + String.join(", ", columns.keySet()) + ")"
+                + columns.keySet().stream().map(column -> "s." + column).collect(Collectors.joining(", ", " values (", ")"));
+    }
+
+    private static String insertSql(String table, Map<String, String> columns) {
+        return "insert into " + table + " (" + String.join(", ", columns.keySet()) + ")"
+                + columns.values().stream().map(param -> ":" + param).collect(Collectors.joining(", ", " values (", ")"));
+    }
+
+    /**
+     * 主键以外各列的更新表达式
+     *
+     * @param target 引用原值的前缀
+     * @param source 引用待插入值的前缀
+     */
+    private static String assignments(String keyColumn, Map<String, String> columns, Set<String> accumulate,
+                                      String target, String source) {
+        return columns.keySet().stream()
+                .filter(column -> !column.equals(keyColumn))
+                .map(column -> accumulate.contains(column)
+                        ? column + " = " + target + column + " + " + source + column
+                        : column + " = " + source + column)
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String toDateBetween(String fieldName, String startName, String endName) {
+        return "and (" + fieldName + " > to_date(:" + startName + ",'yyyy-mm-dd hh24:mi:ss') and " + fieldName
+                + "<to_date(:" + endName + ",'yyyy-mm-dd hh24:mi:ss')) ";
+    }
+}
@@ -1,42 +1,32 @@
 package com.ck.quiz.utils;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
+/**
+ * SSE 连接管理：创建连接并订阅作业日志，连接结束、超时或出错时取消订阅。
+ * 同一作业可同时有多个连接，互不挤占。
+ */
 @Component
 public class SseEmitterManager {
 
-    private final Map<String, SseEmitter> emitterMap = new ConcurrentHashMap<>();
+    @Autowired
+    private LogPushService logPushService;
 
     public SseEmitter create(String taskId) {
-        SseEmitter emitter = new SseEmitter(0L); // 永不超时
-        emitter.onCompletion(() -> emitterMap.remove(taskId));
-        emitter.onTimeout(() -> emitterMap.remove(taskId));
-        emitter.onError((e) -> emitterMap.remove(taskId));
-
-        emitterMap.put(taskId, emitter);
-        return emitter;
+        return create(taskId, 0);
     }
 
-    public void send(String taskId, List<String> msgs) {
-        SseEmitter emitter = emitterMap.get(taskId);
-        if (emitter != null) {
-            try {
-                emitter.send(SseEmitter.event().data(msgs));
-            } catch (Exception e) {
-                emitterMap.remove(taskId);
-            }
-        }
-    }
-
-    public void complete(String taskId) {
-        SseEmitter emitter = emitterMap.remove(taskId);
-        if (emitter != null) {
-            emitter.complete();
-        }
+    /**
+     * @param fromOffset 客户端已收到的日志偏移，之前的行不再推送
+     */
+    public SseEmitter create(String taskId, long fromOffset) {
+        SseEmitter emitter = new SseEmitter(0L); // 永不超时
+        LogPushService.Subscriber subscriber = logPushService.subscribe(taskId, emitter, fromOffset);
+        emitter.onCompletion(() -> logPushService.unsubscribe(taskId, subscriber));
+        emitter.onTimeout(() -> logPushService.unsubscribe(taskId, subscriber));
+        emitter.onError((e) -> logPushService.unsubscribe(taskId, subscriber));
+        return emitter;
     }
 }
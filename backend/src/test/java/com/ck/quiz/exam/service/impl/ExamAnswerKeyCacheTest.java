@@ -0,0 +1,105 @@
+package com.ck.quiz.exam.service.impl;
+
+import com.ck.quiz.question.entity.Question;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 预编译答案键的判分结果须与原有逐题判分（拆分标准答案 + 字符串/集合比较）完全一致
+ */
+class ExamAnswerKeyCacheTest {
+
+    private static final String[] ANSWERS = {
+            null, "", " ", "A", "b", " C ", "A,B", "a, b", "B,A,C", "A,,B", "A,B,", "AB", "A,10",
+            "北京", "  Hello World ", "x,y,z", "ſ", "K", "1", "true"
+    };
+
+    private static final String[] USER_VALUES = {
+            "", " ", "A", "a", " a ", "B", "b", "C", "AB", "10", "北京", "hello world", "Hello World",
+            "x", "y", "z", "S", "s", "ſ", "K", "K", "1", "TRUE"
+    };
+
+    @Test
+    void matchesLegacyGradingForFixedCases() {
+        assertSame(Question.QuestionType.SINGLE, "A", List.of("a"));
+        assertSame(Question.QuestionType.SINGLE, "A", List.of());
+        assertSame(Question.QuestionType.SINGLE, "S", List.of("ſ"));
+        assertSame(Question.QuestionType.MULTIPLE, "A,B", List.of("b", "a"));
+        assertSame(Question.QuestionType.MULTIPLE, "A,B", List.of("A", "A", "B"));
+        assertSame(Question.QuestionType.MULTIPLE, "A,B", List.of("A", ""));
+        assertSame(Question.QuestionType.MULTIPLE, "", List.of());
+        assertSame(Question.QuestionType.BLANK, "x,y", List.of(" x", "y "));
+        assertSame(Question.QuestionType.BLANK, "x,y", List.of("x"));
+        assertSame(Question.QuestionType.SHORT_ANSWER, "Hello World", List.of(" hello world "));
+    }
+
+    @Test
+    void matchesLegacyGradingForRandomAnswers() {
+        Random random = new Random(20240601L);
+        List<Question.QuestionType> types = new ArrayList<>(Arrays.asList(Question.QuestionType.values()));
+        types.add(null);
+        for (int i = 0; i < 50_000; i++) {
+            Question.QuestionType type = types.get(random.nextInt(types.size()));
+            String answer = ANSWERS[random.nextInt(ANSWERS.length)];
+            List<String> user = new ArrayList<>();
+            int size = random.nextInt(4);
+            for (int j = 0; j < size; j++) {
+                user.add(USER_VALUES[random.nextInt(USER_VALUES.length)]);
+            }
+            assertSame(type, answer, user);
+        }
+    }
+
+    @Test
+    void nullTypeIsGradedWrongWithoutFailing() {
+        ExamAnswerKeyCache.Item item = ExamAnswerKeyCache.Item.compile("q1", 5, null, "A");
+        assertFalse(item.isCorrect(List.of("A")));
+    }
+
+    private static void assertSame(Question.QuestionType type, String answer, List<String> user) {
+        ExamAnswerKeyCache.Item item = ExamAnswerKeyCache.Item.compile("q", 1, type, answer);
+        assertEquals(legacyIsCorrect(type, legacyStandard(answer), user), item.isCorrect(user),
+                () -> "type=" + type + ", answer=" + answer + ", user=" + user);
+    }
+
+    /**
+     * 原 submitExam 中的标准答案拆分
+     */
+    private static List<String> legacyStandard(String answer) {
+        List<String> std = new ArrayList<>();
+        if (StringUtils.hasText(answer)) {
+            std = Arrays.asList(answer.split(","));
+        }
+        return std;
+    }
+
+    /**
+     * 原 ExamServiceImpl.isCorrect
+     */
+    private static boolean legacyIsCorrect(Question.QuestionType type, List<String> std, List<String> user) {
+        if (type == Question.QuestionType.SINGLE || type == Question.QuestionType.SHORT_ANSWER) {
+            String s = std.isEmpty() ? "" : std.get(0);
+            String u = user.isEmpty() ? "" : user.get(0);
+            return s.trim().equalsIgnoreCase(u.trim());
+        }
+        if (type == Question.QuestionType.MULTIPLE) {
+            Set<String> s1 = std.stream().map(v -> v.trim().toUpperCase()).collect(Collectors.toSet());
+            Set<String> s2 = user.stream().map(v -> v.trim().toUpperCase()).collect(Collectors.toSet());
+            return s1.equals(s2);
+        }
+        if (type == Question.QuestionType.BLANK) {
+            if (std.size() != user.size()) return false;
+            for (int i = 0; i < std.size(); i++) {
+                if (!std.get(i).trim().equals(user.get(i).trim())) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+}
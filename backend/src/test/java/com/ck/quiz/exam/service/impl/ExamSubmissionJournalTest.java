@@ -0,0 +1,124 @@
+package com.ck.quiz.exam.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 交卷日志：崩溃残留的末行不读取、提交进度后重启不重复读取、未提交的记录重启后重新回放
+ */
+class ExamSubmissionJournalTest {
+
+    private static final long SEGMENT_BYTES = 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tornTailIsNotRead() throws IOException {
+        try (ExamSubmissionJournal journal = open(true)) {
+            journal.append("r1");
+            journal.append("r2");
+        }
+        // 模拟崩溃：最后一条记录只写了一半，没有换行符
+        List<Path> segments = segments();
+        Files.writeString(segments.get(segments.size() - 1), "{\"resultId\":\"r3", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        try (ExamSubmissionJournal journal = open(true)) {
+            List<ExamSubmissionJournal.Entry> entries = journal.read(10);
+            assertEquals(List.of("r1", "r2"), records(entries));
+            journal.append("r4");
+            assertEquals(List.of("r4"), records(journal.read(10)));
+        }
+    }
+
+    @Test
+    void committedRecordsAreNotReadAfterRestart() throws IOException {
+        try (ExamSubmissionJournal journal = open(true)) {
+            journal.append("r1");
+            journal.append("r2");
+            journal.append("r3");
+            List<ExamSubmissionJournal.Entry> entries = journal.read(2);
+            assertEquals(List.of("r1", "r2"), records(entries));
+            journal.commit(entries.get(entries.size() - 1));
+        }
+
+        try (ExamSubmissionJournal journal = open(true)) {
+            List<ExamSubmissionJournal.Entry> entries = journal.read(10);
+            assertEquals(List.of("r3"), records(entries));
+            journal.commit(entries.get(entries.size() - 1));
+        }
+
+        try (ExamSubmissionJournal journal = open(false)) {
+            assertTrue(journal.read(10).isEmpty());
+        }
+    }
+
+    @Test
+    void uncommittedRecordsAreReplayedAfterRestart() throws IOException {
+        try (ExamSubmissionJournal journal = open(true)) {
+            journal.append("r1");
+            journal.append("r2");
+            // 已读取但未提交进度（入库过程中崩溃）
+            assertEquals(List.of("r1", "r2"), records(journal.read(10)));
+        }
+
+        try (ExamSubmissionJournal journal = open(false)) {
+            assertTrue(journal.hasPending());
+            List<ExamSubmissionJournal.Entry> entries = journal.read(10);
+            assertEquals(List.of("r1", "r2"), records(entries));
+            journal.commit(entries.get(entries.size() - 1));
+        }
+
+        // 回放提交后再次重启，不再重复回放
+        try (ExamSubmissionJournal journal = open(false)) {
+            assertTrue(journal.read(10).isEmpty());
+        }
+    }
+
+    @Test
+    void rolledSegmentsAreReadInOrderAndDeletedAfterCommit() throws IOException {
+        String big = "x".repeat(300 * 1024);
+        try (ExamSubmissionJournal journal = open(true)) {
+            for (int i = 0; i < 5; i++) {
+                journal.append(i + big);
+            }
+            assertTrue(segments().size() > 1);
+
+            List<ExamSubmissionJournal.Entry> entries = journal.read(10);
+            assertEquals(5, entries.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(i + big, entries.get(i).record());
+            }
+            journal.commit(entries.get(entries.size() - 1));
+            assertEquals(1, segments().size());
+        }
+    }
+
+    private ExamSubmissionJournal open(boolean writable) throws IOException {
+        ExamSubmissionJournal journal = new ExamSubmissionJournal(dir, SEGMENT_BYTES);
+        journal.open(writable);
+        return journal;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("submit-")).sorted().toList();
+        }
+    }
+
+    private static List<String> records(List<ExamSubmissionJournal.Entry> entries) {
+        return entries.stream().map(ExamSubmissionJournal.Entry::record).toList();
+    }
+}
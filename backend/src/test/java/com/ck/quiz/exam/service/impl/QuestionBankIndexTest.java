@@ -0,0 +1,108 @@
+package com.ck.quiz.exam.service.impl;
+
+import com.ck.quiz.exam.dto.ExamGenerateStratumDto;
+import com.ck.quiz.question.entity.Question;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 题型为空或无法识别、难度未评级的题目不影响组卷，且只参与不限题型/难度的分层
+ */
+class QuestionBankIndexTest {
+
+    private static final String SUBJECT_ID = "s1";
+
+    private final List<Object[]> rows = new ArrayList<>();
+
+    private QuestionBankIndex index;
+
+    @BeforeEach
+    void setUp() {
+        NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (Object[] row : rows) {
+                handler.processRow(resultSet(row));
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), anyMap(), any(RowCallbackHandler.class));
+
+        index = new QuestionBankIndex();
+        ReflectionTestUtils.setField(index, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(index, "cacheSize", 4);
+        ReflectionTestUtils.setField(index, "ttlMs", 60_000L);
+        index.init();
+    }
+
+    @Test
+    void nullAndUnknownTypesOnlyMatchStrataWithoutType() {
+        row("q1", "SINGLE", 3);
+        row("q2", null, 3);
+        row("q3", "ESSAY", 3);
+        row("q4", "MULTIPLE", 3);
+
+        assertEquals(List.of(List.of("q1")), index.sample(SUBJECT_ID, List.of(stratum(Question.QuestionType.SINGLE, null, 1))));
+        assertThrows(RuntimeException.class,
+                () -> index.sample(SUBJECT_ID, List.of(stratum(Question.QuestionType.SINGLE, null, 2))));
+
+        List<List<String>> all = index.sample(SUBJECT_ID, List.of(stratum(null, null, 4)));
+        assertEquals(Set.of("q1", "q2", "q3", "q4"), new HashSet<>(all.get(0)));
+    }
+
+    @Test
+    void unratedQuestionsOnlyMatchStrataWithoutDifficulty() {
+        row("q1", "SINGLE", 1);
+        row("q2", "SINGLE", null);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(List.of(List.of("q1")), index.sample(SUBJECT_ID, List.of(stratum(Question.QuestionType.SINGLE, 1, 1))));
+        }
+        assertThrows(RuntimeException.class,
+                () -> index.sample(SUBJECT_ID, List.of(stratum(Question.QuestionType.SINGLE, 1, 2))));
+
+        List<List<String>> all = index.sample(SUBJECT_ID, List.of(stratum(Question.QuestionType.SINGLE, null, 2)));
+        assertEquals(Set.of("q1", "q2"), new HashSet<>(all.get(0)));
+    }
+
+    private void row(String questionId, String type, Integer difficulty) {
+        rows.add(new Object[]{questionId, type, difficulty, "k-" + questionId});
+    }
+
+    private static ExamGenerateStratumDto stratum(Question.QuestionType type, Integer difficulty, int count) {
+        ExamGenerateStratumDto stratum = new ExamGenerateStratumDto();
+        stratum.setType(type);
+        stratum.setDifficulty(difficulty);
+        stratum.setCount(count);
+        return stratum;
+    }
+
+    private static ResultSet resultSet(Object[] row) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        Integer difficulty = (Integer) row[2];
+        when(rs.getString("question_id")).thenReturn((String) row[0]);
+        when(rs.getString("type")).thenReturn((String) row[1]);
+        when(rs.getInt("difficulty_level")).thenReturn(difficulty == null ? 0 : difficulty);
+        when(rs.wasNull()).thenReturn(difficulty == null);
+        when(rs.getString("knowledge_id")).thenReturn((String) row[3]);
+        return rs;
+    }
+}
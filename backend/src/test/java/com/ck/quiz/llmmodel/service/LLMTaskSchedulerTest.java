@@ -0,0 +1,103 @@
+package com.ck.quiz.llmmodel.service;
+
+import com.ck.quiz.llmmodel.dto.LLMTaskProgressDto;
+import com.ck.quiz.thpool.ExecutorRegistry;
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 只有限流、服务端错误及网络异常重试，模型响应解析失败只执行一次
+ */
+class LLMTaskSchedulerTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private ExecutorService executor;
+
+    private LLMTaskScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        ExecutorRegistry registry = mock(ExecutorRegistry.class);
+        when(registry.get(ExecutorRegistry.LLM)).thenReturn(executor);
+        when(registry.maxConcurrency(ExecutorRegistry.LLM)).thenReturn(2);
+
+        scheduler = new LLMTaskScheduler();
+        ReflectionTestUtils.setField(scheduler, "executorRegistry", registry);
+        ReflectionTestUtils.setField(scheduler, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(scheduler, "backoffBaseMs", 2L);
+        ReflectionTestUtils.setField(scheduler, "backoffMaxMs", 4L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void parseFailureIsNotRetried() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        LLMTaskProgressDto progress = run(key -> {
+            calls.incrementAndGet();
+            throw new RuntimeException("模型返回内容解析失败", new JsonParseException(null, "Unexpected character"));
+        });
+
+        assertEquals(1, calls.get());
+        assertEquals(1, progress.getFailed());
+        assertEquals(0, progress.getRetries());
+    }
+
+    @Test
+    void transportFailureIsRetried() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        LLMTaskProgressDto progress = run(key -> {
+            calls.incrementAndGet();
+            throw new RuntimeException(new ConnectException("Connection refused"));
+        });
+
+        assertEquals(MAX_ATTEMPTS, calls.get());
+        assertEquals(1, progress.getFailed());
+        assertEquals(MAX_ATTEMPTS - 1, progress.getRetries());
+    }
+
+    @Test
+    void retryableErrors() {
+        assertTrue(LLMTaskScheduler.isRetryable(new SocketTimeoutException("Read timed out")));
+        assertTrue(LLMTaskScheduler.isRetryable(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)));
+        assertTrue(LLMTaskScheduler.isRetryable(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)));
+        assertFalse(LLMTaskScheduler.isRetryable(new HttpClientErrorException(HttpStatus.UNAUTHORIZED)));
+        assertFalse(LLMTaskScheduler.isRetryable(new JsonParseException(null, "Unexpected end-of-input")));
+        assertFalse(LLMTaskScheduler.isRetryable(new IllegalArgumentException("功能点不存在")));
+    }
+
+    private LLMTaskProgressDto run(Consumer<String> action) throws InterruptedException {
+        String batchId = scheduler.submitBatch("test", List.of("k1"), action);
+        for (int i = 0; i < 500 && !scheduler.getProgress(batchId).isFinished(); i++) {
+            Thread.sleep(10);
+        }
+        LLMTaskProgressDto progress = scheduler.getProgress(batchId);
+        assertTrue(progress.isFinished());
+        return progress;
+    }
+}
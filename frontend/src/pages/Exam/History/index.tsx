@@ -36,7 +36,6 @@ function ExamHistoryManager() {
     const [showDetailPage, setShowDetailPage] = useState(false);
     const [currentResultId, setCurrentResultId] = useState<string | null>(null);
     const [deleteModalVisible, setDeleteModalVisible] = useState(false);
-    const [hasCheckedLastResult, setHasCheckedLastResult] = useState(false);
 
     // 分页配置
     const [pagination, setPagination] = useState({
@@ -262,22 +261,6 @@ function ExamHistoryManager() {
         }
     };
 
-    // 检查是否有最近提交的考试结果需要自动打开详情
-    useEffect(() => {
-        // 只检查一次，避免页面刷新时重复打开
-        if (!hasCheckedLastResult) {
-            const lastSubmittedResultId = sessionStorage.getItem('lastSubmittedResultId');
-            if (lastSubmittedResultId) {
-                // 跳转到详情页
-                navigate(`/quiz/frame/history/result/${lastSubmittedResultId}`);
-                // 清除sessionStorage中的记录，避免下次进入时再次自动打开
-                sessionStorage.removeItem('lastSubmittedResultId');
-            }
-            setHasCheckedLastResult(true);
-        }
-    }, [hasCheckedLastResult]);
-
-
     // 筛选表单配置已移除，直接在Form组件中定义
 
     useEffect(() => {
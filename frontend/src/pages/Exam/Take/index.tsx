@@ -71,6 +71,7 @@ const ExamTakePage: React.FC = () => {
     const timerRef = React.useRef<number | null>(null);
     const warnedRef = React.useRef<boolean>(false);
     const autoSubmittedRef = React.useRef<boolean>(false);
+    const [result, setResult] = useState<ExamResultDto | null>(null);
 
     useEffect(() => {
         const fetchExam = async () => {
@@ -213,10 +214,12 @@ const ExamTakePage: React.FC = () => {
             const resp = await submitExam(id, submitBody);
             const result: ExamResultDto = resp.data;
             Message.success(`提交成功，得分：${result.totalScore}`);
-            // 保存resultId到sessionStorage，以便历史记录页面自动打开详情
-            sessionStorage.setItem('lastSubmittedResultId', result.resultId);
-            // 跳转到历史记录页
-            navigate(`/quiz/frame/history`);
+            // 直接展示接口返回的判分结果：异步写入模式下答卷入库有延迟，此时查询答卷详情可能尚不存在
+            setResult(result);
+            if (timerRef.current) {
+                clearInterval(timerRef.current);
+                timerRef.current = null;
+            }
         } catch (e) {
             Message.error('提交考试失败');
         } finally {
@@ -475,6 +478,36 @@ const ExamTakePage: React.FC = () => {
                     </>
                 )}
             </Content>
+            <Modal
+                title='考试结果'
+                visible={!!result}
+                closable={false}
+                maskClosable={false}
+                footer={
+                    <Space>
+                        <Button onClick={() => navigate('/quiz/frame/exam')}>返回试卷列表</Button>
+                        <Button type='primary' onClick={() => navigate('/quiz/frame/history')}>查看历史记录</Button>
+                    </Space>
+                }
+            >
+                <Space style={{marginBottom: 16}}>
+                    <Tag color='blue' bordered>得分：{result?.totalScore} / {exam?.totalScore}</Tag>
+                    <Tag color='green' bordered>答对：{result?.correctCount} / {exam?.questions?.length || 0}</Tag>
+                </Space>
+                <div style={{display: 'grid', gridTemplateColumns: 'repeat(10, 1fr)', gap: '4px'}}>
+                    {(exam?.questions || []).map((eq, idx) => {
+                        const answer = (result?.answers || []).find(a => String(a.examQuestionId) === String(eq.id));
+                        return (
+                            <Tooltip key={String(eq.id)}
+                                     content={`第${idx + 1}题：${answer?.correct ? '正确' : '错误'}，得分 ${answer?.gainScore ?? 0}`}>
+                                <Tag color={answer?.correct ? 'green' : 'red'} style={{textAlign: 'center'}}>
+                                    {idx + 1}
+                                </Tag>
+                            </Tooltip>
+                        );
+                    })}
+                </div>
+            </Modal>
         </Layout>
     );
 };
@@ -93,6 +93,7 @@ const {Row, Col} = Grid;
         {label: '草稿', value: ExamStatus.DRAFT},
         {label: '已发布', value: ExamStatus.PUBLISHED},
         {label: '已归档', value: ExamStatus.ARCHIVED},
+        {label: '删除中', value: ExamStatus.DELETING},
     ];
 
     // 表格列配置
@@ -2,7 +2,9 @@
 export enum ExamStatus {
   DRAFT = 'DRAFT',
   PUBLISHED = 'PUBLISHED',
-  ARCHIVED = 'ARCHIVED'
+  ARCHIVED = 'ARCHIVED',
+  DELETING = 'DELETING',
+  DELETED = 'DELETED'
 }
 
 // 试卷题目DTO
@@ -183,6 +185,7 @@ export interface ExamResultAnswerDto {
   examQuestionId: string;
   correct: boolean;
   score: number;
+  gainScore?: number;
   userAnswers: string[];
   standardAnswers?: string[];
 }
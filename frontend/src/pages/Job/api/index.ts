@@ -35,9 +35,10 @@ export const getLogs = (jobId: string, params) => axios.get(`${base}/api/cron/jo
 // 导出作业日志
 export const exportLogs = (jobId: string) => axios.post(`${base}/api/cron/job/download/logs/${jobId}`, {}, { responseType: 'blob' });
 
-// 实时获取作业日志（SSE）
-export const streamLogs = (jobId: string) => {
-  const url = `${base}/api/cron/job/logs/stream/${jobId}`;
+// 实时获取作业日志（SSE），offset 为已收到的最后一个事件 id，重连时从该位置继续
+export const streamLogs = (jobId: string, offset?: string) => {
+  const query = offset ? `?offset=${encodeURIComponent(offset)}` : '';
+  const url = `${base}/api/cron/job/logs/stream/${jobId}${query}`;
   return new EventSource(url);
 };
 
@@ -12,6 +12,8 @@ const LogDetails = (props: LogDetailsProps) => {
   const { jobId } = props;
   const [value, setValue] = useState(''); // 初始内容
   const eventSourceRef = useRef<EventSource | null>(null);
+  // 已收到的最后一个事件 id（日志文件偏移），重连时不重复接收
+  const lastEventIdRef = useRef<string>('');
   const editorContainerRef = useRef<HTMLDivElement | null>(null);
 
   // 建立SSE连接
@@ -23,11 +25,14 @@ const LogDetails = (props: LogDetailsProps) => {
     }
 
     // 建立新的SSE连接
-    const eventSource = streamLogs(jobId);
+    const eventSource = streamLogs(jobId, lastEventIdRef.current);
     eventSourceRef.current = eventSource;
 
     // 监听SSE事件
     eventSource.onmessage = (event) => {
+      if (event.lastEventId) {
+        lastEventIdRef.current = event.lastEventId;
+      }
       try {
         const logs = JSON.parse(event.data);
         if (Array.isArray(logs)) {
@@ -54,6 +59,7 @@ const LogDetails = (props: LogDetailsProps) => {
   useEffect(() => {
     // 清空日志内容
     setValue('');
+    lastEventIdRef.current = '';
     // 建立新的连接
     establishSSEConnection();
 